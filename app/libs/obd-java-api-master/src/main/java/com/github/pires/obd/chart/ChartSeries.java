@@ -0,0 +1,150 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.chart;
+
+/**
+ * The points to draw for one command, at any zoom, within a fixed budget.
+ * <p>
+ * Drawing every sample of a 10Hz PID over an hour is 36000 points per frame.
+ * Instead each value goes into a few levels of buckets, each level coarser
+ * than the one before by a constant factor, and every bucket keeps only its
+ * minimum and maximum: peaks survive, and a bucket draws as at most two
+ * points. {@link #render(long, long, int, long[], float[])} picks the finest
+ * level that fits the range into the point budget. With the defaults,
+ * buckets of 100ms, 0.8s, 6.4s, 51.2s and 6.8min, 1024 of each, and a budget
+ * of 600 points, a 10s view draws every sample of a 10Hz PID and a 2h one
+ * 142 buckets of 51.2s.
+ * <p>
+ * Adding a value is O(levels) and allocates nothing. One thread may add
+ * while others render.
+ */
+public class ChartSeries {
+
+    /** Constant <code>DEFAULT_WIDTH=100</code>, in ms. */
+    public static final long DEFAULT_WIDTH = 100;
+    /** Constant <code>DEFAULT_FACTOR=8</code> */
+    public static final int DEFAULT_FACTOR = 8;
+    /** Constant <code>DEFAULT_LEVELS=5</code> */
+    public static final int DEFAULT_LEVELS = 5;
+    /** Constant <code>DEFAULT_CAPACITY=1024</code> */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final ChartLevel[] levels;
+    private long first = Long.MAX_VALUE;
+
+    /**
+     * <p>Constructor for ChartSeries.</p>
+     */
+    public ChartSeries() {
+        this(DEFAULT_WIDTH, DEFAULT_FACTOR, DEFAULT_LEVELS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <p>Constructor for ChartSeries.</p>
+     *
+     * @param width    the width of the finest buckets, in ms.
+     * @param factor   how many times wider the buckets of each next level are.
+     * @param levels   the number of levels.
+     * @param capacity the number of buckets kept per level.
+     */
+    public ChartSeries(long width, int factor, int levels, int capacity) {
+        if (width < 1 || factor < 2 || levels < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid levels: " + levels + " of " + capacity
+                    + " buckets from " + width + "ms by " + factor);
+        }
+        this.levels = new ChartLevel[levels];
+        for (int i = 0; i < levels; i++) {
+            this.levels[i] = new ChartLevel(width, capacity);
+            width *= factor;
+        }
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param timestamp when it was read, in ms since the epoch.
+     * @param value     the value, NaN is ignored.
+     */
+    public synchronized void add(long timestamp, float value) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        first = Math.min(first, timestamp);
+        for (ChartLevel level : levels) {
+            level.add(timestamp, value);
+        }
+    }
+
+    /**
+     * Writes the points to draw for a time range.
+     *
+     * @param from       the earliest time, included.
+     * @param to         the latest time, excluded.
+     * @param maxPoints  the point budget, at least 2.
+     * @param timestamps receives the times of the points.
+     * @param values     receives the values of the points.
+     * @return the number of points written, no more than maxPoints or fit
+     * in the arrays.
+     */
+    public synchronized int render(long from, long to, int maxPoints, long[] timestamps, float[] values) {
+        int limit = Math.min(maxPoints, Math.min(timestamps.length, values.length));
+        return levelFor(from, to, maxPoints).render(from, to, timestamps, values, limit);
+    }
+
+    /**
+     * @return the finest level that fits the range in the budget, two points
+     * per bucket, and still has its start (or the first value, if later),
+     * else the coarsest.
+     */
+    private ChartLevel levelFor(long from, long to, int maxPoints) {
+        long buckets = Math.max(1, maxPoints / 2);
+        long start = Math.max(from, first);
+        for (ChartLevel level : levels) {
+            // a bucket more at each end of the range
+            if ((to - from) / level.width + 2 <= buckets && level.oldest() <= start) {
+                return level;
+            }
+        }
+        return levels[levels.length - 1];
+    }
+
+    /**
+     * <p>getLevels.</p>
+     *
+     * @return the number of levels.
+     */
+    public int getLevels() {
+        return levels.length;
+    }
+
+    /**
+     * <p>getWidth.</p>
+     *
+     * @param level 0 for the finest.
+     * @return the width of the level's buckets, in ms.
+     */
+    public long getWidth(int level) {
+        return levels[level].width;
+    }
+
+    /**
+     * Forgets all values.
+     */
+    public synchronized void clear() {
+        first = Long.MAX_VALUE;
+        for (ChartLevel level : levels) {
+            level.clear();
+        }
+    }
+
+}
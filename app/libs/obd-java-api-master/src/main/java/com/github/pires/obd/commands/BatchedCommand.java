@@ -0,0 +1,231 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.exceptions.NonNumericResponseException;
+import com.github.pires.obd.pids.PidRegistry;
+import com.github.pires.obd.utils.IsoTpAssembler;
+import com.github.pires.obd.utils.IsoTpMessage;
+
+import java.util.List;
+
+/**
+ * Up to six mode 01 PIDs requested at once, i.e. "01 0C 0D 05". CAN ECUs
+ * answer with all values in one message, which is split back into the
+ * member commands.
+ */
+class BatchedCommand extends ObdCommand {
+
+    /**
+     * Maximum number of PIDs allowed in one request.
+     */
+    static final int MAX_PIDS = 6;
+    /**
+     * Failed requests in a row after which the batch is given up, when the
+     * ECU never said it doesn't understand it.
+     */
+    static final int MAX_FAILURES = 3;
+
+    private final ObdCommand[] members;
+    private final int[] pids;
+    private final boolean[] answered;
+    private final int[] slice = new int[7];
+    private final IsoTpAssembler assembler = new IsoTpAssembler();
+    private boolean rejected = false;
+    private int failures = 0;
+
+    /**
+     * <p>Constructor for BatchedCommand.</p>
+     *
+     * @param members between one and {@link #MAX_PIDS} batchable commands.
+     */
+    BatchedCommand(List<ObdCommand> members) {
+        super(requestFor(members));
+        this.members = members.toArray(new ObdCommand[members.size()]);
+        this.pids = new int[this.members.length];
+        this.answered = new boolean[this.members.length];
+        for (int i = 0; i < this.members.length; i++) {
+            pids[i] = pidOf(this.members[i]);
+        }
+    }
+
+    private static String requestFor(List<ObdCommand> members) {
+        StringBuilder request = new StringBuilder("01");
+        for (ObdCommand member : members) {
+            request.append(' ').append(member.getCommandPID());
+        }
+        return request.toString();
+    }
+
+    /**
+     * Returns the PID of a command that can be part of a batch.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @return the mode 01 PID, or -1 if the command must be sent on its own.
+     */
+    static int pidOf(ObdCommand command) {
+        String request = command.cmd;
+        if (command instanceof PersistentCommand || command instanceof BatchedCommand
+                || request == null || request.length() != 5 || !request.startsWith("01 ")) {
+            return -1;
+        }
+        int high = Character.digit(request.charAt(3), 16);
+        int low = Character.digit(request.charAt(4), 16);
+        if (high < 0 || low < 0) {
+            return -1;
+        }
+        int pid = high << 4 | low;
+        return PidRegistry.getLength(0x01, pid) > 0 ? pid : -1;
+    }
+
+    /**
+     * <p>isRejected.</p>
+     *
+     * @return true if the ECU did not understand the combined request.
+     */
+    boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * Remembers that the ECU does not support combined requests.
+     */
+    void reject() {
+        rejected = true;
+    }
+
+    /**
+     * Counts a request that got no value, i.e. NO DATA with the engine off,
+     * and gives the batch up after {@link #MAX_FAILURES} in a row.
+     */
+    void fail() {
+        if (++failures >= MAX_FAILURES) {
+            rejected = true;
+        }
+    }
+
+    /**
+     * Forgets the failures, after a request got values.
+     */
+    void succeed() {
+        failures = 0;
+    }
+
+    /**
+     * <p>getMembers.</p>
+     *
+     * @return the commands in this batch.
+     */
+    ObdCommand[] getMembers() {
+        return members;
+    }
+
+    /**
+     * <p>isAnswered.</p>
+     *
+     * @param index a member index.
+     * @return true if the last response carried a value for that member.
+     */
+    boolean isAnswered(int index) {
+        return answered[index];
+    }
+
+    /**
+     * Decodes single frame responses as usual. Multi frame CAN responses
+     * ("00A0:410C1AF80D401:057B0480000000" once whitespace is gone) are
+     * joined by an {@link IsoTpAssembler}; only the first ECU's message is
+     * used.
+     */
+    @Override
+    protected void fillBuffer() {
+        String data = getResult();
+        if (data.indexOf(':') < 0) {
+            super.fillBuffer();
+            return;
+        }
+        if (data.charAt(0) == '.') { // left by "SEARCHING..."
+            data = data.replace(".", "");
+        }
+        List<IsoTpMessage> messages = assembler.assemble(data);
+        if (messages.isEmpty()) {
+            throw new NonNumericResponseException(data);
+        }
+        IsoTpMessage message = messages.get(0);
+        if (buffer.length < message.getLength()) {
+            buffer = new int[message.getLength()];
+        }
+        for (int i = 0; i < message.getLength(); i++) {
+            buffer[i] = message.getByte(i);
+        }
+        bufferLength = message.getLength();
+    }
+
+    /**
+     * Hands every "PID data..." group of the response to its command.
+     */
+    @Override
+    protected void performCalculations() {
+        for (int i = 0; i < answered.length; i++) {
+            answered[i] = false;
+        }
+        if (bufferLength == 0 || buffer[0] != 0x41) {
+            return;
+        }
+        slice[0] = 0x41;
+        int position = 1;
+        while (position < bufferLength) {
+            int member = memberFor(buffer[position]);
+            if (member < 0 || answered[member]) {
+                return; // unknown PID or a second ECU answering, leave the rest to single requests
+            }
+            int length = PidRegistry.getLength(0x01, pids[member]);
+            if (position + 1 + length > bufferLength) {
+                return;
+            }
+            System.arraycopy(buffer, position, slice, 1, 1 + length);
+            members[member].setStart(getStart());
+            members[member].readResult(slice, 2 + length);
+            members[member].setEnd(System.currentTimeMillis());
+            answered[member] = true;
+            position += 1 + length;
+        }
+    }
+
+    private int memberFor(int pid) {
+        for (int i = 0; i < pids.length; i++) {
+            if (pids[i] == pid) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFormattedResult() {
+        return getResult();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCalculatedResult() {
+        return String.valueOf(getResult());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return "Batched request " + getCommandPID();
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The results {@link PersistentCommand}s learnt on one adapter connection,
+ * i.e. the supported PID bitmaps and the VIN of the vehicle on it.
+ * <p>
+ * A connection is identified by its input stream, like the lock of an
+ * {@link ObdSession}: vehicles on different adapters never see each other's
+ * results, and a session and the legacy
+ * {@link ObdCommand#run(java.io.InputStream, java.io.OutputStream)} over the
+ * same socket share them. Results are safe to read and write from any thread.
+ */
+public class KnownResults {
+
+    private static final Map<InputStream, KnownResults> CONNECTIONS = new WeakHashMap<>();
+
+    private final ConcurrentMap<String, Result> results = new ConcurrentHashMap<>();
+
+    /**
+     * A raw result and its decoded bytes, replaced as a whole.
+     */
+    static final class Result {
+        final String raw;
+        final int[] bytes;
+
+        Result(String raw, int[] bytes) {
+            this.raw = raw;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * <p>Constructor for KnownResults.</p>
+     */
+    KnownResults() {
+    }
+
+    /**
+     * The results of a connection, kept until its stream is gone.
+     *
+     * @param in the adapter {@link java.io.InputStream}.
+     * @return a {@link com.github.pires.obd.commands.KnownResults} object.
+     */
+    public static KnownResults of(InputStream in) {
+        synchronized (CONNECTIONS) {
+            KnownResults known = CONNECTIONS.get(in);
+            if (known == null) {
+                known = new KnownResults();
+                CONNECTIONS.put(in, known);
+            }
+            return known;
+        }
+    }
+
+    /**
+     * @return the results of every connection still open.
+     */
+    static ArrayList<KnownResults> all() {
+        synchronized (CONNECTIONS) {
+            return new ArrayList<>(CONNECTIONS.values());
+        }
+    }
+
+    /**
+     * <p>knows.</p>
+     *
+     * @param key the command key, i.e. "VinCommand", see
+     *            {@link PersistentCommand#getKey()}.
+     * @return whether the result is known on this connection.
+     */
+    public boolean knows(String key) {
+        return results.containsKey(key);
+    }
+
+    /**
+     * <p>Getter for the known results.</p>
+     *
+     * @return the raw result of every command run so far, by key, i.e.
+     * "AvailablePidsCommand_01_20" to "4100BE1FA813".
+     */
+    public Map<String, String> getResults() {
+        Map<String, String> raw = new HashMap<>();
+        for (Map.Entry<String, Result> result : results.entrySet()) {
+            raw.put(result.getKey(), result.getValue().raw);
+        }
+        return Collections.unmodifiableMap(raw);
+    }
+
+    /**
+     * Makes the command with the given key known without asking the
+     * vehicle, i.e. from a result stored for the same vehicle on an earlier
+     * connection.
+     *
+     * @param key    the command key, i.e. "VinCommand".
+     * @param result the raw result, as returned by {@link #getResults()}.
+     */
+    public void remember(String key, String result) {
+        int[] bytes = new int[result.length() % 2 == 0 ? result.length() / 2 : 0];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(result.charAt(2 * i), 16);
+            int low = Character.digit(result.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                bytes = new int[0]; // not a plain response, such as a multi frame VIN
+                break;
+            }
+            bytes[i] = high << 4 | low;
+        }
+        results.put(key, new Result(result, bytes));
+    }
+
+    /**
+     * Forgets every result, i.e. when another vehicle is plugged in.
+     */
+    public void clear() {
+        results.clear();
+    }
+
+    Result get(String key) {
+        return results.get(key);
+    }
+
+    void put(String key, String raw, int[] bytes) {
+        results.put(key, new Result(raw, bytes));
+    }
+
+}
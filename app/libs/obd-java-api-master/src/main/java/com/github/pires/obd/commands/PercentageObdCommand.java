@@ -12,6 +12,8 @@
  */
 package com.github.pires.obd.commands;
 
+import com.github.pires.obd.enums.ResultUnit;
+
 /**
  * Abstract class for percentage commands.
  *
@@ -41,8 +43,12 @@ public abstract class PercentageObdCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        percentage = (buffer.get(2) * 100.0f) / 255.0f;
+        if (hasFormula()) {
+            percentage = (float) decode();
+        } else {
+            // ignore first two bytes [hh hh] of the response
+            percentage = (getByte(2) * 100.0f) / 255.0f;
+        }
     }
 
     /** {@inheritDoc} */
@@ -62,8 +68,14 @@ public abstract class PercentageObdCommand extends ObdCommand {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return "%";
+    public double value() {
+        return percentage;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return ResultUnit.PERCENT;
     }
 
     /** {@inheritDoc} */
@@ -15,19 +15,16 @@ package com.github.pires.obd.commands;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Base persistent OBD command.
- *
+ * <p>
+ * Its result is asked once per connection, see {@link KnownResults}, and
+ * served from there afterwards.
  */
 public abstract class PersistentCommand extends ObdCommand {
 
-    private static Map<String, String> knownValues = new HashMap<>();
-    private static Map<String, ArrayList<Integer>> knownBuffers = new HashMap<>();
-
     /**
      * <p>Constructor for PersistentCommand.</p>
      *
@@ -47,43 +44,73 @@ public abstract class PersistentCommand extends ObdCommand {
     }
 
     /**
-     * <p>reset.</p>
+     * Forgets the results known on every connection.
      */
     public static void reset() {
-        knownValues = new HashMap<>();
-        knownBuffers = new HashMap<>();
+        for (KnownResults known : KnownResults.all()) {
+            known.clear();
+        }
     }
 
     /**
      * <p>knows.</p>
      *
      * @param cmd a {@link java.lang.Class} object.
-     * @return a boolean.
+     * @return whether the command's result is known on any connection.
      */
     public static boolean knows(Class cmd) {
         String key = cmd.getSimpleName();
-        return knownValues.containsKey(key);
+        for (KnownResults known : KnownResults.all()) {
+            if (known.knows(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether this command's result is known on the session, so running it
+     * there won't go to the vehicle.
+     *
+     * @param session a {@link com.github.pires.obd.commands.ObdSession} object.
+     * @return a boolean.
+     */
+    public boolean isKnown(ObdSession session) {
+        return session.getKnownResults().knows(getKey());
+    }
+
+    /**
+     * Name the result is known by. By default this value is set to the class
+     * simple name, so all instances of a class share the result.
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    protected String getKey() {
+        return getClass().getSimpleName();
     }
 
     /** {@inheritDoc} */
     @Override
     protected void readResult(InputStream in) throws IOException {
         super.readResult(in);
-        String key = getClass().getSimpleName();
-        knownValues.put(key, rawData);
-        knownBuffers.put(key, new ArrayList<>(buffer));
+        KnownResults.of(in).put(getKey(), getResult(), Arrays.copyOf(buffer, bufferLength));
     }
 
     /** {@inheritDoc} */
     @Override
-    public void run(InputStream in, OutputStream out) throws IOException, InterruptedException {
-        String key = getClass().getSimpleName();
-        if (knownValues.containsKey(key)) {
-            rawData = knownValues.get(key);
-            buffer = knownBuffers.get(key);
+    protected void execute(InputStream in, OutputStream out) throws IOException, InterruptedException {
+        KnownResults.Result known = KnownResults.of(in).get(getKey());
+        if (known != null) {
+            clearNanos();
+            rawData = known.raw;
+            if (buffer.length < known.bytes.length) {
+                buffer = new int[known.bytes.length];
+            }
+            System.arraycopy(known.bytes, 0, buffer, 0, known.bytes.length);
+            bufferLength = known.bytes.length;
             performCalculations();
         } else {
-            super.run(in, out);
+            super.execute(in, out);
         }
     }
 }
@@ -49,20 +49,17 @@ public class EquivalentRatioCommand extends PercentageObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        int a = buffer.get(2);
-        int b = buffer.get(3);
-        percentage = (a * 256 + b) / 32768;
+        percentage = (float) (decode() * 100);
     }
 
 
     /**
      * <p>getRatio.</p>
      *
-     * @return a double.
+     * @return the commanded equivalence ratio, i.e. 1.0 in closed loop.
      */
     public double getRatio() {
-        return (double) percentage;
+        return percentage / 100.0;
     }
 
     /** {@inheritDoc} */
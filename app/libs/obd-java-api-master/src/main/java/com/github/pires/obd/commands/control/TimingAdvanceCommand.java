@@ -16,11 +16,14 @@ import com.github.pires.obd.commands.PercentageObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
 
 /**
- * Timing Advance
+ * Timing Advance. The percentage is the raw byte over its range, the advance
+ * itself is {@link #getDegrees()}.
  *
  */
 public class TimingAdvanceCommand extends PercentageObdCommand {
 
+    private float degrees = 0f;
+
     /**
      * <p>Constructor for TimingAdvanceCommand.</p>
      */
@@ -37,6 +40,23 @@ public class TimingAdvanceCommand extends PercentageObdCommand {
         super(other);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void performCalculations() {
+        // ignore first two bytes [hh hh] of the response
+        percentage = (getByte(2) * 100.0f) / 255.0f;
+        degrees = (float) decode();
+    }
+
+    /**
+     * <p>Getter for the field <code>degrees</code>.</p>
+     *
+     * @return the advance in degrees before top dead center.
+     */
+    public float getDegrees() {
+        return degrees;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getName() {
@@ -14,9 +14,12 @@ package com.github.pires.obd.commands.control;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.utils.IsoTpAssembler;
+import com.github.pires.obd.utils.IsoTpMessage;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * It is not needed no know how many DTC are stored.
@@ -34,6 +37,7 @@ public class TroubleCodesCommand extends ObdCommand {
     protected final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
     protected StringBuilder codes = null;
+    private final IsoTpAssembler assembler = new IsoTpAssembler();
 
     /**
      * <p>Constructor for TroubleCodesCommand.</p>
@@ -61,39 +65,46 @@ public class TroubleCodesCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        final String result = getResult();
-        String workingData;
-        int startIndex = 0;//Header size.
-
-        String canOneFrame = result.replaceAll("[\r\n]", "");
-        int canOneFrameLength = canOneFrame.length();
-        if (canOneFrameLength <= 16 && canOneFrameLength % 4 == 0) {//CAN(ISO-15765) protocol one frame.
-            workingData = canOneFrame;//43yy{codes}
-            startIndex = 4;//Header is 43yy, yy showing the number of data items.
-        } else if (result.contains(":")) {//CAN(ISO-15765) protocol two and more frames.
-            workingData = result.replaceAll("[\r\n].:", "");//xxx43yy{codes}
-            startIndex = 7;//Header is xxx43yy, xxx is bytes of information to follow, yy showing the number of data items.
-        } else {//ISO9141-2, KWP2000 Fast and KWP2000 5Kbps (ISO15031) protocols.
-            workingData = result.replaceAll("^43|[\r\n]43|[\r\n]", "");
-        }
-        for (int begin = startIndex; begin < workingData.length(); begin += 4) {
-            String dtc = "";
-            byte b1 = hexStringToByteArray(workingData.charAt(begin));
-            int ch1 = ((b1 & 0xC0) >> 6);
-            int ch2 = ((b1 & 0x30) >> 4);
-            dtc += dtcLetters[ch1];
-            dtc += hexArray[ch2];
-            dtc += workingData.substring(begin+1, begin + 4);
-            if (dtc.equals("P0000")) {
-                return;
-            }
-            codes.append(dtc);
-            codes.append('\n');
-        }
+        decodeCodes(assembler.assemble(getResult()), 0x43, codes);
     }
 
-    private byte hexStringToByteArray(char s) {
-        return (byte) ((Character.digit(s, 16) << 4));
+    /**
+     * Appends the codes of every ECU's answer to a request for trouble codes.
+     * <p>
+     * On CAN an answer is one message, 43yy{codes} with yy the number of
+     * codes; on other protocols it is one or more messages of three codes,
+     * 43{codes}, padded with P0000.
+     *
+     * @param messages the response, see {@link IsoTpAssembler}.
+     * @param service  the service byte of the answer, i.e. 0x43.
+     * @param codes    where codes are appended, one per line.
+     */
+    static void decodeCodes(List<IsoTpMessage> messages, int service, StringBuilder codes) {
+        codes.setLength(0);
+        for (IsoTpMessage message : messages) {
+            int length = message.getLength();
+            if (length == 0 || message.getByte(0) != service) {
+                continue; // the echo, or an answer to something else
+            }
+            int begin = 1;
+            if ((length & 1) == 0) { // CAN, the count has made the length even
+                begin = 2;
+                length = Math.min(length, begin + 2 * message.getByte(1));
+            }
+            for (; begin + 1 < length; begin += 2) {
+                int b1 = message.getByte(begin);
+                int b2 = message.getByte(begin + 1);
+                if (b1 == 0 && b2 == 0) {
+                    break;
+                }
+                codes.append(dtcLetters[b1 >> 6]);
+                codes.append(hexArray[(b1 >> 4) & 0x03]);
+                codes.append(hexArray[b1 & 0x0F]);
+                codes.append(hexArray[b2 >> 4]);
+                codes.append(hexArray[b2 & 0x0F]);
+                codes.append('\n');
+            }
+        }
     }
 
     /**
@@ -116,30 +127,7 @@ public class TroubleCodesCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void readRawData(InputStream in) throws IOException {
-        byte b;
-        StringBuilder res = new StringBuilder();
-
-        // read until '>' arrives OR end of stream reached (and skip ' ')
-        char c;
-        while (true) {
-            b = (byte) in.read();
-            if (b == -1) // -1 if the end of the stream is reached
-            {
-                break;
-            }
-            c = (char) b;
-            if (c == '>') // read until '>' arrives
-            {
-                break;
-            }
-            if (c != ' ') // skip ' '
-            {
-                res.append(c);
-            }
-        }
-
-        rawData = res.toString().trim();
-
+        readRawLines(in);
     }
 
     /** {@inheritDoc} */
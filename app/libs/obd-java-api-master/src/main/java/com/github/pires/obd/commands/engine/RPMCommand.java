@@ -14,6 +14,7 @@ package com.github.pires.obd.commands.engine;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * Displays the current engine revolutions per minute (RPM).
@@ -42,8 +43,7 @@ public class RPMCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [41 0C] of the response((A*256)+B)/4
-        rpm = (buffer.get(2) * 256 + buffer.get(3)) / 4;
+        rpm = (int) decode();
     }
 
     /** {@inheritDoc} */
@@ -60,8 +60,14 @@ public class RPMCommand extends ObdCommand {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return "RPM";
+    public double value() {
+        return rpm;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return ResultUnit.RPM;
     }
 
     /** {@inheritDoc} */
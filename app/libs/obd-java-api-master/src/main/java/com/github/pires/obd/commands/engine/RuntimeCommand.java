@@ -14,6 +14,7 @@ package com.github.pires.obd.commands.engine;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * Engine runtime.
@@ -42,8 +43,7 @@ public class RuntimeCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [01 0C] of the response
-        value = buffer.get(2) * 256 + buffer.get(3);
+        value = (int) decode();
     }
 
     /** {@inheritDoc} */
@@ -64,8 +64,14 @@ public class RuntimeCommand extends ObdCommand {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return "s";
+    public double value() {
+        return value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return ResultUnit.SECOND;
     }
 
     /** {@inheritDoc} */
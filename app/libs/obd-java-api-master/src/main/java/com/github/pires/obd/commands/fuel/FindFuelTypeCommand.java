@@ -44,7 +44,7 @@ public class FindFuelTypeCommand extends ObdCommand {
     @Override
     protected void performCalculations() {
         // ignore first two bytes [hh hh] of the response
-        fuelType = buffer.get(2);
+        fuelType = getByte(2);
     }
 
     /** {@inheritDoc} */
@@ -57,6 +57,16 @@ public class FindFuelTypeCommand extends ObdCommand {
         }
     }
 
+    /**
+     * <p>Getter for the field <code>fuelType</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.FuelType} object, null if
+     * unknown.
+     */
+    public FuelType getFuelType() {
+        return FuelType.fromValue(fuelType);
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getCalculatedResult() {
@@ -28,13 +28,6 @@ public class FuelLevelCommand extends PercentageObdCommand {
         super("01 2F");
     }
 
-    /** {@inheritDoc} */
-    @Override
-    protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        percentage = 100.0f * buffer.get(2) / 255.0f;
-    }
-
     /** {@inheritDoc} */
     @Override
     public String getName() {
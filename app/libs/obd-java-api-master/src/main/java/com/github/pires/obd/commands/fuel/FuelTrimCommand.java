@@ -43,22 +43,6 @@ public class FuelTrimCommand extends PercentageObdCommand {
         this(FuelTrim.SHORT_TERM_BANK_1);
     }
 
-    /**
-     * @param value
-     * @return
-     */
-    private float prepareTempValue(final int value) {
-        return (value - 128) * (100.0F / 128);
-    }
-
-    /**
-     * <p>performCalculations.</p>
-     */
-    protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        percentage = prepareTempValue(buffer.get(2));
-    }
-
     /**
      * <p>getValue.</p>
      *
@@ -54,6 +54,6 @@ public abstract class AvailablePidsCommand extends PersistentCommand {
     @Override
     public String getCalculatedResult() {
         //First 4 characters are a copy of the command code, don't return those
-        return String.valueOf(rawData).substring(4);
+        return String.valueOf(getResult()).substring(4);
     }
 }
@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands.protocol;
+
+/**
+ * Turn-on headers, so that every response line tells which ECU sent it. Run
+ * OBD requests through a {@link com.github.pires.obd.commands.MultiEcuCommand}
+ * while headers are on.
+ *
+ */
+public class HeadersOnCommand extends ObdProtocolCommand {
+
+    /**
+     * <p>Constructor for HeadersOnCommand.</p>
+     */
+    public HeadersOnCommand() {
+        super("ATH1");
+    }
+
+    /**
+     * <p>Constructor for HeadersOnCommand.</p>
+     *
+     * @param other a {@link com.github.pires.obd.commands.protocol.HeadersOnCommand} object.
+     */
+    public HeadersOnCommand(HeadersOnCommand other) {
+        super(other);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFormattedResult() {
+        return getResult();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return "Headers enabled";
+    }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands.protocol;
+
+/**
+ * Retrieve the supported PIDs of any mode and range, i.e. "01 60" for PIDs
+ * 61 to 80 or "09 00" for the vehicle information types 01 to 20.
+ *
+ * @see com.github.pires.obd.utils.PidSupportMap
+ */
+public class SupportedPidsCommand extends AvailablePidsCommand {
+
+    private final int mode;
+    private final int base;
+
+    /**
+     * Default ctor.
+     *
+     * @param mode the service, i.e. 0x01.
+     * @param base the PID before the range, a multiple of 0x20.
+     */
+    public SupportedPidsCommand(int mode, int base) {
+        super(String.format("%02X %02X", mode, base));
+        if (mode < 0x01 || mode > 0x0F || base < 0 || base > 0xE0 || base % 0x20 != 0) {
+            throw new IllegalArgumentException("Invalid range: " + mode + " " + base);
+        }
+        this.mode = mode;
+        this.base = base;
+    }
+
+    /**
+     * Copy ctor.
+     *
+     * @param other a {@link com.github.pires.obd.commands.protocol.SupportedPidsCommand} object.
+     */
+    public SupportedPidsCommand(SupportedPidsCommand other) {
+        this(other.mode, other.base);
+    }
+
+    /**
+     * Every range is known on its own, i.e. "SupportedPidsCommand_0160".
+     */
+    @Override
+    protected String getKey() {
+        return String.format("%s_%02X%02X", getClass().getSimpleName(), mode, base);
+    }
+
+    /**
+     * <p>Getter for the field <code>mode</code>.</p>
+     *
+     * @return a int.
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * <p>Getter for the field <code>base</code>.</p>
+     *
+     * @return a int.
+     */
+    public int getBase() {
+        return base;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return String.format("Available PIDs %02X %02X-%02X", mode, base + 1, base + 0x20);
+    }
+}
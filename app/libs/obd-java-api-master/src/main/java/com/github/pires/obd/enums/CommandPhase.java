@@ -0,0 +1,48 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.enums;
+
+/**
+ * Where the time of a command goes, see
+ * {@link com.github.pires.obd.commands.ObdCommand#getNanos(CommandPhase)}.
+ *
+ */
+public enum CommandPhase {
+
+    /**
+     * Writing the request to the adapter.
+     */
+    WRITE,
+
+    /**
+     * From the request sent to the first byte of the response: the adapter
+     * and the ECUs at work.
+     */
+    ECU_WAIT,
+
+    /**
+     * From the first byte of the response to the prompt.
+     */
+    READ,
+
+    /**
+     * Checking for errors and computing the result.
+     */
+    DECODE,
+
+    /**
+     * All of the above.
+     */
+    TOTAL
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.enums;
+
+/**
+ * Unit of a numeric command result, see
+ * {@link com.github.pires.obd.commands.ObdCommand#unit()}.
+ *
+ */
+public enum ResultUnit {
+
+    NONE("", 2),
+    PERCENT("%", 1),
+    RPM("RPM", 0),
+    SECOND("s", 0),
+    VOLT("V", 1),
+    KILOMETER("km", 0),
+    MILE("m", 2),
+    KILOMETERS_PER_HOUR("km/h", 0),
+    MILES_PER_HOUR("mph", 2),
+    CELSIUS("C", 0),
+    FAHRENHEIT("F", 1),
+    KILOPASCAL("kPa", 0),
+    PSI("psi", 1),
+    GRAMS_PER_SECOND("g/s", 2),
+    LITERS_PER_HOUR("L/h", 1),
+    DEGREE("\u00b0", 1),
+    PASCAL("Pa", 0),
+    MINUTE("min", 0),
+    NEWTON_METER("Nm", 0),
+    MILLIGRAM("mg", 2);
+
+    private final String symbol;
+    private final int decimals;
+
+    private ResultUnit(final String symbol, final int decimals) {
+        this.symbol = symbol;
+        this.decimals = decimals;
+    }
+
+    /**
+     * <p>Getter for the field <code>symbol</code>.</p>
+     *
+     * @return the unit as displayed, i.e. "km/h", or "" for NONE.
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * <p>Getter for the field <code>decimals</code>.</p>
+     *
+     * @return the number of decimals values in this unit are displayed with.
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+}
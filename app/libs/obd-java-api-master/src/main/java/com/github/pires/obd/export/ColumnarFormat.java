@@ -0,0 +1,124 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constants and integer coding shared by {@link ColumnarRowWriter} and
+ * {@link ColumnarReader}.
+ */
+final class ColumnarFormat {
+
+    static final int MAGIC = 0x4F424443; // "OBDC"
+    static final int VERSION = 1;
+
+    static final int EMPTY = 0;
+    static final int DELTA = 1;
+    static final int DICTIONARY = 2;
+
+    /** Most decimals a value may have to be stored as a number. */
+    static final int MAX_SCALE = 6;
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * Writes a value as 7 bits per byte, low bits first, zigzag coded so
+     * small negative values stay short.
+     */
+    static void writeSigned(DataOutput out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    static void writeUnsigned(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readSigned(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readUnsigned(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed number");
+    }
+
+    /**
+     * Number of decimals of a plain decimal number such as "-12.5".
+     *
+     * @return -1 if the value isn't one, or has more than {@link #MAX_SCALE}
+     * decimals or 18 digits.
+     */
+    static int scaleOf(String value) {
+        int length = value.length();
+        int i = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || digits > 18 || scale == 0 || scale > MAX_SCALE) {
+            return -1;
+        }
+        return Math.max(scale, 0);
+    }
+
+    /**
+     * The value times 10 to the scale, i.e. "-12.5" at scale 2 is -1250.
+     */
+    static long unscaled(String value, int scale) {
+        long result = 0;
+        int decimals = -1;
+        boolean negative = value.charAt(0) == '-';
+        for (int i = negative ? 1 : 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                decimals = 0;
+            } else {
+                result = result * 10 + (c - '0');
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            }
+        }
+        for (int i = Math.max(decimals, 0); i < scale; i++) {
+            result *= 10;
+        }
+        return negative ? -result : result;
+    }
+}
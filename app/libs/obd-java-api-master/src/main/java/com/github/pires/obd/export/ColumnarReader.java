@@ -0,0 +1,226 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Reads a file written by {@link ColumnarRowWriter} row by row, one block in
+ * memory at a time.
+ */
+public class ColumnarReader implements Closeable {
+
+    private final DataInputStream in;
+    private final String[] names;
+    private final String[] units;
+    private long[] timestamps = new long[0];
+    private long[][] numbers;
+    private String[][] strings;
+    private int[] scales;
+    private boolean[][] present;
+    private int rows = 0;
+    private int row = -1;
+    private long lastTimestamp = 0;
+    private boolean ended = false;
+
+    /**
+     * <p>Constructor for ColumnarReader.</p>
+     *
+     * @param in a {@link java.io.InputStream} object.
+     * @throws java.io.IOException if it isn't a columnar file.
+     */
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != ColumnarFormat.MAGIC) {
+            throw new IOException("Not a columnar trip export");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != ColumnarFormat.VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        int count = (int) ColumnarFormat.readUnsigned(this.in);
+        names = new String[count];
+        units = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = this.in.readUTF();
+            units[i] = this.in.readUTF();
+        }
+        numbers = new long[count][];
+        strings = new String[count][];
+        scales = new int[count];
+        present = new boolean[count][];
+    }
+
+    /**
+     * Moves to the next row.
+     *
+     * @return false after the last row.
+     * @throws java.io.IOException if any.
+     */
+    public boolean next() throws IOException {
+        if (++row < rows) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        rows = (int) ColumnarFormat.readUnsigned(in);
+        row = 0;
+        if (rows == 0) {
+            ended = true;
+            return false;
+        }
+        readBlock();
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        if (timestamps.length < rows) {
+            timestamps = new long[rows];
+        }
+        for (int i = 0; i < rows; i++) {
+            lastTimestamp += ColumnarFormat.readSigned(in);
+            timestamps[i] = lastTimestamp;
+        }
+        for (int c = 0; c < names.length; c++) {
+            int encoding = in.readUnsignedByte();
+            if (present[c] == null || present[c].length < rows) {
+                present[c] = new boolean[rows];
+            }
+            boolean[] has = present[c];
+            if (encoding == ColumnarFormat.EMPTY) {
+                Arrays.fill(has, false);
+                continue;
+            }
+            for (int i = 0; i < rows; i += 8) {
+                int bits = in.readUnsignedByte();
+                for (int j = 0; j < 8 && i + j < rows; j++) {
+                    has[i + j] = (bits & 1 << j) != 0;
+                }
+            }
+            if (encoding == ColumnarFormat.DELTA) {
+                scales[c] = in.readUnsignedByte();
+                if (numbers[c] == null || numbers[c].length < rows) {
+                    numbers[c] = new long[rows];
+                }
+                strings[c] = null;
+                long value = 0;
+                for (int i = 0; i < rows; i++) {
+                    if (has[i]) {
+                        value += ColumnarFormat.readSigned(in);
+                        numbers[c][i] = value;
+                    }
+                }
+            } else if (encoding == ColumnarFormat.DICTIONARY) {
+                scales[c] = -1;
+                String[] entries = new String[(int) ColumnarFormat.readUnsigned(in)];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = in.readUTF();
+                }
+                if (strings[c] == null || strings[c].length < rows) {
+                    strings[c] = new String[rows];
+                }
+                for (int i = 0; i < rows; i++) {
+                    strings[c][i] = has[i] ? entries[(int) ColumnarFormat.readUnsigned(in)] : null;
+                }
+            } else {
+                throw new IOException("Unknown column encoding " + encoding);
+            }
+        }
+    }
+
+    /**
+     * <p>getColumnCount.</p>
+     *
+     * @return a int.
+     */
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * <p>getName.</p>
+     *
+     * @param column a int.
+     * @return a {@link java.lang.String} object.
+     */
+    public String getName(int column) {
+        return names[column];
+    }
+
+    /**
+     * <p>getUnit.</p>
+     *
+     * @param column a int.
+     * @return a {@link java.lang.String} object, empty if none.
+     */
+    public String getUnit(int column) {
+        return units[column];
+    }
+
+    /**
+     * <p>getTimestamp.</p>
+     *
+     * @return the row start, in ms since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamps[row];
+    }
+
+    /**
+     * <p>getValue.</p>
+     *
+     * @param column a int.
+     * @return the value, null if the row has none.
+     */
+    public String getValue(int column) {
+        if (!present[column][row]) {
+            return null;
+        }
+        if (scales[column] < 0) {
+            return strings[column][row];
+        }
+        return BigDecimal.valueOf(numbers[column][row], scales[column]).toPlainString();
+    }
+
+    /**
+     * <p>getDouble.</p>
+     *
+     * @param column a int.
+     * @return the value, NaN if the row has none or it isn't a number.
+     */
+    public double getDouble(int column) {
+        if (!present[column][row]) {
+            return Double.NaN;
+        }
+        if (scales[column] < 0) {
+            try {
+                return Double.parseDouble(strings[column][row]);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return numbers[column][row] / Math.pow(10, scales[column]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes rows in a compact columnar format, read back with
+ * {@link ColumnarReader}.
+ * <p>
+ * Rows are buffered in blocks and each block is written column by column,
+ * so memory stays at one block whatever the number of rows. All numbers are
+ * variable length, 7 bits per byte, signed ones zigzag coded.
+ * <pre>
+ * file:   "OBDC" version:u8 columns:uint (name:utf unit:utf)* block* 0:uint
+ * block:  rows:uint timestamps column*
+ *         timestamps: first as sint delta to the last timestamp of the
+ *         previous block (0 for the first block), then sint deltas
+ * column: 0 (no values)
+ *       | 1 presence scale:u8 (sint delta of value * 10^scale)*
+ *       | 2 presence entries:uint (entry:utf)* (index:uint)*
+ *         presence: one bit per row, lowest bit first, set if it has a value
+ * </pre>
+ * A column of plain decimal numbers in a block is delta coded (1), anything
+ * else gets a dictionary of its distinct values (2). Both restart in every
+ * block. utf is as written by {@link java.io.DataOutput#writeUTF(String)}.
+ */
+public class ColumnarRowWriter implements RowWriter {
+
+    /** Constant <code>DEFAULT_BLOCK_SIZE=4096</code>, rows per block. */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final DataOutputStream out;
+    private final int blockSize;
+    private final HashMap<String, Integer> dictionary = new HashMap<>();
+    private long[] timestamps;
+    private String[][] columns;
+    private int rows = 0;
+    private long lastTimestamp = 0;
+
+    /**
+     * <p>Constructor for ColumnarRowWriter.</p>
+     *
+     * @param out where the rows go, i.e. a buffered file stream.
+     */
+    public ColumnarRowWriter(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * <p>Constructor for ColumnarRowWriter.</p>
+     *
+     * @param out       where the rows go, i.e. a buffered file stream.
+     * @param blockSize rows per block.
+     */
+    public ColumnarRowWriter(OutputStream out, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.out = new DataOutputStream(out);
+        this.blockSize = blockSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void begin(String[] names, String[] units) throws IOException {
+        out.writeInt(ColumnarFormat.MAGIC);
+        out.writeByte(ColumnarFormat.VERSION);
+        ColumnarFormat.writeUnsigned(out, names.length);
+        for (int i = 0; i < names.length; i++) {
+            out.writeUTF(names[i]);
+            out.writeUTF(units[i] == null ? "" : units[i]);
+        }
+        timestamps = new long[blockSize];
+        columns = new String[names.length][blockSize];
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void row(long timestamp, String[] values) throws IOException {
+        timestamps[rows] = timestamp;
+        for (int i = 0; i < columns.length; i++) {
+            columns[i][rows] = values[i];
+        }
+        if (++rows == blockSize) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        ColumnarFormat.writeUnsigned(out, rows);
+        for (int i = 0; i < rows; i++) {
+            ColumnarFormat.writeSigned(out, timestamps[i] - lastTimestamp);
+            lastTimestamp = timestamps[i];
+        }
+        for (String[] column : columns) {
+            writeColumn(column);
+        }
+        rows = 0;
+    }
+
+    private void writeColumn(String[] column) throws IOException {
+        int scale = 0;
+        boolean any = false;
+        for (int i = 0; i < rows && scale >= 0; i++) {
+            if (column[i] != null) {
+                any = true;
+                int valueScale = ColumnarFormat.scaleOf(column[i]);
+                scale = valueScale < 0 ? -1 : Math.max(scale, valueScale);
+            }
+        }
+        if (!any) {
+            out.writeByte(ColumnarFormat.EMPTY);
+            return;
+        }
+        out.writeByte(scale >= 0 ? ColumnarFormat.DELTA : ColumnarFormat.DICTIONARY);
+        for (int i = 0; i < rows; i += 8) {
+            int bits = 0;
+            for (int j = 0; j < 8 && i + j < rows; j++) {
+                if (column[i + j] != null) {
+                    bits |= 1 << j;
+                }
+            }
+            out.writeByte(bits);
+        }
+        if (scale >= 0) {
+            out.writeByte(scale);
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                if (column[i] != null) {
+                    long value = ColumnarFormat.unscaled(column[i], scale);
+                    ColumnarFormat.writeSigned(out, value - previous);
+                    previous = value;
+                }
+            }
+        } else {
+            dictionary.clear();
+            for (int i = 0; i < rows; i++) {
+                if (column[i] != null && !dictionary.containsKey(column[i])) {
+                    dictionary.put(column[i], dictionary.size());
+                }
+            }
+            String[] entries = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                entries[entry.getValue()] = entry.getKey();
+            }
+            ColumnarFormat.writeUnsigned(out, entries.length);
+            for (String entry : entries) {
+                out.writeUTF(entry);
+            }
+            for (int i = 0; i < rows; i++) {
+                if (column[i] != null) {
+                    ColumnarFormat.writeUnsigned(out, dictionary.get(column[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the last block and the end marker, then closes the stream.
+     *
+     * @throws java.io.IOException if any.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (columns != null) {
+                if (rows > 0) {
+                    writeBlock();
+                }
+                ColumnarFormat.writeUnsigned(out, 0);
+                columns = null;
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
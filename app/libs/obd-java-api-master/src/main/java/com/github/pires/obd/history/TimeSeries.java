@@ -0,0 +1,246 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.history;
+
+/**
+ * The latest values of one command, in a ring of primitive arrays.
+ * <p>
+ * Appending is O(1) and allocates nothing: once full, each value replaces
+ * the oldest one. The minimum, maximum and mean of the values kept are
+ * maintained as they come and go, the extremes with monotonic queues, so
+ * reading them is O(1) too. Values are in time order; ranges are found by
+ * binary search and read by index, 0 being the oldest.
+ * <p>
+ * One thread may append while others read.
+ */
+public class TimeSeries {
+
+    private final long[] timestamps;
+    private final float[] values;
+    /**
+     * Sequence numbers of the values that may still become the minimum
+     * (maximum) as older ones go, oldest first, so values increase (decrease).
+     */
+    private final long[] minima;
+    private final long[] maxima;
+    private int minHead = 0;
+    private int minSize = 0;
+    private int maxHead = 0;
+    private int maxSize = 0;
+    private long appended = 0;
+    private int size = 0;
+    private double sum = 0;
+
+    /**
+     * <p>Constructor for TimeSeries.</p>
+     *
+     * @param capacity the number of values kept, i.e. 6000 for 10 minutes at
+     *                 10Hz.
+     */
+    public TimeSeries(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity];
+        this.minima = new long[capacity];
+        this.maxima = new long[capacity];
+    }
+
+    /**
+     * Appends a value, replacing the oldest one if full.
+     *
+     * @param timestamp when it was read, in ms since the epoch. Earlier than
+     *                  the latest value it's taken as that one's.
+     * @param value     the value, NaN is ignored.
+     */
+    public synchronized void append(long timestamp, float value) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        int capacity = values.length;
+        if (size == capacity) {
+            long oldest = appended - size;
+            sum -= values[slot(oldest)];
+            if (minSize > 0 && minima[minHead] == oldest) {
+                minHead = (minHead + 1) % capacity;
+                minSize--;
+            }
+            if (maxSize > 0 && maxima[maxHead] == oldest) {
+                maxHead = (maxHead + 1) % capacity;
+                maxSize--;
+            }
+            size--;
+        }
+        if (size > 0) {
+            timestamp = Math.max(timestamp, timestamps[slot(appended - 1)]);
+        }
+        int slot = slot(appended);
+        timestamps[slot] = timestamp;
+        values[slot] = value;
+        sum += value;
+        // values no smaller (no greater) than this one can't be the minimum (maximum) anymore
+        while (minSize > 0 && values[slot(minima[(minHead + minSize - 1) % capacity])] >= value) {
+            minSize--;
+        }
+        minima[(minHead + minSize++) % capacity] = appended;
+        while (maxSize > 0 && values[slot(maxima[(maxHead + maxSize - 1) % capacity])] <= value) {
+            maxSize--;
+        }
+        maxima[(maxHead + maxSize++) % capacity] = appended;
+        appended++;
+        size++;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % values.length);
+    }
+
+    /**
+     * Forgets all values.
+     */
+    public synchronized void clear() {
+        appended = 0;
+        size = 0;
+        sum = 0;
+        minSize = 0;
+        maxSize = 0;
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return the number of values kept.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * <p>capacity.</p>
+     *
+     * @return the most values kept.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * <p>getTimestamp.</p>
+     *
+     * @param index 0 for the oldest value kept.
+     * @return when the value was read, in ms since the epoch.
+     */
+    public synchronized long getTimestamp(int index) {
+        return timestamps[slot(sequenceOf(index))];
+    }
+
+    /**
+     * <p>getValue.</p>
+     *
+     * @param index 0 for the oldest value kept.
+     * @return the value.
+     */
+    public synchronized float getValue(int index) {
+        return values[slot(sequenceOf(index))];
+    }
+
+    private long sequenceOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return appended - size + index;
+    }
+
+    /**
+     * Finds where a time range starts or ends.
+     *
+     * @param timestamp in ms since the epoch.
+     * @return the index of the first value read at or after that time, or
+     * {@link #size()} if there's none.
+     */
+    public synchronized int indexOf(long timestamp) {
+        int low = 0;
+        int high = size;
+        long first = appended - size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[slot(first + middle)] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies the values of a time range, i.e. to draw them.
+     *
+     * @param from       the earliest time, included.
+     * @param to         the latest time, excluded.
+     * @param timestamps receives the times, may be null.
+     * @param values     receives the values.
+     * @return the number of values copied, no more than fit.
+     */
+    public synchronized int copy(long from, long to, long[] timestamps, float[] values) {
+        int start = indexOf(from);
+        int count = Math.min(indexOf(to) - start, values.length);
+        long first = appended - size + start;
+        for (int i = 0; i < count; i++) {
+            int slot = slot(first + i);
+            if (timestamps != null) {
+                timestamps[i] = this.timestamps[slot];
+            }
+            values[i] = this.values[slot];
+        }
+        return Math.max(count, 0);
+    }
+
+    /**
+     * <p>getLatest.</p>
+     *
+     * @return the newest value, NaN if none.
+     */
+    public synchronized float getLatest() {
+        return size == 0 ? Float.NaN : values[slot(appended - 1)];
+    }
+
+    /**
+     * <p>getMin.</p>
+     *
+     * @return the smallest value kept, NaN if none.
+     */
+    public synchronized float getMin() {
+        return minSize == 0 ? Float.NaN : values[slot(minima[minHead])];
+    }
+
+    /**
+     * <p>getMax.</p>
+     *
+     * @return the largest value kept, NaN if none.
+     */
+    public synchronized float getMax() {
+        return maxSize == 0 ? Float.NaN : values[slot(maxima[maxHead])];
+    }
+
+    /**
+     * <p>getMean.</p>
+     *
+     * @return the mean of the values kept, NaN if none.
+     */
+    public synchronized double getMean() {
+        return size == 0 ? Double.NaN : sum / size;
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.history;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.polling.PollingListener;
+import com.github.pires.obd.telemetry.Sample;
+import com.github.pires.obd.telemetry.SampleListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the recent history of every command, so graphs, alerts and trip
+ * statistics can look back without polling the vehicle again.
+ * <p>
+ * Feed it either as (or composed into) the
+ * {@link com.github.pires.obd.polling.ObdPoller}'s listener, which keeps every
+ * sample, or by draining a {@link com.github.pires.obd.telemetry.Subscription}
+ * into it at the rate of choice. Each command gets a {@link TimeSeries} of
+ * the store's capacity the first time it's seen; commands are the same when
+ * they send the same request. Results without a numeric value, such as the
+ * VIN, aren't kept.
+ */
+public class TimeSeriesStore implements PollingListener, SampleListener {
+
+    private final int capacity;
+    private final ConcurrentMap<ObdCommand, TimeSeries> series = new ConcurrentHashMap<>();
+
+    /**
+     * <p>Constructor for TimeSeriesStore.</p>
+     *
+     * @param capacity the number of values kept per command.
+     */
+    public TimeSeriesStore(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Appends a value to the history of a command.
+     *
+     * @param command   a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @param timestamp when it was read, in ms since the epoch.
+     * @param value     the value, NaN is ignored.
+     */
+    public void append(ObdCommand command, long timestamp, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        TimeSeries history = series.get(command);
+        if (history == null) {
+            TimeSeries created = new TimeSeries(capacity);
+            history = series.putIfAbsent(command, created);
+            if (history == null) {
+                history = created;
+            }
+        }
+        history.append(timestamp, (float) value);
+    }
+
+    /**
+     * <p>getSeries.</p>
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @return the history of the command's request, null if none yet.
+     */
+    public TimeSeries getSeries(ObdCommand command) {
+        return series.get(command);
+    }
+
+    /**
+     * <p>getCommands.</p>
+     *
+     * @return the commands with a history.
+     */
+    public List<ObdCommand> getCommands() {
+        return new ArrayList<>(series.keySet());
+    }
+
+    /**
+     * Forgets all histories.
+     */
+    public void clear() {
+        series.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onSample(Sample sample) {
+        append(sample.getCommand(), sample.getTimestamp(), sample.getValue());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onResult(ObdCommand command) {
+        append(command, command.getEnd(), command.value());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onError(ObdCommand command, Exception e) {
+    }
+
+}
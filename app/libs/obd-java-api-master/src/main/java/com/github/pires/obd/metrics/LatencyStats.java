@@ -0,0 +1,99 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.metrics;
+
+import com.github.pires.obd.enums.CommandPhase;
+
+/**
+ * Percentiles of one phase of one command, as taken by
+ * {@link LatencyMonitor#snapshot()}. All durations are in µs.
+ */
+public class LatencyStats {
+
+    private final String command;
+    private final CommandPhase phase;
+    private final long count;
+    private final long p50;
+    private final long p99;
+    private final long max;
+
+    LatencyStats(String command, CommandPhase phase, LatencyHistogram histogram) {
+        this.command = command;
+        this.phase = phase;
+        this.count = histogram.getCount();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.max = histogram.getMax();
+    }
+
+    /**
+     * <p>Getter for the field <code>command</code>.</p>
+     *
+     * @return the name of the command.
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * <p>Getter for the field <code>phase</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.CommandPhase} object.
+     */
+    public CommandPhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * <p>Getter for the field <code>count</code>.</p>
+     *
+     * @return the number of runs measured.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * <p>getP50.</p>
+     *
+     * @return the median duration.
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * <p>getP99.</p>
+     *
+     * @return the duration 99% of the runs didn't exceed.
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * <p>Getter for the field <code>max</code>.</p>
+     *
+     * @return the longest duration.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return command + " " + phase + ": n=" + count + " p50=" + p50 + "us p99=" + p99 + "us max=" + max + "us";
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.pids;
+
+import com.github.pires.obd.enums.ResultUnit;
+
+/**
+ * What a PID's response holds and how to decode it, as listed by
+ * {@link PidRegistry}.
+ * <p>
+ * Most SAE J1979 formulas are linear in the first one, two or four data
+ * bytes taken as a big endian number, i.e. ((A*256)+B)/4 for engine speed:
+ * those descriptors have a scale and offset and decode a response straight
+ * from its bytes. Others, such as bit fields, only give the response length.
+ */
+public final class PidDescriptor {
+
+    private final int mode;
+    private final int pid;
+    private final int length;
+    private final int width;
+    private final boolean signed;
+    private final double scale;
+    private final double offset;
+    private final ResultUnit unit;
+    private final String name;
+
+    PidDescriptor(int mode, int pid, int length, int width, boolean signed, double scale, double offset,
+                  ResultUnit unit, String name) {
+        this.mode = mode;
+        this.pid = pid;
+        this.length = length;
+        this.width = width;
+        this.signed = signed;
+        this.scale = scale;
+        this.offset = offset;
+        this.unit = unit;
+        this.name = name;
+    }
+
+    /**
+     * Decodes the value of a response.
+     *
+     * @param response the response bytes, the mode and PID included, i.e.
+     *                 41 0C 1A F8.
+     * @param length   the number of valid entries in response.
+     * @return the value in {@link #getUnit()}; NaN if the response is too
+     * short or the PID isn't numeric.
+     */
+    public double decode(int[] response, int length) {
+        if (width == 0 || length < 2 + width) {
+            return Double.NaN;
+        }
+        long raw = 0;
+        for (int i = 2; i < 2 + width; i++) {
+            raw = raw << 8 | response[i];
+        }
+        if (signed) {
+            int shift = 64 - 8 * width;
+            raw = raw << shift >> shift;
+        }
+        return raw * scale + offset;
+    }
+
+    /**
+     * <p>isNumeric.</p>
+     *
+     * @return true if {@link #decode(int[], int)} gives a value.
+     */
+    public boolean isNumeric() {
+        return width > 0;
+    }
+
+    /**
+     * <p>Getter for the field <code>mode</code>.</p>
+     *
+     * @return the service, i.e. 0x01 for current data.
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * <p>Getter for the field <code>pid</code>.</p>
+     *
+     * @return a int.
+     */
+    public int getPid() {
+        return pid;
+    }
+
+    /**
+     * <p>Getter for the field <code>length</code>.</p>
+     *
+     * @return the number of data bytes in the response, after the mode and
+     * PID.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * <p>Getter for the field <code>scale</code>.</p>
+     *
+     * @return what the raw number is multiplied by.
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * <p>Getter for the field <code>offset</code>.</p>
+     *
+     * @return what is then added.
+     */
+    public double getOffset() {
+        return offset;
+    }
+
+    /**
+     * <p>Getter for the field <code>unit</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.ResultUnit} object.
+     */
+    public ResultUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * <p>Getter for the field <code>name</code>.</p>
+     *
+     * @return the SAE J1979 description.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return String.format("%02X %02X %s", mode, pid, name);
+    }
+
+}
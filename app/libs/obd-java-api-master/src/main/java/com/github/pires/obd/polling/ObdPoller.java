@@ -0,0 +1,130 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.exceptions.AdapterTimeoutException;
+
+import java.io.IOException;
+
+/**
+ * Polls the commands of a {@link PidScheduler} on a background thread and
+ * reports every result to a {@link PollingListener}.
+ * <p>
+ * Commands go out through {@link ObdSession#poll(ObdCommand)}, back to back
+ * whenever something is due, and the thread sleeps only while nothing is.
+ * Errors are reported and polling goes on, including a response that
+ * timed out ({@link AdapterTimeoutException}); it only ends on another
+ * {@link IOException}, when the connection is closed or broken.
+ */
+public class ObdPoller implements Runnable {
+
+    private final ObdSession session;
+    private final PidScheduler scheduler;
+    private final PollingListener listener;
+    private Thread thread;
+
+    /**
+     * <p>Constructor for ObdPoller.</p>
+     *
+     * @param session   the adapter to poll.
+     * @param scheduler the commands to poll and their frequencies.
+     * @param listener  a {@link com.github.pires.obd.polling.PollingListener} object.
+     */
+    public ObdPoller(ObdSession session, PidScheduler scheduler, PollingListener listener) {
+        this.session = session;
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts polling on a new thread. Does nothing if already running.
+     */
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+        thread = new Thread(this, "ObdPoller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops polling. A read in progress only ends once the adapter answers or
+     * its socket is closed, unless the session is over an
+     * {@link com.github.pires.obd.transport.ObdChannel}, which stops waiting
+     * right away.
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * <p>isRunning.</p>
+     *
+     * @return true if the polling thread is alive.
+     */
+    public synchronized boolean isRunning() {
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * <p>Getter for the field <code>scheduler</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.polling.PidScheduler} object.
+     */
+    public PidScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * The polling loop, run on the thread created by {@link #start()}.
+     */
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ObdCommand command;
+            try {
+                command = scheduler.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                session.poll(command);
+            } catch (InterruptedException e) {
+                return;
+            } catch (AdapterTimeoutException e) {
+                // one late response, the channel is still usable
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                listener.onError(command, e);
+                continue;
+            } catch (IOException e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    listener.onError(command, e);
+                }
+                return;
+            } catch (RuntimeException e) {
+                listener.onError(command, e);
+                continue;
+            }
+            listener.onResult(command);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+
+/**
+ * Receives the outcome of every command run by an {@link ObdPoller}.
+ * <p>
+ * Callbacks happen on the polling thread, and the command is reused for its
+ * next sample: read the values you need right away, then hand them to the UI
+ * thread (i.e. with Activity.runOnUiThread). Don't block, the adapter sits
+ * idle until the callback returns.
+ */
+public interface PollingListener {
+
+    /**
+     * Called after a command was run successfully.
+     *
+     * @param command the command holding its fresh result.
+     */
+    void onResult(ObdCommand command);
+
+    /**
+     * Called when a command failed. Polling goes on after adapter errors such
+     * as {@link com.github.pires.obd.exceptions.NoDataException} and after a
+     * {@link com.github.pires.obd.exceptions.AdapterTimeoutException}, but
+     * stops after any other {@link java.io.IOException}.
+     *
+     * @param command the command that failed.
+     * @param e       the cause.
+     */
+    void onError(ObdCommand command, Exception e);
+
+}
@@ -0,0 +1,337 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.protocol.AdaptiveTimingCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.protocol.TimeoutCommand;
+import com.github.pires.obd.exceptions.NoDataException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Finds the shortest adapter timing a vehicle answers reliably with, and
+ * backs off when it stops doing so.
+ * <p>
+ * The ELM327 waits for ECU responses up to the AT ST timeout, 200ms at power
+ * up, and with adaptive timing (AT AT1, AT AT2) keeps listening for more
+ * ECUs for a while after the last response. Both are set for the slowest
+ * vehicles; on most a request could take a fraction of that.
+ * {@link #tune()} measures the vehicle's response time, steps AT ST down
+ * for as long as no request gets NO DATA, never below one and a half times
+ * the slowest response seen, and then keeps the adaptive timing mode with
+ * the fastest round trips.
+ * <p>
+ * Responses may get slower later, i.e. when the bus gets busy. Results and
+ * errors passed through {@link #monitor(PollingListener)} are tracked over
+ * the last {@value #WINDOW} samples: once NO DATA comes back too often for
+ * commands that were answered before, the tuner falls back to the less
+ * aggressive adaptive timing mode and then to longer timeouts. After a
+ * whole window without NO DATA it steps back towards the tuned timing, so
+ * a busy moment doesn't slow polling down for the rest of the drive.
+ */
+public class TimingTuner {
+
+    /** Constant <code>DEFAULT_TIMEOUT=0x32</code>, the ELM327 power up value, 200ms. */
+    public static final int DEFAULT_TIMEOUT = 0x32;
+    /** Constant <code>WINDOW=50</code>, samples the error rate is taken over. */
+    public static final int WINDOW = 50;
+
+    private static final int MILLIS_PER_UNIT = 4;
+    private static final int MIN_TIMEOUT = 2;
+    private static final int MAX_TIMEOUT = 0xFF;
+    private static final int SAMPLES = 5;
+    private static final int MAX_ERRORS = 3;
+
+    private final ObdSession session;
+    private final ObdCommand probe;
+    private final Set<ObdCommand> answered = Collections.newSetFromMap(new IdentityHashMap<ObdCommand, Boolean>());
+    private final boolean[] window = new boolean[WINDOW];
+    private int position = 0;
+    private int errors = 0;
+    private int timeout = DEFAULT_TIMEOUT;
+    private int adaptiveTiming = 1;
+    private long latency = -1;
+    private int tunedTimeout = DEFAULT_TIMEOUT;
+    private int tunedAdaptiveTiming = 1;
+    /**
+     * Samples in a row without NO DATA.
+     */
+    private int clean = 0;
+    private int backOffs = 0;
+    private boolean configured = false;
+
+    /**
+     * Tunes with "01 00", which every vehicle answers.
+     *
+     * @param session the adapter connection.
+     */
+    public TimingTuner(ObdSession session) {
+        this(session, new ObdRawCommand("01 00"));
+    }
+
+    /**
+     * <p>Constructor for TimingTuner.</p>
+     *
+     * @param session the adapter connection.
+     * @param probe   the request timed, one the vehicle supports.
+     */
+    public TimingTuner(ObdSession session, ObdCommand probe) {
+        this.session = session;
+        this.probe = probe;
+    }
+
+    /**
+     * Measures the vehicle and sets the fastest reliable timing. Takes a few
+     * dozen requests. If the probe gets NO DATA even at the default timing,
+     * the adapter is left at its defaults.
+     *
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public synchronized void tune() throws IOException, InterruptedException {
+        // without adaptive timing and with a response count the round trip is the response time
+        configured = false;
+        apply(DEFAULT_TIMEOUT, 0);
+        int responseCount = session.getResponseCount();
+        session.setResponseCount(1);
+        long slowest = 0;
+        try {
+            for (int i = 0; i < SAMPLES; i++) {
+                long time = time();
+                if (time < 0) {
+                    apply(DEFAULT_TIMEOUT, 1);
+                    return;
+                }
+                slowest = Math.max(slowest, time);
+            }
+        } finally {
+            session.setResponseCount(responseCount);
+        }
+        latency = slowest;
+
+        int floor = Math.max(MIN_TIMEOUT, (int) ((slowest * 3 / 2 + MILLIS_PER_UNIT - 1) / MILLIS_PER_UNIT));
+        int best = DEFAULT_TIMEOUT;
+        while (true) {
+            int next = Math.max(floor, best * 2 / 3);
+            if (next >= best) {
+                break;
+            }
+            apply(next, 0);
+            if (measure() < 0) {
+                break;
+            }
+            best = next;
+        }
+
+        int bestMode = 0;
+        long bestTime = Long.MAX_VALUE;
+        for (int mode = 0; mode <= 2; mode++) {
+            apply(best, mode);
+            long time = measure();
+            if (time >= 0 && time < bestTime) {
+                bestTime = time;
+                bestMode = mode;
+            }
+        }
+        apply(best, bestMode);
+        tunedTimeout = best;
+        tunedAdaptiveTiming = bestMode;
+        clearWindow();
+    }
+
+    /**
+     * Runs the probe a few times.
+     *
+     * @return the total time in milliseconds, -1 if any got NO DATA.
+     */
+    private long measure() throws IOException, InterruptedException {
+        long total = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long time = time();
+            if (time < 0) {
+                return -1;
+            }
+            total += time;
+        }
+        return total;
+    }
+
+    private long time() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        try {
+            session.poll(probe);
+        } catch (NoDataException e) {
+            return -1;
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private void apply(int timeout, int adaptiveTiming) throws IOException, InterruptedException {
+        if (timeout != this.timeout || !configured) {
+            session.run(new TimeoutCommand(timeout));
+            this.timeout = timeout;
+        }
+        if (adaptiveTiming != this.adaptiveTiming || !configured) {
+            session.run(new AdaptiveTimingCommand(adaptiveTiming));
+            this.adaptiveTiming = adaptiveTiming;
+        }
+        configured = true;
+    }
+
+    /**
+     * Watches the outcome of polled commands on their way to the listener.
+     *
+     * @param listener a {@link com.github.pires.obd.polling.PollingListener} object.
+     * @return the listener to give the {@link ObdPoller}.
+     */
+    public PollingListener monitor(final PollingListener listener) {
+        return new PollingListener() {
+            @Override
+            public void onResult(ObdCommand command) {
+                record(command, false);
+                listener.onResult(command);
+            }
+
+            @Override
+            public void onError(ObdCommand command, Exception e) {
+                if (e instanceof NoDataException) {
+                    record(command, true);
+                }
+                listener.onError(command, e);
+            }
+        };
+    }
+
+    /**
+     * Counts one polled sample. NO DATA only counts for commands answered
+     * before, as the others may just not be supported.
+     *
+     * @param command the command polled.
+     * @param noData  whether it got NO DATA.
+     */
+    synchronized void record(ObdCommand command, boolean noData) {
+        if (noData && !answered.contains(command)) {
+            return;
+        }
+        if (!noData) {
+            answered.add(command);
+        }
+        if (window[position]) {
+            errors--;
+        }
+        window[position] = noData;
+        if (noData) {
+            errors++;
+        }
+        position = (position + 1) % WINDOW;
+        clean = noData ? 0 : clean + 1;
+        if (errors >= MAX_ERRORS) {
+            backOff();
+        } else if (clean >= WINDOW && isRelaxed()) {
+            tighten();
+        }
+    }
+
+    private boolean isRelaxed() {
+        return timeout > tunedTimeout || adaptiveTiming < tunedAdaptiveTiming;
+    }
+
+    /**
+     * Listens longer after responses, then waits longer for them.
+     */
+    private void backOff() {
+        try {
+            if (adaptiveTiming == 2) {
+                apply(timeout, 1);
+            } else {
+                apply(Math.min(MAX_TIMEOUT, timeout * 3 / 2 + 1), adaptiveTiming);
+            }
+            backOffs++;
+        } catch (IOException e) {
+            // the next poll fails the same way and stops the poller
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        clearWindow();
+    }
+
+    /**
+     * Undoes one back off: shorter timeouts first, then the tuned adaptive
+     * timing mode.
+     */
+    private void tighten() {
+        try {
+            if (timeout > tunedTimeout) {
+                apply(Math.max(tunedTimeout, (timeout - 1) * 2 / 3), adaptiveTiming);
+            } else {
+                apply(timeout, tunedAdaptiveTiming);
+            }
+        } catch (IOException e) {
+            // the next poll fails the same way and stops the poller
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        clearWindow();
+    }
+
+    private void clearWindow() {
+        Arrays.fill(window, false);
+        position = 0;
+        errors = 0;
+        clean = 0;
+    }
+
+    /**
+     * <p>Getter for the field <code>timeout</code>.</p>
+     *
+     * @return the AT ST value in use, in units of 4ms.
+     */
+    public synchronized int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * <p>Getter for the field <code>adaptiveTiming</code>.</p>
+     *
+     * @return the AT AT mode in use, 0 to 2.
+     */
+    public synchronized int getAdaptiveTiming() {
+        return adaptiveTiming;
+    }
+
+    /**
+     * <p>Getter for the field <code>latency</code>.</p>
+     *
+     * @return the slowest response measured by {@link #tune()} in
+     * milliseconds, -1 if not measured.
+     */
+    public synchronized long getLatency() {
+        return latency;
+    }
+
+    /**
+     * <p>Getter for the field <code>backOffs</code>.</p>
+     *
+     * @return how often the timing was relaxed while monitoring.
+     */
+    public synchronized int getBackOffs() {
+        return backOffs;
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+
+/**
+ * Plays a log written by {@link SessionRecorder} back as the adapter input
+ * stream, so commands decode recorded responses exactly like live ones.
+ * <p>
+ * Responses come out in recording order, whatever is written to the output
+ * stream, so the commands run must match the recorded requests, see
+ * {@link #peekRequest()}:
+ * <pre>
+ * ReplayInputStream replay = new ReplayInputStream(new FileInputStream(log), false);
+ * String request;
+ * while ((request = replay.peekRequest()) != null) {
+ *     ObdCommand command = commandFor(request);
+ *     command.run(replay, discard);
+ * }
+ * </pre>
+ * At max speed every response is available at once, to push millions of
+ * real responses through the decoders. Paced, a response becomes available
+ * when as much time has passed since the first one as when it was recorded,
+ * to play a session into the UI.
+ */
+public class ReplayInputStream extends InputStream {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private final DataInputStream log;
+    private final boolean paced;
+    private byte[] request = new byte[32];
+    private int requestLength = 0;
+    private byte[] response = new byte[64];
+    private int responseLength = 0;
+    private int position = 0;
+    private long firstTimestamp = -1;
+    private long replayStart = 0;
+    private boolean ended = false;
+
+    /**
+     * <p>Constructor for ReplayInputStream.</p>
+     *
+     * @param log   a log written by {@link SessionRecorder}.
+     * @param paced true to serve responses at their recorded pace, false for
+     *              max speed.
+     * @throws java.io.IOException if the log header can't be read.
+     */
+    public ReplayInputStream(InputStream log, boolean paced) throws IOException {
+        this.log = new DataInputStream(new BufferedInputStream(log));
+        this.paced = paced;
+        if (this.log.readInt() != SessionRecorder.MAGIC || this.log.readShort() != SessionRecorder.VERSION) {
+            throw new IOException("Not a session log");
+        }
+    }
+
+    /**
+     * <p>isPaced.</p>
+     *
+     * @return true if responses are served at their recorded pace.
+     */
+    public boolean isPaced() {
+        return paced;
+    }
+
+    /**
+     * The request answered by the response read next.
+     *
+     * @return the request as sent, i.e. "01 0C", or null at the end of the log.
+     * @throws java.io.IOException if any.
+     */
+    public String peekRequest() throws IOException {
+        if (!fill()) {
+            return null;
+        }
+        return new String(request, 0, requestLength, ASCII);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return response[position++] & 0xFF;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, responseLength - position);
+        System.arraycopy(response, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int available() {
+        return responseLength - position;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        ended = true;
+        log.close();
+    }
+
+    /**
+     * @return false if no response byte is left.
+     */
+    private boolean fill() throws IOException {
+        while (position == responseLength) {
+            if (!load()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next entry, waiting for its time when paced.
+     *
+     * @return false at the end of the log, or of what was written of it.
+     */
+    private boolean load() throws IOException {
+        if (ended) {
+            return false;
+        }
+        try {
+            long timestamp = log.readLong();
+            requestLength = log.readUnsignedShort();
+            if (request.length < requestLength) {
+                request = new byte[requestLength];
+            }
+            log.readFully(request, 0, requestLength);
+            int length = log.readInt();
+            if (length < 0) {
+                throw new IOException("Corrupt session log");
+            }
+            if (response.length < length) {
+                response = new byte[Math.max(length, response.length * 2)];
+            }
+            log.readFully(response, 0, length);
+            responseLength = length;
+            position = 0;
+            if (paced) {
+                await(timestamp);
+            }
+            return true;
+        } catch (EOFException e) {
+            ended = true;
+            responseLength = 0;
+            position = 0;
+            return false;
+        }
+    }
+
+    private void await(long timestamp) throws InterruptedIOException {
+        long now = System.currentTimeMillis();
+        if (firstTimestamp < 0) {
+            firstTimestamp = timestamp;
+            replayStart = now;
+            return;
+        }
+        long delay = replayStart + (timestamp - firstTimestamp) - now;
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+}
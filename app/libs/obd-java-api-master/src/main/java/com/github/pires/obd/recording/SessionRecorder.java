@@ -0,0 +1,200 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Captures the raw conversation with an adapter, to be played back with
+ * {@link ReplayInputStream}.
+ * <p>
+ * The adapter streams are wrapped before handing them to a session or
+ * command:
+ * <pre>
+ * SessionRecorder recorder = new SessionRecorder(new FileOutputStream(log));
+ * ObdSession session = new ObdSession(recorder.wrap(socket.getInputStream()),
+ *         recorder.wrap(socket.getOutputStream()));
+ * </pre>
+ * Every response is kept exactly as received up to and including the '>'
+ * prompt, echo, headers, CAN frame numbers and error strings included,
+ * together with the request it answered and the time it completed. A bare
+ * carriage return is logged as the request it repeated.
+ * <p>
+ * The log is a header followed by one entry per response: the timestamp in
+ * ms as a long, the request length as a short, the request, the response
+ * length as an int and the response, all big endian.
+ */
+public class SessionRecorder implements Closeable {
+
+    static final int MAGIC = 0x4F424452; // "OBDR"
+    static final short VERSION = 1;
+
+    private final DataOutputStream log;
+    private byte[] request = new byte[32];
+    private int requestLength = 0;
+    private byte[] lastRequest = new byte[0];
+    private boolean requestComplete = false;
+    private byte[] response = new byte[64];
+    private int responseLength = 0;
+
+    /**
+     * <p>Constructor for SessionRecorder.</p>
+     *
+     * @param log where the log goes, i.e. a {@link java.io.FileOutputStream}.
+     * @throws java.io.IOException if the header can't be written.
+     */
+    public SessionRecorder(OutputStream log) throws IOException {
+        this.log = new DataOutputStream(new BufferedOutputStream(log));
+        this.log.writeInt(MAGIC);
+        this.log.writeShort(VERSION);
+    }
+
+    /**
+     * Wraps the adapter input stream, logging every response read from it.
+     *
+     * @param in the adapter {@link java.io.InputStream}.
+     * @return a {@link java.io.InputStream} object.
+     */
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    received(b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                for (int i = 0; i < n; i++) {
+                    received(b[off + i]);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = 0;
+                while (skipped < n && read() >= 0) {
+                    skipped++;
+                }
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Wraps the adapter output stream, remembering requests written to it.
+     *
+     * @param out the adapter {@link java.io.OutputStream}.
+     * @return a {@link java.io.OutputStream} object.
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                sent(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                for (int i = 0; i < len; i++) {
+                    sent(b[off + i]);
+                }
+            }
+        };
+    }
+
+    private synchronized void sent(int b) {
+        if (requestComplete) {
+            requestLength = 0;
+            requestComplete = false;
+        }
+        if (b == '\r') {
+            if (requestLength == 0) {
+                System.arraycopy(lastRequest, 0, request, 0, lastRequest.length);
+                requestLength = lastRequest.length;
+            } else {
+                lastRequest = Arrays.copyOf(request, requestLength);
+            }
+            requestComplete = true;
+            return;
+        }
+        if (requestLength == request.length) {
+            request = Arrays.copyOf(request, request.length * 2);
+        }
+        request[requestLength++] = (byte) b;
+    }
+
+    private synchronized void received(int b) throws IOException {
+        if (responseLength == response.length) {
+            response = Arrays.copyOf(response, response.length * 2);
+        }
+        response[responseLength++] = (byte) b;
+        if (b == '>') {
+            writeEntry();
+        }
+    }
+
+    private void writeEntry() throws IOException {
+        log.writeLong(System.currentTimeMillis());
+        log.writeShort(requestLength);
+        log.write(request, 0, requestLength);
+        log.writeInt(responseLength);
+        log.write(response, 0, responseLength);
+        responseLength = 0;
+        requestLength = 0;
+        requestComplete = false;
+    }
+
+    /**
+     * Writes buffered entries through to the log.
+     *
+     * @throws java.io.IOException if any.
+     */
+    public synchronized void flush() throws IOException {
+        log.flush();
+    }
+
+    /**
+     * Logs a response cut short by the connection, if any, and closes the log.
+     *
+     * @throws java.io.IOException if any.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (responseLength > 0) {
+            writeEntry();
+        }
+        log.close();
+    }
+
+}
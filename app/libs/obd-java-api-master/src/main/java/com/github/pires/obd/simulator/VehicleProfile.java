@@ -0,0 +1,279 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.simulator;
+
+import com.github.pires.obd.enums.ObdProtocols;
+
+import java.util.ArrayList;
+
+/**
+ * What a simulated vehicle answers: its bus protocol, the current data of
+ * every supported mode 01 PID, its VIN and its trouble codes.
+ * <p>
+ * The "PIDs supported" bitmaps (01 00, 01 20, 01 40, ...) are derived from
+ * the PIDs set here unless set explicitly. A profile may be changed while an
+ * {@link Elm327Simulator} serves it, i.e. to move the RPM between requests.
+ */
+public class VehicleProfile {
+
+    private static final int MAX_DATA_LENGTH = 5;
+    private static final int VIN_LENGTH = 17;
+    private static final String DTC_LETTERS = "PCBU";
+
+    private final ObdProtocols protocol;
+    private final int[][] pids = new int[256][];
+    private String vin = null;
+    private final ArrayList<Integer> troubleCodes = new ArrayList<>();
+    private final ArrayList<Integer> pendingTroubleCodes = new ArrayList<>();
+    private final ArrayList<Integer> permanentTroubleCodes = new ArrayList<>();
+
+    /**
+     * <p>Constructor for VehicleProfile.</p>
+     *
+     * @param protocol the bus the vehicle talks, one of SAE J1850, ISO 9141-2,
+     *                 ISO 14230-4 (KWP) or ISO 15765-4 (CAN).
+     */
+    public VehicleProfile(ObdProtocols protocol) {
+        if (protocol == null || protocol.getValue() < '1' || protocol.getValue() > '9') {
+            throw new IllegalArgumentException("Unsupported vehicle protocol: " + protocol);
+        }
+        this.protocol = protocol;
+    }
+
+    /**
+     * A warm gasoline engine idling at 1726RPM while driving at 64km/h.
+     *
+     * @param protocol a {@link com.github.pires.obd.enums.ObdProtocols} object.
+     * @return a {@link com.github.pires.obd.simulator.VehicleProfile} object.
+     */
+    public static VehicleProfile sample(ObdProtocols protocol) {
+        VehicleProfile profile = new VehicleProfile(protocol);
+        profile.setPid(0x01, 0x00, 0x07, 0xE5, 0x00);
+        profile.setPid(0x04, 0x33);
+        profile.setPid(0x05, 0x7B);
+        profile.setPid(0x0B, 0x21);
+        profile.setPid(0x0C, 0x1A, 0xF8);
+        profile.setPid(0x0D, 0x40);
+        profile.setPid(0x0E, 0x8C);
+        profile.setPid(0x0F, 0x44);
+        profile.setPid(0x10, 0x01, 0x90);
+        profile.setPid(0x11, 0x26);
+        profile.setPid(0x1F, 0x02, 0x58);
+        profile.setPid(0x2F, 0x80);
+        profile.setPid(0x33, 0x64);
+        profile.setPid(0x42, 0x36, 0xB0);
+        profile.setPid(0x44, 0x80, 0x00);
+        profile.setPid(0x46, 0x3C);
+        profile.setPid(0x51, 0x01);
+        profile.setPid(0x5C, 0x82);
+        profile.setPid(0x5E, 0x00, 0x50);
+        profile.setVin("WP0ZZZ99ZTS392124");
+        return profile;
+    }
+
+    /**
+     * <p>Getter for the field <code>protocol</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.ObdProtocols} object.
+     */
+    public ObdProtocols getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Sets the data bytes the vehicle answers to a mode 01 request.
+     *
+     * @param pid  the PID, between 0x00 and 0xFF.
+     * @param data 1 to 5 bytes, A first.
+     */
+    public synchronized void setPid(int pid, int... data) {
+        checkPid(pid);
+        if (data.length == 0 || data.length > MAX_DATA_LENGTH) {
+            throw new IllegalArgumentException("PID data must be 1 to " + MAX_DATA_LENGTH + " bytes");
+        }
+        for (int b : data) {
+            if (b < 0 || b > 0xFF) {
+                throw new IllegalArgumentException("Not a byte: " + b);
+            }
+        }
+        pids[pid] = data.clone();
+    }
+
+    /**
+     * Makes the vehicle stop answering a mode 01 PID.
+     *
+     * @param pid the PID, between 0x00 and 0xFF.
+     */
+    public synchronized void removePid(int pid) {
+        checkPid(pid);
+        pids[pid] = null;
+    }
+
+    /**
+     * <p>getPid.</p>
+     *
+     * @param pid the PID, between 0x00 and 0xFF.
+     * @return a copy of the data bytes, or null if the PID isn't answered.
+     */
+    public synchronized int[] getPid(int pid) {
+        checkPid(pid);
+        byte[] bytes = new byte[MAX_DATA_LENGTH];
+        int length = appendPid(pid, bytes, 0);
+        if (length < 0) {
+            return null;
+        }
+        int[] data = new int[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = bytes[i] & 0xFF;
+        }
+        return data;
+    }
+
+    /**
+     * Writes the data of a mode 01 PID.
+     *
+     * @return the offset after the data, or -1 if the PID isn't answered.
+     */
+    synchronized int appendPid(int pid, byte[] message, int offset) {
+        int[] data = pids[pid];
+        if (data != null) {
+            for (int b : data) {
+                message[offset++] = (byte) b;
+            }
+            return offset;
+        }
+        if (pid % 0x20 != 0 || (pid > 0 && !isSupported(pid))) {
+            return -1;
+        }
+        int bitmap = 0;
+        for (int i = 1; i <= 0x20 && pid + i <= 0xFF; i++) {
+            if (isSupported(pid + i)) {
+                bitmap |= 1 << (0x20 - i);
+            }
+        }
+        message[offset++] = (byte) (bitmap >>> 24);
+        message[offset++] = (byte) (bitmap >>> 16);
+        message[offset++] = (byte) (bitmap >>> 8);
+        message[offset++] = (byte) bitmap;
+        return offset;
+    }
+
+    private boolean isSupported(int pid) {
+        if (pids[pid] != null) {
+            return true;
+        }
+        if (pid % 0x20 != 0) {
+            return false;
+        }
+        for (int i = pid + 1; i <= 0xFF; i++) {
+            if (pids[i] != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkPid(int pid) {
+        if (pid < 0 || pid > 0xFF) {
+            throw new IllegalArgumentException("PID must be between 0x00 and 0xFF: " + pid);
+        }
+    }
+
+    /**
+     * <p>Getter for the field <code>vin</code>.</p>
+     *
+     * @return the VIN, or null if the vehicle doesn't report it.
+     */
+    public synchronized String getVin() {
+        return vin;
+    }
+
+    /**
+     * <p>Setter for the field <code>vin</code>.</p>
+     *
+     * @param vin 17 characters, or null if the vehicle doesn't report it.
+     */
+    public synchronized void setVin(String vin) {
+        if (vin != null && vin.length() != VIN_LENGTH) {
+            throw new IllegalArgumentException("VIN must be " + VIN_LENGTH + " characters: " + vin);
+        }
+        this.vin = vin;
+    }
+
+    /**
+     * Adds a stored trouble code, reported by mode 03.
+     *
+     * @param code i.e. "P0133".
+     */
+    public synchronized void addTroubleCode(String code) {
+        troubleCodes.add(encode(code));
+    }
+
+    /**
+     * Adds a pending trouble code, reported by mode 07.
+     *
+     * @param code i.e. "P0133".
+     */
+    public synchronized void addPendingTroubleCode(String code) {
+        pendingTroubleCodes.add(encode(code));
+    }
+
+    /**
+     * Adds a permanent trouble code, reported by mode 0A.
+     *
+     * @param code i.e. "P0133".
+     */
+    public synchronized void addPermanentTroubleCode(String code) {
+        permanentTroubleCodes.add(encode(code));
+    }
+
+    /**
+     * Clears stored and pending trouble codes like mode 04 does. Permanent
+     * codes stay.
+     */
+    public synchronized void clearTroubleCodes() {
+        troubleCodes.clear();
+        pendingTroubleCodes.clear();
+    }
+
+    /**
+     * @param mode 0x03, 0x07 or 0x0A.
+     * @return the codes reported by the mode, two bytes each.
+     */
+    synchronized int[] getTroubleCodes(int mode) {
+        ArrayList<Integer> codes = mode == 0x03 ? troubleCodes
+                : mode == 0x07 ? pendingTroubleCodes : permanentTroubleCodes;
+        int[] encoded = new int[codes.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = codes.get(i);
+        }
+        return encoded;
+    }
+
+    private static int encode(String code) {
+        if (code == null || code.length() != 5 || DTC_LETTERS.indexOf(code.charAt(0)) < 0
+                || Character.digit(code.charAt(1), 16) < 0 || Character.digit(code.charAt(1), 16) > 3) {
+            throw new IllegalArgumentException("Not a trouble code: " + code);
+        }
+        int encoded = DTC_LETTERS.indexOf(code.charAt(0)) << 14 | Character.digit(code.charAt(1), 16) << 12;
+        for (int i = 2; i < 5; i++) {
+            int digit = Character.digit(code.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a trouble code: " + code);
+            }
+            encoded |= digit << (4 * (4 - i));
+        }
+        return encoded;
+    }
+
+}
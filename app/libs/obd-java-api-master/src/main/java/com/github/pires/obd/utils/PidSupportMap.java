@@ -0,0 +1,242 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_01_20;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_21_40;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_41_60;
+import com.github.pires.obd.commands.protocol.SupportedPidsCommand;
+import com.github.pires.obd.exceptions.NoDataException;
+import com.github.pires.obd.exceptions.UnsupportedCommandException;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The PIDs a vehicle supports, in every mode and range, as one bit each.
+ * <p>
+ * The vehicle reports its PIDs 32 at a time: PID 00 of a mode tells which of
+ * 01 to 20 it supports, 20 which of 21 to 40 and so on, each range only
+ * asked if the one before has its last bit set. {@link #probe(ObdSession)}
+ * walks these chains for mode 01 up to PID FF, mode 06 and mode 09; the
+ * requests are persistent commands, so they are skipped once known.
+ * <p>
+ * Looking a PID up is a shift and a mask. Modes 01 to 0F are kept, so PIDs
+ * of any service that reports its support the same way can be added.
+ */
+public class PidSupportMap {
+
+    private static final int MODES = 0x10;
+    private static final int RANGE = 0x20;
+
+    private final long[] supported = new long[MODES * 4];
+    private final int[] known = new int[MODES];
+
+    /**
+     * Asks the vehicle for its supported PIDs of modes 01, 06 and 09.
+     *
+     * @param session the adapter connection.
+     * @return a {@link com.github.pires.obd.utils.PidSupportMap} object.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public static PidSupportMap probe(ObdSession session) throws IOException, InterruptedException {
+        PidSupportMap map = new PidSupportMap();
+        map.probe(session, 0x01);
+        map.probe(session, 0x06);
+        map.probe(session, 0x09);
+        return map;
+    }
+
+    /**
+     * Asks the vehicle for the supported PIDs of one mode, range by range
+     * for as long as the previous range says the next one is supported.
+     * The ranges after the end of the chain, or after one the vehicle
+     * doesn't answer, are known to have no PIDs.
+     *
+     * @param session the adapter connection.
+     * @param mode    the service, i.e. 0x01.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public void probe(ObdSession session, int mode) throws IOException, InterruptedException {
+        checkMode(mode);
+        for (int base = 0; base < 0x100; base += RANGE) {
+            AvailablePidsCommand command = command(mode, base);
+            try {
+                session.run(command);
+            } catch (NoDataException | UnsupportedCommandException e) {
+                knownFrom(mode, base);
+                return;
+            }
+            add(command);
+            if (!isSupported(mode, base + RANGE)) {
+                knownFrom(mode, base + RANGE);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Marks the ranges from base on as known, with none of their PIDs
+     * supported: the chain ended before them.
+     */
+    private void knownFrom(int mode, int base) {
+        for (; base < 0x100; base += RANGE) {
+            known[mode] |= 1 << (base / RANGE);
+        }
+    }
+
+    /**
+     * The command asking for one range, the existing persistent classes for
+     * mode 01 up to PID 60 so their results are shared.
+     */
+    private static AvailablePidsCommand command(int mode, int base) {
+        if (mode == 0x01) {
+            switch (base) {
+                case 0x00:
+                    return new AvailablePidsCommand_01_20();
+                case 0x20:
+                    return new AvailablePidsCommand_21_40();
+                case 0x40:
+                    return new AvailablePidsCommand_41_60();
+                default:
+                    break;
+            }
+        }
+        return new SupportedPidsCommand(mode, base);
+    }
+
+    /**
+     * Adds the supported PIDs from the response to a range request, i.e.
+     * "41 00 BE 1F A8 13". When several ECUs answer, a PID is supported if
+     * any of them supports it.
+     *
+     * @param response a command that was run.
+     * @return false if the response has no supported PIDs bitmap.
+     */
+    public boolean add(ObdCommand response) {
+        int length = response.getBufferLength();
+        boolean added = false;
+        for (int i = 0; i + 6 <= length; ) {
+            int mode = response.getByte(i) - 0x40;
+            int base = response.getByte(i + 1);
+            if (mode > 0 && mode < MODES && base % RANGE == 0) {
+                add(mode, base, response.getByte(i + 2) << 24 | response.getByte(i + 3) << 16
+                        | response.getByte(i + 4) << 8 | response.getByte(i + 5));
+                added = true;
+                i += 6;
+            } else {
+                i++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds one range.
+     *
+     * @param mode   the service, i.e. 0x01.
+     * @param base   the PID before the range, a multiple of 0x20.
+     * @param bitmap the four data bytes, first byte highest, its highest bit
+     *               for PID base + 1.
+     */
+    public void add(int mode, int base, int bitmap) {
+        checkMode(mode);
+        if (base < 0 || base > 0xE0 || base % RANGE != 0) {
+            throw new IllegalArgumentException("Invalid range: " + base);
+        }
+        known[mode] |= 1 << (base / RANGE);
+        set(mode, base);
+        for (int i = 1; i <= RANGE && base + i < 0x100; i++) {
+            if ((bitmap & 1 << (RANGE - i)) != 0) {
+                set(mode, base + i);
+            }
+        }
+    }
+
+    private void set(int mode, int pid) {
+        supported[mode << 2 | pid >>> 6] |= 1L << pid;
+    }
+
+    /**
+     * Whether the vehicle reported the PID as supported.
+     *
+     * @param mode the service, i.e. 0x01.
+     * @param pid  i.e. 0x0C.
+     * @return a boolean.
+     */
+    public boolean isSupported(int mode, int pid) {
+        if (mode <= 0 || mode >= MODES || pid < 0 || pid > 0xFF) {
+            return false;
+        }
+        return (supported[mode << 2 | pid >>> 6] & 1L << pid) != 0;
+    }
+
+    /**
+     * Whether the range of the PID has been reported, so
+     * {@link #isSupported(int, int)} is an answer rather than a guess.
+     *
+     * @param mode the service, i.e. 0x01.
+     * @param pid  i.e. 0x0C.
+     * @return a boolean.
+     */
+    public boolean isKnown(int mode, int pid) {
+        if (mode <= 0 || mode >= MODES || pid < 0 || pid > 0xFF) {
+            return false;
+        }
+        return (known[mode] & 1 << (pid == 0 ? 0 : (pid - 1) / RANGE)) != 0;
+    }
+
+    /**
+     * Whether the vehicle is known not to support the command, so sending
+     * it would only get NO DATA back. Commands that aren't a mode and PID,
+     * like AT commands or mode 03, are never unsupported.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @return a boolean.
+     */
+    public boolean isUnsupported(ObdCommand command) {
+        String mode = command.getCommandMode();
+        String pid = command.getCommandPID();
+        if (mode.length() != 2 || pid.length() < 2) {
+            return false;
+        }
+        int m = parseByte(mode, 0);
+        int p = parseByte(pid, 0);
+        return m >= 0 && p >= 0 && isKnown(m, p) && !isSupported(m, p);
+    }
+
+    private static int parseByte(String hex, int index) {
+        int high = Character.digit(hex.charAt(index), 16);
+        int low = Character.digit(hex.charAt(index + 1), 16);
+        return high < 0 || low < 0 ? -1 : high << 4 | low;
+    }
+
+    private static void checkMode(int mode) {
+        if (mode <= 0 || mode >= MODES) {
+            throw new IllegalArgumentException("Invalid mode: " + mode);
+        }
+    }
+
+    /**
+     * Forgets all PIDs, i.e. after switching vehicles.
+     */
+    public void clear() {
+        Arrays.fill(supported, 0);
+        Arrays.fill(known, 0);
+    }
+}
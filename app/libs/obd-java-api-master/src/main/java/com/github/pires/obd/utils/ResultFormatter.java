@@ -0,0 +1,120 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.enums.ResultUnit;
+
+/**
+ * Formats {@link ObdCommand#value()} for display, i.e. "88.2km/h".
+ * <p>
+ * Keep one per place a result is shown: the text is only built again when the
+ * value or unit has changed since the last call, which for most PIDs polled
+ * several times a second is rare. Building it doesn't go through
+ * {@link String#format(String, Object...)}. Commands without a numeric value
+ * fall back to {@link ObdCommand#getFormattedResult()}.
+ * <p>
+ * Not thread safe; call it from the thread doing the display.
+ */
+public class ResultFormatter {
+
+    private static final long[] POWERS = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private final int decimals;
+    private final StringBuilder text = new StringBuilder(16);
+    private long lastBits;
+    private ResultUnit lastUnit;
+    private String formatted;
+
+    /**
+     * Formats each value with the number of decimals of its unit.
+     */
+    public ResultFormatter() {
+        this(-1);
+    }
+
+    /**
+     * <p>Constructor for ResultFormatter.</p>
+     *
+     * @param decimals the number of decimals to show whatever the unit, from
+     *                 0 to 6, or -1 to use those of the unit.
+     */
+    public ResultFormatter(int decimals) {
+        if (decimals < -1 || decimals >= POWERS.length) {
+            throw new IllegalArgumentException("Decimals out of range: " + decimals);
+        }
+        this.decimals = decimals;
+    }
+
+    /**
+     * Formats the last result of a command.
+     *
+     * @param command the command, after it has run.
+     * @return the value followed by the unit symbol.
+     */
+    public String format(ObdCommand command) {
+        double value = command.value();
+        if (Double.isNaN(value)) {
+            lastUnit = null;
+            return command.getFormattedResult();
+        }
+        return format(value, command.unit());
+    }
+
+    /**
+     * Formats a value, i.e. of a {@link com.github.pires.obd.telemetry.Sample}.
+     *
+     * @param value the value, NaN is formatted as such.
+     * @param unit  its unit.
+     * @return the value followed by the unit symbol.
+     */
+    public String format(double value, ResultUnit unit) {
+        long bits = Double.doubleToLongBits(value);
+        if (unit == lastUnit && bits == lastBits) {
+            return formatted;
+        }
+        text.setLength(0);
+        append(text, value, decimals < 0 ? unit.getDecimals() : decimals);
+        text.append(unit.getSymbol());
+        formatted = text.toString();
+        lastBits = bits;
+        lastUnit = unit;
+        return formatted;
+    }
+
+    /**
+     * Appends a value rounded half up to the given number of decimals, with a
+     * '.' whatever the locale.
+     */
+    static void append(StringBuilder out, double value, int decimals) {
+        long scale = POWERS[decimals];
+        if (Double.isInfinite(value) || Double.isNaN(value) || Math.abs(value) >= Long.MAX_VALUE / scale) {
+            out.append(value);
+            return;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            out.append('-');
+        }
+        out.append(scaled / scale);
+        if (decimals > 0) {
+            out.append('.');
+            long fraction = scaled % scale;
+            for (long p = scale / 10; p > fraction && p > 1; p /= 10) {
+                out.append('0');
+            }
+            out.append(fraction);
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.chart;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for ChartSeries class.
+ */
+public class ChartSeriesTest {
+
+    private static final long START = 1500000000000L;
+
+    /**
+     * Adds two hours of a 10Hz sine, with one spike.
+     */
+    private ChartSeries twoHours() {
+        ChartSeries chart = new ChartSeries();
+        for (int i = 0; i < 72000; i++) {
+            float value = i == 36000 ? 7000 : (float) (2000 + 1000 * Math.sin(i / 100.0));
+            chart.add(START + i * 100L, value);
+        }
+        return chart;
+    }
+
+    /**
+     * Test a long range fits the budget and keeps the peaks
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testZoomOut() throws Exception {
+        ChartSeries chart = twoHours();
+        long[] timestamps = new long[1000];
+        float[] values = new float[1000];
+        int points = chart.render(START, START + 7200000, 600, timestamps, values);
+        assertTrue(points > 200);
+        assertTrue(points <= 600);
+        float max = 0;
+        float min = Float.MAX_VALUE;
+        for (int i = 0; i < points; i++) {
+            max = Math.max(max, values[i]);
+            min = Math.min(min, values[i]);
+            if (i > 0) {
+                assertTrue(timestamps[i] > timestamps[i - 1]);
+            }
+        }
+        assertEquals(max, 7000f);
+        assertTrue(min < 1001);
+        // the extremes of the first bucket of 51.2s
+        assertTrue(timestamps[0] >= START);
+        assertTrue(timestamps[0] < START + 51200);
+    }
+
+    /**
+     * Test a short range draws every sample
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testZoomIn() throws Exception {
+        ChartSeries chart = twoHours();
+        long[] timestamps = new long[600];
+        float[] values = new float[600];
+        long from = START + 7190000;
+        int points = chart.render(from, from + 10000, 600, timestamps, values);
+        assertEquals(points, 100);
+        assertEquals(timestamps[0], from);
+        assertEquals(timestamps[99], from + 9900);
+        assertEquals(values[0], (float) (2000 + 1000 * Math.sin(71900 / 100.0)));
+
+        // the arrays limit the points too
+        assertEquals(chart.render(from, from + 10000, 600, new long[10], new float[10]), 10);
+        // nothing yet
+        assertEquals(chart.render(from + 20000, from + 30000, 600, timestamps, values), 0);
+    }
+
+    /**
+     * Test a range starting before the first value is drawn at the finest
+     * level
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testYoungSeries() throws Exception {
+        ChartSeries chart = new ChartSeries(100, 4, 3, 16);
+        assertEquals(chart.getLevels(), 3);
+        assertEquals(chart.getWidth(2), 1600);
+        for (int i = 0; i < 10; i++) {
+            chart.add(START + i * 100L, i);
+        }
+        long[] timestamps = new long[100];
+        float[] values = new float[100];
+        assertEquals(chart.render(START - 500, START + 1000, 100, timestamps, values), 10);
+
+        // beyond the 16 finest buckets kept, the next level: a bucket of 400ms per 4 values
+        for (int i = 10; i < 40; i++) {
+            chart.add(START + i * 100L, i);
+        }
+        int points = chart.render(START, START + 4000, 100, timestamps, values);
+        assertEquals(points, 20);
+        assertEquals(values[0], 0f);
+        assertEquals(values[1], 3f);
+        assertEquals(timestamps[1], START + 300);
+
+        chart.clear();
+        assertEquals(chart.render(START, START + 4000, 100, timestamps, values), 0);
+    }
+
+    /**
+     * Test only tracked commands are charted
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPipeline() throws Exception {
+        ChartPipeline pipeline = new ChartPipeline();
+        RPMCommand rpm = new RPMCommand();
+        ChartSeries chart = pipeline.track(rpm);
+        assertSame(pipeline.track(new RPMCommand()), chart);
+
+        rpm.readResult(new int[]{0x41, 0x0C, 0x1A, 0xF8}, 4);
+        rpm.setEnd(START);
+        pipeline.onResult(rpm);
+        SpeedCommand speed = new SpeedCommand();
+        speed.readResult(new int[]{0x41, 0x0D, 0x40}, 3);
+        pipeline.onResult(speed);
+        assertNull(pipeline.getSeries(speed));
+
+        float[] values = new float[4];
+        assertEquals(chart.render(START, START + 1000, 4, new long[4], values), 1);
+        assertEquals(values[0], 1726f);
+
+        pipeline.untrack(rpm);
+        assertNull(pipeline.getSeries(rpm));
+    }
+
+}
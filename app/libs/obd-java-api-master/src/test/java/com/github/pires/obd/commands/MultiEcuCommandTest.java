@@ -0,0 +1,152 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.HeadersOffCommand;
+import com.github.pires.obd.commands.protocol.HeadersOnCommand;
+import com.github.pires.obd.commands.protocol.SelectProtocolCommand;
+import com.github.pires.obd.commands.protocol.SetHeaderCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for MultiEcuCommand class.
+ */
+public class MultiEcuCommandTest {
+
+    private Elm327Simulator simulator;
+    private ObdSession session;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.stop();
+        }
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Starts a vehicle with an engine and a transmission reporting different
+     * engine speeds.
+     */
+    private void start(ObdProtocols protocol) throws Exception {
+        VehicleProfile transmission = new VehicleProfile(protocol);
+        transmission.setPid(0x0C, 0x0B, 0xB8);
+        simulator = new Elm327Simulator(VehicleProfile.sample(protocol));
+        simulator.addEcu(transmission);
+        simulator.start();
+        session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+        session.run(new EchoOffCommand());
+        session.run(new SelectProtocolCommand(protocol));
+        session.run(new HeadersOnCommand());
+    }
+
+    /**
+     * Test the answers of two ECUs to one request are kept apart
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testDemultiplex() throws Exception {
+        start(ObdProtocols.ISO_15765_4_CAN);
+        RPMCommand engine = new RPMCommand();
+        MultiEcuCommand command = new MultiEcuCommand(engine);
+
+        session.run(command);
+
+        assertEquals(command.getEcus().toArray(), new String[]{"7E8", "7E9"});
+        assertEquals(command.getEcu(), "7E8");
+        assertEquals(engine.getRPM(), 1726);
+        assertEquals(command.value(), 1726.0);
+        RPMCommand transmission = new RPMCommand();
+        assertTrue(command.read("7E9", transmission));
+        assertEquals(transmission.getRPM(), 750);
+        assertFalse(command.read("7EA", transmission));
+
+        // a multi-frame answer from one ECU
+        VinCommand vin = new VinCommand();
+        session.run(new MultiEcuCommand(vin));
+        assertEquals(vin.getFormattedResult(), "WP0ZZZ99ZTS392124");
+    }
+
+    /**
+     * Test the ECUs of older protocols are told apart by source address
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testLegacyHeaders() throws Exception {
+        start(ObdProtocols.ISO_14230_4_KWP);
+        RPMCommand engine = new RPMCommand();
+        MultiEcuCommand command = new MultiEcuCommand(engine);
+
+        session.run(command);
+
+        assertEquals(command.getEcus().toArray(), new String[]{"11", "19"});
+        assertEquals(engine.getRPM(), 1726);
+    }
+
+    /**
+     * Test a request pinned to one ECU is only answered by that ECU
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testPinned() throws Exception {
+        start(ObdProtocols.ISO_15765_4_CAN_B);
+        MultiEcuCommand command = new MultiEcuCommand(new RPMCommand());
+        session.run(command);
+        assertEquals(command.getEcus().toArray(), new String[]{"18DAF110", "18DAF118"});
+
+        SetHeaderCommand header = SetHeaderCommand.forEcu("18DAF118");
+        assertEquals(header.getHeader(), "18DA18F1");
+        session.run(header);
+        session.run(command);
+        assertEquals(command.getEcus().toArray(), new String[]{"18DAF118"});
+
+        session.run(new HeadersOffCommand());
+        RPMCommand transmission = new RPMCommand();
+        session.run(transmission);
+        assertEquals(transmission.getRPM(), 750);
+
+        session.run(new SetHeaderCommand(SetHeaderCommand.FUNCTIONAL_29_BIT));
+        session.run(new HeadersOnCommand());
+        session.run(command);
+        assertEquals(command.getEcus().size(), 2);
+        assertEquals(SetHeaderCommand.forEcu("7EA").getHeader(), "7E2");
+        assertEquals(SetHeaderCommand.forEcu("7E8").getHeader(), "7E0");
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_01_20;
+import com.github.pires.obd.commands.protocol.SupportedPidsCommand;
+import com.github.pires.obd.exceptions.NoDataException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests for ObdSession class.
+ */
+public class ObdSessionTest {
+
+    private SpeedCommand command;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        command = new SpeedCommand();
+    }
+
+    /**
+     * Test a command run through a session
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRun() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObdSession session = new ObdSession(new ByteArrayInputStream("41 0D 40\r\r>".getBytes()), out);
+
+        session.run(command);
+
+        assertEquals(out.toString(), "01 0D\r");
+        assertEquals(command.getMetricSpeed(), 64);
+    }
+
+    /**
+     * A stalled adapter must not block a session on another adapter
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testIndependentSessions() throws Exception {
+        final PipedOutputStream stalledAdapter = new PipedOutputStream();
+        final ObdSession stalled = new ObdSession(new PipedInputStream(stalledAdapter), new ByteArrayOutputStream());
+        Thread blocked = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    stalled.run(new RPMCommand());
+                } catch (Exception e) {
+                    // the stream is closed at the end of the test
+                }
+            }
+        });
+        blocked.start();
+
+        ObdSession session = new ObdSession(new ByteArrayInputStream("41 0D 40>".getBytes()), new ByteArrayOutputStream());
+        session.run(command);
+        assertEquals(command.getMetricSpeed(), 64);
+
+        stalledAdapter.close();
+        blocked.join();
+    }
+
+    /**
+     * Test persistent results are kept per connection, so vehicles on two
+     * adapters don't see each other's
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testKnownPerConnection() throws Exception {
+        ByteArrayOutputStream firstOut = new ByteArrayOutputStream();
+        ObdSession first = new ObdSession(new ByteArrayInputStream("41 00 BE 1F A8 13\r\r>".getBytes()), firstOut);
+        ObdSession second = new ObdSession(new ByteArrayInputStream("41 00 80 00 00 01\r\r>".getBytes()),
+                new ByteArrayOutputStream());
+
+        AvailablePidsCommand_01_20 pids = new AvailablePidsCommand_01_20();
+        first.run(pids);
+        assertTrue(pids.isKnown(first));
+        assertFalse(pids.isKnown(second));
+        second.run(pids);
+        assertEquals(pids.getResult(), "410080000001");
+
+        // served from the first connection's results, without a request
+        first.run(pids);
+        assertEquals(pids.getResult(), "4100BE1FA813");
+        assertEquals(firstOut.toString(), "01 00\r");
+        assertEquals(second.getKnownResults().getResults().get("AvailablePidsCommand_01_20"), "410080000001");
+    }
+
+    /**
+     * Test a poll after a failed run sends its request again instead of
+     * repeating the failed one
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPollAfterFailedRun() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObdSession session = new ObdSession(new ByteArrayInputStream(
+                "41 0C 1A F8\r\r>NO DATA\r\r>41 0C 1A F8\r\r>".getBytes()), out);
+        RPMCommand rpm = new RPMCommand();
+        session.poll(rpm);
+        try {
+            session.run(new SupportedPidsCommand(0x01, 0xE0));
+            fail("NO DATA expected");
+        } catch (NoDataException e) {
+            // the range isn't supported
+        }
+        session.poll(rpm);
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(out.toString(), "01 0C\r01 E0\r01 0C\r");
+    }
+
+}
@@ -19,6 +19,7 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -297,6 +298,34 @@ public class TroubleCodesCommandTest {
         verifyAll();
     }
 
+    /**
+     * Test that reading again replaces the codes instead of appending
+     *
+     * @throws IOException
+     */
+    @Test
+    public void readTwice() throws IOException {
+        resetAll(); // not reading from the mock
+        command.readResult(new ByteArrayInputStream("43 02 01 20 01 21>".getBytes()));
+        command.readResult(new ByteArrayInputStream("43 01 01 33>".getBytes()));
+
+        assertEquals(command.getFormattedResult(), "P0133\n");
+    }
+
+    /**
+     * Test a first code starting with the byte older protocols address the
+     * tester with, headers off
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void firstCodeLikeHeader() throws IOException {
+        resetAll(); // not reading from the mock
+        command.readResult(new ByteArrayInputStream("43 6B 01 01 33 00 00\r\r>".getBytes()));
+
+        assertEquals(command.getFormattedResult(), "C2B01\nP0133\n");
+    }
+
     /**
      * Test for no data
      *
@@ -0,0 +1,122 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.history;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for TimeSeries class.
+ */
+public class TimeSeriesTest {
+
+    /**
+     * Test the running statistics match those of the values kept
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStatistics() throws Exception {
+        TimeSeries series = new TimeSeries(50);
+        assertTrue(Float.isNaN(series.getMin()));
+        assertTrue(Double.isNaN(series.getMean()));
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            series.append(i * 100L, random.nextInt(200) - 100);
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            double sum = 0;
+            for (int j = 0; j < series.size(); j++) {
+                min = Math.min(min, series.getValue(j));
+                max = Math.max(max, series.getValue(j));
+                sum += series.getValue(j);
+            }
+            assertEquals(series.getMin(), min);
+            assertEquals(series.getMax(), max);
+            assertEquals(series.getMean(), sum / series.size(), 1e-9);
+        }
+        assertEquals(series.size(), 50);
+        assertEquals(series.getTimestamp(0), 95000);
+        assertEquals(series.getTimestamp(49), 99900);
+
+        series.append(100000, Float.NaN);
+        assertEquals(series.size(), 50);
+        series.clear();
+        assertEquals(series.size(), 0);
+        assertTrue(Float.isNaN(series.getLatest()));
+    }
+
+    /**
+     * Test range queries on a ring that wrapped
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRange() throws Exception {
+        TimeSeries series = new TimeSeries(8);
+        for (int i = 0; i < 12; i++) {
+            series.append(1000 + i * 100L, i);
+        }
+        // kept 1400 to 2100
+        assertEquals(series.indexOf(0), 0);
+        assertEquals(series.indexOf(1450), 1);
+        assertEquals(series.indexOf(1500), 1);
+        assertEquals(series.indexOf(5000), 8);
+
+        long[] timestamps = new long[8];
+        float[] values = new float[8];
+        assertEquals(series.copy(1500, 1800, timestamps, values), 3);
+        assertEquals(timestamps[0], 1500);
+        assertEquals(values[2], 7f);
+        assertEquals(series.copy(0, 5000, null, new float[3]), 3);
+        assertEquals(series.copy(1800, 1500, timestamps, values), 0);
+
+        // out of order, kept in order
+        series.append(1000, 42);
+        assertEquals(series.getTimestamp(7), 2100);
+        assertEquals(series.getLatest(), 42f);
+    }
+
+    /**
+     * Test the store keeps a history per request
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStore() throws Exception {
+        TimeSeriesStore store = new TimeSeriesStore(100);
+        SpeedCommand speed = new SpeedCommand();
+        speed.readResult(new int[]{0x41, 0x0D, 0x40}, 3);
+        speed.setEnd(1000);
+        store.onResult(speed);
+        speed.readResult(new int[]{0x41, 0x0D, 0x50}, 3);
+        speed.setEnd(1100);
+        store.onResult(speed);
+        store.append(new VinCommand(), 1100, Double.NaN);
+
+        TimeSeries series = store.getSeries(new SpeedCommand());
+        assertEquals(series.size(), 2);
+        assertEquals(series.capacity(), 100);
+        assertEquals(series.getMean(), 72.0);
+        assertNull(store.getSeries(new VinCommand()));
+        assertEquals(store.getCommands().size(), 1);
+    }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.pids;
+
+import com.github.pires.obd.commands.PercentageObdCommand;
+import com.github.pires.obd.commands.control.EquivalentRatioCommand;
+import com.github.pires.obd.commands.control.ModuleVoltageCommand;
+import com.github.pires.obd.commands.control.TimingAdvanceCommand;
+import com.github.pires.obd.commands.engine.AbsoluteLoadCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.pressure.PressureCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.temperature.TemperatureCommand;
+import com.github.pires.obd.enums.ResultUnit;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for PidRegistry class.
+ */
+public class PidRegistryTest {
+
+    /**
+     * Test lookups
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLookup() throws Exception {
+        PidDescriptor rpm = PidRegistry.get(0x01, 0x0C);
+        assertEquals(rpm.getName(), "Engine speed");
+        assertEquals(rpm.getUnit(), ResultUnit.RPM);
+        assertEquals(rpm.getLength(), 2);
+        assertEquals(rpm.toString(), "01 0C Engine speed");
+        assertSame(PidRegistry.get("01 0C"), rpm);
+        assertSame(PidRegistry.get("01 0c"), rpm);
+        assertSame(new RPMCommand().getDescriptor(), rpm);
+
+        assertNull(PidRegistry.get(0x01, 0xFE));
+        assertNull(PidRegistry.get(0x09, 0x02));
+        assertNull(PidRegistry.get(0x42, 0x0C));
+        assertNull(PidRegistry.get("01 0C 0D"));
+        assertNull(PidRegistry.get("01 GG"));
+        assertNull(PidRegistry.get("AT Z"));
+        assertEquals(PidRegistry.getLength(0x01, 0x00), 4);
+        assertEquals(PidRegistry.getLength(0x01, 0x67), 3);
+        assertEquals(PidRegistry.getLength(0x01, 0xFF), 0);
+        assertFalse(PidRegistry.get(0x01, 0x01).isNumeric());
+    }
+
+    /**
+     * Test formulas on raw responses
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDecode() throws Exception {
+        assertEquals(PidRegistry.get(0x01, 0x0C).decode(new int[]{0x41, 0x0C, 0x1A, 0xF8}, 4), 1726.0);
+        assertEquals(PidRegistry.get(0x01, 0x05).decode(new int[]{0x41, 0x05, 0x7B}, 3), 83.0);
+        assertEquals(PidRegistry.get(0x01, 0x06).decode(new int[]{0x41, 0x06, 0x80}, 3), 0.0);
+        assertEquals(PidRegistry.get(0x01, 0x14).decode(new int[]{0x41, 0x14, 0xC8, 0x80}, 4), 1.0);
+        // signed
+        assertEquals(PidRegistry.get(0x01, 0x32).decode(new int[]{0x41, 0x32, 0xFF, 0xFC}, 4), -1.0);
+        assertEquals(PidRegistry.get(0x01, 0xA6).decode(new int[]{0x41, 0xA6, 0x00, 0x01, 0xE2, 0x40}, 6), 12345.6, 1e-9);
+        // too short, not numeric
+        assertTrue(Double.isNaN(PidRegistry.get(0x01, 0x0C).decode(new int[]{0x41, 0x0C, 0x1A}, 3)));
+        assertTrue(Double.isNaN(PidRegistry.get(0x01, 0x51).decode(new int[]{0x41, 0x51, 0x01}, 3)));
+
+        // a PID without a command class
+        ObdRawCommand raw = new ObdRawCommand("01 5C");
+        assertEquals(raw.getDescriptor().decode(new int[]{0x41, 0x5C, 0x82}, 3), 90.0);
+    }
+
+    /**
+     * Test commands decoding with their descriptor
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCommands() throws Exception {
+        TimingAdvanceCommand timing = new TimingAdvanceCommand();
+        timing.readResult(new int[]{0x41, 0x0E, 0x94}, 3);
+        assertEquals(timing.getDegrees(), 10.0f);
+        assertEquals(timing.getPercentage(), 58.039f, 1e-3);
+        assertEquals(timing.unit(), ResultUnit.PERCENT);
+
+        ModuleVoltageCommand voltage = new ModuleVoltageCommand();
+        voltage.readResult(new int[]{0x41, 0x42, 0x36, 0x1C}, 4);
+        assertEquals(voltage.value(), 13.852, 1e-9);
+
+        EquivalentRatioCommand ratio = new EquivalentRatioCommand();
+        ratio.readResult(new int[]{0x41, 0x44, 0x79, 0x9A}, 4);
+        assertEquals(ratio.getRatio(), 0.95, 1e-4);
+
+        AbsoluteLoadCommand load = new AbsoluteLoadCommand();
+        load.readResult(new int[]{0x41, 0x43, 0x00, 0x80}, 4);
+        assertEquals(load.getPercentage(), 50.196f, 1e-3);
+    }
+
+    /**
+     * Test commands on PIDs the registry doesn't know
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUnknownPid() throws Exception {
+        PercentageObdCommand percentage = new PercentageObdCommand("01 FE") {
+            @Override
+            public String getName() {
+                return "Vendor percentage";
+            }
+        };
+        percentage.readResult(new int[]{0x41, 0xFE, 0x80}, 3);
+        assertEquals(percentage.getPercentage(), 50.196f, 1e-3);
+
+        TemperatureCommand temperature = new TemperatureCommand("01 FE") {
+            @Override
+            public String getName() {
+                return "Vendor temperature";
+            }
+        };
+        temperature.readResult(new int[]{0x41, 0xFE, 0x82}, 3);
+        assertEquals(temperature.getTemperature(), 90.0f);
+
+        PressureCommand pressure = new PressureCommand("01 FE") {
+            @Override
+            public String getName() {
+                return "Vendor pressure";
+            }
+        };
+        pressure.readResult(new int[]{0x41, 0xFE, 0x65}, 3);
+        assertEquals(pressure.getMetricUnit(), 101);
+    }
+
+    /**
+     * Test a response too short for the formula
+     *
+     * @throws Exception
+     */
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testTooShort() throws Exception {
+        new RPMCommand().readResult(new int[]{0x41, 0x0C, 0x1A}, 3);
+    }
+
+}
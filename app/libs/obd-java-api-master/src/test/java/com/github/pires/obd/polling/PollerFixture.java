@@ -0,0 +1,46 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+
+/**
+ * Hands responses to a {@link PollingListener} the way {@link ObdPoller} does,
+ * without an adapter in between.
+ */
+public final class PollerFixture {
+
+    private PollerFixture() {
+    }
+
+    /**
+     * Decodes a response to the command, stamps it and passes it to the
+     * listener.
+     *
+     * @param listener  the listener under test.
+     * @param command   the command the response is for.
+     * @param timestamp the end of the request.
+     * @param data      the data bytes, after the mode and PID the header is
+     *                  built from.
+     */
+    public static void feed(PollingListener listener, ObdCommand command, long timestamp, int... data) {
+        int[] bytes = new int[data.length + 2];
+        bytes[0] = 0x40 + Integer.parseInt(command.getCommandMode(), 16);
+        bytes[1] = Integer.parseInt(command.getCommandPID().trim(), 16);
+        System.arraycopy(data, 0, bytes, 2, data.length);
+        command.readResult(bytes, bytes.length);
+        command.setEnd(timestamp);
+        listener.onResult(command);
+    }
+
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
+import com.github.pires.obd.commands.protocol.TimeoutCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.exceptions.NoDataException;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for TimingTuner class.
+ */
+public class TimingTunerTest {
+
+    private Elm327Simulator simulator;
+    private ObdSession session;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        simulator = new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN));
+        simulator.setLatency(20);
+        simulator.setJitter(4);
+        simulator.setSeed(42);
+        simulator.start();
+        session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+        session.run(new EchoOffCommand());
+        session.run(new LineFeedOffCommand());
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        simulator.stop();
+    }
+
+    private long averagePollTime(ObdCommand command) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            session.poll(command);
+        }
+        return (System.nanoTime() - start) / 5 / 1000000;
+    }
+
+    /**
+     * Test the timing is tightened to the vehicle's response time
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testTune() throws Exception {
+        RPMCommand rpm = new RPMCommand();
+        long before = averagePollTime(rpm);
+        TimingTuner tuner = new TimingTuner(session);
+        tuner.tune();
+        long after = averagePollTime(rpm);
+
+        assertTrue(tuner.getLatency() >= 20, tuner.getLatency() + "ms");
+        assertTrue(tuner.getTimeout() < TimingTuner.DEFAULT_TIMEOUT);
+        assertTrue(tuner.getTimeout() * 4 >= tuner.getLatency() * 3 / 2);
+        assertEquals(tuner.getAdaptiveTiming(), 2);
+        assertTrue(after < before, after + "ms after, " + before + "ms before");
+        assertEquals(rpm.getRPM(), 1726);
+    }
+
+    /**
+     * Test the timing is relaxed when the vehicle gets slower
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testBackOff() throws Exception {
+        TimingTuner tuner = new TimingTuner(session);
+        tuner.tune();
+        PollingListener listener = tuner.monitor(new PollingListener() {
+            @Override
+            public void onResult(ObdCommand command) {
+            }
+
+            @Override
+            public void onError(ObdCommand command, Exception e) {
+            }
+        });
+        SpeedCommand speed = new SpeedCommand();
+        session.poll(speed);
+        listener.onResult(speed);
+
+        simulator.setLatency(tuner.getTimeout() * 4 + 20);
+        simulator.setJitter(0);
+        boolean answered = false;
+        for (int i = 0; i < 30 && !answered; i++) {
+            try {
+                session.poll(speed);
+                listener.onResult(speed);
+                answered = true;
+            } catch (NoDataException e) {
+                listener.onError(speed, e);
+            }
+        }
+        assertTrue(answered);
+        assertTrue(tuner.getBackOffs() >= 2);
+        assertTrue(tuner.getAdaptiveTiming() < 2);
+    }
+
+    /**
+     * Test the tuned timing comes back after a window without NO DATA
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testTightenAgain() throws Exception {
+        TimingTuner tuner = new TimingTuner(session);
+        tuner.tune();
+        int timeout = tuner.getTimeout();
+        int adaptiveTiming = tuner.getAdaptiveTiming();
+        SpeedCommand speed = new SpeedCommand();
+        tuner.record(speed, false);
+        for (int backOffs = 0; backOffs < 3; backOffs++) {
+            for (int i = 0; i < 3; i++) {
+                tuner.record(speed, true);
+            }
+        }
+        assertEquals(tuner.getBackOffs(), 3);
+        assertTrue(tuner.getTimeout() > timeout);
+
+        for (int i = 0; i < 10 * TimingTuner.WINDOW; i++) {
+            tuner.record(speed, false);
+        }
+        assertEquals(tuner.getTimeout(), timeout);
+        assertEquals(tuner.getAdaptiveTiming(), adaptiveTiming);
+    }
+
+    /**
+     * Test a back off between two polls of the same command, through the
+     * poller's session, doesn't make the adapter repeat the AT command
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testBackOffBetweenPolls() throws Exception {
+        TimingTuner tuner = new TimingTuner(session);
+        tuner.tune();
+        RPMCommand rpm = new RPMCommand();
+        session.poll(rpm);
+        tuner.record(rpm, false);
+        for (int i = 0; i < 3; i++) {
+            tuner.record(rpm, true);
+        }
+        assertEquals(tuner.getBackOffs(), 1);
+
+        session.poll(rpm);
+        assertEquals(rpm.getRPM(), 1726);
+        session.poll(rpm);
+        assertEquals(rpm.getRPM(), 1726);
+    }
+
+    /**
+     * Test the timeout is sent as the two hex digits the adapter requires
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTimeoutCommand() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new TimeoutCommand(8).run(new ByteArrayInputStream("OK\r\r>".getBytes()), out);
+        assertEquals(out.toString(), "AT ST 08\r");
+        assertTrue(simulator.respond("AT ST 8").trim().endsWith("?"));
+        assertTrue(simulator.respond("AT ST 08").trim().endsWith("OK"));
+    }
+
+    /**
+     * Test NO DATA of commands never answered doesn't relax the timing
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUnsupported() throws Exception {
+        TimingTuner tuner = new TimingTuner(new ObdSession(new ByteArrayInputStream(new byte[0]),
+                new ByteArrayOutputStream()));
+        SpeedCommand speed = new SpeedCommand();
+        for (int i = 0; i < TimingTuner.WINDOW; i++) {
+            tuner.record(speed, true);
+        }
+        assertEquals(tuner.getBackOffs(), 0);
+        assertEquals(tuner.getTimeout(), TimingTuner.DEFAULT_TIMEOUT);
+    }
+}
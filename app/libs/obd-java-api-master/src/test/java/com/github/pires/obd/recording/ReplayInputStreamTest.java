@@ -0,0 +1,127 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.control.TroubleCodesCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.HeadersOffCommand;
+import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.exceptions.NoDataException;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for SessionRecorder and ReplayInputStream classes.
+ */
+public class ReplayInputStreamTest {
+
+    /**
+     * Test a recorded session decoded again at max speed, errors included
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testRecordAndReplay() throws Exception {
+        VehicleProfile profile = VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN);
+        profile.addTroubleCode("P0133");
+        profile.addTroubleCode("C1104");
+        profile.addTroubleCode("B21AB");
+        profile.addTroubleCode("U3106");
+        Elm327Simulator simulator = new Elm327Simulator(profile);
+        simulator.start();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        SessionRecorder recorder = new SessionRecorder(log);
+        ObdSession session = new ObdSession(recorder.wrap(simulator.getInputStream()),
+                recorder.wrap(simulator.getOutputStream()));
+        session.run(new EchoOffCommand());
+        session.run(new LineFeedOffCommand());
+        session.run(new HeadersOffCommand());
+        session.poll(new RPMCommand());
+        session.poll(new RPMCommand());
+        session.run(new TroubleCodesCommand());
+        profile.removePid(0x0D);
+        try {
+            session.run(new SpeedCommand());
+        } catch (NoDataException e) {
+            // recorded as well
+        }
+        recorder.close();
+        simulator.stop();
+
+        ReplayInputStream replay = new ReplayInputStream(new ByteArrayInputStream(log.toByteArray()), false);
+        ByteArrayOutputStream discard = new ByteArrayOutputStream();
+        assertEquals(replay.peekRequest(), "AT E0");
+        new EchoOffCommand().run(replay, discard);
+        new LineFeedOffCommand().run(replay, discard);
+        new HeadersOffCommand().run(replay, discard);
+        RPMCommand rpm = new RPMCommand();
+        rpm.run(replay, discard);
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(replay.peekRequest(), "01 0C");
+        rpm.run(replay, discard);
+        assertEquals(rpm.getRPM(), 1726);
+        TroubleCodesCommand codes = new TroubleCodesCommand();
+        codes.run(replay, discard);
+        assertEquals(codes.getFormattedResult(), "P0133\nC1104\nB21AB\nU3106\n");
+        try {
+            new SpeedCommand().run(replay, discard);
+        } catch (NoDataException e) {
+            assertNull(replay.peekRequest());
+            return;
+        }
+        throw new AssertionError("NO DATA not replayed");
+    }
+
+    /**
+     * Test responses served at their recorded pace
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testPaced() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(log);
+        out.writeInt(SessionRecorder.MAGIC);
+        out.writeShort(SessionRecorder.VERSION);
+        for (long timestamp : new long[]{5000, 5100}) {
+            out.writeLong(timestamp);
+            out.writeShort(5);
+            out.writeBytes("01 0D");
+            out.writeInt(10);
+            out.writeBytes("41 0D 40\r>");
+        }
+
+        ReplayInputStream replay = new ReplayInputStream(new ByteArrayInputStream(log.toByteArray()), true);
+        SpeedCommand speed = new SpeedCommand();
+        long start = System.nanoTime();
+        speed.run(replay, new ByteArrayOutputStream());
+        speed.run(replay, new ByteArrayOutputStream());
+
+        assertEquals(speed.getMetricSpeed(), 64);
+        assertTrue(System.nanoTime() - start >= 100000000L);
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for TripRecorder and TripReader classes.
+ */
+public class TripRecorderTest {
+
+    private File directory;
+    private RPMCommand rpm;
+    private SpeedCommand speed;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("trip").toFile();
+        rpm = new RPMCommand();
+        rpm.run(new ByteArrayInputStream("41 0C 1A F8>".getBytes()), new ByteArrayOutputStream());
+        rpm.setEnd(1000);
+        speed = new SpeedCommand();
+        speed.run(new ByteArrayInputStream("41 0D 40>".getBytes()), new ByteArrayOutputStream());
+        speed.setEnd(1050);
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Test samples decoded again by the command classes
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRecordAndDecode() throws Exception {
+        TripRecorder recorder = new TripRecorder(directory);
+        assertTrue(recorder.record(rpm));
+        assertTrue(recorder.record(speed));
+        EchoOffCommand echoOff = new EchoOffCommand();
+        assertFalse(recorder.record(echoOff));
+        recorder.close();
+        assertFalse(recorder.record(rpm));
+
+        TripReader reader = new TripReader(directory);
+        RPMCommand decodedRpm = new RPMCommand();
+        SpeedCommand decodedSpeed = new SpeedCommand();
+        assertTrue(reader.next());
+        assertEquals(reader.getTimestamp(), 1000);
+        assertEquals(reader.getPid(), 0x0C);
+        reader.decode(decodedRpm);
+        assertTrue(reader.next());
+        assertEquals(reader.getTimestamp(), 1050);
+        reader.decode(decodedSpeed);
+        assertFalse(reader.next());
+        reader.close();
+
+        assertEquals(decodedRpm.getRPM(), 1726);
+        assertEquals(decodedSpeed.getMetricSpeed(), 64);
+        assertEquals(decodedSpeed.getEnd(), 1050);
+    }
+
+    /**
+     * Test rollover to new segments
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRollover() throws Exception {
+        TripRecorder recorder = new TripRecorder(directory, 4);
+        for (int i = 0; i < 10; i++) {
+            rpm.setEnd(1000 + i);
+            recorder.record(rpm);
+        }
+        recorder.close();
+
+        assertEquals(directory.list().length, 3);
+        TripReader reader = new TripReader(directory);
+        int count = 0;
+        while (reader.next()) {
+            assertEquals(reader.getTimestamp(), 1000 + count);
+            count++;
+        }
+        assertEquals(count, 10);
+    }
+
+    /**
+     * Test recovery after a crash left a torn record
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTailRecovery() throws Exception {
+        TripRecorder crashed = new TripRecorder(directory, 16);
+        for (int i = 0; i < 5; i++) {
+            crashed.record(rpm);
+        }
+        crashed.flush();
+        // never closed, and the fourth record only partly written
+        File segment = directory.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(TripSegment.HEADER_SIZE + 3 * TripSegment.RECORD_SIZE + 8);
+            file.write(0x55);
+        }
+
+        TripRecorder recorder = new TripRecorder(directory, 16);
+        recorder.record(speed);
+        recorder.close();
+
+        TripReader reader = new TripReader(directory);
+        int count = 0;
+        int lastPid = -1;
+        while (reader.next()) {
+            lastPid = reader.getPid();
+            count++;
+        }
+        assertEquals(count, 4);
+        assertEquals(lastPid, 0x0D);
+        assertEquals(segment.length(), TripSegment.HEADER_SIZE + 3L * TripSegment.RECORD_SIZE);
+    }
+
+}
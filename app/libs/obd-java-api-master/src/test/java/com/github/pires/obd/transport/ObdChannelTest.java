@@ -0,0 +1,214 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.transport;
+
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.exceptions.AdapterTimeoutException;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests for ObdChannel class.
+ */
+public class ObdChannelTest {
+
+    private Elm327Simulator simulator;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+        simulator = new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN));
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        simulator.stop();
+    }
+
+    private static int rpm(ObdChannel channel) throws Exception {
+        ObdSession session = new ObdSession(channel.getInputStream(), channel.getOutputStream());
+        RPMCommand rpm = new RPMCommand();
+        session.run(rpm);
+        return rpm.getRPM();
+    }
+
+    /**
+     * Test commands over a socket channel
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testSocket() throws Exception {
+        int port = simulator.listen(0);
+        try (ObdChannel channel = ObdChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            ObdSession session = new ObdSession(channel.getInputStream(), channel.getOutputStream());
+            session.run(new EchoOffCommand());
+            session.run(new LineFeedOffCommand());
+            assertEquals(rpm(channel), 1726);
+            assertEquals(rpm(channel), 1726);
+        }
+    }
+
+    /**
+     * Test commands over wrapped blocking streams
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testStreams() throws Exception {
+        simulator.start();
+        try (ObdChannel channel = ObdChannel.forStreams(simulator.getInputStream(), simulator.getOutputStream())) {
+            new EchoOffCommand().run(channel.getInputStream(), channel.getOutputStream());
+            assertEquals(rpm(channel), 1726);
+        }
+    }
+
+    /**
+     * Test a silent adapter times out instead of blocking
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testTimeout() throws Exception {
+        PipedInputStream silent = new PipedInputStream(new PipedOutputStream());
+        try (ObdChannel channel = ObdChannel.forStreams(silent, new ByteArrayOutputStream())) {
+            channel.setTimeout(200);
+            long start = System.nanoTime();
+            try {
+                rpm(channel);
+                fail("No timeout");
+            } catch (AdapterTimeoutException e) {
+                assertEquals(e.getTimeout(), 200);
+            }
+            long elapsed = (System.nanoTime() - start) / 1000000;
+            assertTrue(elapsed >= 200 && elapsed < 2000, elapsed + "ms");
+        }
+    }
+
+    /**
+     * Test a response arriving after its deadline isn't read as the next one
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testLateResponse() throws Exception {
+        simulator.start();
+        try (ObdChannel channel = ObdChannel.forStreams(simulator.getInputStream(), simulator.getOutputStream())) {
+            new EchoOffCommand().run(channel.getInputStream(), channel.getOutputStream());
+            simulator.setLatency(150);
+            channel.setTimeout(50);
+            simulator.getProfile().setPid(0x0C, 0x0F, 0xA0);
+            try {
+                rpm(channel);
+                fail("No timeout");
+            } catch (AdapterTimeoutException e) {
+                // expected
+            }
+            Thread.sleep(500);
+            simulator.setLatency(0);
+            simulator.getProfile().setPid(0x0C, 0x1A, 0xF8);
+            channel.setTimeout(2000);
+            assertEquals(rpm(channel), 1726);
+        }
+    }
+
+    /**
+     * Test interrupting the reading thread ends the wait
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testInterrupt() throws Exception {
+        PipedInputStream silent = new PipedInputStream(new PipedOutputStream());
+        try (final ObdChannel channel = ObdChannel.forStreams(silent, new ByteArrayOutputStream())) {
+            final IOException[] error = new IOException[1];
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rpm(channel);
+                    } catch (IOException e) {
+                        error[0] = e;
+                    } catch (Exception e) {
+                        // reported as no error
+                    }
+                }
+            });
+            reader.start();
+            Thread.sleep(100);
+            reader.interrupt();
+            reader.join(1000);
+            assertTrue(error[0] instanceof InterruptedIOException);
+            assertTrue(!(error[0] instanceof AdapterTimeoutException));
+        }
+    }
+    /**
+     * Test closing the streams goes on when one of them fails
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testCloseStreams() throws Exception {
+        PipedOutputStream adapter = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(adapter) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                throw new IOException("Already closed");
+            }
+        };
+        final boolean[] closed = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        ObdChannel channel = ObdChannel.forStreams(in, out);
+        try {
+            channel.close();
+            fail("Expected the input stream's exception");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "Already closed");
+        }
+        assertTrue(closed[0]);
+        adapter.close();
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.trip;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.MassAirFlowCommand;
+import com.github.pires.obd.commands.fuel.AirFuelRatioCommand;
+import com.github.pires.obd.commands.fuel.ConsumptionRateCommand;
+import com.github.pires.obd.commands.fuel.FindFuelTypeCommand;
+import com.github.pires.obd.enums.FuelType;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static com.github.pires.obd.polling.PollerFixture.feed;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for TripComputer class.
+ */
+public class TripComputerTest {
+
+    private static final long START = 1500000000000L;
+
+    private TripComputer trip;
+    private SpeedCommand speed;
+    private MassAirFlowCommand maf;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        trip = new TripComputer();
+        speed = new SpeedCommand();
+        maf = new MassAirFlowCommand();
+    }
+
+    /**
+     * Drives an hour at 100km/h, polling speed and MAF at 10Hz.
+     */
+    private void driveAnHour() {
+        for (int i = 0; i <= 36000; i++) {
+            feed(trip, speed, START + i * 100L, 100);
+            // 10 g/s
+            feed(trip, maf, START + i * 100L + 50, 0x03, 0xE8);
+        }
+    }
+
+    /**
+     * Test fuel derived from the air flow
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMassAirFlow() throws Exception {
+        assertTrue(Double.isNaN(trip.getAverageConsumption()));
+        driveAnHour();
+        double litersPerHour = 10 * 3600 / 14.7 / 745;
+        assertEquals(trip.getDistance(), 100, 1e-6);
+        assertEquals(trip.getDuration(), 3600000);
+        assertEquals(trip.getAverageSpeed(), 100, 1e-6);
+        assertEquals(trip.getFuelRate(), litersPerHour, 1e-6);
+        assertEquals(trip.getFuelUsed(), litersPerHour, 1e-6);
+        assertEquals(trip.getAverageConsumption(), litersPerHour, 1e-6);
+        assertEquals(trip.getInstantConsumption(), litersPerHour, 1e-6);
+
+        feed(trip, speed, START + 3600100, 0);
+        assertTrue(Double.isNaN(trip.getInstantConsumption()));
+
+        trip.reset();
+        assertEquals(trip.getDistance(), 0.0);
+        assertEquals(trip.getFuelUsed(), 0.0);
+    }
+
+    /**
+     * Test the fuel type and equivalence ratio are taken into account
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFuelType() throws Exception {
+        feed(trip, new FindFuelTypeCommand(), START, 0x04);
+        assertEquals(trip.getFuelType(), FuelType.DIESEL);
+        // lean, lambda 1.5
+        feed(trip, new AirFuelRatioCommand(), START, 0xC0, 0x00);
+        driveAnHour();
+        assertEquals(trip.getFuelUsed(), 10 * 3600 / (14.5 * 1.5) / 832, 1e-4);
+
+        trip.setFuelType(FuelType.ELECTRIC);
+        feed(trip, maf, START + 3600200, 0x03, 0xE8);
+        assertEquals(trip.getFuelRate(), 10 * 3600 / (14.5 * 1.5) / 832, 1e-4);
+    }
+
+    /**
+     * Test PID 5E is preferred to the air flow once answered
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConsumptionRate() throws Exception {
+        ConsumptionRateCommand rate = new ConsumptionRateCommand();
+        for (int i = 0; i <= 600; i++) {
+            feed(trip, speed, START + i * 1000L, 60);
+            // 6 L/h
+            feed(trip, rate, START + i * 1000L, 0x00, 0x78);
+            feed(trip, maf, START + i * 1000L, 0x03, 0xE8);
+        }
+        assertEquals(trip.getDistance(), 10, 1e-6);
+        assertEquals(trip.getFuelUsed(), 1, 1e-6);
+        assertEquals(trip.getAverageConsumption(), 10, 1e-6);
+        assertEquals(trip.getInstantConsumption(), 10, 1e-6);
+    }
+
+    /**
+     * Test gaps aren't integrated, and imperial speeds are converted
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGap() throws Exception {
+        speed.useImperialUnits(true);
+        feed(trip, speed, START, 100);
+        feed(trip, speed, START + 1000, 100);
+        feed(trip, speed, START + 1000 + TripComputer.MAX_GAP + 1, 100);
+        assertEquals(trip.getDistance(), 100 / 3600.0, 1e-9);
+        assertEquals(trip.getDuration(), 1000);
+    }
+
+}
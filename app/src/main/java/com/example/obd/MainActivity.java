@@ -7,11 +7,15 @@ import android.bluetooth.BluetoothSocket;
 import android.content.Intent;
 import android.support.v7.app.AlertDialog;
 import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.github.pires.obd.cache.VehicleCache;
 import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
 import com.github.pires.obd.commands.SpeedCommand;
 import com.github.pires.obd.commands.control.VinCommand;
 import com.github.pires.obd.commands.engine.LoadCommand;
@@ -22,16 +26,27 @@ import com.github.pires.obd.commands.fuel.FuelLevelCommand;
 import com.github.pires.obd.commands.pressure.IntakeManifoldPressureCommand;
 import com.github.pires.obd.commands.protocol.EchoOffCommand;
 import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
-import com.github.pires.obd.commands.protocol.SelectProtocolCommand;
 import com.github.pires.obd.commands.temperature.AirIntakeTemperatureCommand;
 import com.github.pires.obd.commands.temperature.EngineCoolantTemperatureCommand;
-import com.github.pires.obd.enums.ObdProtocols;
-
+import com.github.pires.obd.exceptions.AdapterTimeoutException;
+import com.github.pires.obd.metrics.LatencyMonitor;
+import com.github.pires.obd.metrics.LatencyStats;
+import com.github.pires.obd.polling.ObdPoller;
+import com.github.pires.obd.polling.PidScheduler;
+import com.github.pires.obd.polling.PollingListener;
+import com.github.pires.obd.polling.TimingTuner;
+import com.github.pires.obd.recording.TripRecorder;
+import com.github.pires.obd.telemetry.OverflowPolicy;
+import com.github.pires.obd.telemetry.Subscription;
+import com.github.pires.obd.telemetry.TelemetryBus;
+import com.github.pires.obd.transport.ObdChannel;
+import com.github.pires.obd.utils.PidSupportMap;
+import com.github.pires.obd.utils.ResultFormatter;
+
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 
 public class MainActivity extends Activity {
@@ -41,6 +56,8 @@ public class MainActivity extends Activity {
 
     private BluetoothAdapter btAdapter = BluetoothAdapter.getDefaultAdapter();
     private BluetoothSocket btSocket;
+    private ObdChannel channel;
+    private ObdSession session;
     private String chosenDeviceName, chosenDeviceAddress;
     private Button bConnect, bStart, bStop, bChooseDevice;
     private TextView command1Label, command2Label, command3Label;
@@ -53,7 +70,26 @@ public class MainActivity extends Activity {
     private ArrayList<ObdCommand> chosenParameters = new ArrayList<ObdCommand>(){{ add(command1); add(command2); add(command3); }};
     private int chosenParametersAmount = 3;
 
-    private Timer timer;
+    private ObdPoller poller;
+    private TripRecorder recorder;
+    private PidSupportMap supportMap;
+    private TimingTuner tuner;
+    private final LatencyMonitor latencyMonitor = new LatencyMonitor();
+    private final ResultFormatter[] resultFormatters = {new ResultFormatter(), new ResultFormatter(), new ResultFormatter()};
+    private final Handler uiHandler = new Handler();
+    private Subscription gauges;
+    private final Runnable refreshGauges = new Runnable() {
+        @Override
+        public void run() {
+            gauges.drain(sample -> {
+                ObdCommand command = sample.getCommand();
+                resultViewFor(command).setText(Double.isNaN(sample.getValue())
+                        ? command.getFormattedResult()
+                        : resultFormatterFor(command).format(sample.getValue(), sample.getUnit()));
+            });
+            uiHandler.postDelayed(this, 100);
+        }
+    };
 
 
     @Override
@@ -215,28 +251,44 @@ public class MainActivity extends Activity {
     }
 
     private void connectOBD() {
-        try {
-            BluetoothDevice device = btAdapter.getRemoteDevice(chosenDeviceAddress);
-            UUID uuid = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
-
-            btSocket = device.createRfcommSocketToServiceRecord(uuid);
-            btSocket.connect();
-
-            new EchoOffCommand().run(btSocket.getInputStream(), btSocket.getOutputStream());
-            new LineFeedOffCommand().run(btSocket.getInputStream(), btSocket.getOutputStream());
-            new SelectProtocolCommand(ObdProtocols.AUTO).run(btSocket.getInputStream(), btSocket.getOutputStream());
-
-            Toast.makeText(MainActivity.this, "Connected to OBD", Toast.LENGTH_SHORT).show();
-            bStart.setEnabled(true);
-            bConnect.setEnabled(false);
+        bConnect.setEnabled(false);
+        // dozens of round trips, each up to the adapter timeout: off the UI thread
+        new Thread(() -> {
+            try {
+                BluetoothDevice device = btAdapter.getRemoteDevice(chosenDeviceAddress);
+                UUID uuid = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+
+                btSocket = device.createRfcommSocketToServiceRecord(uuid);
+                btSocket.connect();
+                channel = ObdChannel.forStreams(btSocket.getInputStream(), btSocket.getOutputStream());
+
+                new EchoOffCommand().run(channel.getInputStream(), channel.getOutputStream());
+                new LineFeedOffCommand().run(channel.getInputStream(), channel.getOutputStream());
+                session = new ObdSession(channel.getInputStream(), channel.getOutputStream());
+                new VehicleCache(new File(getFilesDir(), "vehicles")).connect(session, chosenDeviceAddress);
+                supportMap = PidSupportMap.probe(session);
+                tuner = new TimingTuner(session);
+                tuner.tune();
+
+                runOnUiThread(() -> {
+                    Toast.makeText(MainActivity.this, "Connected to OBD", Toast.LENGTH_SHORT).show();
+                    bStart.setEnabled(true);
+                });
+            } catch (IllegalArgumentException e) {
+                connectionFailed("Please choose Bluetooth device first");
+            } catch (IOException e) {
+                connectionFailed("Unable to establish connection");
+            } catch (Exception e) {
+                connectionFailed(e.toString());
+            }
+        }, "ObdConnect").start();
+    }
 
-        } catch (IllegalArgumentException e) {
-            Toast.makeText(MainActivity.this, "Please choose Bluetooth device first", Toast.LENGTH_LONG).show();
-        } catch (IOException e) {
-            Toast.makeText(MainActivity.this, "Unable to establish connection", Toast.LENGTH_LONG).show();
-        } catch (Exception e){
-            Toast.makeText(MainActivity.this, e.toString(), Toast.LENGTH_LONG).show();
-        }
+    private void connectionFailed(final String message) {
+        runOnUiThread(() -> {
+            Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+            bConnect.setEnabled(true);
+        });
     }
 
     private void startOBD() {
@@ -264,33 +316,105 @@ public class MainActivity extends Activity {
         } catch (Exception e) {
             Toast.makeText(MainActivity.this, e.toString(), Toast.LENGTH_LONG).show();
         }*/
+        PidScheduler scheduler = new PidScheduler();
+        scheduler.setSupportMap(supportMap);
+        final TelemetryBus bus = new TelemetryBus(scheduler);
+        // one slot per gauge, holding its latest value whatever the UI's pace
+        gauges = bus.subscribe(3, OverflowPolicy.CONFLATE);
+        for (ObdCommand command : new ObdCommand[]{command1, command2, command3}) {
+            if (command != null && !gauges.add(command, pollingFrequency(command))) {
+                resultViewFor(command).setText("Not supported");
+            }
+        }
+        try {
+            final TripRecorder tripRecorder = new TripRecorder(new File(getFilesDir(), "trips"));
+            recorder = tripRecorder;
+            // the same session as the tuner, so its AT commands aren't taken for the last request
+            poller = new ObdPoller(session, scheduler, latencyMonitor.monitor(tuner.monitor(new PollingListener() {
+                @Override
+                public void onResult(ObdCommand command) {
+                    try {
+                        tripRecorder.record(command);
+                    } catch (IOException e) {
+                        final String message = e.toString();
+                        runOnUiThread(() -> Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show());
+                    }
+                    bus.onResult(command);
+                }
+
+                @Override
+                public void onError(ObdCommand command, Exception e) {
+                    final String message = e.getMessage();
+                    // the poller ends on these: the connection is gone
+                    final boolean lost = e instanceof IOException && !(e instanceof AdapterTimeoutException);
+                    runOnUiThread(() -> {
+                        Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+                        if (lost && bStop.isEnabled()) {
+                            stopOBD();
+                        }
+                    });
+                }
+            })));
+        } catch (NullPointerException e) {
+            Toast.makeText(MainActivity.this, "Please connect to Bluetooth device first", Toast.LENGTH_LONG).show();
+            return;
+        } catch (IOException e) {
+            Toast.makeText(MainActivity.this, e.toString(), Toast.LENGTH_LONG).show();
+            return;
+        }
         bStart.setEnabled(false);
         bConnect.setEnabled(false);
         bChooseDevice.setEnabled(false);
         bStop.setEnabled(true);
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                try {
-                    command1.run(btSocket.getInputStream(), btSocket.getOutputStream());
-                    command1Result.setText(command1.getCalculatedResult());
-                    command2.run(btSocket.getInputStream(), btSocket.getOutputStream());
-                    command2Result.setText(command2.getCalculatedResult());
-                    command3.run(btSocket.getInputStream(), btSocket.getOutputStream());
-                    command3Result.setText(command3.getCalculatedResult());
-                } catch (Exception e) {
-                    Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_LONG).show();
-                }
-            }
-        }, 100, 1000);
+        poller.start();
+        uiHandler.post(refreshGauges);
+    }
+
+    private TextView resultViewFor(ObdCommand command) {
+        if (command == command1) {
+            return command1Result;
+        } else if (command == command2) {
+            return command2Result;
+        }
+        return command3Result;
+    }
+
+    private ResultFormatter resultFormatterFor(ObdCommand command) {
+        if (command == command1) {
+            return resultFormatters[0];
+        } else if (command == command2) {
+            return resultFormatters[1];
+        }
+        return resultFormatters[2];
+    }
+
+    private static double pollingFrequency(ObdCommand command) {
+        if (command instanceof RPMCommand || command instanceof SpeedCommand
+                || command instanceof ThrottlePositionCommand || command instanceof LoadCommand
+                || command instanceof IntakeManifoldPressureCommand) {
+            return 10;
+        } else if (command instanceof FuelLevelCommand || command instanceof VinCommand) {
+            return 0.05;
+        }
+        return 0.2;
     }
 
     private void stopOBD() {
         command1Result.setText("");
         command2Result.setText("");
         command3Result.setText("");
-        timer.cancel();
+        poller.stop();
+        uiHandler.removeCallbacks(refreshGauges);
+        gauges.close();
+        for (LatencyStats stats : latencyMonitor.snapshot()) {
+            Log.i("Latency", stats.toString());
+        }
+        Log.i("Latency", "Errors " + latencyMonitor.getErrorCounts());
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            Toast.makeText(MainActivity.this, e.toString(), Toast.LENGTH_LONG).show();
+        }
         bStart.setEnabled(true);
         bStop.setEnabled(false);
         bConnect.setEnabled(true);
@@ -0,0 +1,116 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.commands.control.TroubleCodesCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_01_20;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning an adapter response into a result: readRawData,
+ * fillBuffer and performCalculations, as run by readResult.
+ * <p>
+ * It lives in the commands package to reach the protected readResult. Every
+ * command is reused across invocations, like a poller does, and reads a
+ * response recorded from an adapter with echo and line feeds off.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandParsingBenchmark {
+
+    private RPMCommand rpm;
+    private SpeedCommand speed;
+    private TroubleCodesCommand troubleCodes;
+    private VinCommand vin;
+    private AvailablePidsCommand_01_20 availablePids;
+
+    private ByteArrayInputStream rpmResponse;
+    private ByteArrayInputStream speedResponse;
+    private ByteArrayInputStream troubleCodesResponse;
+    private ByteArrayInputStream vinResponse;
+    private ByteArrayInputStream availablePidsResponse;
+
+    @Setup
+    public void setUp() {
+        rpm = new RPMCommand();
+        speed = new SpeedCommand();
+        troubleCodes = new TroubleCodesCommand();
+        vin = new VinCommand();
+        availablePids = new AvailablePidsCommand_01_20();
+
+        rpmResponse = response("41 0C 1A F8\r\r>");
+        speedResponse = response("41 0D 40\r\r>");
+        troubleCodesResponse = response("00A\r0: 43 04 01 08 01 18\r1: 01 19 01 20 00 00\r\r>");
+        vinResponse = response("014\r0: 49 02 01 57 50 30\r1: 5A 5A 5A 39 39 5A 54\r2: 53 33 39 32 31 32 34\r\r>");
+        availablePidsResponse = response("41 00 BE 1F A8 13\r\r>");
+    }
+
+    private static ByteArrayInputStream response(String text) {
+        return new ByteArrayInputStream(text.getBytes());
+    }
+
+    @Benchmark
+    public int rpm() throws IOException {
+        rpmResponse.reset();
+        rpm.readResult(rpmResponse);
+        return rpm.getRPM();
+    }
+
+    @Benchmark
+    public int speed() throws IOException {
+        speedResponse.reset();
+        speed.readResult(speedResponse);
+        return speed.getMetricSpeed();
+    }
+
+    @Benchmark
+    public String troubleCodesMultiFrame() throws IOException {
+        troubleCodesResponse.reset();
+        troubleCodes.readResult(troubleCodesResponse);
+        return troubleCodes.getFormattedResult();
+    }
+
+    @Benchmark
+    public String vinMultiFrame() throws IOException {
+        vinResponse.reset();
+        vin.readResult(vinResponse);
+        return vin.getFormattedResult();
+    }
+
+    @Benchmark
+    public String availablePids() throws IOException {
+        availablePidsResponse.reset();
+        availablePids.readResult(availablePidsResponse);
+        return availablePids.getCalculatedResult();
+    }
+
+}
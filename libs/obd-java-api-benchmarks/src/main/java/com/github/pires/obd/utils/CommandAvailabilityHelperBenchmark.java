@@ -0,0 +1,61 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of checking a PID against the "PIDs supported" bitmap, from the
+ * response string and from the digested array.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandAvailabilityHelperBenchmark {
+
+    private String availabilityString;
+    private int[] availabilityArray;
+    private String pid;
+
+    @Setup
+    public void setUp() {
+        availabilityString = "BE1FA813";
+        availabilityArray = CommandAvailabilityHelper.digestAvailabilityString(availabilityString);
+        pid = "0C";
+    }
+
+    @Benchmark
+    public boolean isAvailableFromString() {
+        return CommandAvailabilityHelper.isAvailable(pid, availabilityString);
+    }
+
+    @Benchmark
+    public boolean isAvailableFromArray() {
+        return CommandAvailabilityHelper.isAvailable(pid, availabilityArray);
+    }
+
+}
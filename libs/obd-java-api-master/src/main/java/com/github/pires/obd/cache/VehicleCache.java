@@ -0,0 +1,409 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.cache;
+
+import com.github.pires.obd.commands.KnownResults;
+import com.github.pires.obd.commands.MultiEcuCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_01_20;
+import com.github.pires.obd.commands.protocol.DescribeProtocolNumberCommand;
+import com.github.pires.obd.commands.protocol.HeadersOffCommand;
+import com.github.pires.obd.commands.protocol.HeadersOnCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.protocol.SelectProtocolCommand;
+import com.github.pires.obd.commands.protocol.SupportedPidsCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.exceptions.NonNumericResponseException;
+import com.github.pires.obd.exceptions.ResponseException;
+import com.github.pires.obd.utils.PidSupportMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Keeps what {@link PersistentCommand} learns about a vehicle across
+ * connections, so reconnecting to a known car skips the slow probes.
+ * <p>
+ * Every vehicle is one small properties file, keyed by its VIN or, for
+ * vehicles without one, by adapter address and ECU. The files carry a
+ * format version and are dropped when it doesn't match. The adapter last
+ * used with each vehicle is remembered too: {@link #connect(ObdSession, String)}
+ * on a known adapter selects the cached protocol and checks PIDs 01-20 and
+ * the VIN against the cache, which replaces the protocol search and the
+ * other supported PID ranges. If the answer differs, another car is on the
+ * adapter and it is probed again. What is learnt goes to the session's
+ * {@link KnownResults}, so vehicles on several adapters don't mix.
+ */
+public class VehicleCache {
+
+    /** Constant <code>VERSION=1</code>, format of the stored entries. */
+    public static final int VERSION = 1;
+
+    private static final String SUFFIX = ".properties";
+    private static final String ADAPTERS = "adapters" + SUFFIX;
+    private static final String RESULT = "result.";
+
+    private final File directory;
+
+    /**
+     * <p>Constructor for VehicleCache.</p>
+     *
+     * @param directory where entries go, created if missing.
+     * @throws java.io.IOException if the directory can't be created.
+     */
+    public VehicleCache(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Key of a vehicle reporting its VIN.
+     *
+     * @param vin a {@link java.lang.String} object.
+     * @return a {@link java.lang.String} object.
+     */
+    public static String key(String vin) {
+        return "VIN-" + vin.trim().toUpperCase();
+    }
+
+    /**
+     * Key of a vehicle without VIN, by the adapter it was reached through
+     * and its engine ECU.
+     *
+     * @param adapterAddress i.e. the Bluetooth MAC address.
+     * @param ecu            i.e. "7E8", or an empty string if not known.
+     * @return a {@link java.lang.String} object.
+     */
+    public static String key(String adapterAddress, String ecu) {
+        String key = "ECU-" + adapterAddress.trim().toUpperCase();
+        return ecu.trim().isEmpty() ? key : key + "-" + ecu.trim().toUpperCase();
+    }
+
+    /**
+     * Connects to the vehicle on the adapter, from the cache if it knows
+     * the vehicle last seen there, by probing it otherwise.
+     * <p>
+     * Echo and linefeeds should be off already.
+     *
+     * @param session        the adapter connection.
+     * @param adapterAddress i.e. the Bluetooth MAC address.
+     * @return the vehicle, its results applied to the session.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public VehicleEntry connect(ObdSession session, String adapterAddress) throws IOException, InterruptedException {
+        VehicleEntry entry = restore(session, adapterAddress);
+        return entry != null ? entry : probe(session, adapterAddress);
+    }
+
+    /**
+     * Selects the protocol of the vehicle last seen on the adapter and
+     * checks it is still the same one: PIDs 01-20 must match, then the VIN
+     * if the vehicle has one, every other supported PID range otherwise.
+     * An entry whose PIDs don't match is invalidated; one whose VIN doesn't
+     * is kept, as it's another vehicle of the same model.
+     *
+     * @param session        the adapter connection.
+     * @param adapterAddress i.e. the Bluetooth MAC address.
+     * @return the vehicle, or null if not known or not the one connected,
+     * with the adapter back on automatic protocol search.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public VehicleEntry restore(ObdSession session, String adapterAddress) throws IOException, InterruptedException {
+        String key = lastKey(adapterAddress);
+        VehicleEntry entry = key == null ? null : load(key);
+        if (entry == null) {
+            return null;
+        }
+        KnownResults known = session.getKnownResults();
+        known.clear();
+        session.run(new SelectProtocolCommand(entry.getProtocol()));
+        boolean samePids = false;
+        boolean sameVehicle = false;
+        try {
+            AvailablePidsCommand_01_20 check = new AvailablePidsCommand_01_20();
+            session.run(check);
+            samePids = VehicleEntry.normalize(check.getResult()).equals(entry.getResult(AvailablePidsCommand_01_20.class));
+            if (samePids && entry.getVin() != null) {
+                VinCommand vin = new VinCommand();
+                session.run(vin);
+                sameVehicle = entry.getVin().equals(vin.getCalculatedResult());
+            } else if (samePids) {
+                samePids = sameRanges(session, entry);
+                sameVehicle = samePids;
+            }
+        } catch (ResponseException | NonNumericResponseException e) {
+            // not the vehicle that answered before
+        }
+        if (sameVehicle) {
+            entry.apply(known);
+            return entry;
+        }
+        known.clear();
+        session.run(new SelectProtocolCommand(ObdProtocols.AUTO));
+        if (!samePids) {
+            invalidate(key);
+        }
+        return null;
+    }
+
+    /**
+     * Asks again every supported PID range of the entry but 01-20, for
+     * vehicles without a VIN to tell them apart.
+     */
+    private static boolean sameRanges(ObdSession session, VehicleEntry entry) throws IOException, InterruptedException {
+        for (Map.Entry<String, String> result : entry.getResults().entrySet()) {
+            String name = result.getKey();
+            String expected = result.getValue();
+            boolean range = name.startsWith(AvailablePidsCommand.class.getSimpleName())
+                    || name.startsWith(SupportedPidsCommand.class.getSimpleName());
+            if (!range || name.equals(AvailablePidsCommand_01_20.class.getSimpleName()) || expected.length() < 4) {
+                continue;
+            }
+            // the request is the response's service and PID, i.e. "4120..." for "01 20"
+            int mode = Integer.parseInt(expected.substring(0, 2), 16) - 0x40;
+            ObdRawCommand request = new ObdRawCommand(String.format("%02X %s", mode, expected.substring(2, 4)));
+            session.run(request);
+            if (!VehicleEntry.normalize(request.getResult()).equals(expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Asks the vehicle, with the adapter on automatic protocol search, for
+     * its supported PIDs, see {@link PidSupportMap}, VIN, protocol and the ECUs answering mode 01 and stores them. Headers are
+     * on for the one request listing the ECUs, and off again after it.
+     *
+     * @param session        the adapter connection.
+     * @param adapterAddress i.e. the Bluetooth MAC address.
+     * @return the vehicle.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public VehicleEntry probe(ObdSession session, String adapterAddress) throws IOException, InterruptedException {
+        session.getKnownResults().clear();
+        // whatever protocol the adapter stored may not be this vehicle's
+        session.run(new SelectProtocolCommand(ObdProtocols.AUTO));
+        PidSupportMap pids = PidSupportMap.probe(session);
+        String vin = null;
+        if (pids.isSupported(0x09, 0x02)) {
+            VinCommand vinCommand = new VinCommand();
+            session.run(vinCommand);
+            vin = vinCommand.getCalculatedResult();
+        }
+        DescribeProtocolNumberCommand protocol = new DescribeProtocolNumberCommand();
+        session.run(protocol);
+        List<String> ecus = detectEcus(session);
+        String key = vin != null && !vin.isEmpty() ? key(vin) : key(adapterAddress, "");
+        VehicleEntry entry = VehicleEntry.capture(session.getKnownResults(), key, vin, protocol.getObdProtocol(), ecus);
+        save(entry, adapterAddress);
+        return entry;
+    }
+
+    private static List<String> detectEcus(ObdSession session) throws IOException, InterruptedException {
+        session.run(new HeadersOnCommand());
+        try {
+            MultiEcuCommand pids = new MultiEcuCommand(new ObdRawCommand("01 00"));
+            session.run(pids);
+            return new ArrayList<>(pids.getEcus());
+        } catch (ResponseException | NonNumericResponseException e) {
+            return Collections.emptyList();
+        } finally {
+            session.run(new HeadersOffCommand());
+        }
+    }
+
+    /**
+     * <p>load.</p>
+     *
+     * @param key a {@link java.lang.String} object.
+     * @return the entry, null if missing or stored by another version.
+     * @throws java.io.IOException if any.
+     */
+    public synchronized VehicleEntry load(String key) throws IOException {
+        File file = file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = read(file);
+        ObdProtocols protocol;
+        try {
+            if (Integer.parseInt(properties.getProperty("version", "0")) != VERSION
+                    || !key.equals(properties.getProperty("key"))) {
+                invalidate(key);
+                return null;
+            }
+            protocol = ObdProtocols.valueOf(properties.getProperty("protocol"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            invalidate(key);
+            return null;
+        }
+        String ecuList = properties.getProperty("ecus", "");
+        List<String> ecus = ecuList.isEmpty()
+                ? Collections.<String>emptyList() : Arrays.asList(ecuList.split(","));
+        Map<String, String> results = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(RESULT)) {
+                results.put(name.substring(RESULT.length()), properties.getProperty(name));
+            }
+        }
+        return new VehicleEntry(key, properties.getProperty("vin"), protocol, ecus, results);
+    }
+
+    /**
+     * Stores the entry, replacing the one with the same key.
+     *
+     * @param entry          a {@link com.github.pires.obd.cache.VehicleEntry} object.
+     * @param adapterAddress the adapter it was seen on, null to not remember it.
+     * @throws java.io.IOException if any.
+     */
+    public synchronized void save(VehicleEntry entry, String adapterAddress) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("version", String.valueOf(VERSION));
+        properties.setProperty("key", entry.getKey());
+        if (entry.getVin() != null) {
+            properties.setProperty("vin", entry.getVin());
+        }
+        properties.setProperty("protocol", entry.getProtocol().name());
+        StringBuilder ecus = new StringBuilder();
+        for (String ecu : entry.getEcus()) {
+            ecus.append(ecus.length() > 0 ? "," : "").append(ecu);
+        }
+        properties.setProperty("ecus", ecus.toString());
+        for (Map.Entry<String, String> result : entry.getResults().entrySet()) {
+            properties.setProperty(RESULT + result.getKey(), result.getValue());
+        }
+        write(file(entry.getKey()), properties);
+        if (adapterAddress != null) {
+            Properties adapters = adapters();
+            adapters.setProperty(adapterAddress, entry.getKey());
+            write(new File(directory, ADAPTERS), adapters);
+        }
+    }
+
+    /**
+     * <p>lastKey.</p>
+     *
+     * @param adapterAddress i.e. the Bluetooth MAC address.
+     * @return the key of the vehicle last seen on the adapter, null if none.
+     * @throws java.io.IOException if any.
+     */
+    public synchronized String lastKey(String adapterAddress) throws IOException {
+        return adapters().getProperty(adapterAddress);
+    }
+
+    /**
+     * Drops the entry, i.e. after the vehicle was reflashed.
+     *
+     * @param key a {@link java.lang.String} object.
+     * @throws java.io.IOException if any.
+     */
+    public synchronized void invalidate(String key) throws IOException {
+        File file = file(key);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Can't delete " + file);
+        }
+        Properties adapters = adapters();
+        if (adapters.values().removeAll(Collections.singleton(key))) {
+            write(new File(directory, ADAPTERS), adapters);
+        }
+    }
+
+    /**
+     * Drops all entries.
+     *
+     * @throws java.io.IOException if any.
+     */
+    public synchronized void clear() throws IOException {
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            if (file.getName().endsWith(SUFFIX) && !file.delete()) {
+                throw new IOException("Can't delete " + file);
+            }
+        }
+    }
+
+    /**
+     * <p>keys.</p>
+     *
+     * @return the keys of all stored vehicles.
+     */
+    public synchronized List<String> keys() {
+        List<String> keys = new ArrayList<>();
+        File[] files = directory.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX) && !name.equals(ADAPTERS)) {
+                try {
+                    String key = read(file).getProperty("key");
+                    if (key != null) {
+                        keys.add(key);
+                    }
+                } catch (IOException e) {
+                    // skip unreadable entries
+                }
+            }
+        }
+        return keys;
+    }
+
+    private File file(String key) {
+        return new File(directory, "vehicle-" + key.replaceAll("[^A-Za-z0-9-]", "_") + SUFFIX);
+    }
+
+    private Properties adapters() throws IOException {
+        File file = new File(directory, ADAPTERS);
+        return file.isFile() ? read(file) : new Properties();
+    }
+
+    private static Properties read(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties;
+    }
+
+    /**
+     * Writes a temporary file first, so a crash leaves either the old or
+     * the new entry.
+     */
+    private static void write(File file, Properties properties) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            properties.store(out, null);
+            out.getFD().sync();
+        }
+        if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+            throw new IOException("Can't replace " + file);
+        }
+    }
+}
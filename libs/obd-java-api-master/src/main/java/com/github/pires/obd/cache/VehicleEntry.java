@@ -0,0 +1,155 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.cache;
+
+import com.github.pires.obd.commands.KnownResults;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What is known about one vehicle: its protocol, the ECUs answering and the
+ * results of every {@link PersistentCommand}, i.e. the supported PID bitmaps
+ * and the VIN.
+ */
+public class VehicleEntry {
+
+    private final String key;
+    private final String vin;
+    private final ObdProtocols protocol;
+    private final List<String> ecus;
+    private final Map<String, String> results;
+
+    /**
+     * <p>Constructor for VehicleEntry.</p>
+     *
+     * @param key      the cache key, see {@link VehicleCache#key(String)}.
+     * @param vin      the VIN, null if the vehicle doesn't report one.
+     * @param protocol the protocol the vehicle was reached with.
+     * @param ecus     the ECUs answering, i.e. "7E8", may be empty.
+     * @param results  the raw {@link PersistentCommand} results by key.
+     */
+    public VehicleEntry(String key, String vin, ObdProtocols protocol, List<String> ecus, Map<String, String> results) {
+        if (key == null || protocol == null) {
+            throw new IllegalArgumentException("Key and protocol are required");
+        }
+        this.key = key;
+        this.vin = vin;
+        this.protocol = protocol;
+        this.ecus = Collections.unmodifiableList(new ArrayList<>(ecus));
+        this.results = Collections.unmodifiableMap(new HashMap<>(results));
+    }
+
+    /**
+     * Takes the results of the persistent commands run so far on a
+     * connection.
+     *
+     * @param known    see {@link com.github.pires.obd.commands.ObdSession#getKnownResults()}.
+     * @param key      the cache key.
+     * @param vin      the VIN, null if the vehicle doesn't report one.
+     * @param protocol the protocol the vehicle was reached with.
+     * @param ecus     the ECUs answering, may be empty.
+     * @return a {@link com.github.pires.obd.cache.VehicleEntry} object.
+     */
+    public static VehicleEntry capture(KnownResults known, String key, String vin, ObdProtocols protocol, List<String> ecus) {
+        Map<String, String> results = new HashMap<>();
+        for (Map.Entry<String, String> result : known.getResults().entrySet()) {
+            results.put(result.getKey(), normalize(result.getValue()));
+        }
+        return new VehicleEntry(key, vin, protocol, ecus, results);
+    }
+
+    /**
+     * Replaces the results known on a connection with the ones of this
+     * vehicle, so they are not asked again.
+     *
+     * @param known see {@link com.github.pires.obd.commands.ObdSession#getKnownResults()}.
+     */
+    public void apply(KnownResults known) {
+        known.clear();
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            known.remember(result.getKey(), result.getValue());
+        }
+    }
+
+    /**
+     * Drops what is left of "SEARCHING..." in front of the first response
+     * after a protocol search, so results compare equal across connections.
+     *
+     * @param result a raw result.
+     * @return the result without dots.
+     */
+    static String normalize(String result) {
+        return result == null ? null : result.replace(".", "");
+    }
+
+    /**
+     * <p>Getter for the field <code>key</code>.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * <p>Getter for the field <code>vin</code>.</p>
+     *
+     * @return the VIN, null if the vehicle doesn't report one.
+     */
+    public String getVin() {
+        return vin;
+    }
+
+    /**
+     * <p>Getter for the field <code>protocol</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.ObdProtocols} object.
+     */
+    public ObdProtocols getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * <p>Getter for the field <code>ecus</code>.</p>
+     *
+     * @return the ECUs answering, i.e. "7E8".
+     */
+    public List<String> getEcus() {
+        return ecus;
+    }
+
+    /**
+     * <p>Getter for the field <code>results</code>.</p>
+     *
+     * @return the raw {@link PersistentCommand} results by key.
+     */
+    public Map<String, String> getResults() {
+        return results;
+    }
+
+    /**
+     * <p>Getter for one result.</p>
+     *
+     * @param command a {@link PersistentCommand} class.
+     * @return its raw result, null if not known.
+     */
+    public String getResult(Class<? extends PersistentCommand> command) {
+        return results.get(command.getSimpleName());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.chart;
+
+/**
+ * The buckets of one resolution of a {@link ChartSeries}: for each time
+ * slice of a fixed width, the minimum and maximum and when they happened.
+ * The latest bucket is still open; the closed ones are kept in a ring.
+ */
+class ChartLevel {
+
+    final long width;
+    private final long[] starts;
+    private final long[] minAts;
+    private final long[] maxAts;
+    private final float[] minima;
+    private final float[] maxima;
+    /**
+     * Closed buckets, plus the open one at index <code>size</code> if any.
+     */
+    private int head = 0;
+    private int size = 0;
+    private boolean open = false;
+
+    ChartLevel(long width, int capacity) {
+        this.width = width;
+        // one more for the open bucket
+        this.starts = new long[capacity + 1];
+        this.minAts = new long[capacity + 1];
+        this.maxAts = new long[capacity + 1];
+        this.minima = new float[capacity + 1];
+        this.maxima = new float[capacity + 1];
+    }
+
+    void add(long timestamp, float value) {
+        long start = timestamp / width * width;
+        if (start > timestamp) {
+            start -= width;
+        }
+        if (open) {
+            int slot = slot(size);
+            if (start <= starts[slot]) {
+                // the open bucket, late values included
+                if (value < minima[slot]) {
+                    minima[slot] = value;
+                    minAts[slot] = timestamp;
+                }
+                if (value > maxima[slot]) {
+                    maxima[slot] = value;
+                    maxAts[slot] = timestamp;
+                }
+                return;
+            }
+            // close it
+            if (size == starts.length - 1) {
+                head = (head + 1) % starts.length;
+            } else {
+                size++;
+            }
+        }
+        int slot = slot(size);
+        starts[slot] = start;
+        minima[slot] = value;
+        maxima[slot] = value;
+        minAts[slot] = timestamp;
+        maxAts[slot] = timestamp;
+        open = true;
+    }
+
+    private int slot(int index) {
+        return (head + index) % starts.length;
+    }
+
+    /**
+     * @return the number of buckets, the open one included.
+     */
+    int count() {
+        return open ? size + 1 : size;
+    }
+
+    /**
+     * @return the start of the oldest bucket, Long.MAX_VALUE if none.
+     */
+    long oldest() {
+        return count() == 0 ? Long.MAX_VALUE : starts[slot(0)];
+    }
+
+    /**
+     * @return the index of the first bucket ending after a time.
+     */
+    int indexOf(long timestamp) {
+        int low = 0;
+        int high = count();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (starts[slot(middle)] + width <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Writes the points of the buckets overlapping a time range, the minimum
+     * and maximum of each in the order they happened.
+     *
+     * @return the number of points written, no more than the limit.
+     */
+    int render(long from, long to, long[] timestamps, float[] values, int limit) {
+        int points = 0;
+        for (int i = indexOf(from); i < count() && points < limit; i++) {
+            int slot = slot(i);
+            if (starts[slot] >= to) {
+                break;
+            }
+            boolean minFirst = minAts[slot] <= maxAts[slot];
+            timestamps[points] = minFirst ? minAts[slot] : maxAts[slot];
+            values[points++] = minFirst ? minima[slot] : maxima[slot];
+            if (minAts[slot] != maxAts[slot] && points < limit) {
+                timestamps[points] = minFirst ? maxAts[slot] : minAts[slot];
+                values[points++] = minFirst ? maxima[slot] : minima[slot];
+            }
+        }
+        return points;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+        open = false;
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.chart;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.polling.PollingListener;
+import com.github.pires.obd.telemetry.Sample;
+import com.github.pires.obd.telemetry.SampleListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Feeds the {@link ChartSeries} of the commands being charted, i.e. RPM,
+ * speed, throttle position and MAF air flow.
+ * <p>
+ * Like a {@link com.github.pires.obd.history.TimeSeriesStore}, the pipeline
+ * can be the {@link com.github.pires.obd.polling.ObdPoller}'s listener, or
+ * drain a {@link com.github.pires.obd.telemetry.Subscription}. Results of
+ * commands not tracked are ignored; commands are the same when they send the
+ * same request.
+ */
+public class ChartPipeline implements PollingListener, SampleListener {
+
+    private final ConcurrentMap<ObdCommand, ChartSeries> series = new ConcurrentHashMap<>();
+
+    /**
+     * Charts a command with the default levels, see {@link ChartSeries#ChartSeries()}.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @return the series to render, the same if already tracked.
+     */
+    public ChartSeries track(ObdCommand command) {
+        return track(command, new ChartSeries());
+    }
+
+    /**
+     * Charts a command.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @param chart   the series to feed.
+     * @return the series to render, the one already tracked if any.
+     */
+    public ChartSeries track(ObdCommand command, ChartSeries chart) {
+        ChartSeries tracked = series.putIfAbsent(command, chart);
+        return tracked == null ? chart : tracked;
+    }
+
+    /**
+     * Stops charting a command.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public void untrack(ObdCommand command) {
+        series.remove(command);
+    }
+
+    /**
+     * <p>getSeries.</p>
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @return the series of the command's request, null if not tracked.
+     */
+    public ChartSeries getSeries(ObdCommand command) {
+        return series.get(command);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onSample(Sample sample) {
+        ChartSeries chart = series.get(sample.getCommand());
+        if (chart != null) {
+            chart.add(sample.getTimestamp(), (float) sample.getValue());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onResult(ObdCommand command) {
+        ChartSeries chart = series.get(command);
+        if (chart != null) {
+            chart.add(command.getEnd(), (float) command.value());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onError(ObdCommand command, Exception e) {
+    }
+
+}
@@ -0,0 +1,209 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.enums.ResultUnit;
+import com.github.pires.obd.exceptions.NonNumericResponseException;
+import com.github.pires.obd.utils.IsoTpAssembler;
+import com.github.pires.obd.utils.IsoTpMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sends a command with headers on, see
+ * {@link com.github.pires.obd.commands.protocol.HeadersOnCommand}, and keeps
+ * the answer of every ECU apart.
+ * <p>
+ * With headers off, the lines of an engine and a transmission answering the
+ * same functional request are read as one response, and a command decodes
+ * whichever bytes come first. Here each line is split into its sender and
+ * payload, multi-frame messages are joined (see {@link IsoTpAssembler}), and
+ * {@link #read(String, ObdCommand)} hands one ECU's answer to a command as if
+ * that ECU had answered alone. The wrapped command gets the answer of the
+ * first ECU by address that didn't reject the request, usually the engine.
+ * <p>
+ * To then poll one of the ECUs without waiting for the others, address it
+ * with {@link com.github.pires.obd.commands.protocol.SetHeaderCommand#forEcu(String)}.
+ */
+public class MultiEcuCommand extends ObdCommand {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final ObdCommand command;
+    private final IsoTpAssembler assembler = new IsoTpAssembler();
+    /**
+     * The payload lines of each ECU, as the adapter prints them headers off.
+     */
+    private final TreeMap<String, StringBuilder> responses = new TreeMap<>();
+    private final Set<String> ecus = Collections.unmodifiableSet(responses.keySet());
+    private byte[] replay = new byte[64];
+    private String ecu = null;
+
+    /**
+     * <p>Constructor for MultiEcuCommand.</p>
+     *
+     * @param command the command to send, which gets the main ECU's answer.
+     */
+    public MultiEcuCommand(ObdCommand command) {
+        super(command.cmd);
+        this.command = command;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void readRawData(InputStream in) throws IOException {
+        readRawLines(in);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void fillBuffer() {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void performCalculations() {
+        responses.clear();
+        ecu = null;
+        for (IsoTpMessage message : assembler.assemble(getResult())) {
+            if (!message.isComplete() || message.getLength() == 0) {
+                continue;
+            }
+            StringBuilder lines = responses.get(message.getEcu());
+            if (lines == null) {
+                lines = new StringBuilder();
+                responses.put(message.getEcu(), lines);
+            }
+            for (int i = 0; i < message.getLength(); i++) {
+                int b = message.getByte(i);
+                lines.append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+            }
+            lines.append('\r');
+        }
+        for (String candidate : responses.keySet()) {
+            StringBuilder lines = responses.get(candidate);
+            if (lines.charAt(0) != '7' || lines.charAt(1) != 'F') { // not a negative response
+                ecu = candidate;
+                break;
+            }
+        }
+        if (ecu == null) {
+            throw new NonNumericResponseException(getResult());
+        }
+        try {
+            read(ecu, command);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not thrown reading from memory
+        }
+    }
+
+    /**
+     * Decodes the answer of one ECU.
+     * <p>
+     * A {@link PersistentCommand} remembers the last answer read.
+     *
+     * @param ecu    the ECU, one of {@link #getEcus()}.
+     * @param target the command to decode it with, normally of the same
+     *               request.
+     * @return false if that ECU didn't answer.
+     * @throws java.io.IOException if any.
+     */
+    public boolean read(String ecu, ObdCommand target) throws IOException {
+        StringBuilder lines = responses.get(ecu);
+        if (lines == null) {
+            return false;
+        }
+        int length = lines.length() + 1;
+        if (replay.length < length) {
+            replay = new byte[Math.max(replay.length * 2, length)];
+        }
+        for (int i = 0; i < lines.length(); i++) {
+            replay[i] = (byte) lines.charAt(i);
+        }
+        replay[length - 1] = '>';
+        target.readResult(new ByteArrayInputStream(replay, 0, length));
+        return true;
+    }
+
+    /**
+     * <p>Getter for the field <code>ecus</code>.</p>
+     *
+     * @return the headers of the ECUs that answered, in address order, i.e.
+     * "7E8" and "7E9" on CAN 11 bit, "18DAF110" on CAN 29 bit or "10" on
+     * older protocols.
+     */
+    public Set<String> getEcus() {
+        return ecus;
+    }
+
+    /**
+     * <p>Getter for the field <code>ecu</code>.</p>
+     *
+     * @return the ECU whose answer the wrapped command holds.
+     */
+    public String getEcu() {
+        return ecu;
+    }
+
+    /**
+     * <p>Getter for the field <code>command</code>.</p>
+     *
+     * @return the wrapped command.
+     */
+    public ObdCommand getCommand() {
+        return command;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFormattedResult() {
+        return command.getFormattedResult();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getCalculatedResult() {
+        return command.getCalculatedResult();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double value() {
+        return command.value();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return command.unit();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void useImperialUnits(boolean isImperial) {
+        super.useImperialUnits(isImperial);
+        command.useImperialUnits(isImperial);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return command.getName();
+    }
+
+}
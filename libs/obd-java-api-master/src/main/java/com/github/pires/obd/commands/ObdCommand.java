@@ -12,11 +12,16 @@
  */
 package com.github.pires.obd.commands;
 
+import com.github.pires.obd.enums.CommandPhase;
+import com.github.pires.obd.enums.ResultUnit;
 import com.github.pires.obd.exceptions.*;
+import com.github.pires.obd.pids.PidDescriptor;
+import com.github.pires.obd.pids.PidRegistry;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.regex.Pattern;
 
@@ -26,25 +31,37 @@ import java.util.regex.Pattern;
  */
 public abstract class ObdCommand {
 
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] SEARCHING = {'S', 'E', 'A', 'R', 'C', 'H', 'I', 'N', 'G'};
+    private static final byte[] BUSINIT = {'B', 'U', 'S', 'I', 'N', 'I', 'T'};
+    private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
     /**
-     * Error classes to be tested in order
+     * Decoded response bytes, reused between runs. Only the first
+     * <code>bufferLength</code> entries are valid.
      */
-    private final Class[] ERROR_CLASSES = {
-            UnableToConnectException.class,
-            BusInitException.class,
-            MisunderstoodCommandException.class,
-            NoDataException.class,
-            StoppedException.class,
-            UnknownErrorException.class,
-            UnsupportedCommandException.class
-    };
-    protected ArrayList<Integer> buffer = null;
+    protected int[] buffer = null;
+    protected int bufferLength = 0;
     protected String cmd = null;
     protected boolean useImperialUnits = false;
+    /**
+     * Lazily built from the normalized response, see {@link #getResult()}.
+     */
     protected String rawData = null;
     protected Long responseDelayInMs = null;
+    private byte[] response = new byte[32];
+    private int responseLength = -1;
     private long start;
     private long end;
+    /**
+     * System.nanoTime() marks of the last run, 0 when not reached.
+     */
+    long requestedAt;
+    long sentAt;
+    private long firstByteAt;
+    private long receivedAt;
+    private long decodedAt;
+    private PidDescriptor descriptor;
 
     /**
      * Default ctor to use
@@ -53,7 +70,7 @@ public abstract class ObdCommand {
      */
     public ObdCommand(String command) {
         this.cmd = command;
-        this.buffer = new ArrayList<>();
+        this.buffer = new int[16];
     }
 
     /**
@@ -74,7 +91,9 @@ public abstract class ObdCommand {
     /**
      * Sends the OBD-II request and deals with the response.
      * <p>
-     * This method CAN be overriden in fake commands.
+     * This method CAN be overriden in fake commands. Commands sharing the same
+     * streams are serialized the same way as through an {@link ObdSession};
+     * commands on different adapters run in parallel.
      *
      * @param in  a {@link java.io.InputStream} object.
      * @param out a {@link java.io.OutputStream} object.
@@ -83,14 +102,33 @@ public abstract class ObdCommand {
      */
     public void run(InputStream in, OutputStream out) throws IOException,
             InterruptedException {
-        synchronized (ObdCommand.class) {//Only one command can write and read a data in one time.
-            start = System.currentTimeMillis();
-            sendCommand(out);
-            readResult(in);
-            end = System.currentTimeMillis();
+        synchronized (in) {//Only one command can write and read a data in one time on a connection.
+            execute(in, out);
         }
     }
 
+    /**
+     * Sends the request and reads the response. The caller must hold the lock
+     * of the connection, see {@link ObdSession#run(ObdCommand)}.
+     *
+     * @param in  a {@link java.io.InputStream} object.
+     * @param out a {@link java.io.OutputStream} object.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    protected void execute(InputStream in, OutputStream out) throws IOException,
+            InterruptedException {
+        start = System.currentTimeMillis();
+        requestedAt = System.nanoTime();
+        sentAt = 0;
+        sendCommand(out);
+        if (sentAt == 0) {
+            sentAt = System.nanoTime();
+        }
+        readResult(in);
+        end = System.currentTimeMillis();
+    }
+
     /**
      * Sends the OBD-II request.
      * <p>
@@ -107,6 +145,7 @@ public abstract class ObdCommand {
         // Carriage return
         out.write((cmd + "\r").getBytes());
         out.flush();
+        sentAt = System.nanoTime();
         if (responseDelayInMs != null && responseDelayInMs > 0) {
             Thread.sleep(responseDelayInMs);
         }
@@ -123,6 +162,7 @@ public abstract class ObdCommand {
             InterruptedException {
         out.write("\r".getBytes());
         out.flush();
+        sentAt = System.nanoTime();
         if (responseDelayInMs != null && responseDelayInMs > 0) {
             Thread.sleep(responseDelayInMs);
         }
@@ -137,10 +177,42 @@ public abstract class ObdCommand {
      * @throws java.io.IOException if any.
      */
     protected void readResult(InputStream in) throws IOException {
+        responseLength = -1;
+        rawData = null;
+        firstByteAt = 0;
+        decodedAt = 0;
         readRawData(in);
+        receivedAt = System.nanoTime();
         checkForErrors();
         fillBuffer();
         performCalculations();
+        decodedAt = System.nanoTime();
+    }
+
+    /**
+     * Processes a response received on behalf of this command, i.e. one slice
+     * of a batched request or a recorded sample, as if it had been read from
+     * the adapter.
+     *
+     * @param bytes  the response bytes, header included.
+     * @param length the number of valid entries in bytes.
+     */
+    public void readResult(int[] bytes, int length) {
+        clearNanos();
+        receivedAt = System.nanoTime();
+        if (response.length < length * 2) {
+            response = new byte[length * 2];
+        }
+        for (int i = 0; i < length; i++) {
+            response[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            response[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0F];
+        }
+        responseLength = length * 2;
+        rawData = null;
+        checkForErrors();
+        fillBuffer();
+        performCalculations();
+        decodedAt = System.nanoTime();
     }
 
     /**
@@ -150,11 +222,6 @@ public abstract class ObdCommand {
     protected abstract void performCalculations();
 
 
-    private static Pattern WHITESPACE_PATTERN = Pattern.compile("\\s");
-    private static Pattern BUSINIT_PATTERN = Pattern.compile("(BUS INIT)|(BUSINIT)|(\\.)");
-    private static Pattern SEARCHING_PATTERN = Pattern.compile("SEARCHING");
-    private static Pattern DIGITS_LETTERS_PATTERN = Pattern.compile("([0-9A-F])+");
-
     protected String replaceAll(Pattern pattern, String input, String replacement) {
         return pattern.matcher(input).replaceAll(replacement);
     }
@@ -164,85 +231,182 @@ public abstract class ObdCommand {
     }
 
     /**
-     * <p>fillBuffer.</p>
+     * Decodes the normalized response into {@link #buffer}, two hex characters
+     * per byte. "BUS INIT" notices and dots are skipped; anything else that is
+     * not an uppercase hex digit makes the response non numeric.
      */
     protected void fillBuffer() {
-        rawData = removeAll(WHITESPACE_PATTERN, rawData); //removes all [ \t\n\x0B\f\r]
-        rawData = removeAll(BUSINIT_PATTERN, rawData);
-
-        if (!DIGITS_LETTERS_PATTERN.matcher(rawData).matches()) {
-            throw new NonNumericResponseException(rawData);
+        bufferLength = 0;
+        int digits = 0;
+        int high = 0;
+        for (int i = 0; i < responseLength; i++) {
+            byte c = response[i];
+            if (c == '.') {
+                continue;
+            }
+            if (c == 'B' && responseMatches(i, BUSINIT)) {
+                i += BUSINIT.length - 1;
+                continue;
+            }
+            int nibble = hexValue(c);
+            if (nibble < 0) {
+                throw new NonNumericResponseException(getResult());
+            }
+            if ((digits++ & 1) == 0) {
+                high = nibble;
+            } else {
+                if (bufferLength == buffer.length) {
+                    int[] grown = new int[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, bufferLength);
+                    buffer = grown;
+                }
+                buffer[bufferLength++] = (high << 4) | nibble;
+            }
+        }
+        if (digits == 0) {
+            throw new NonNumericResponseException(getResult());
         }
+    }
 
-        // read string each two chars
-        buffer.clear();
-        int begin = 0;
-        int end = 2;
-        while (end <= rawData.length()) {
-            buffer.add(Integer.decode("0x" + rawData.substring(begin, end)));
-            begin = end;
-            end += 2;
+    private static int hexValue(byte c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
         }
+        return -1;
     }
 
     /**
+     * Reads the response up to the '>' prompt in a single pass.
      * <p>
-     * readRawData.</p>
+     * ELM sends strings, so "41 0C 00 0D" is eleven characters on the socket.
+     * Whitespace and "SEARCHING" are dropped as they arrive, and a first line
+     * echoing the command back (echo on) is discarded, leaving e.g. "410C000D".
      *
      * @param in a {@link java.io.InputStream} object.
      * @throws java.io.IOException if any.
      */
     protected void readRawData(InputStream in) throws IOException {
-        byte b = 0;
-        StringBuilder res = new StringBuilder();
+        byte b;
+        int lineStart = 0;
+        boolean firstLine = true;
+        responseLength = 0;
+        rawData = null;
 
-        // read until '>' arrives OR end of stream reached
-        char c;
         // -1 if the end of the stream is reached
-        while (((b = (byte) in.read()) > -1)) {
-            c = (char) b;
-            if (c == '>') // read until '>' arrives
-            {
+        while ((b = (byte) in.read()) > -1) {
+            if (firstByteAt == 0) {
+                firstByteAt = System.nanoTime();
+            }
+            if (b == '>') { // read until '>' arrives
                 break;
             }
-            res.append(c);
+            if (b == '\r' || b == '\n') {
+                if (firstLine && responseLength > lineStart) {
+                    if (isEcho(lineStart)) {
+                        responseLength = lineStart;
+                    }
+                    firstLine = false;
+                }
+                lineStart = responseLength;
+                continue;
+            }
+            if (b == ' ' || b == '\t' || b == 0x0B || b == '\f') {
+                continue;
+            }
+            if (responseLength == response.length) {
+                byte[] grown = new byte[response.length * 2];
+                System.arraycopy(response, 0, grown, 0, responseLength);
+                response = grown;
+            }
+            response[responseLength++] = b;
+            if (b == 'G' && responseLength >= SEARCHING.length
+                    && responseMatches(responseLength - SEARCHING.length, SEARCHING)) {
+                responseLength -= SEARCHING.length;
+            }
         }
+    }
 
-    /*
-     * Imagine the following response 41 0c 00 0d.
+    /**
+     * Reads the response up to the '>' prompt keeping its line breaks, which
+     * commands decoding multi-line responses with a
+     * {@link com.github.pires.obd.utils.IsoTpAssembler} rely on. Only spaces
+     * are dropped; the result is classified on {@link #getResult()}.
      *
-     * ELM sends strings!! So, ELM puts spaces between each "byte". And pay
-     * attention to the fact that I've put the word byte in quotes, because 41
-     * is actually TWO bytes (two chars) in the socket. So, we must do some more
-     * processing..
+     * @param in a {@link java.io.InputStream} object.
+     * @throws java.io.IOException if any.
      */
-        rawData = removeAll(SEARCHING_PATTERN, res.toString());
+    protected final void readRawLines(InputStream in) throws IOException {
+        byte b;
+        StringBuilder res = new StringBuilder();
 
-    /*
-     * Data may have echo or informative text like "INIT BUS..." or similar.
-     * The response ends with two carriage return characters. So we need to take
-     * everything from the last carriage return before those two (trimmed above).
-     */
-        //kills multiline.. rawData = rawData.substring(rawData.lastIndexOf(13) + 1);
-        rawData = removeAll(WHITESPACE_PATTERN, rawData);//removes all [ \t\n\x0B\f\r]
+        // read until '>' arrives OR end of stream reached (and skip ' ')
+        while ((b = (byte) in.read()) > -1) { // -1 if the end of the stream is reached
+            if (firstByteAt == 0) {
+                firstByteAt = System.nanoTime();
+            }
+            if (b == '>') {
+                break;
+            }
+            if (b != ' ') {
+                res.append((char) b);
+            }
+        }
+
+        rawData = res.toString().trim();
     }
 
-    void checkForErrors() {
-        for (Class<? extends ResponseException> errorClass : ERROR_CLASSES) {
-            ResponseException messageError;
-
-            try {
-                messageError = errorClass.newInstance();
-                messageError.setCommand(this.cmd);
-            } catch (InstantiationException e) {
-                throw new RuntimeException(e);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
+    private boolean responseMatches(int offset, byte[] token) {
+        if (offset + token.length > responseLength) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (response[offset + i] != token[i]) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            if (messageError.isError(rawData)) {
-                throw messageError;
+    /**
+     * Checks whether the response line starting at lineStart is the command
+     * itself, ignoring whitespace and case.
+     */
+    private boolean isEcho(int lineStart) {
+        if (cmd == null) {
+            return false;
+        }
+        int pos = lineStart;
+        for (int i = 0; i < cmd.length(); i++) {
+            char c = cmd.charAt(i);
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            if (pos == responseLength
+                    || Character.toUpperCase((char) response[pos]) != Character.toUpperCase(c)) {
+                return false;
             }
+            pos++;
+        }
+        return pos == responseLength;
+    }
+
+    /**
+     * Throws the error reported by the adapter, if any. Responses read by
+     * {@link #readRawData(InputStream)} are classified on their normalized
+     * bytes; commands reading their own raw data are classified on
+     * {@link #getResult()}.
+     */
+    void checkForErrors() {
+        ResponseErrorClassifier classifier = ResponseErrorClassifier.getDefault();
+        ResponseException error = responseLength >= 0
+                ? classifier.classify(response, responseLength)
+                : classifier.classify(getResult());
+        if (error != null) {
+            error.setCommand(this.cmd);
+            throw error;
         }
     }
 
@@ -252,6 +416,9 @@ public abstract class ObdCommand {
      * @return the raw command response in string representation.
      */
     public String getResult() {
+        if (rawData == null && responseLength >= 0) {
+            rawData = new String(response, 0, responseLength, ASCII);
+        }
         return rawData;
     }
 
@@ -269,13 +436,125 @@ public abstract class ObdCommand {
      */
     public abstract String getCalculatedResult();
 
+    /**
+     * Returns one decoded response byte, without boxing.
+     *
+     * @param index position in the response, header bytes included
+     * @return the unsigned byte value
+     * @throws java.lang.IndexOutOfBoundsException if the response is shorter
+     */
+    public final int getByte(int index) {
+        if (index >= bufferLength) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bufferLength);
+        }
+        return buffer[index];
+    }
+
+    /**
+     * Decodes the response with the SAE J1979 formula of the request's PID,
+     * see {@link PidRegistry}.
+     *
+     * @return the value, in the unit of {@link #getDescriptor()}.
+     * @throws java.lang.IllegalStateException     if the PID has no formula.
+     * @throws java.lang.IndexOutOfBoundsException if the response is shorter
+     *                                             than the formula needs.
+     */
+    protected final double decode() {
+        PidDescriptor pid = getDescriptor();
+        if (pid == null || !pid.isNumeric()) {
+            throw new IllegalStateException("No formula for " + cmd);
+        }
+        double value = pid.decode(buffer, bufferLength);
+        if (Double.isNaN(value)) {
+            throw new IndexOutOfBoundsException("Response too short for " + pid + ": " + bufferLength);
+        }
+        return value;
+    }
+
+    /**
+     * Whether {@link #decode()} has a formula for the request's PID. Vendor
+     * and mode 22 requests sent through the generic commands have none.
+     *
+     * @return true if the PID is in {@link PidRegistry} and numeric.
+     */
+    protected final boolean hasFormula() {
+        PidDescriptor pid = getDescriptor();
+        return pid != null && pid.isNumeric();
+    }
+
+    /**
+     * <p>Getter for the field <code>descriptor</code>.</p>
+     *
+     * @return the descriptor of the request's PID, null if unknown.
+     */
+    public final PidDescriptor getDescriptor() {
+        if (descriptor == null) {
+            descriptor = PidRegistry.get(cmd);
+        }
+        return descriptor;
+    }
+
+    /**
+     * The first data byte of the response, "A" in the SAE J1979 formulas.
+     *
+     * @return the unsigned byte value, or -1 if the response has no data.
+     */
+    public final int rawA() {
+        return bufferLength > 2 ? buffer[2] : -1;
+    }
+
+    /**
+     * The second data byte of the response, "B" in the SAE J1979 formulas.
+     *
+     * @return the unsigned byte value, or -1 if the response is shorter.
+     */
+    public final int rawB() {
+        return bufferLength > 3 ? buffer[3] : -1;
+    }
+
+    /**
+     * The calculated result as a number, in {@link #unit()}. Unlike
+     * {@link #getCalculatedResult()} this doesn't allocate, so it is what
+     * sinks polling at full rate should read.
+     *
+     * @return the value, or NaN if the command has no numeric result.
+     */
+    public double value() {
+        return Double.NaN;
+    }
+
+    /**
+     * The unit of {@link #value()}, which follows
+     * {@link #useImperialUnits(boolean)}.
+     *
+     * @return a {@link com.github.pires.obd.enums.ResultUnit}, never null.
+     */
+    public ResultUnit unit() {
+        return ResultUnit.NONE;
+    }
+
+    /**
+     * <p>Getter for the field <code>bufferLength</code>.</p>
+     *
+     * @return the number of decoded response bytes
+     */
+    public final int getBufferLength() {
+        return bufferLength;
+    }
+
     /**
      * <p>Getter for the field <code>buffer</code>.</p>
      *
-     * @return a list of integers
+     * @return a copy of the decoded response bytes as a list of integers
+     * @deprecated allocates on every call, use {@link #getByte(int)} instead
      */
+    @Deprecated
     protected ArrayList<Integer> getBuffer() {
-        return buffer;
+        ArrayList<Integer> list = new ArrayList<>(bufferLength);
+        for (int i = 0; i < bufferLength; i++) {
+            list.add(buffer[i]);
+        }
+        return list;
     }
 
     /**
@@ -293,7 +572,7 @@ public abstract class ObdCommand {
      * @return a String representing a unit or "", never null
      */
     public String getResultUnit() {
-        return "";//no unit by default
+        return unit().getSymbol();
     }
 
     /**
@@ -368,14 +647,57 @@ public abstract class ObdCommand {
         this.end = end;
     }
 
+    /**
+     * Forgets the times of the last run, for results not read from the adapter.
+     */
+    void clearNanos() {
+        requestedAt = 0;
+        sentAt = 0;
+        firstByteAt = 0;
+        receivedAt = 0;
+        decodedAt = 0;
+    }
+
+    /**
+     * How long a phase of the last run took, measured with System.nanoTime().
+     * Responses that weren't read from the adapter, i.e. replayed or slices of
+     * a batched request, only have a {@link CommandPhase#DECODE} time. Commands
+     * reading their response their own way have it all under
+     * {@link CommandPhase#ECU_WAIT}.
+     *
+     * @param phase a {@link com.github.pires.obd.enums.CommandPhase} object.
+     * @return the duration in ns, -1 if the phase wasn't measured.
+     */
+    public long getNanos(CommandPhase phase) {
+        switch (phase) {
+            case WRITE:
+                return requestedAt == 0 || sentAt == 0 ? -1 : sentAt - requestedAt;
+            case ECU_WAIT:
+                if (sentAt == 0 || requestedAt == 0 || receivedAt == 0) {
+                    return -1;
+                }
+                return (firstByteAt == 0 ? receivedAt : firstByteAt) - sentAt;
+            case READ:
+                if (sentAt == 0 || requestedAt == 0 || receivedAt == 0) {
+                    return -1;
+                }
+                return firstByteAt == 0 ? 0 : receivedAt - firstByteAt;
+            case DECODE:
+                return receivedAt == 0 || decodedAt == 0 ? -1 : decodedAt - receivedAt;
+            default:
+                return requestedAt == 0 || decodedAt == 0 ? -1 : decodedAt - requestedAt;
+        }
+    }
+
     /**
      * <p>getCommandPID.</p>
      *
-     * @return a {@link java.lang.String} object.
+     * @return a {@link java.lang.String} object, empty for commands without
+     * PID such as "03".
      * @since 1.0-RC12
      */
     public final String getCommandPID() {
-        return cmd.substring(3);
+        return cmd.length() > 3 ? cmd.substring(3) : "";
     }
 
     /**
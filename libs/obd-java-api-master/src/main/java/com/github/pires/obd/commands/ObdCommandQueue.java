@@ -0,0 +1,115 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Queue of commands waiting to be polled on one {@link ObdSession}.
+ * <p>
+ * Commands are sent back to back through {@link ObdSession#poll(ObdCommand)},
+ * without the fixed response delays of {@link ObdCommand#run}: each request
+ * goes out as soon as the adapter prompt for the previous one arrives, and a
+ * command queued twice in a row is repeated with a bare carriage return.
+ * Commands may be added from any thread.
+ */
+public class ObdCommandQueue {
+
+    private final ObdSession session;
+    private final ArrayDeque<ObdCommand> pending = new ArrayDeque<>();
+
+    /**
+     * <p>Constructor for ObdCommandQueue.</p>
+     *
+     * @param session a {@link com.github.pires.obd.commands.ObdSession} object.
+     */
+    public ObdCommandQueue(ObdSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Adds a command at the end of the queue.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public void add(ObdCommand command) {
+        synchronized (pending) {
+            pending.addLast(command);
+        }
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return the number of commands waiting to be sent.
+     */
+    public int size() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Removes all pending commands.
+     */
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Polls the command at the head of the queue. The command is removed from
+     * the queue even when the adapter answers with an error.
+     *
+     * @return the command that was run, or null if the queue was empty.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public ObdCommand runNext() throws IOException, InterruptedException {
+        ObdCommand command;
+        synchronized (pending) {
+            command = pending.pollFirst();
+        }
+        if (command != null) {
+            session.poll(command);
+        }
+        return command;
+    }
+
+    /**
+     * Polls commands until the queue is empty.
+     *
+     * @return the number of commands run.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public int runAll() throws IOException, InterruptedException {
+        int count = 0;
+        while (runNext() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * <p>Getter for the field <code>session</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.commands.ObdSession} object.
+     */
+    public ObdSession getSession() {
+        return session;
+    }
+
+}
@@ -12,6 +12,11 @@
  */
 package com.github.pires.obd.commands;
 
+import com.github.pires.obd.exceptions.MisunderstoodCommandException;
+import com.github.pires.obd.exceptions.NonNumericResponseException;
+import com.github.pires.obd.exceptions.ResponseException;
+import com.github.pires.obd.exceptions.UnsupportedCommandException;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -19,11 +24,25 @@ import java.util.ArrayList;
 
 /**
  * Container for multiple {@link com.github.pires.obd.commands.ObdMultiCommand} instances.
+ * <p>
+ * In batch mode, mode 01 commands are combined into requests of up to six
+ * PIDs (i.e. "01 0C 0D 04 05 11 0F"), which CAN ECUs answer in a single
+ * round trip. Commands are still sent in the order they were added; a batch
+ * goes out where its first command was added. When an ECU doesn't
+ * understand the combined form ("?" or a negative response), or it fails
+ * three times in a row, the commands fall back
+ * to single requests. A single failure, such as NO DATA while the engine is
+ * off, only falls back for that round.
  *
  */
 public class ObdMultiCommand {
 
     private ArrayList<ObdCommand> commands;
+    private boolean batchMode = false;
+    /**
+     * The commands in batch mode, batches in place of their first member.
+     */
+    private ArrayList<ObdCommand> requests = null;
 
     /**
      * Default ctor.
@@ -39,6 +58,7 @@ public class ObdMultiCommand {
      */
     public void add(ObdCommand command) {
         this.commands.add(command);
+        this.requests = null;
     }
 
     /**
@@ -48,6 +68,26 @@ public class ObdMultiCommand {
      */
     public void remove(ObdCommand command) {
         this.commands.remove(command);
+        this.requests = null;
+    }
+
+    /**
+     * <p>isBatchMode.</p>
+     *
+     * @return true if mode 01 commands are combined into multi PID requests.
+     */
+    public boolean isBatchMode() {
+        return batchMode;
+    }
+
+    /**
+     * Set to 'true' to combine mode 01 commands into multi PID requests. By
+     * default this value is set to 'false'.
+     *
+     * @param batchMode a boolean.
+     */
+    public void setBatchMode(boolean batchMode) {
+        this.batchMode = batchMode;
     }
 
     /**
@@ -60,8 +100,80 @@ public class ObdMultiCommand {
      */
     public void sendCommands(InputStream in, OutputStream out)
             throws IOException, InterruptedException {
-        for (ObdCommand command : commands)
-            command.run(in, out);
+        if (!batchMode) {
+            for (ObdCommand command : commands)
+                command.run(in, out);
+            return;
+        }
+        if (requests == null) {
+            groupCommands();
+        }
+        for (ObdCommand command : requests) {
+            if (command instanceof BatchedCommand) {
+                sendBatch((BatchedCommand) command, in, out);
+            } else {
+                command.run(in, out);
+            }
+        }
+    }
+
+    private void sendBatch(BatchedCommand batch, InputStream in, OutputStream out)
+            throws IOException, InterruptedException {
+        boolean answered = false;
+        if (!batch.isRejected()) {
+            try {
+                batch.run(in, out);
+                answered = true;
+            } catch (MisunderstoodCommandException | UnsupportedCommandException e) {
+                batch.reject();
+            } catch (ResponseException | NonNumericResponseException e) {
+                batch.fail();
+            }
+        }
+        ObdCommand[] members = batch.getMembers();
+        boolean anyAnswered = false;
+        for (int i = 0; i < members.length; i++) {
+            if (answered && batch.isAnswered(i)) {
+                anyAnswered = true;
+            } else {
+                members[i].run(in, out);
+            }
+        }
+        if (anyAnswered) {
+            batch.succeed();
+        } else if (answered) {
+            batch.fail();
+        }
+    }
+
+    /**
+     * Splits the commands into batches of mode 01 PIDs and commands that have
+     * to be sent on their own, keeping their order.
+     */
+    private void groupCommands() {
+        requests = new ArrayList<>();
+        ArrayList<ObdCommand> group = new ArrayList<>();
+        int groupAt = -1;
+        for (ObdCommand command : commands) {
+            if (BatchedCommand.pidOf(command) < 0) {
+                requests.add(command);
+                continue;
+            }
+            if (group.isEmpty()) {
+                groupAt = requests.size();
+                requests.add(null); // until the group is complete
+            }
+            group.add(command);
+            if (group.size() == BatchedCommand.MAX_PIDS) {
+                requests.set(groupAt, new BatchedCommand(group));
+                group.clear();
+            }
+        }
+        if (group.size() == 1) {
+            requests.set(groupAt, group.get(0));
+        } else if (!group.isEmpty()) {
+            requests.set(groupAt, new BatchedCommand(group));
+        }
     }
 
     /**
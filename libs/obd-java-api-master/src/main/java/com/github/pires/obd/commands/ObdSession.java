@@ -0,0 +1,209 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A connection to one ELM327 adapter.
+ * <p>
+ * Commands run through the same session never interleave on the wire, while
+ * sessions over different adapters run fully in parallel. The lock is the
+ * input stream itself, so a session and the legacy
+ * {@link ObdCommand#run(InputStream, OutputStream)} over the same socket
+ * exclude each other as well.
+ * <p>
+ * {@link #poll(ObdCommand)} is the fast path used by {@link ObdCommandQueue}:
+ * it relies on the session having seen every request written to the adapter,
+ * so mixing it with commands run directly on the streams is not supported.
+ */
+public class ObdSession {
+
+    private static final byte[] REPEAT = {'\r'};
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final KnownResults known;
+    private byte[] request = new byte[32];
+    private String lastCommand = null;
+    private int lastResponseCount = 0;
+    private int responseCount = 0;
+
+    /**
+     * <p>Constructor for ObdSession.</p>
+     *
+     * @param in  the adapter {@link java.io.InputStream}, i.e. from a BluetoothSocket.
+     * @param out the adapter {@link java.io.OutputStream}.
+     */
+    public ObdSession(InputStream in, OutputStream out) {
+        if (in == null || out == null) {
+            throw new IllegalArgumentException("Both streams are required");
+        }
+        this.in = in;
+        this.out = out;
+        this.known = KnownResults.of(in);
+    }
+
+    /**
+     * Sends the command on this connection and reads its response.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public void run(ObdCommand command) throws IOException, InterruptedException {
+        synchronized (in) {
+            boolean sent = isSentOnWire(command);
+            if (sent) {
+                // if it fails the adapter still holds this request, not the last one
+                lastCommand = null;
+            }
+            command.execute(in, out);
+            if (sent) {
+                lastCommand = isObdRequest(command) ? command.cmd : null;
+                lastResponseCount = 0;
+            }
+        }
+    }
+
+    /**
+     * Sends the command as fast as the adapter allows and reads its response.
+     * <p>
+     * If the command is the one last sent on this session, only a carriage
+     * return goes out and the ELM327 repeats it. OBD requests get the
+     * response count set with {@link #setResponseCount(int)} appended, so the
+     * adapter returns as soon as that many ECUs answered instead of waiting
+     * for its timeout. The command's response delay is not applied: reading
+     * blocks until the '>' prompt instead.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public void poll(ObdCommand command) throws IOException, InterruptedException {
+        synchronized (in) {
+            if (!isSentOnWire(command)) {
+                command.execute(in, out);
+                return;
+            }
+            boolean obdRequest = isObdRequest(command);
+            int count = obdRequest ? responseCount : 0;
+            command.setStart(System.currentTimeMillis());
+            command.requestedAt = System.nanoTime();
+            if (obdRequest && command.cmd.equals(lastCommand) && count == lastResponseCount) {
+                out.write(REPEAT);
+            } else {
+                out.write(request, 0, encodeRequest(command.cmd, count));
+            }
+            out.flush();
+            command.sentAt = System.nanoTime();
+            lastCommand = obdRequest ? command.cmd : null;
+            lastResponseCount = count;
+            command.readResult(in);
+            command.setEnd(System.currentTimeMillis());
+        }
+    }
+
+    private int encodeRequest(String cmd, int count) {
+        int length = cmd.length() + 3;
+        if (request.length < length) {
+            request = new byte[length];
+        }
+        int position = 0;
+        for (int i = 0; i < cmd.length(); i++) {
+            request[position++] = (byte) cmd.charAt(i);
+        }
+        if (count > 0) {
+            request[position++] = ' ';
+            request[position++] = (byte) Character.forDigit(count, 16);
+        }
+        request[position++] = '\r';
+        return position;
+    }
+
+    private boolean isSentOnWire(ObdCommand command) {
+        return !(command instanceof PersistentCommand && known.knows(((PersistentCommand) command).getKey()));
+    }
+
+    private static boolean isObdRequest(ObdCommand command) {
+        return command.cmd != null && !command.cmd.regionMatches(true, 0, "AT", 0, 2);
+    }
+
+    /**
+     * <p>Getter for the field <code>responseCount</code>.</p>
+     *
+     * @return the number of responses the adapter waits for, 0 if unlimited.
+     */
+    public int getResponseCount() {
+        return responseCount;
+    }
+
+    /**
+     * Number of ECU responses after which the adapter stops listening for a
+     * polled OBD request, i.e. "01 0C 1". By default this value is set to 0,
+     * which waits for every ECU until the adapter timeout.
+     *
+     * @param responseCount a value between 0 and 15.
+     */
+    public void setResponseCount(int responseCount) {
+        if (responseCount < 0 || responseCount > 0xF) {
+            throw new IllegalArgumentException("Response count must be between 0 and 15: " + responseCount);
+        }
+        this.responseCount = responseCount;
+    }
+
+    /**
+     * Sends all commands back to back, without letting other callers of this
+     * session in between.
+     *
+     * @param commands a {@link com.github.pires.obd.commands.ObdMultiCommand} object.
+     * @throws java.io.IOException            if any.
+     * @throws java.lang.InterruptedException if any.
+     */
+    public void run(ObdMultiCommand commands) throws IOException, InterruptedException {
+        synchronized (in) {
+            lastCommand = null;
+            commands.sendCommands(in, out);
+        }
+    }
+
+    /**
+     * <p>Getter for the known results.</p>
+     *
+     * @return what the {@link PersistentCommand}s learnt on this connection.
+     */
+    public KnownResults getKnownResults() {
+        return known;
+    }
+
+    /**
+     * <p>Getter for the field <code>in</code>.</p>
+     *
+     * @return a {@link java.io.InputStream} object.
+     */
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    /**
+     * <p>Getter for the field <code>out</code>.</p>
+     *
+     * @return a {@link java.io.OutputStream} object.
+     */
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+}
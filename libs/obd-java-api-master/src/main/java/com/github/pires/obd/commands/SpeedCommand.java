@@ -13,6 +13,7 @@
 package com.github.pires.obd.commands;
 
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * Current speed.
@@ -41,8 +42,7 @@ public class SpeedCommand extends ObdCommand implements SystemOfUnits {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // Ignore first two bytes [hh hh] of the response.
-        metricSpeed = buffer.get(2);
+        metricSpeed = (int) decode();
     }
 
     /**
@@ -90,8 +90,14 @@ public class SpeedCommand extends ObdCommand implements SystemOfUnits {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return useImperialUnits ? "mph" : "km/h";
+    public double value() {
+        return useImperialUnits ? getImperialUnit() : metricSpeed;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return useImperialUnits ? ResultUnit.MILES_PER_HOUR : ResultUnit.KILOMETERS_PER_HOUR;
     }
 
     /** {@inheritDoc} */
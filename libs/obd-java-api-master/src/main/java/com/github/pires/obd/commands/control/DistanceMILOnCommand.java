@@ -15,6 +15,7 @@ package com.github.pires.obd.commands.control;
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.commands.SystemOfUnits;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * <p>DistanceMILOnCommand class.</p>
@@ -45,8 +46,7 @@ public class DistanceMILOnCommand extends ObdCommand
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [01 31] of the response
-        km = buffer.get(2) * 256 + buffer.get(3);
+        km = (int) decode();
     }
 
     /**
@@ -67,8 +67,14 @@ public class DistanceMILOnCommand extends ObdCommand
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return useImperialUnits ? "m" : "km";
+    public double value() {
+        return useImperialUnits ? getImperialUnit() : km;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return useImperialUnits ? ResultUnit.MILE : ResultUnit.KILOMETER;
     }
 
     /** {@inheritDoc} */
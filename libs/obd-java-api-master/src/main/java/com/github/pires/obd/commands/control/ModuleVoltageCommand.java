@@ -14,6 +14,7 @@ package com.github.pires.obd.commands.control;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * <p>ModuleVoltageCommand class.</p>
@@ -43,10 +44,7 @@ public class ModuleVoltageCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        int a = buffer.get(2);
-        int b = buffer.get(3);
-        voltage = (a * 256 + b) / 1000;
+        voltage = decode();
     }
 
     /** {@inheritDoc} */
@@ -57,8 +55,14 @@ public class ModuleVoltageCommand extends ObdCommand {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return "V";
+    public double value() {
+        return voltage;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return ResultUnit.VOLT;
     }
 
     /** {@inheritDoc} */
@@ -14,6 +14,7 @@ package com.github.pires.obd.commands.control;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.utils.IsoTpAssembler;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -34,6 +35,7 @@ public class PendingTroubleCodesCommand extends ObdCommand {
     protected final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
     protected StringBuilder codes = null;
+    private final IsoTpAssembler assembler = new IsoTpAssembler();
 
     /**
      * <p>Constructor for PendingTroubleCodesCommand.</p>
@@ -61,39 +63,7 @@ public class PendingTroubleCodesCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        final String result = getResult();
-        String workingData;
-        int startIndex = 0;//Header size.
-
-        String canOneFrame = result.replaceAll("[\r\n]", "");
-        int canOneFrameLength = canOneFrame.length();
-        if (canOneFrameLength <= 16 && canOneFrameLength % 4 == 0) {//CAN(ISO-15765) protocol one frame.
-            workingData = canOneFrame;//47yy{codes}
-            startIndex = 4;//Header is 47yy, yy showing the number of data items.
-        } else if (result.contains(":")) {//CAN(ISO-15765) protocol two and more frames.
-            workingData = result.replaceAll("[\r\n].:", "");//xxx47yy{codes}
-            startIndex = 7;//Header is xxx47yy, xxx is bytes of information to follow, yy showing the number of data items.
-        } else {//ISO9141-2, KWP2000 Fast and KWP2000 5Kbps (ISO15031) protocols.
-            workingData = result.replaceAll("^47|[\r\n]47|[\r\n]", "");
-        }
-        for (int begin = startIndex; begin < workingData.length(); begin += 4) {
-            String dtc = "";
-            byte b1 = hexStringToByteArray(workingData.charAt(begin));
-            int ch1 = ((b1 & 0xC0) >> 6);
-            int ch2 = ((b1 & 0x30) >> 4);
-            dtc += dtcLetters[ch1];
-            dtc += hexArray[ch2];
-            dtc += workingData.substring(begin+1, begin + 4);
-            if (dtc.equals("P0000")) {
-                return;
-            }
-            codes.append(dtc);
-            codes.append('\n');
-        }
-    }
-
-    private byte hexStringToByteArray(char s) {
-        return (byte) ((Character.digit(s, 16) << 4));
+        TroubleCodesCommand.decodeCodes(assembler.assemble(getResult()), 0x47, codes);
     }
 
     /**
@@ -116,30 +86,7 @@ public class PendingTroubleCodesCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void readRawData(InputStream in) throws IOException {
-        byte b;
-        StringBuilder res = new StringBuilder();
-
-        // read until '>' arrives OR end of stream reached (and skip ' ')
-        char c;
-        while (true) {
-            b = (byte) in.read();
-            if (b == -1) // -1 if the end of the stream is reached
-            {
-                break;
-            }
-            c = (char) b;
-            if (c == '>') // read until '>' arrives
-            {
-                break;
-            }
-            if (c != ' ') // skip ' '
-            {
-                res.append(c);
-            }
-        }
-
-        rawData = res.toString().trim();
-
+        readRawLines(in);
     }
 
     /** {@inheritDoc} */
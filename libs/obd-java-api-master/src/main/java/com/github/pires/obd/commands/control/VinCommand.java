@@ -14,12 +14,16 @@ package com.github.pires.obd.commands.control;
 
 import com.github.pires.obd.commands.PersistentCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import com.github.pires.obd.utils.IsoTpAssembler;
+import com.github.pires.obd.utils.IsoTpMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 public class VinCommand extends PersistentCommand {
 
     String vin = "";
+    private final IsoTpAssembler assembler = new IsoTpAssembler();
 
     /**
      * Default ctor.
@@ -39,19 +43,32 @@ public class VinCommand extends PersistentCommand {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * On CAN the VIN comes in one message, 49 02 01 followed by its 17
+     * characters; some vehicles leave out the 01. On other protocols it comes
+     * in five numbered messages, 49 02 0n followed by four characters, the
+     * first padded with zeros. Only the first ECU answering is read.
      */
     @Override
     protected void performCalculations() {
-        final String result = getResult();
-        String workingData;
-        if (result.contains(":")) {//CAN(ISO-15765) protocol.
-            workingData = result.replaceAll(".:", "").substring(9);//9 is xxx490201, xxx is bytes of information to follow.
-            Matcher m = Pattern.compile("[^a-z0-9 ]", Pattern.CASE_INSENSITIVE).matcher(convertHexToString(workingData));
-            if(m.find()) workingData = result.replaceAll("0:49", "").replaceAll(".:", "");
-        } else {//ISO9141-2, KWP2000 Fast and KWP2000 5Kbps (ISO15031) protocols.
-            workingData = result.replaceAll("49020.", "");
+        StringBuilder text = new StringBuilder(17);
+        String ecu = null;
+        for (IsoTpMessage message : assembler.assemble(getResult())) {
+            int length = message.getLength();
+            if (length < 3 || message.getByte(0) != 0x49 || message.getByte(1) != 0x02
+                    || (ecu != null && !ecu.equals(message.getEcu()))) {
+                continue;
+            }
+            ecu = message.getEcu();
+            int begin = length >= 19 && (length < 20 || message.getByte(2) != 0x01) ? 2 : 3;
+            for (int i = begin; i < length; i++) {
+                int c = message.getByte(i);
+                if (c > 0x1F) {
+                    text.append((char) c);
+                }
+            }
         }
-        vin = convertHexToString(workingData).replaceAll("[\u0000-\u001f]", "");
+        vin = text.toString();
     }
 
     /**
@@ -85,6 +102,14 @@ public class VinCommand extends PersistentCommand {
     protected void fillBuffer() {
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void readRawData(InputStream in) throws IOException {
+        readRawLines(in);
+    }
+
     public String convertHexToString(String hex) {
         StringBuilder sb = new StringBuilder();
         //49204c6f7665204a617661 split into two characters 49, 20, 4c...
@@ -37,15 +37,6 @@ public class AbsoluteLoadCommand extends PercentageObdCommand {
         super(other);
     }
 
-    /** {@inheritDoc} */
-    @Override
-    protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        int a = buffer.get(2);
-        int b = buffer.get(3);
-        percentage = (a * 256 + b) * 100 / 255;
-    }
-
     /**
      * <p>getRatio.</p>
      *
@@ -14,6 +14,7 @@ package com.github.pires.obd.commands.engine;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * Mass Air Flow (MAF)
@@ -42,8 +43,7 @@ public class MassAirFlowCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        maf = (buffer.get(2) * 256 + buffer.get(3)) / 100.0f;
+        maf = (float) decode();
     }
 
     /** {@inheritDoc} */
@@ -60,8 +60,14 @@ public class MassAirFlowCommand extends ObdCommand {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return "g/s";
+    public double value() {
+        return maf;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return ResultUnit.GRAMS_PER_SECOND;
     }
 
     /**
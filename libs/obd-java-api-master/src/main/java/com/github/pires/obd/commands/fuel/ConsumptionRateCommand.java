@@ -14,6 +14,7 @@ package com.github.pires.obd.commands.fuel;
 
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.enums.AvailableCommandNames;
+import com.github.pires.obd.enums.ResultUnit;
 
 /**
  * Fuel Consumption Rate per hour.
@@ -42,8 +43,7 @@ public class ConsumptionRateCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        fuelRate = (buffer.get(2) * 256 + buffer.get(3)) * 0.05f;
+        fuelRate = (float) decode();
     }
 
     /** {@inheritDoc} */
@@ -60,8 +60,14 @@ public class ConsumptionRateCommand extends ObdCommand {
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return "L/h";
+    public double value() {
+        return fuelRate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return ResultUnit.LITERS_PER_HOUR;
     }
 
     /**
@@ -33,10 +33,8 @@ public class WidebandAirFuelRatioCommand extends ObdCommand {
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [01 44] of the response
-        float A = buffer.get(2);
-        float B = buffer.get(3);
-        wafr = (((A * 256) + B) / 32768) * 14.7f;//((A*256)+B)/32768
+        // decoded as the equivalence ratio, times the gasoline stoichiometric ratio
+        wafr = (float) (decode() * 14.7);
     }
 
     /** {@inheritDoc} */
@@ -51,6 +49,12 @@ public class WidebandAirFuelRatioCommand extends ObdCommand {
         return String.valueOf(getWidebandAirFuelRatio());
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public double value() {
+        return wafr;
+    }
+
     /**
      * <p>getWidebandAirFuelRatio.</p>
      *
@@ -36,16 +36,6 @@ public class FuelPressureCommand extends PressureCommand {
         super(other);
     }
 
-    /**
-     * {@inheritDoc}
-     * <p>
-     * TODO describe of why we multiply by 3
-     */
-    @Override
-    protected final int preparePressureValue() {
-        return buffer.get(2) * 3;
-    }
-
     /** {@inheritDoc} */
     @Override
     public String getName() {
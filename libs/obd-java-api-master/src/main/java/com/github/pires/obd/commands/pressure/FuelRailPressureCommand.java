@@ -36,18 +36,6 @@ public class FuelRailPressureCommand extends PressureCommand {
         super(other);
     }
 
-    /**
-     * {@inheritDoc}
-     * <p>
-     * TODO describe of why we multiply by 3
-     */
-    @Override
-    protected final int preparePressureValue() {
-        int a = buffer.get(2);
-        int b = buffer.get(3);
-        return ((a * 256) + b) * 10;
-    }
-
     /** {@inheritDoc} */
     @Override
     public String getName() {
@@ -12,6 +12,8 @@
  */
 package com.github.pires.obd.commands.pressure;
 
+import com.github.pires.obd.enums.ResultUnit;
+
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.commands.SystemOfUnits;
 
@@ -52,7 +54,10 @@ public abstract class PressureCommand extends ObdCommand implements
      * @return a int.
      */
     protected int preparePressureValue() {
-        return buffer.get(2);
+        if (hasFormula()) {
+            return (int) decode();
+        }
+        return getByte(2);
     }
 
     /**
@@ -96,8 +101,14 @@ public abstract class PressureCommand extends ObdCommand implements
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return useImperialUnits ? "psi" : "kPa";
+    public double value() {
+        return useImperialUnits ? getImperialUnit() : pressure;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return useImperialUnits ? ResultUnit.PSI : ResultUnit.KILOPASCAL;
     }
 
 }
@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands.protocol;
+
+/**
+ * Sets the header of the requests that follow (AT SH). Addressing one ECU
+ * physically, only that ECU answers, so the adapter doesn't wait for the
+ * other modules of a functional request; {@link #FUNCTIONAL_11_BIT} or
+ * {@link #FUNCTIONAL_29_BIT} address all of them again.
+ *
+ */
+public class SetHeaderCommand extends ObdProtocolCommand {
+
+    /** Constant <code>FUNCTIONAL_11_BIT="7DF"</code>, all ECUs on CAN 11 bit. */
+    public static final String FUNCTIONAL_11_BIT = "7DF";
+    /** Constant <code>FUNCTIONAL_29_BIT="18DB33F1"</code>, all ECUs on CAN 29 bit. */
+    public static final String FUNCTIONAL_29_BIT = "18DB33F1";
+
+    private final String header;
+
+    /**
+     * <p>Constructor for SetHeaderCommand.</p>
+     *
+     * @param header 3, 6 or 8 hex digits, i.e. "7E0".
+     */
+    public SetHeaderCommand(String header) {
+        super("AT SH " + header);
+        this.header = header;
+    }
+
+    /**
+     * <p>Constructor for SetHeaderCommand.</p>
+     *
+     * @param other a {@link com.github.pires.obd.commands.protocol.SetHeaderCommand} object.
+     */
+    public SetHeaderCommand(SetHeaderCommand other) {
+        this(other.header);
+    }
+
+    /**
+     * Addresses the requests to the ECU that sent a response on CAN.
+     *
+     * @param ecu the response header, i.e. "7E8" or "18DAF110", as in
+     *            {@link com.github.pires.obd.commands.MultiEcuCommand#getEcus()}.
+     * @return a command setting that ECU's request header, "7E0" or
+     * "18DA10F1".
+     * @throws java.lang.IllegalArgumentException if it isn't a CAN response
+     *                                            header.
+     */
+    public static SetHeaderCommand forEcu(String ecu) {
+        if (ecu != null && ecu.length() == 3 && ecu.compareTo("7E8") >= 0 && ecu.compareTo("7EF") <= 0) {
+            return new SetHeaderCommand(Integer.toHexString(Integer.parseInt(ecu, 16) - 8).toUpperCase());
+        }
+        if (ecu != null && ecu.length() == 8 && ecu.startsWith("18DAF1")) {
+            return new SetHeaderCommand("18DA" + ecu.substring(6) + "F1");
+        }
+        throw new IllegalArgumentException("Not a CAN response header: " + ecu);
+    }
+
+    /**
+     * <p>Getter for the field <code>header</code>.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getFormattedResult() {
+        return getResult();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return "Set Header";
+    }
+
+}
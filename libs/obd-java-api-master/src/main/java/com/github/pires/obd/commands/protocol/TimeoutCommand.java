@@ -23,10 +23,11 @@ public class TimeoutCommand extends ObdProtocolCommand {
      * <p>Constructor for TimeoutCommand.</p>
      *
      * @param timeout value between 0 and 255 that multiplied by 4 results in the
-     *                desired timeout in milliseconds (ms).
+     *                desired timeout in milliseconds (ms), sent as two hex
+     *                digits as the ELM327 requires.
      */
     public TimeoutCommand(int timeout) {
-        super("AT ST " + Integer.toHexString(0xFF & timeout));
+        super(String.format("AT ST %02X", 0xFF & timeout));
     }
 
     /**
@@ -12,6 +12,8 @@
  */
 package com.github.pires.obd.commands.temperature;
 
+import com.github.pires.obd.enums.ResultUnit;
+
 import com.github.pires.obd.commands.ObdCommand;
 import com.github.pires.obd.commands.SystemOfUnits;
 
@@ -45,8 +47,12 @@ public abstract class TemperatureCommand extends ObdCommand implements
     /** {@inheritDoc} */
     @Override
     protected void performCalculations() {
-        // ignore first two bytes [hh hh] of the response
-        temperature = buffer.get(2) - 40;
+        if (hasFormula()) {
+            temperature = (float) decode();
+        } else {
+            // ignore first two bytes [hh hh] of the response
+            temperature = getByte(2) - 40;
+        }
     }
 
 
@@ -70,8 +76,14 @@ public abstract class TemperatureCommand extends ObdCommand implements
 
     /** {@inheritDoc} */
     @Override
-    public String getResultUnit() {
-        return useImperialUnits ? "F" : "C";
+    public double value() {
+        return useImperialUnits ? getImperialUnit() : temperature;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResultUnit unit() {
+        return useImperialUnits ? ResultUnit.FAHRENHEIT : ResultUnit.CELSIUS;
     }
 
     /**
@@ -0,0 +1,111 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.derived;
+
+import com.github.pires.obd.enums.ResultUnit;
+
+import java.util.BitSet;
+
+/**
+ * A value computed from others by an expression, see
+ * {@link DerivedChannels#define(String, String, ResultUnit)}.
+ */
+public class DerivedChannel {
+
+    private final String name;
+    private final String expression;
+    private final ResultUnit unit;
+    final int slot;
+    final Node node;
+    /**
+     * The slots the expression reads.
+     */
+    final BitSet inputs;
+    private volatile double value = Double.NaN;
+    private volatile long timestamp;
+
+    DerivedChannel(String name, String expression, ResultUnit unit, int slot, Node node, BitSet inputs) {
+        this.name = name;
+        this.expression = expression;
+        this.unit = unit;
+        this.slot = slot;
+        this.node = node;
+        this.inputs = inputs;
+    }
+
+    /**
+     * Evaluates the expression, allocating nothing.
+     *
+     * @return the new value.
+     */
+    double compute(double[] values, long timestamp) {
+        double computed = node.evaluate(values);
+        values[slot] = computed;
+        this.value = computed;
+        this.timestamp = timestamp;
+        return computed;
+    }
+
+    /**
+     * <p>Getter for the field <code>name</code>.</p>
+     *
+     * @return a {@link java.lang.String} object.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * <p>Getter for the field <code>expression</code>.</p>
+     *
+     * @return the expression, as defined.
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * <p>Getter for the field <code>unit</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.ResultUnit} object.
+     */
+    public ResultUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * <p>Getter for the field <code>value</code>.</p>
+     *
+     * @return the last value computed, NaN until every input is known.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * <p>Getter for the field <code>timestamp</code>.</p>
+     *
+     * @return when the input that triggered the last computation was read,
+     * in ms since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return name + " = " + expression;
+    }
+
+}
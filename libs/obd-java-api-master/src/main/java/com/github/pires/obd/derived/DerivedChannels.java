@@ -0,0 +1,274 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.derived;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.enums.ResultUnit;
+import com.github.pires.obd.polling.PollingListener;
+import com.github.pires.obd.telemetry.Sample;
+import com.github.pires.obd.telemetry.SampleListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Channels computed from the values of others, such as
+ * <pre>
+ * channels.bind("map", new IntakeManifoldPressureCommand());
+ * channels.bind("baro", new BarometricPressureCommand());
+ * channels.define("boost", "map - baro", ResultUnit.KILOPASCAL);
+ * channels.define("boostRatio", "boost / baro", ResultUnit.NONE);
+ * </pre>
+ * Expressions take numbers, names, {@code + - * / ^}, parentheses and the
+ * functions {@code abs}, {@code sqrt}, {@code min} and {@code max}. They're
+ * parsed once, when defined, into a tree evaluated without allocating.
+ * <p>
+ * A name that isn't a channel yet is an input, set with
+ * {@link #set(String, long, double)} or by the command bound to it, in the
+ * command's {@link ObdCommand#unit()}. A channel can only read channels
+ * defined before it, so there are no cycles. Each input knows the channels
+ * depending on it, directly or not, in definition order: a new value only
+ * recomputes those, each once. Values are NaN until every input they depend
+ * on is known.
+ * <p>
+ * The channels can be the {@link com.github.pires.obd.polling.ObdPoller}'s
+ * listener, or drain a {@link com.github.pires.obd.telemetry.Subscription}.
+ */
+public class DerivedChannels implements PollingListener, SampleListener {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Map<ObdCommand, Integer> bindings = new HashMap<>();
+    private final ArrayList<DerivedChannel> channels = new ArrayList<>();
+    /**
+     * The channel of each slot, null for inputs.
+     */
+    private DerivedChannel[] bySlot = new DerivedChannel[8];
+    private double[] values = new double[8];
+    /**
+     * For each slot, the indices in {@link #channels} to recompute when it
+     * changes.
+     */
+    private int[][] affected = new int[8][];
+    private DerivedChannelListener listener;
+
+    /**
+     * Defines a channel.
+     *
+     * @param name       the name expressions refer to it by.
+     * @param expression how it's computed, from inputs and channels defined
+     *                   before.
+     * @param unit       a {@link com.github.pires.obd.enums.ResultUnit} object.
+     * @return the channel, with its value if its inputs are known already.
+     * @throws java.lang.IllegalArgumentException if the expression is
+     *                                            invalid, or the name already
+     *                                            used.
+     */
+    public synchronized DerivedChannel define(final String name, String expression, ResultUnit unit) {
+        if (slots.containsKey(name)) {
+            throw new IllegalArgumentException(name + " is already "
+                    + (bySlot[slots.get(name)] != null ? "defined" : "an input"));
+        }
+        // new inputs only get their slots once the expression is valid
+        final ArrayList<String> added = new ArrayList<>();
+        ExpressionParser parser = new ExpressionParser(expression, new ExpressionParser.Resolver() {
+            @Override
+            public int slotOf(String input) {
+                if (input.equals(name)) {
+                    throw new IllegalArgumentException("Channel " + name + " refers to itself");
+                }
+                Integer slot = slots.get(input);
+                if (slot != null) {
+                    return slot;
+                }
+                int index = added.indexOf(input);
+                if (index < 0) {
+                    index = added.size();
+                    added.add(input);
+                }
+                return slots.size() + index;
+            }
+        });
+        Node node = parser.parse();
+        for (String input : added) {
+            slotOrNew(input);
+        }
+        int slot = slotOrNew(name);
+        DerivedChannel channel = new DerivedChannel(name, expression, unit, slot, node, parser.getReferences());
+        bySlot[slot] = channel;
+        channels.add(channel);
+        buildAffected();
+        channel.compute(values, System.currentTimeMillis());
+        return channel;
+    }
+
+    /**
+     * Feeds an input from the results of a command. An input is bound to one
+     * command at most.
+     *
+     * @param input   the name of the input.
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public synchronized void bind(String input, ObdCommand command) {
+        int slot = slotOrNew(input);
+        if (bySlot[slot] != null) {
+            throw new IllegalArgumentException(input + " is a derived channel");
+        }
+        bindings.values().remove(slot);
+        bindings.put(command, slot);
+    }
+
+    private int slotOrNew(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        int created = slots.size();
+        if (created == values.length) {
+            int length = created * 2;
+            values = Arrays.copyOf(values, length);
+            bySlot = Arrays.copyOf(bySlot, length);
+            affected = Arrays.copyOf(affected, length);
+        }
+        values[created] = Double.NaN;
+        affected[created] = NONE;
+        slots.put(name, created);
+        return created;
+    }
+
+    /**
+     * Finds, for every slot, the channels depending on it. Channels are in
+     * definition order, so one pass sees a channel's inputs before it.
+     */
+    private void buildAffected() {
+        BitSet changed = new BitSet();
+        for (int slot = 0; slot < slots.size(); slot++) {
+            changed.clear();
+            changed.set(slot);
+            int[] indices = new int[channels.size()];
+            int count = 0;
+            for (int i = 0; i < channels.size(); i++) {
+                DerivedChannel channel = channels.get(i);
+                if (channel.inputs.intersects(changed)) {
+                    indices[count++] = i;
+                    changed.set(channel.slot);
+                }
+            }
+            affected[slot] = count == 0 ? NONE : Arrays.copyOf(indices, count);
+        }
+    }
+
+    /**
+     * Sets an input and recomputes the channels depending on it.
+     *
+     * @param input     the name of the input.
+     * @param timestamp when it was read, in ms since the epoch.
+     * @param value     the value, NaN if unknown.
+     * @throws java.lang.IllegalArgumentException if it's a derived channel.
+     */
+    public synchronized void set(String input, long timestamp, double value) {
+        int slot = slotOrNew(input);
+        if (bySlot[slot] != null) {
+            throw new IllegalArgumentException(input + " is a derived channel");
+        }
+        update(slot, timestamp, value);
+    }
+
+    /**
+     * Sets the input bound to a command, if any, and recomputes the channels
+     * depending on it.
+     *
+     * @param command   a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @param timestamp when it was read, in ms since the epoch.
+     * @param value     the value, in the command's unit.
+     */
+    public synchronized void update(ObdCommand command, long timestamp, double value) {
+        Integer slot = bindings.get(command);
+        if (slot != null) {
+            update(slot, timestamp, value);
+        }
+    }
+
+    private void update(int slot, long timestamp, double value) {
+        values[slot] = value;
+        for (int index : affected[slot]) {
+            DerivedChannel channel = channels.get(index);
+            channel.compute(values, timestamp);
+            if (listener != null) {
+                listener.onUpdate(channel);
+            }
+        }
+    }
+
+    /**
+     * <p>getChannel.</p>
+     *
+     * @param name a {@link java.lang.String} object.
+     * @return the channel of that name, null if none.
+     */
+    public synchronized DerivedChannel getChannel(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? null : bySlot[slot];
+    }
+
+    /**
+     * <p>getValue.</p>
+     *
+     * @param name the name of an input or channel.
+     * @return its last value, NaN if unknown.
+     */
+    public synchronized double getValue(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? Double.NaN : values[slot];
+    }
+
+    /**
+     * <p>getChannels.</p>
+     *
+     * @return the channels, in definition order.
+     */
+    public synchronized ArrayList<DerivedChannel> getChannels() {
+        return new ArrayList<>(channels);
+    }
+
+    /**
+     * <p>Setter for the field <code>listener</code>.</p>
+     *
+     * @param listener a {@link com.github.pires.obd.derived.DerivedChannelListener} object, or null.
+     */
+    public synchronized void setListener(DerivedChannelListener listener) {
+        this.listener = listener;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onSample(Sample sample) {
+        update(sample.getCommand(), sample.getTimestamp(), sample.getValue());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onResult(ObdCommand command) {
+        update(command, command.getEnd(), command.value());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onError(ObdCommand command, Exception e) {
+    }
+
+}
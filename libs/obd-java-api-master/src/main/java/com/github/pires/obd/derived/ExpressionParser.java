@@ -0,0 +1,226 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.derived;
+
+import java.util.BitSet;
+
+/**
+ * Compiles an expression into a {@link Node} tree, by recursive descent.
+ * <pre>
+ * expression = term { ("+" | "-") term }
+ * term       = factor { ("*" | "/") factor }
+ * factor     = unary [ "^" factor ]
+ * unary      = "-" unary | primary
+ * primary    = number | name | function "(" expression { "," expression } ")" | "(" expression ")"
+ * </pre>
+ * Names are resolved to slots by the caller; parts without any are folded
+ * into constants.
+ */
+class ExpressionParser {
+
+    /**
+     * Gives the slot of a channel name.
+     */
+    interface Resolver {
+        int slotOf(String name);
+    }
+
+    private final String source;
+    private final Resolver resolver;
+    private final BitSet references = new BitSet();
+    private int position = 0;
+
+    ExpressionParser(String source, Resolver resolver) {
+        this.source = source;
+        this.resolver = resolver;
+    }
+
+    Node parse() {
+        Node node = expression();
+        skipSpaces();
+        if (position < source.length()) {
+            throw error("Unexpected '" + source.charAt(position) + "'");
+        }
+        return node;
+    }
+
+    /**
+     * @return the slots the expression reads.
+     */
+    BitSet getReferences() {
+        return references;
+    }
+
+    private Node expression() {
+        Node node = term();
+        while (true) {
+            if (accept('+')) {
+                Node right = term();
+                node = fold(new Node.Add(node, right), node, right);
+            } else if (accept('-')) {
+                Node right = term();
+                node = fold(new Node.Subtract(node, right), node, right);
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node term() {
+        Node node = factor();
+        while (true) {
+            if (accept('*')) {
+                Node right = factor();
+                node = fold(new Node.Multiply(node, right), node, right);
+            } else if (accept('/')) {
+                Node right = factor();
+                node = fold(new Node.Divide(node, right), node, right);
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node factor() {
+        Node node = unary();
+        if (!accept('^')) {
+            return node;
+        }
+        Node exponent = factor(); // right associative
+        return fold(new Node.Power(node, exponent), node, exponent);
+    }
+
+    private Node unary() {
+        if (!accept('-')) {
+            return primary();
+        }
+        Node operand = unary();
+        return fold(new Node.Negate(operand), operand);
+    }
+
+    private Node primary() {
+        skipSpaces();
+        if (accept('(')) {
+            Node node = expression();
+            expect(')');
+            return node;
+        }
+        int start = position;
+        if (position < source.length() && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+            while (position < source.length()
+                    && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+                position++;
+            }
+            if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+                position++;
+                if (position < source.length() && (source.charAt(position) == '+' || source.charAt(position) == '-')) {
+                    position++;
+                }
+                while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                    position++;
+                }
+            }
+            try {
+                return new Node.Constant(Double.parseDouble(source.substring(start, position)));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Invalid number");
+            }
+        }
+        if (position < source.length() && Character.isJavaIdentifierStart(source.charAt(position))) {
+            while (position < source.length() && Character.isJavaIdentifierPart(source.charAt(position))) {
+                position++;
+            }
+            String name = source.substring(start, position);
+            if (accept('(')) {
+                return function(name, start);
+            }
+            int slot = resolver.slotOf(name);
+            references.set(slot);
+            return new Node.Variable(slot);
+        }
+        throw error(position < source.length() ? "Unexpected '" + source.charAt(position) + "'" : "Unexpected end");
+    }
+
+    private Node function(String name, int start) {
+        Node first = expression();
+        Node second = accept(',') ? expression() : null;
+        expect(')');
+        boolean binary = second != null;
+        switch (name) {
+            case "abs":
+                if (!binary) {
+                    return fold(new Node.Abs(first), first);
+                }
+                break;
+            case "sqrt":
+                if (!binary) {
+                    return fold(new Node.Sqrt(first), first);
+                }
+                break;
+            case "min":
+                if (binary) {
+                    return fold(new Node.Min(first, second), first, second);
+                }
+                break;
+            case "max":
+                if (binary) {
+                    return fold(new Node.Max(first, second), first, second);
+                }
+                break;
+            default:
+                position = start;
+                throw error("Unknown function " + name);
+        }
+        position = start;
+        throw error("Wrong number of arguments to " + name);
+    }
+
+    /**
+     * Evaluates parts reading no channel once and for all.
+     */
+    private static Node fold(Node node, Node... operands) {
+        for (Node operand : operands) {
+            if (!(operand instanceof Node.Constant)) {
+                return node;
+            }
+        }
+        return new Node.Constant(node.evaluate(null));
+    }
+
+    private boolean accept(char c) {
+        skipSpaces();
+        if (position < source.length() && source.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipSpaces() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + position + " in \"" + source + "\"");
+    }
+
+}
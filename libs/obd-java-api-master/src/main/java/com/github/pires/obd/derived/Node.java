@@ -0,0 +1,193 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.derived;
+
+/**
+ * A compiled expression tree, evaluated against the values of all channels
+ * by slot. Evaluating allocates nothing.
+ */
+abstract class Node {
+
+    abstract double evaluate(double[] values);
+
+    static final class Constant extends Node {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return value;
+        }
+    }
+
+    static final class Variable extends Node {
+        private final int slot;
+
+        Variable(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return values[slot];
+        }
+    }
+
+    static final class Negate extends Node {
+        private final Node operand;
+
+        Negate(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return -operand.evaluate(values);
+        }
+    }
+
+    static final class Add extends Node {
+        private final Node left;
+        private final Node right;
+
+        Add(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return left.evaluate(values) + right.evaluate(values);
+        }
+    }
+
+    static final class Subtract extends Node {
+        private final Node left;
+        private final Node right;
+
+        Subtract(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return left.evaluate(values) - right.evaluate(values);
+        }
+    }
+
+    static final class Multiply extends Node {
+        private final Node left;
+        private final Node right;
+
+        Multiply(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return left.evaluate(values) * right.evaluate(values);
+        }
+    }
+
+    static final class Divide extends Node {
+        private final Node left;
+        private final Node right;
+
+        Divide(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return left.evaluate(values) / right.evaluate(values);
+        }
+    }
+
+    static final class Power extends Node {
+        private final Node base;
+        private final Node exponent;
+
+        Power(Node base, Node exponent) {
+            this.base = base;
+            this.exponent = exponent;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return Math.pow(base.evaluate(values), exponent.evaluate(values));
+        }
+    }
+
+    static final class Abs extends Node {
+        private final Node operand;
+
+        Abs(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return Math.abs(operand.evaluate(values));
+        }
+    }
+
+    static final class Sqrt extends Node {
+        private final Node operand;
+
+        Sqrt(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return Math.sqrt(operand.evaluate(values));
+        }
+    }
+
+    static final class Min extends Node {
+        private final Node left;
+        private final Node right;
+
+        Min(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return Math.min(left.evaluate(values), right.evaluate(values));
+        }
+    }
+
+    static final class Max extends Node {
+        private final Node left;
+        private final Node right;
+
+        Max(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(double[] values) {
+            return Math.max(left.evaluate(values), right.evaluate(values));
+        }
+    }
+
+}
@@ -21,28 +21,28 @@ import java.util.Map;
  *
  */
 public enum FuelType {
-    GASOLINE(0x01, "Gasoline"),
-    METHANOL(0x02, "Methanol"),
-    ETHANOL(0x03, "Ethanol"),
-    DIESEL(0x04, "Diesel"),
-    LPG(0x05, "GPL/LGP"),
-    CNG(0x06, "Natural Gas"),
-    PROPANE(0x07, "Propane"),
-    ELECTRIC(0x08, "Electric"),
-    BIFUEL_GASOLINE(0x09, "Biodiesel + Gasoline"),
-    BIFUEL_METHANOL(0x0A, "Biodiesel + Methanol"),
-    BIFUEL_ETHANOL(0x0B, "Biodiesel + Ethanol"),
-    BIFUEL_LPG(0x0C, "Biodiesel + GPL/LGP"),
-    BIFUEL_CNG(0x0D, "Biodiesel + Natural Gas"),
-    BIFUEL_PROPANE(0x0E, "Biodiesel + Propane"),
-    BIFUEL_ELECTRIC(0x0F, "Biodiesel + Electric"),
-    BIFUEL_GASOLINE_ELECTRIC(0x10, "Biodiesel + Gasoline/Electric"),
-    HYBRID_GASOLINE(0x11, "Hybrid Gasoline"),
-    HYBRID_ETHANOL(0x12, "Hybrid Ethanol"),
-    HYBRID_DIESEL(0x13, "Hybrid Diesel"),
-    HYBRID_ELECTRIC(0x14, "Hybrid Electric"),
-    HYBRID_MIXED(0x15, "Hybrid Mixed"),
-    HYBRID_REGENERATIVE(0x16, "Hybrid Regenerative");
+    GASOLINE(0x01, "Gasoline", 14.7f, 745),
+    METHANOL(0x02, "Methanol", 6.4f, 792),
+    ETHANOL(0x03, "Ethanol", 9.0f, 789),
+    DIESEL(0x04, "Diesel", 14.5f, 832),
+    LPG(0x05, "GPL/LGP", 15.5f, 540),
+    CNG(0x06, "Natural Gas", 17.2f, Float.NaN),
+    PROPANE(0x07, "Propane", 15.7f, 493),
+    ELECTRIC(0x08, "Electric", Float.NaN, Float.NaN),
+    BIFUEL_GASOLINE(0x09, "Biodiesel + Gasoline", 14.7f, 745),
+    BIFUEL_METHANOL(0x0A, "Biodiesel + Methanol", 6.4f, 792),
+    BIFUEL_ETHANOL(0x0B, "Biodiesel + Ethanol", 9.0f, 789),
+    BIFUEL_LPG(0x0C, "Biodiesel + GPL/LGP", 15.5f, 540),
+    BIFUEL_CNG(0x0D, "Biodiesel + Natural Gas", 17.2f, Float.NaN),
+    BIFUEL_PROPANE(0x0E, "Biodiesel + Propane", 15.7f, 493),
+    BIFUEL_ELECTRIC(0x0F, "Biodiesel + Electric", Float.NaN, Float.NaN),
+    BIFUEL_GASOLINE_ELECTRIC(0x10, "Biodiesel + Gasoline/Electric", 14.7f, 745),
+    HYBRID_GASOLINE(0x11, "Hybrid Gasoline", 14.7f, 745),
+    HYBRID_ETHANOL(0x12, "Hybrid Ethanol", 9.0f, 789),
+    HYBRID_DIESEL(0x13, "Hybrid Diesel", 14.5f, 832),
+    HYBRID_ELECTRIC(0x14, "Hybrid Electric", Float.NaN, Float.NaN),
+    HYBRID_MIXED(0x15, "Hybrid Mixed", 14.7f, 745),
+    HYBRID_REGENERATIVE(0x16, "Hybrid Regenerative", 14.7f, 745);
 
     /** Constant <code>map</code> */
     private static Map<Integer, FuelType> map = new HashMap<>();
@@ -54,10 +54,15 @@ public enum FuelType {
 
     private final int value;
     private final String description;
+    private final float stoichiometricRatio;
+    private final float density;
 
-    private FuelType(final int value, final String description) {
+    private FuelType(final int value, final String description, final float stoichiometricRatio,
+                     final float density) {
         this.value = value;
         this.description = description;
+        this.stoichiometricRatio = stoichiometricRatio;
+        this.density = density;
     }
 
     /**
@@ -88,4 +93,26 @@ public enum FuelType {
         return description;
     }
 
+    /**
+     * <p>Getter for the field <code>stoichiometricRatio</code>.</p>
+     *
+     * @return the mass of air burning a mass of the fuel completely, i.e.
+     * 14.7 for gasoline; NaN for electric. Bi-fuel and hybrid vehicles get
+     * the ratio of the fuel they burn, gasoline when mixed.
+     */
+    public float getStoichiometricRatio() {
+        return stoichiometricRatio;
+    }
+
+    /**
+     * <p>Getter for the field <code>density</code>.</p>
+     *
+     * @return the mass of a liter of the fuel at 15C, in g, i.e. 745 for
+     * gasoline; NaN for natural gas and electric, which aren't measured in
+     * liters.
+     */
+    public float getDensity() {
+        return density;
+    }
+
 }
@@ -0,0 +1,46 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.exceptions;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when the adapter doesn't finish a response with its '>' prompt in
+ * time, i.e. because the Bluetooth link dropped.
+ *
+ * @see com.github.pires.obd.transport.ObdChannel
+ */
+public class AdapterTimeoutException extends InterruptedIOException {
+
+    private final long timeout;
+
+    /**
+     * <p>Constructor for AdapterTimeoutException.</p>
+     *
+     * @param timeout the time waited for, in milliseconds.
+     */
+    public AdapterTimeoutException(long timeout) {
+        super("No response from the adapter within " + timeout + "ms");
+        this.timeout = timeout;
+    }
+
+    /**
+     * <p>Getter for the field <code>timeout</code>.</p>
+     *
+     * @return the time waited for, in milliseconds.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+}
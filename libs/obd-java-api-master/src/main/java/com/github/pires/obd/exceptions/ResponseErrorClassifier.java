@@ -0,0 +1,227 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.exceptions;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Recognizes adapter error messages ("NO DATA", "STOPPED", "?"...) in a
+ * response.
+ * <p>
+ * Each {@link ResponseException} subclass is instantiated once when it is
+ * registered, and its message compiled into a token. A response is then
+ * checked against all tokens in one pass, and an exception is only created
+ * when one of them matches. If several match, the longest token wins, so
+ * "BUS INIT... ERROR" is a {@link BusInitException} rather than an
+ * {@link UnknownErrorException}; ties go to the first registered.
+ * <p>
+ * Tokens ignore whitespace and case. Regex messages only support literal
+ * characters and ranges such as "7F 0[0-A] 1[1-2]", and must match the whole
+ * response.
+ */
+public class ResponseErrorClassifier {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final ResponseErrorClassifier DEFAULT = new ResponseErrorClassifier();
+
+    private final ArrayList<Token> tokens = new ArrayList<>();
+    /**
+     * Tokens indexed by the characters they can start with, rebuilt on
+     * every registration.
+     */
+    private volatile Token[][] byFirstChar = new Token[128][];
+
+    /**
+     * Creates a classifier that knows the built-in errors.
+     */
+    public ResponseErrorClassifier() {
+        register(UnableToConnectException.class);
+        register(BusInitException.class);
+        register(MisunderstoodCommandException.class);
+        register(NoDataException.class);
+        register(StoppedException.class);
+        register(UnknownErrorException.class);
+        register(UnsupportedCommandException.class);
+    }
+
+    /**
+     * <p>getDefault.</p>
+     *
+     * @return the classifier used by all commands.
+     */
+    public static ResponseErrorClassifier getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Registers an error. The class needs a public no-arg constructor passing
+     * its message to {@link ResponseException}, like the built-in ones.
+     *
+     * @param errorClass the exception to throw when its message is found.
+     * @throws java.lang.IllegalArgumentException if the class can't be
+     *                                            instantiated or its message compiled.
+     */
+    public synchronized void register(Class<? extends ResponseException> errorClass) {
+        ResponseException prototype;
+        try {
+            prototype = errorClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Can't instantiate " + errorClass.getName(), e);
+        }
+        Token token = new Token(errorClass, prototype.getErrorMessage(), prototype.isMatchRegex());
+        tokens.add(token);
+
+        Token[][] index = new Token[128][];
+        for (Token t : tokens) {
+            for (int c = t.low[0]; c <= t.high[0] && c < index.length; c++) {
+                Token[] current = index[c];
+                if (current == null) {
+                    index[c] = new Token[]{t};
+                } else {
+                    index[c] = Arrays.copyOf(current, current.length + 1);
+                    index[c][current.length] = t;
+                }
+            }
+        }
+        byFirstChar = index;
+    }
+
+    /**
+     * Looks for an error message in a normalized response.
+     *
+     * @param response the response characters, without whitespace.
+     * @param length   the number of valid entries in response.
+     * @return the matching exception, ready to be thrown, or null.
+     */
+    public ResponseException classify(byte[] response, int length) {
+        Token[][] index = byFirstChar;
+        Token best = null;
+        for (int i = 0; i < length; i++) {
+            int c = upperCase(response[i]);
+            if (c < 0 || c >= index.length || index[c] == null) {
+                continue;
+            }
+            for (Token token : index[c]) {
+                if ((best == null || token.length() > best.length())
+                        && token.matches(response, i, length)) {
+                    best = token;
+                }
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        ResponseException error;
+        try {
+            error = best.errorClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        error.setResponse(new String(response, 0, length, ASCII));
+        return error;
+    }
+
+    /**
+     * Looks for an error message in a response, i.e. one kept with its line
+     * breaks by a command reading its own raw data.
+     *
+     * @param response a {@link java.lang.String} object.
+     * @return the matching exception, ready to be thrown, or null.
+     */
+    public ResponseException classify(String response) {
+        if (response == null) {
+            return null;
+        }
+        byte[] normalized = new byte[response.length()];
+        int length = 0;
+        for (int i = 0; i < response.length(); i++) {
+            char c = response.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                normalized[length++] = (byte) c;
+            }
+        }
+        ResponseException error = classify(normalized, length);
+        if (error != null) {
+            error.setResponse(response);
+        }
+        return error;
+    }
+
+    private static int upperCase(int c) {
+        return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+    }
+
+    /**
+     * A compiled message: one character range per position.
+     */
+    private static final class Token {
+
+        final Class<? extends ResponseException> errorClass;
+        final boolean wholeResponse;
+        final byte[] low;
+        final byte[] high;
+
+        Token(Class<? extends ResponseException> errorClass, String message, boolean regex) {
+            this.errorClass = errorClass;
+            this.wholeResponse = regex;
+            byte[] lows = new byte[message.length()];
+            byte[] highs = new byte[message.length()];
+            int length = 0;
+            for (int i = 0; i < message.length(); i++) {
+                char c = message.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                if (regex && c == '[') {
+                    if (i + 4 >= message.length() || message.charAt(i + 2) != '-' || message.charAt(i + 4) != ']') {
+                        throw new IllegalArgumentException("Unsupported pattern: " + message);
+                    }
+                    lows[length] = (byte) upperCase(message.charAt(i + 1));
+                    highs[length++] = (byte) upperCase(message.charAt(i + 3));
+                    i += 4;
+                } else if (regex && "\\.*+?()|{}^$]".indexOf(c) >= 0) {
+                    throw new IllegalArgumentException("Unsupported pattern: " + message);
+                } else {
+                    lows[length] = (byte) upperCase(c);
+                    highs[length++] = (byte) upperCase(c);
+                }
+            }
+            if (length == 0) {
+                throw new IllegalArgumentException("Empty error message for " + errorClass.getName());
+            }
+            this.low = Arrays.copyOf(lows, length);
+            this.high = Arrays.copyOf(highs, length);
+        }
+
+        int length() {
+            return low.length;
+        }
+
+        boolean matches(byte[] response, int offset, int responseLength) {
+            if (wholeResponse ? offset != 0 || responseLength != low.length
+                    : offset + low.length > responseLength) {
+                return false;
+            }
+            for (int i = 0; i < low.length; i++) {
+                int c = upperCase(response[offset + i]);
+                if (c < low[i] || c > high[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -65,6 +65,33 @@ public class ResponseException extends RuntimeException {
         }
     }
 
+    /**
+     * <p>Getter for the field <code>message</code>.</p>
+     *
+     * @return the adapter message this error is raised for.
+     */
+    String getErrorMessage() {
+        return message;
+    }
+
+    /**
+     * <p>isMatchRegex.</p>
+     *
+     * @return true if the message is a pattern the whole response must match.
+     */
+    boolean isMatchRegex() {
+        return matchRegex;
+    }
+
+    /**
+     * <p>Setter for the field <code>response</code>.</p>
+     *
+     * @param response a {@link java.lang.String} object.
+     */
+    void setResponse(String response) {
+        this.response = response;
+    }
+
     /**
      * <p>Setter for the field <code>command</code>.</p>
      *
@@ -0,0 +1,91 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes rows as CSV: a "timestamp" column in ms since the epoch, then one
+ * column per command named like "Engine RPM [RPM]". Empty cells have no
+ * value. In pandas:
+ * <pre>
+ * df = pd.read_csv("trip.csv")
+ * df.index = pd.to_datetime(df.pop("timestamp"), unit="ms")
+ * </pre>
+ */
+public class CsvRowWriter implements RowWriter {
+
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * <p>Constructor for CsvRowWriter.</p>
+     *
+     * @param out where the CSV goes, i.e. a buffered file writer.
+     */
+    public CsvRowWriter(Writer out) {
+        this.out = out;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void begin(String[] names, String[] units) throws IOException {
+        line.setLength(0);
+        line.append("timestamp");
+        for (int i = 0; i < names.length; i++) {
+            line.append(',');
+            String unit = units[i];
+            append(unit == null || unit.isEmpty() ? names[i] : names[i] + " [" + unit + "]");
+        }
+        write();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void row(long timestamp, String[] values) throws IOException {
+        line.setLength(0);
+        line.append(timestamp);
+        for (String value : values) {
+            line.append(',');
+            if (value != null) {
+                append(value);
+            }
+        }
+        write();
+    }
+
+    private void append(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quote) {
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        } else {
+            line.append(value);
+        }
+    }
+
+    private void write() throws IOException {
+        line.append('\n');
+        out.append(line);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
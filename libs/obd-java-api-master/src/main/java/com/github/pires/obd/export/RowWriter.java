@@ -0,0 +1,43 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the time-aligned rows of a {@link TripExporter}, one at a time.
+ * Closing it finishes the output.
+ */
+public interface RowWriter extends Closeable {
+
+    /**
+     * Called once before the first row.
+     *
+     * @param names the column names, i.e. "Engine RPM".
+     * @param units the column units, i.e. "RPM", empty if the command has none.
+     * @throws java.io.IOException if any.
+     */
+    void begin(String[] names, String[] units) throws IOException;
+
+    /**
+     * Called for every row, in time order.
+     *
+     * @param timestamp the row start, in ms since the epoch.
+     * @param values    the value of each column, null where there is none.
+     *                  Only valid during the call.
+     * @throws java.io.IOException if any.
+     */
+    void row(long timestamp, String[] values) throws IOException;
+
+}
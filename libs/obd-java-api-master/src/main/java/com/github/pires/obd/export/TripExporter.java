@@ -0,0 +1,242 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.recording.TripReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Turns a trip log into a table with one column per command and one row per
+ * time interval, i.e. for loading into pandas.
+ * <p>
+ * Every row holds, per column, the last sample received before the interval
+ * ended, or the one before that for as long as it isn't older than the
+ * maximum hold time. Rows without any value, i.e. while the car was parked,
+ * are left out. Values are the commands' calculated results, in metric or
+ * imperial units as set with {@link #setImperialUnits(boolean)}.
+ * <p>
+ * The log is read one record at a time and the exporter only keeps the last
+ * value of each column, so exporting takes the same memory whatever the
+ * length of the trip.
+ * <pre>
+ * TripExporter exporter = new TripExporter();
+ * exporter.addColumn(new RPMCommand());
+ * exporter.addColumn(new SpeedCommand());
+ * try (RowWriter csv = new CsvRowWriter(new FileWriter("trip.csv"))) {
+ *     exporter.export(tripDirectory, csv);
+ * }
+ * </pre>
+ */
+public class TripExporter {
+
+    /** Constant <code>DEFAULT_INTERVAL=100</code>, in milliseconds. */
+    public static final long DEFAULT_INTERVAL = 100;
+    /** Constant <code>DEFAULT_MAX_HOLD=5000</code>, in milliseconds. */
+    public static final long DEFAULT_MAX_HOLD = 5000;
+
+    private final ArrayList<ObdCommand> columns = new ArrayList<>();
+    private final int[] columnByPid = new int[0x10 << 8];
+    private long interval = DEFAULT_INTERVAL;
+    private long maxHold = DEFAULT_MAX_HOLD;
+    private boolean imperialUnits = false;
+
+    /**
+     * <p>Constructor for TripExporter.</p>
+     */
+    public TripExporter() {
+        Arrays.fill(columnByPid, -1);
+    }
+
+    /**
+     * Adds a column, filled with the samples of the command's mode and PID.
+     * The command is used to decode them.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public void addColumn(ObdCommand command) {
+        int mode = parseHex(command.getCommandMode());
+        String pid = command.getCommandPID();
+        int index = mode < 0 || mode >= 0x10 || pid.length() < 2 ? -1 : parseHex(pid.substring(0, 2));
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a mode and PID command: " + command.getName());
+        }
+        index |= mode << 8;
+        if (columnByPid[index] >= 0) {
+            throw new IllegalArgumentException("Already exported: " + command.getName());
+        }
+        command.useImperialUnits(imperialUnits);
+        columnByPid[index] = columns.size();
+        columns.add(command);
+    }
+
+    private static int parseHex(String hex) {
+        if (hex.length() != 2) {
+            return -1;
+        }
+        int high = Character.digit(hex.charAt(0), 16);
+        int low = Character.digit(hex.charAt(1), 16);
+        return high < 0 || low < 0 ? -1 : high << 4 | low;
+    }
+
+    /**
+     * Writes the table.
+     *
+     * @param directory the trip log, as written by a
+     *                  {@link com.github.pires.obd.recording.TripRecorder}.
+     * @param writer    where the rows go, left open.
+     * @return the number of rows written.
+     * @throws java.io.IOException if any.
+     */
+    public long export(File directory, RowWriter writer) throws IOException {
+        int count = columns.size();
+        String[] names = new String[count];
+        String[] units = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = columns.get(i).getName();
+            units[i] = columns.get(i).getResultUnit();
+        }
+        writer.begin(names, units);
+
+        String[] values = new String[count];
+        long[] updated = new long[count];
+        String[] row = new String[count];
+        long rows = 0;
+        long rowEnd = Long.MIN_VALUE;
+        try (TripReader reader = new TripReader(directory)) {
+            while (reader.next()) {
+                int mode = reader.getMode();
+                int column = mode < 0x10 ? columnByPid[mode << 8 | reader.getPid()] : -1;
+                if (column < 0) {
+                    continue;
+                }
+                long timestamp = reader.getTimestamp();
+                if (rowEnd == Long.MIN_VALUE) {
+                    rowEnd = start(timestamp) + interval;
+                }
+                while (timestamp >= rowEnd) {
+                    if (emit(writer, rowEnd - interval, values, updated, row)) {
+                        rows++;
+                        rowEnd += interval;
+                    } else {
+                        // nothing left to hold: skip to the interval of this sample
+                        rowEnd = Math.max(rowEnd + interval, start(timestamp) + interval);
+                    }
+                }
+                ObdCommand command = columns.get(column);
+                try {
+                    reader.decode(command);
+                } catch (RuntimeException e) {
+                    continue; // a response the command can't make sense of
+                }
+                values[column] = command.getCalculatedResult();
+                updated[column] = timestamp;
+            }
+        }
+        if (rowEnd != Long.MIN_VALUE && emit(writer, rowEnd - interval, values, updated, row)) {
+            rows++;
+        }
+        return rows;
+    }
+
+    private long start(long timestamp) {
+        return timestamp - ((timestamp % interval) + interval) % interval;
+    }
+
+    /**
+     * Writes the row starting at the given time.
+     *
+     * @return false if it had no values, and wasn't written.
+     */
+    private boolean emit(RowWriter writer, long start, String[] values, long[] updated, String[] row)
+            throws IOException {
+        boolean any = false;
+        for (int i = 0; i < values.length; i++) {
+            boolean held = values[i] != null && start - updated[i] < maxHold;
+            row[i] = held ? values[i] : null;
+            any |= held;
+        }
+        if (any) {
+            writer.row(start, row);
+        }
+        return any;
+    }
+
+    /**
+     * <p>Getter for the field <code>interval</code>.</p>
+     *
+     * @return the time between rows, in milliseconds.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Time between rows. By default this value is set to 100ms.
+     *
+     * @param interval in milliseconds.
+     */
+    public void setInterval(long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * <p>Getter for the field <code>maxHold</code>.</p>
+     *
+     * @return how long a sample is repeated, in milliseconds.
+     */
+    public long getMaxHold() {
+        return maxHold;
+    }
+
+    /**
+     * How long a sample is repeated in the following rows, until the column
+     * is left empty. By default this value is set to 5 seconds.
+     *
+     * @param maxHold in milliseconds.
+     */
+    public void setMaxHold(long maxHold) {
+        if (maxHold <= 0) {
+            throw new IllegalArgumentException("Hold time must be positive: " + maxHold);
+        }
+        this.maxHold = maxHold;
+    }
+
+    /**
+     * <p>useImperialUnits.</p>
+     *
+     * @return true if values are exported in imperial units.
+     */
+    public boolean useImperialUnits() {
+        return imperialUnits;
+    }
+
+    /**
+     * Exports values in imperial units, i.e. mph and F, for all columns.
+     *
+     * @param imperialUnits a boolean.
+     */
+    public void setImperialUnits(boolean imperialUnits) {
+        this.imperialUnits = imperialUnits;
+        for (ObdCommand command : columns) {
+            command.useImperialUnits(imperialUnits);
+        }
+    }
+}
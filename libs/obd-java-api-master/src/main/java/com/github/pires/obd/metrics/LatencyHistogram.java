@@ -0,0 +1,135 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets of logarithmic width, as HdrHistogram does.
+ * <p>
+ * Durations up to 16µs get a bucket each; above, every power of two is split
+ * in 8 buckets, so a percentile is off by at most 12.5%. The 272 buckets cover
+ * up to 19 hours in a fixed array. Recording is a couple of atomic
+ * increments, without locks or allocations, so any number of threads can
+ * record while another reads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    /** Constant <code>MAX_MICROS=2^36-1</code>, longer durations are counted as such. */
+    public static final long MAX_MICROS = (1L << 36) - 1;
+    private static final int BUCKETS = indexOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts a duration.
+     *
+     * @param nanos the duration in ns, negative ones are ignored.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        long micros = Math.min(nanos / 1000, MAX_MICROS);
+        counts.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        long current;
+        while (micros > (current = max.get()) && !max.compareAndSet(current, micros)) {
+            // raced with another thread, try again
+        }
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - 3;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (micros >> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the highest duration counted in a bucket.
+     */
+    static long highestOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = SUB_BUCKETS + (index - LINEAR) % SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * <p>Getter for the field <code>count</code>.</p>
+     *
+     * @return the number of durations counted.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * <p>Getter for the field <code>max</code>.</p>
+     *
+     * @return the longest duration counted, in µs, exact.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The duration a given share of the counted ones didn't exceed, i.e. 50
+     * for the median.
+     *
+     * @param percentile between 0 and 100.
+     * @return the duration in µs, the top of its bucket but no more than
+     * {@link #getMax()}; 0 if nothing was counted.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all durations. Those recorded meanwhile may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        max.set(0);
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.metrics;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.enums.CommandPhase;
+import com.github.pires.obd.polling.PollingListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells which commands are slow, and where their time goes.
+ * <p>
+ * Every command measures its last run with System.nanoTime(), split in
+ * {@link CommandPhase}s: writing the request, waiting for the ECUs, reading
+ * the response and decoding it. The monitor counts these in a
+ * {@link LatencyHistogram} per command and phase, and counts errors per
+ * exception type, i.e. how often {@link com.github.pires.obd.exceptions.NoDataException}
+ * came back. Results and errors passed through {@link #monitor(PollingListener)}
+ * are recorded on the polling thread without locking; {@link #snapshot()} can
+ * be taken from any thread meanwhile. Use one monitor per vehicle to compare
+ * vehicles.
+ */
+public class LatencyMonitor {
+
+    private static final CommandPhase[] PHASES = CommandPhase.values();
+
+    /**
+     * Keyed by command, which are equal when they send the same request.
+     */
+    private final ConcurrentMap<ObdCommand, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    /**
+     * Watches the outcome of polled commands on their way to the listener.
+     *
+     * @param listener a {@link com.github.pires.obd.polling.PollingListener} object.
+     * @return the listener to give the {@link com.github.pires.obd.polling.ObdPoller}.
+     */
+    public PollingListener monitor(final PollingListener listener) {
+        return new PollingListener() {
+            @Override
+            public void onResult(ObdCommand command) {
+                record(command);
+                listener.onResult(command);
+            }
+
+            @Override
+            public void onError(ObdCommand command, Exception e) {
+                recordError(e);
+                listener.onError(command, e);
+            }
+        };
+    }
+
+    /**
+     * Counts the phases of the last run of a command, i.e. after
+     * {@link com.github.pires.obd.commands.ObdSession#run(ObdCommand)}.
+     * Phases that weren't measured are skipped.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public void record(ObdCommand command) {
+        Entry entry = entries.get(command);
+        if (entry == null) {
+            Entry created = new Entry(command.getName());
+            entry = entries.putIfAbsent(command, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        for (int i = 0; i < PHASES.length; i++) {
+            entry.histograms[i].record(command.getNanos(PHASES[i]));
+        }
+    }
+
+    /**
+     * Counts an error by its type.
+     *
+     * @param e a {@link java.lang.Exception} object.
+     */
+    public void recordError(Exception e) {
+        AtomicLong counter = errors.get(e.getClass());
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = errors.putIfAbsent(e.getClass(), created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * <p>getHistogram.</p>
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @param phase   a {@link com.github.pires.obd.enums.CommandPhase} object.
+     * @return the durations of the command's request, null if never recorded.
+     */
+    public LatencyHistogram getHistogram(ObdCommand command, CommandPhase phase) {
+        Entry entry = entries.get(command);
+        return entry == null ? null : entry.histograms[phase.ordinal()];
+    }
+
+    /**
+     * <p>getErrorCount.</p>
+     *
+     * @param type an exception class, i.e. NoDataException.class.
+     * @return the number of errors of exactly that type.
+     */
+    public long getErrorCount(Class<? extends Exception> type) {
+        AtomicLong counter = errors.get(type);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * <p>getErrorCounts.</p>
+     *
+     * @return the number of errors by exception simple name, sorted.
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<Class<?>, AtomicLong> error : errors.entrySet()) {
+            counts.put(error.getKey().getSimpleName(), error.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Takes the percentiles of every command and phase measured.
+     *
+     * @return the stats, slowest command first by p99 of
+     * {@link CommandPhase#TOTAL}, each in phase order.
+     */
+    public List<LatencyStats> snapshot() {
+        List<LatencyStats[]> commands = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            LatencyStats[] stats = new LatencyStats[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                stats[i] = new LatencyStats(entry.name, PHASES[i], entry.histograms[i]);
+            }
+            commands.add(stats);
+        }
+        final int total = CommandPhase.TOTAL.ordinal();
+        Collections.sort(commands, new Comparator<LatencyStats[]>() {
+            @Override
+            public int compare(LatencyStats[] a, LatencyStats[] b) {
+                int byP99 = Long.compare(b[total].getP99(), a[total].getP99());
+                return byP99 != 0 ? byP99 : a[total].getCommand().compareTo(b[total].getCommand());
+            }
+        });
+        List<LatencyStats> snapshot = new ArrayList<>();
+        for (LatencyStats[] stats : commands) {
+            Collections.addAll(snapshot, stats);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Forgets all durations and errors.
+     */
+    public void reset() {
+        entries.clear();
+        errors.clear();
+    }
+
+    private static class Entry {
+        private final String name;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+
+        Entry(String name) {
+            this.name = name;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+}
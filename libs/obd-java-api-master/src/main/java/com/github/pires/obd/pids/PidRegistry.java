@@ -0,0 +1,212 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.pids;
+
+import com.github.pires.obd.enums.ResultUnit;
+
+/**
+ * The SAE J1979 PIDs of service 01 (current data), their response lengths
+ * and formulas.
+ * <p>
+ * The table is built once, when the class loads, into an array indexed by
+ * mode and PID, so a lookup is a shift and an array read. Commands decode
+ * their responses with their descriptor, see
+ * {@link com.github.pires.obd.commands.ObdCommand#decode()}; a PID without a
+ * command class can still be read with an
+ * {@link com.github.pires.obd.commands.protocol.ObdRawCommand} and decoded
+ * here. Values beyond the first of multi-value PIDs, such as the short term
+ * trim of oxygen sensors after their voltage, aren't decoded.
+ */
+public final class PidRegistry {
+
+    private static final int MODES = 16;
+    private static final PidDescriptor[] TABLE = new PidDescriptor[MODES << 8];
+
+    static {
+        pid(0x00, 4, "PIDs supported [01 - 20]");
+        pid(0x01, 4, "Monitor status since DTCs cleared");
+        pid(0x02, 2, "Freeze DTC");
+        pid(0x03, 2, "Fuel system status");
+        pid(0x04, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Calculated engine load");
+        pid(0x05, 1, 1, 1, -40, ResultUnit.CELSIUS, "Engine coolant temperature");
+        pid(0x06, 1, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Short term fuel trim - Bank 1");
+        pid(0x07, 1, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Long term fuel trim - Bank 1");
+        pid(0x08, 1, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Short term fuel trim - Bank 2");
+        pid(0x09, 1, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Long term fuel trim - Bank 2");
+        pid(0x0A, 1, 1, 3, 0, ResultUnit.KILOPASCAL, "Fuel pressure");
+        pid(0x0B, 1, 1, 1, 0, ResultUnit.KILOPASCAL, "Intake manifold absolute pressure");
+        pid(0x0C, 2, 2, 0.25, 0, ResultUnit.RPM, "Engine speed");
+        pid(0x0D, 1, 1, 1, 0, ResultUnit.KILOMETERS_PER_HOUR, "Vehicle speed");
+        pid(0x0E, 1, 1, 0.5, -64, ResultUnit.DEGREE, "Timing advance");
+        pid(0x0F, 1, 1, 1, -40, ResultUnit.CELSIUS, "Intake air temperature");
+        pid(0x10, 2, 2, 0.01, 0, ResultUnit.GRAMS_PER_SECOND, "Mass air flow sensor air flow rate");
+        pid(0x11, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Throttle position");
+        pid(0x12, 1, "Commanded secondary air status");
+        pid(0x13, 1, "Oxygen sensors present (2 banks)");
+        pid(0x14, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 1 voltage");
+        pid(0x15, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 2 voltage");
+        pid(0x16, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 3 voltage");
+        pid(0x17, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 4 voltage");
+        pid(0x18, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 5 voltage");
+        pid(0x19, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 6 voltage");
+        pid(0x1A, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 7 voltage");
+        pid(0x1B, 2, 1, 0.005, 0, ResultUnit.VOLT, "Oxygen sensor 8 voltage");
+        pid(0x1C, 1, "OBD standards this vehicle conforms to");
+        pid(0x1D, 1, "Oxygen sensors present (4 banks)");
+        pid(0x1E, 1, "Auxiliary input status");
+        pid(0x1F, 2, 2, 1, 0, ResultUnit.SECOND, "Run time since engine start");
+        pid(0x20, 4, "PIDs supported [21 - 40]");
+        pid(0x21, 2, 2, 1, 0, ResultUnit.KILOMETER, "Distance traveled with MIL on");
+        pid(0x22, 2, 2, 0.079, 0, ResultUnit.KILOPASCAL, "Fuel rail pressure (relative to manifold vacuum)");
+        pid(0x23, 2, 2, 10, 0, ResultUnit.KILOPASCAL, "Fuel rail gauge pressure");
+        pid(0x24, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 1 air-fuel equivalence ratio");
+        pid(0x25, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 2 air-fuel equivalence ratio");
+        pid(0x26, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 3 air-fuel equivalence ratio");
+        pid(0x27, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 4 air-fuel equivalence ratio");
+        pid(0x28, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 5 air-fuel equivalence ratio");
+        pid(0x29, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 6 air-fuel equivalence ratio");
+        pid(0x2A, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 7 air-fuel equivalence ratio");
+        pid(0x2B, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 8 air-fuel equivalence ratio");
+        pid(0x2C, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Commanded EGR");
+        pid(0x2D, 1, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "EGR error");
+        pid(0x2E, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Commanded evaporative purge");
+        pid(0x2F, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Fuel tank level input");
+        pid(0x30, 1, 1, 1, 0, ResultUnit.NONE, "Warm-ups since codes cleared");
+        pid(0x31, 2, 2, 1, 0, ResultUnit.KILOMETER, "Distance traveled since codes cleared");
+        signedPid(0x32, 2, 2, 0.25, 0, ResultUnit.PASCAL, "Evap. system vapor pressure");
+        pid(0x33, 1, 1, 1, 0, ResultUnit.KILOPASCAL, "Absolute barometric pressure");
+        pid(0x34, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 1 air-fuel equivalence ratio (wide range)");
+        pid(0x35, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 2 air-fuel equivalence ratio (wide range)");
+        pid(0x36, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 3 air-fuel equivalence ratio (wide range)");
+        pid(0x37, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 4 air-fuel equivalence ratio (wide range)");
+        pid(0x38, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 5 air-fuel equivalence ratio (wide range)");
+        pid(0x39, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 6 air-fuel equivalence ratio (wide range)");
+        pid(0x3A, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 7 air-fuel equivalence ratio (wide range)");
+        pid(0x3B, 4, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Oxygen sensor 8 air-fuel equivalence ratio (wide range)");
+        pid(0x3C, 2, 2, 0.1, -40, ResultUnit.CELSIUS, "Catalyst temperature: Bank 1, Sensor 1");
+        pid(0x3D, 2, 2, 0.1, -40, ResultUnit.CELSIUS, "Catalyst temperature: Bank 2, Sensor 1");
+        pid(0x3E, 2, 2, 0.1, -40, ResultUnit.CELSIUS, "Catalyst temperature: Bank 1, Sensor 2");
+        pid(0x3F, 2, 2, 0.1, -40, ResultUnit.CELSIUS, "Catalyst temperature: Bank 2, Sensor 2");
+        pid(0x40, 4, "PIDs supported [41 - 60]");
+        pid(0x41, 4, "Monitor status this drive cycle");
+        pid(0x42, 2, 2, 0.001, 0, ResultUnit.VOLT, "Control module voltage");
+        pid(0x43, 2, 2, 100.0 / 255, 0, ResultUnit.PERCENT, "Absolute load value");
+        pid(0x44, 2, 2, 2.0 / 65536, 0, ResultUnit.NONE, "Commanded air-fuel equivalence ratio");
+        pid(0x45, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Relative throttle position");
+        pid(0x46, 1, 1, 1, -40, ResultUnit.CELSIUS, "Ambient air temperature");
+        pid(0x47, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Absolute throttle position B");
+        pid(0x48, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Absolute throttle position C");
+        pid(0x49, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Accelerator pedal position D");
+        pid(0x4A, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Accelerator pedal position E");
+        pid(0x4B, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Accelerator pedal position F");
+        pid(0x4C, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Commanded throttle actuator");
+        pid(0x4D, 2, 2, 1, 0, ResultUnit.MINUTE, "Time run with MIL on");
+        pid(0x4E, 2, 2, 1, 0, ResultUnit.MINUTE, "Time since trouble codes cleared");
+        pid(0x4F, 4, "Maximum equivalence ratio, oxygen sensor voltage and current, and manifold pressure");
+        pid(0x50, 4, 1, 10, 0, ResultUnit.GRAMS_PER_SECOND, "Maximum air flow rate from mass air flow sensor");
+        pid(0x51, 1, "Fuel type");
+        pid(0x52, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Ethanol fuel %");
+        pid(0x53, 2, 2, 0.005, 0, ResultUnit.KILOPASCAL, "Absolute evap system vapor pressure");
+        signedPid(0x54, 2, 2, 1, 0, ResultUnit.PASCAL, "Evap system vapor pressure");
+        pid(0x55, 2, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Short term secondary O2 sensor trim, banks 1 and 3");
+        pid(0x56, 2, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Long term secondary O2 sensor trim, banks 1 and 3");
+        pid(0x57, 2, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Short term secondary O2 sensor trim, banks 2 and 4");
+        pid(0x58, 2, 1, 100.0 / 128, -100, ResultUnit.PERCENT, "Long term secondary O2 sensor trim, banks 2 and 4");
+        pid(0x59, 2, 2, 10, 0, ResultUnit.KILOPASCAL, "Fuel rail absolute pressure");
+        pid(0x5A, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Relative accelerator pedal position");
+        pid(0x5B, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Hybrid battery pack remaining life");
+        pid(0x5C, 1, 1, 1, -40, ResultUnit.CELSIUS, "Engine oil temperature");
+        pid(0x5D, 2, 2, 1.0 / 128, -210, ResultUnit.DEGREE, "Fuel injection timing");
+        pid(0x5E, 2, 2, 0.05, 0, ResultUnit.LITERS_PER_HOUR, "Engine fuel rate");
+        pid(0x5F, 1, "Emission requirements to which vehicle is designed");
+        pid(0x60, 4, "PIDs supported [61 - 80]");
+        pid(0x61, 1, 1, 1, -125, ResultUnit.PERCENT, "Driver's demand engine - percent torque");
+        pid(0x62, 1, 1, 1, -125, ResultUnit.PERCENT, "Actual engine - percent torque");
+        pid(0x63, 2, 2, 1, 0, ResultUnit.NEWTON_METER, "Engine reference torque");
+        pid(0x64, 5, "Engine percent torque data");
+        pid(0x65, 2, "Auxiliary input / output supported");
+        pid(0x66, 5, "Mass air flow sensor");
+        pid(0x67, 3, "Engine coolant temperature (sensors A and B)");
+        pid(0x80, 4, "PIDs supported [81 - A0]");
+        pid(0x8D, 1, 1, 100.0 / 255, 0, ResultUnit.PERCENT, "Throttle position G");
+        pid(0x8E, 1, 1, 1, -125, ResultUnit.PERCENT, "Engine friction - percent torque");
+        pid(0xA0, 4, "PIDs supported [A1 - C0]");
+        pid(0xA2, 2, 2, 1.0 / 32, 0, ResultUnit.MILLIGRAM, "Cylinder fuel rate");
+        pid(0xA6, 4, 4, 0.1, 0, ResultUnit.KILOMETER, "Odometer");
+        pid(0xC0, 4, "PIDs supported [C1 - E0]");
+    }
+
+    private PidRegistry() {
+    }
+
+    private static void pid(int pid, int length, String name) {
+        TABLE[0x100 | pid] = new PidDescriptor(0x01, pid, length, 0, false, Double.NaN, Double.NaN,
+                ResultUnit.NONE, name);
+    }
+
+    private static void pid(int pid, int length, int width, double scale, double offset, ResultUnit unit,
+                            String name) {
+        TABLE[0x100 | pid] = new PidDescriptor(0x01, pid, length, width, false, scale, offset, unit, name);
+    }
+
+    private static void signedPid(int pid, int length, int width, double scale, double offset, ResultUnit unit,
+                                  String name) {
+        TABLE[0x100 | pid] = new PidDescriptor(0x01, pid, length, width, true, scale, offset, unit, name);
+    }
+
+    /**
+     * <p>get.</p>
+     *
+     * @param mode the service, i.e. 0x01.
+     * @param pid  a int.
+     * @return the descriptor of the PID, null if unknown.
+     */
+    public static PidDescriptor get(int mode, int pid) {
+        if (mode < 0 || mode >= MODES || pid < 0 || pid > 0xFF) {
+            return null;
+        }
+        return TABLE[mode << 8 | pid];
+    }
+
+    /**
+     * Looks up the PID of a request.
+     *
+     * @param request a request such as "01 0C", as sent by a command.
+     * @return the descriptor of the PID, null if unknown or not a single PID
+     * request.
+     */
+    public static PidDescriptor get(String request) {
+        if (request == null || request.length() != 5 || request.charAt(2) != ' ') {
+            return null;
+        }
+        int mode = Character.digit(request.charAt(0), 16) << 4 | Character.digit(request.charAt(1), 16);
+        int pid = Character.digit(request.charAt(3), 16) << 4 | Character.digit(request.charAt(4), 16);
+        if (mode < 0 || pid < 0) {
+            return null;
+        }
+        return get(mode, pid);
+    }
+
+    /**
+     * <p>getLength.</p>
+     *
+     * @param mode the service, i.e. 0x01.
+     * @param pid  a int.
+     * @return the number of data bytes in the PID's response, 0 if unknown.
+     */
+    public static int getLength(int mode, int pid) {
+        PidDescriptor descriptor = get(mode, pid);
+        return descriptor == null ? 0 : descriptor.getLength();
+    }
+
+}
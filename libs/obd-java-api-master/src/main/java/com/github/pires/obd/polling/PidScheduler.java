@@ -0,0 +1,175 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.utils.PidSupportMap;
+
+import java.util.ArrayList;
+
+/**
+ * Decides which command goes next on the single adapter channel.
+ * <p>
+ * Every command has a target frequency, i.e. 10Hz for RPM and speed, 0.2Hz
+ * for coolant temperature and 0.05Hz for fuel level. The command that has been
+ * due the longest runs first, so when the adapter can't keep up, each command
+ * still gets a share of the samples proportional to its frequency. A command
+ * never builds up more than one missed period of backlog.
+ */
+public class PidScheduler {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    private PidSupportMap supportMap = null;
+
+    /**
+     * Schedules a command, to be run as soon as possible and then at the
+     * given frequency. Scheduling a command again changes its frequency.
+     *
+     * @param command   a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @param frequency target samples per second, i.e. 0.2 for every 5s.
+     * @return false if the vehicle doesn't support the command, which is
+     * then not scheduled.
+     */
+    public synchronized boolean add(ObdCommand command, double frequency) {
+        if (!(frequency > 0)) {
+            throw new IllegalArgumentException("Frequency must be positive: " + frequency);
+        }
+        if (supportMap != null && supportMap.isUnsupported(command)) {
+            return false;
+        }
+        long period = (long) (NANOS_PER_SECOND / frequency);
+        for (Entry entry : entries) {
+            if (entry.command == command) {
+                entry.period = period;
+                notifyAll();
+                return true;
+            }
+        }
+        entries.add(new Entry(command, period, System.nanoTime()));
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Skips the commands the vehicle doesn't support from now on, including
+     * those already scheduled, instead of polling them for NO DATA.
+     *
+     * @param supportMap the vehicle's PIDs, null to schedule everything.
+     */
+    public synchronized void setSupportMap(PidSupportMap supportMap) {
+        this.supportMap = supportMap;
+        if (supportMap != null) {
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                if (supportMap.isUnsupported(entries.get(i).command)) {
+                    entries.remove(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops scheduling a command.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public synchronized void remove(ObdCommand command) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).command == command) {
+                entries.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes all commands.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return the number of scheduled commands.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Waits until a command is due and returns it.
+     *
+     * @return the command to run now.
+     * @throws java.lang.InterruptedException if the waiting thread is interrupted.
+     */
+    public synchronized ObdCommand take() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            ObdCommand command = next(now);
+            if (command != null) {
+                return command;
+            }
+            Entry earliest = earliest();
+            if (earliest == null) {
+                wait();
+            } else {
+                long delay = earliest.nextDue - now;
+                wait(delay / NANOS_PER_MILLI, (int) (delay % NANOS_PER_MILLI));
+            }
+        }
+    }
+
+    /**
+     * Returns the command that has been due the longest, if any, and moves
+     * its deadline one period ahead.
+     *
+     * @param now the current {@link System#nanoTime()}.
+     * @return a command, or null if none is due.
+     */
+    synchronized ObdCommand next(long now) {
+        Entry earliest = earliest();
+        if (earliest == null || earliest.nextDue - now > 0) {
+            return null;
+        }
+        earliest.nextDue = Math.max(earliest.nextDue + earliest.period, now - earliest.period);
+        return earliest.command;
+    }
+
+    private Entry earliest() {
+        Entry earliest = null;
+        for (Entry entry : entries) {
+            if (earliest == null || entry.nextDue - earliest.nextDue < 0) {
+                earliest = entry;
+            }
+        }
+        return earliest;
+    }
+
+    private static final class Entry {
+
+        final ObdCommand command;
+        long period;
+        long nextDue;
+
+        Entry(ObdCommand command, long period, long nextDue) {
+            this.command = command;
+            this.period = period;
+            this.nextDue = nextDue;
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import com.github.pires.obd.commands.ObdCommand;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Reads a trip log written by {@link TripRecorder}, one record at a time and
+ * in recording order across segments.
+ * <p>
+ * A record is decoded by handing it to an instance of the command that
+ * produced it:
+ * <pre>
+ * RPMCommand rpm = new RPMCommand();
+ * while (reader.next()) {
+ *     if (reader.getMode() == 0x01 &amp;&amp; reader.getPid() == 0x0C) {
+ *         reader.decode(rpm);
+ *         ... rpm.getRPM()
+ *     }
+ * }
+ * </pre>
+ * A segment that is still being written can be read, up to its last
+ * complete record when it was opened.
+ */
+public class TripReader implements Closeable {
+
+    private final File directory;
+    private final int[] sequences;
+    private final int[] response = new int[2 + TripSegment.MAX_PAYLOAD];
+    private int nextSegment = 0;
+    private TripSegment segment = null;
+    private int record = -1;
+
+    /**
+     * <p>Constructor for TripReader.</p>
+     *
+     * @param directory where the recorder put its segments.
+     */
+    public TripReader(File directory) {
+        this.directory = directory;
+        this.sequences = TripSegment.list(directory);
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false at the end of the log.
+     * @throws java.io.IOException if a segment can't be read.
+     */
+    public boolean next() throws IOException {
+        while (segment == null || record + 1 >= segment.getCount()) {
+            if (segment != null) {
+                segment.close();
+                segment = null;
+            }
+            if (nextSegment == sequences.length) {
+                return false;
+            }
+            try {
+                segment = TripSegment.open(directory, sequences[nextSegment++], false);
+            } catch (IOException e) {
+                if (nextSegment < sequences.length) {
+                    throw e;
+                }
+                return false; // the last segment was created but its header never written
+            }
+            record = -1;
+        }
+        record++;
+        return true;
+    }
+
+    /**
+     * <p>getTimestamp.</p>
+     *
+     * @return when the sample was received, in ms since the epoch.
+     */
+    public long getTimestamp() {
+        return segment.getTimestamp(record);
+    }
+
+    /**
+     * <p>getMode.</p>
+     *
+     * @return the request mode, i.e. 0x01.
+     */
+    public int getMode() {
+        return segment.getMode(record);
+    }
+
+    /**
+     * <p>getPid.</p>
+     *
+     * @return the PID, i.e. 0x0C.
+     */
+    public int getPid() {
+        return segment.getPid(record);
+    }
+
+    /**
+     * <p>getLength.</p>
+     *
+     * @return the number of payload bytes.
+     */
+    public int getLength() {
+        return segment.getLength(record);
+    }
+
+    /**
+     * <p>getByte.</p>
+     *
+     * @param index position in the payload.
+     * @return the unsigned byte value.
+     */
+    public int getByte(int index) {
+        if (index < 0 || index >= getLength()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + getLength());
+        }
+        return segment.getByte(record, index);
+    }
+
+    /**
+     * Decodes the current record with a command, as if its response had just
+     * been read from the adapter at the recorded time.
+     *
+     * @param command an instance of the command that produced the record.
+     */
+    public void decode(ObdCommand command) {
+        int length = getLength();
+        response[0] = 0x40 + getMode();
+        response[1] = getPid();
+        for (int i = 0; i < length; i++) {
+            response[2 + i] = segment.getByte(record, i);
+        }
+        command.readResult(response, 2 + length);
+        command.setStart(getTimestamp());
+        command.setEnd(getTimestamp());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+        nextSegment = sequences.length;
+    }
+
+}
@@ -0,0 +1,181 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import com.github.pires.obd.commands.ObdCommand;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Appends decoded samples to a trip log on disk, to be read back with
+ * {@link TripReader} and decoded again by the same command classes.
+ * <p>
+ * Every sample is a fixed-width 16 byte record: time since the segment
+ * start, mode, PID and up to 8 payload bytes, i.e. 20Hz of 10 PIDs takes
+ * about 11MB an hour. Records go to a memory-mapped segment file, so
+ * recording neither allocates nor waits for the disk; the operating system
+ * writes pages back on its own, and they survive the app being killed. A
+ * full segment is flushed and the log rolls over to the next one.
+ * <p>
+ * After a crash the log ends at the first torn record: opening a recorder
+ * on the directory again cuts the last segment there and continues in a new
+ * segment.
+ */
+public class TripRecorder implements Closeable {
+
+    /** Constant <code>DEFAULT_CAPACITY=262144</code>, records per segment, 4MB. */
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    private final File directory;
+    private final int capacity;
+    private final int[] payload = new int[TripSegment.MAX_PAYLOAD];
+    private TripSegment segment = null;
+    private int nextSequence;
+    private boolean closed = false;
+
+    /**
+     * <p>Constructor for TripRecorder.</p>
+     *
+     * @param directory where segments go, created if missing.
+     * @throws java.io.IOException if the directory can't be created or recovered.
+     */
+    public TripRecorder(File directory) throws IOException {
+        this(directory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * <p>Constructor for TripRecorder.</p>
+     *
+     * @param directory where segments go, created if missing.
+     * @param capacity  records per segment.
+     * @throws java.io.IOException if the directory can't be created or recovered.
+     */
+    public TripRecorder(File directory, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        this.directory = directory;
+        this.capacity = capacity;
+        this.nextSequence = recover();
+    }
+
+    /**
+     * Cuts the last segment after its last valid record.
+     *
+     * @return the sequence number of the next segment.
+     */
+    private int recover() throws IOException {
+        int[] sequences = TripSegment.list(directory);
+        if (sequences.length == 0) {
+            return 0;
+        }
+        int last = sequences[sequences.length - 1];
+        try {
+            TripSegment.open(directory, last, true).close();
+            return last + 1;
+        } catch (IOException e) {
+            // the header never made it to disk, so neither did any record
+            if (!TripSegment.fileOf(directory, last).delete()) {
+                throw e;
+            }
+            return last;
+        }
+    }
+
+    /**
+     * Records the last response of a command, i.e. from a
+     * {@link com.github.pires.obd.polling.PollingListener}, at the time it was
+     * received.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @return false if the response isn't "mode PID data" with at most 8 data
+     * bytes, i.e. AT commands, trouble codes or the VIN, or if closed.
+     * @throws java.io.IOException if a new segment can't be created.
+     */
+    public synchronized boolean record(ObdCommand command) throws IOException {
+        int length = command.getBufferLength() - 2;
+        if (length < 0 || length > TripSegment.MAX_PAYLOAD) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            payload[i] = command.getByte(i + 2);
+        }
+        long timestamp = command.getEnd() > 0 ? command.getEnd() : System.currentTimeMillis();
+        return record(timestamp, command.getByte(0) - 0x40, command.getByte(1), payload, 0, length);
+    }
+
+    /**
+     * Records a sample.
+     *
+     * @param timestamp in ms since the epoch.
+     * @param mode      the request mode, i.e. 0x01.
+     * @param pid       the PID, i.e. 0x0C.
+     * @param data      the payload, each entry a byte.
+     * @param offset    where the payload starts in data.
+     * @param length    the payload length, at most 8.
+     * @return false if the sample doesn't fit a record or if closed.
+     * @throws java.io.IOException if a new segment can't be created.
+     */
+    public synchronized boolean record(long timestamp, int mode, int pid, int[] data, int offset, int length)
+            throws IOException {
+        if (closed || mode < 0x01 || mode > 0x3F || pid < 0 || pid > 0xFF
+                || length < 0 || length > TripSegment.MAX_PAYLOAD) {
+            return false;
+        }
+        if (segment == null || segment.isFull() || timestamp < segment.getBaseTimestamp()
+                || timestamp - segment.getBaseTimestamp() > TripSegment.MAX_DELTA) {
+            roll(timestamp);
+        }
+        segment.append(timestamp - segment.getBaseTimestamp(), mode, pid, data, offset, length);
+        return true;
+    }
+
+    private void roll(long timestamp) throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+        segment = TripSegment.create(directory, nextSequence++, timestamp, capacity);
+    }
+
+    /**
+     * Writes recorded samples through to the disk. Not needed for samples to
+     * survive the app being killed, only the device losing power.
+     */
+    public synchronized void flush() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Flushes and closes the current segment, cut to its used size. Samples
+     * recorded afterwards are ignored.
+     *
+     * @throws java.io.IOException if any.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+}
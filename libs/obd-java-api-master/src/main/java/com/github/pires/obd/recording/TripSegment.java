@@ -0,0 +1,261 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.recording;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * One memory-mapped file of a trip log.
+ * <p>
+ * A 32 byte header (magic, version, record size, base timestamp, sequence
+ * number and capacity) is followed by fixed-width 16 byte records:
+ * <pre>
+ * 0  int   milliseconds since the base timestamp
+ * 4  byte  mode
+ * 5  byte  PID
+ * 6  byte  payload length, 0 to 8
+ * 7  byte  CRC-8 of the other 15 bytes
+ * 8  8     payload, zero padded
+ * </pre>
+ * The file is allocated zeroed at its full capacity and the checksum is
+ * written last, so after a crash the log ends at the first record that
+ * doesn't check out.
+ */
+final class TripSegment implements Closeable {
+
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 16;
+    static final int MAX_PAYLOAD = 8;
+    static final long MAX_DELTA = 0xFFFFFFFFL;
+
+    private static final int MAGIC = 0x4F424454; // "OBDT"
+    private static final short VERSION = 1;
+    private static final String PREFIX = "trip-";
+    private static final String SUFFIX = ".log";
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1) ^ 0x1D : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xFF;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int sequence;
+    private final long baseTimestamp;
+    private final int capacity;
+    private int count = 0;
+
+    private TripSegment(RandomAccessFile file, MappedByteBuffer buffer, int sequence, long baseTimestamp,
+                        int capacity) {
+        this.file = file;
+        this.buffer = buffer;
+        this.sequence = sequence;
+        this.baseTimestamp = baseTimestamp;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates an empty segment, replacing any file with the same sequence.
+     */
+    static TripSegment create(File directory, int sequence, long baseTimestamp, int capacity)
+            throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileOf(directory, sequence), "rw");
+        try {
+            long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+            file.setLength(0);
+            file.setLength(size);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC);
+            buffer.putShort(4, VERSION);
+            buffer.putShort(6, (short) RECORD_SIZE);
+            buffer.putLong(8, baseTimestamp);
+            buffer.putInt(16, sequence);
+            buffer.putInt(20, capacity);
+            return new TripSegment(file, buffer, sequence, baseTimestamp, capacity);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing segment and finds the end of its valid records.
+     *
+     * @throws IOException if the file isn't a complete segment header.
+     */
+    static TripSegment open(File directory, int sequence, boolean writable) throws IOException {
+        File path = fileOf(directory, sequence);
+        RandomAccessFile file = new RandomAccessFile(path, writable ? "rw" : "r");
+        try {
+            long size = file.length();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Truncated trip segment " + path);
+            }
+            MappedByteBuffer buffer = file.getChannel().map(
+                    writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION
+                    || buffer.getShort(6) != RECORD_SIZE || buffer.getInt(16) != sequence) {
+                throw new IOException("Not a trip segment " + path);
+            }
+            int capacity = (int) Math.min(buffer.getInt(20), (size - HEADER_SIZE) / RECORD_SIZE);
+            TripSegment segment = new TripSegment(file, buffer, sequence, buffer.getLong(8), capacity);
+            while (segment.count < capacity && segment.isValid(segment.count)) {
+                segment.count++;
+            }
+            return segment;
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    static File fileOf(File directory, int sequence) {
+        return new File(directory, String.format(Locale.US, PREFIX + "%08d" + SUFFIX, sequence));
+    }
+
+    /**
+     * @return the sequence numbers of the segments in the directory, ascending.
+     */
+    static int[] list(File directory) {
+        String[] names = directory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+        if (names == null) {
+            return new int[0];
+        }
+        int[] sequences = new int[names.length];
+        int length = 0;
+        for (String name : names) {
+            try {
+                int sequence = Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                sequences[length++] = sequence;
+            } catch (NumberFormatException e) {
+                // not a segment name
+            }
+        }
+        sequences = Arrays.copyOf(sequences, length);
+        Arrays.sort(sequences);
+        return sequences;
+    }
+
+    int getSequence() {
+        return sequence;
+    }
+
+    long getBaseTimestamp() {
+        return baseTimestamp;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    void append(long delta, int mode, int pid, int[] data, int offset, int length) {
+        int position = HEADER_SIZE + count * RECORD_SIZE;
+        buffer.putInt(position, (int) delta);
+        buffer.put(position + 4, (byte) mode);
+        buffer.put(position + 5, (byte) pid);
+        buffer.put(position + 6, (byte) length);
+        for (int i = 0; i < MAX_PAYLOAD; i++) {
+            buffer.put(position + 8 + i, i < length ? (byte) data[offset + i] : 0);
+        }
+        buffer.put(position + 7, (byte) checksum(position));
+        count++;
+    }
+
+    long getTimestamp(int record) {
+        return baseTimestamp + (buffer.getInt(HEADER_SIZE + record * RECORD_SIZE) & MAX_DELTA);
+    }
+
+    int getMode(int record) {
+        return buffer.get(HEADER_SIZE + record * RECORD_SIZE + 4) & 0xFF;
+    }
+
+    int getPid(int record) {
+        return buffer.get(HEADER_SIZE + record * RECORD_SIZE + 5) & 0xFF;
+    }
+
+    int getLength(int record) {
+        return buffer.get(HEADER_SIZE + record * RECORD_SIZE + 6) & 0xFF;
+    }
+
+    int getByte(int record, int index) {
+        return buffer.get(HEADER_SIZE + record * RECORD_SIZE + 8 + index) & 0xFF;
+    }
+
+    private boolean isValid(int record) {
+        int position = HEADER_SIZE + record * RECORD_SIZE;
+        return getMode(record) != 0 && getLength(record) <= MAX_PAYLOAD
+                && (buffer.get(position + 7) & 0xFF) == checksum(position);
+    }
+
+    private int checksum(int position) {
+        int crc = 0xFF;
+        for (int i = 0; i < RECORD_SIZE; i++) {
+            if (i != 7) {
+                crc = CRC_TABLE[(crc ^ buffer.get(position + i)) & 0xFF];
+            }
+        }
+        return crc;
+    }
+
+    /**
+     * Writes mapped changes through to the file.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Closes the file, cut after the last valid record if writable, which
+     * also drops a torn tail.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (buffer.isReadOnly()) {
+                return;
+            }
+            buffer.force();
+            try {
+                file.setLength(HEADER_SIZE + (long) count * RECORD_SIZE);
+            } catch (IOException e) {
+                // still mapped on some platforms, readers stop at the zeroed tail
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+}
@@ -0,0 +1,867 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.simulator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * An ELM327 adapter plugged into a simulated vehicle, running in process.
+ * <p>
+ * It answers the AT commands this library sends (E, L, S, H, SH, SP/TP, ST,
+ * AT, DP, DPN, PC, Z, WS, D, I, RV and IGN) and OBD modes 01, 03, 04, 07, 09
+ * and 0A from a {@link VehicleProfile}, formatted the way the adapter prints the
+ * vehicle's protocol: ISO-TP single and multi-frame responses on CAN, one
+ * line per message with header and checksum on J1850, ISO 9141-2 and KWP.
+ * Multi-PID mode 01 requests are answered on CAN, and a trailing response
+ * count digit or a bare carriage return behave like on the real adapter.
+ * <p>
+ * More modules, i.e. a transmission, can be added with
+ * {@link #addEcu(VehicleProfile)}. They all answer functional requests, in
+ * the order they were added; AT SH with a module's physical address makes
+ * only that one answer.
+ * <p>
+ * Clients connect through {@link #start()} and the streams of this object,
+ * or over loopback TCP like a Wi-Fi adapter with {@link #listen(int)}.
+ * <p>
+ * Every ECU response takes the latency plus a uniformly distributed jitter
+ * drawn from a seeded generator, so runs are repeatable. A response slower
+ * than the timeout set with AT ST becomes "NO DATA". Without a response
+ * count the adapter keeps listening for more ECUs after the answer: the whole
+ * timeout with AT AT0, twice the response time with AT AT1 and the response
+ * time again with AT AT2, which approximates the adapter's adaptive timing.
+ */
+public class Elm327Simulator {
+
+    /** Constant <code>VERSION="ELM327 v1.5"</code> */
+    public static final String VERSION = "ELM327 v1.5";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int DEFAULT_TIMEOUT = 0x32;
+    private static final int MILLIS_PER_TIMEOUT_UNIT = 4;
+    private static final int PIPE_CAPACITY = 4096;
+    private static final int MAX_MESSAGE_LENGTH = 0xFFF;
+    private static final String[] PROTOCOL_NAMES = {
+            "AUTO",
+            "SAE J1850 PWM",
+            "SAE J1850 VPW",
+            "ISO 9141-2",
+            "ISO 14230-4 (KWP 5BAUD)",
+            "ISO 14230-4 (KWP FAST)",
+            "ISO 15765-4 (CAN 11/500)",
+            "ISO 15765-4 (CAN 29/500)",
+            "ISO 15765-4 (CAN 11/250)",
+            "ISO 15765-4 (CAN 29/250)",
+            "SAE J1939 (CAN 29/250)",
+            "USER1 (CAN 11/125)",
+            "USER2 (CAN 11/50)"
+    };
+
+    private final VehicleProfile profile;
+    private final ArrayList<VehicleProfile> ecus = new ArrayList<>();
+    private final Random random = new Random(0);
+    private volatile long latency = 0;
+    private volatile int jitter = 0;
+    private volatile long requestCount = 0;
+
+    private boolean echo;
+    private boolean linefeeds;
+    private boolean spaces;
+    private boolean headers;
+    private int protocol;
+    private boolean automatic;
+    private boolean connected;
+    private int timeout;
+    private int adaptiveTiming;
+    /**
+     * The ECU requests are addressed to, -1 for all.
+     */
+    private int target;
+    /**
+     * The ECU whose answer is being formatted.
+     */
+    private int responder = 0;
+    private String lastRequest = null;
+    private final byte[] message = new byte[MAX_MESSAGE_LENGTH];
+    private final StringBuilder reply = new StringBuilder();
+    private int lineStart = 0;
+
+    private Pipe toAdapter = null;
+    private Pipe fromAdapter = null;
+    private ServerSocket server = null;
+    private final ArrayList<Thread> threads = new ArrayList<>();
+
+    /**
+     * <p>Constructor for Elm327Simulator.</p>
+     *
+     * @param profile the vehicle the adapter is plugged into.
+     */
+    public Elm327Simulator(VehicleProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("A vehicle profile is required");
+        }
+        this.profile = profile;
+        ecus.add(profile);
+        reset();
+    }
+
+    /**
+     * Plugs another module into the vehicle's bus. The n-th ECU, the vehicle
+     * profile being the first, answers from 7E8 + n on CAN 11 bit,
+     * 18 DA F1 (10 + 8n) on CAN 29 bit and source address 10 + 8n (11 + 8n
+     * on ISO 9141-2 and KWP) on older protocols.
+     *
+     * @param ecu what the module answers, on the vehicle's protocol.
+     */
+    public synchronized void addEcu(VehicleProfile ecu) {
+        if (ecu == null || ecu.getProtocol() != profile.getProtocol()) {
+            throw new IllegalArgumentException("The ECU must use the vehicle protocol " + profile.getProtocol());
+        }
+        ecus.add(ecu);
+    }
+
+    /**
+     * <p>Getter for the field <code>profile</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.simulator.VehicleProfile} object.
+     */
+    public VehicleProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * <p>Getter for the field <code>latency</code>.</p>
+     *
+     * @return the ECU response time in ms.
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Time an ECU takes to answer a request. By default this value is set
+     * to 0.
+     *
+     * @param latency in ms.
+     */
+    public void setLatency(long latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("Latency must not be negative: " + latency);
+        }
+        this.latency = latency;
+    }
+
+    /**
+     * <p>Getter for the field <code>jitter</code>.</p>
+     *
+     * @return the maximum random delay added to the latency, in ms.
+     */
+    public int getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Maximum random delay added to the latency of every response. By
+     * default this value is set to 0.
+     *
+     * @param jitter in ms.
+     */
+    public void setJitter(int jitter) {
+        if (jitter < 0) {
+            throw new IllegalArgumentException("Jitter must not be negative: " + jitter);
+        }
+        this.jitter = jitter;
+    }
+
+    /**
+     * Restarts the sequence of jitter delays.
+     *
+     * @param seed a long.
+     */
+    public synchronized void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * <p>Getter for the field <code>requestCount</code>.</p>
+     *
+     * @return the number of requests answered so far.
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Starts answering over in-memory streams, see {@link #getInputStream()}
+     * and {@link #getOutputStream()}.
+     */
+    public synchronized void start() {
+        if (toAdapter != null) {
+            throw new IllegalStateException("Already started");
+        }
+        final Pipe in = new Pipe(PIPE_CAPACITY);
+        final Pipe out = new Pipe(PIPE_CAPACITY);
+        toAdapter = in;
+        fromAdapter = out;
+        startThread("Elm327Simulator", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    serve(in.source(), out.sink());
+                } catch (IOException e) {
+                    // the client closed its end
+                } finally {
+                    out.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>getInputStream.</p>
+     *
+     * @return the stream to read adapter responses from, after {@link #start()}.
+     */
+    public synchronized InputStream getInputStream() {
+        if (fromAdapter == null) {
+            throw new IllegalStateException("Not started");
+        }
+        return fromAdapter.source();
+    }
+
+    /**
+     * <p>getOutputStream.</p>
+     *
+     * @return the stream to write requests to, after {@link #start()}.
+     */
+    public synchronized OutputStream getOutputStream() {
+        if (toAdapter == null) {
+            throw new IllegalStateException("Not started");
+        }
+        return toAdapter.sink();
+    }
+
+    /**
+     * Starts accepting TCP connections on the loopback interface, one at a
+     * time like a Wi-Fi adapter.
+     *
+     * @param port the port, i.e. 35000, or 0 for any free port.
+     * @return the port listened on.
+     * @throws java.io.IOException if the port can't be bound.
+     */
+    public synchronized int listen(int port) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Already listening on port " + server.getLocalPort());
+        }
+        final ServerSocket socket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        server = socket;
+        startThread("Elm327Simulator:" + socket.getLocalPort(), new Runnable() {
+            @Override
+            public void run() {
+                while (!socket.isClosed()) {
+                    try (Socket client = socket.accept()) {
+                        client.setTcpNoDelay(true);
+                        serve(client.getInputStream(), client.getOutputStream());
+                    } catch (IOException e) {
+                        // the client disconnected or the server was stopped
+                    }
+                }
+            }
+        });
+        return socket.getLocalPort();
+    }
+
+    private void startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Closes the streams and the server socket and stops answering.
+     */
+    public synchronized void stop() {
+        if (toAdapter != null) {
+            toAdapter.close();
+            fromAdapter.close();
+            toAdapter = null;
+            fromAdapter = null;
+        }
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+            server = null;
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        threads.clear();
+    }
+
+    /**
+     * Answers the requests read from a connection until it ends, i.e. when
+     * the client closes it.
+     *
+     * @param in  the requests from the client.
+     * @param out where responses go.
+     * @throws java.io.IOException if any.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        StringBuilder request = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                continue;
+            }
+            if (b != '\r') {
+                request.append((char) b);
+                continue;
+            }
+            String text;
+            try {
+                text = answer(request.toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            out.write(text.getBytes(ASCII));
+            out.flush();
+            request.setLength(0);
+        }
+    }
+
+    /**
+     * Answers one request like the adapter does on the wire: with the echo,
+     * if on, and up to the '>' prompt.
+     */
+    private synchronized String answer(String request) throws InterruptedException {
+        String eol = linefeeds ? "\r\n" : "\r";
+        String echoed = echo ? request + eol : "";
+        return echoed + respond(request) + eol + ">";
+    }
+
+    /**
+     * Answers one request, without echo and prompt, after the time the
+     * adapter and vehicle would take.
+     *
+     * @param request i.e. "01 0C" or "AT E0", or empty to repeat the last one.
+     * @return the response lines, each ending with a line break.
+     * @throws java.lang.InterruptedException if interrupted while waiting.
+     */
+    public synchronized String respond(String request) throws InterruptedException {
+        String command = normalize(request);
+        if (command.isEmpty()) {
+            if (lastRequest == null) {
+                return "";
+            }
+            command = lastRequest;
+        }
+        lastRequest = command;
+        requestCount++;
+        reply.setLength(0);
+        if (command.startsWith("AT")) {
+            line(at(command.substring(2)));
+        } else {
+            obd(command);
+        }
+        return reply.toString();
+    }
+
+    private static String normalize(String request) {
+        StringBuilder command = new StringBuilder(request.length());
+        for (int i = 0; i < request.length(); i++) {
+            char c = request.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                command.append(Character.toUpperCase(c));
+            }
+        }
+        return command.toString();
+    }
+
+    private void reset() {
+        echo = true;
+        linefeeds = true;
+        spaces = true;
+        headers = false;
+        protocol = 0;
+        automatic = true;
+        connected = false;
+        timeout = DEFAULT_TIMEOUT;
+        adaptiveTiming = 1;
+        target = -1;
+    }
+
+    private String at(String command) {
+        switch (command) {
+            case "Z":
+            case "WS":
+                reset();
+                return VERSION;
+            case "D":
+                reset();
+                return "OK";
+            case "I":
+                return VERSION;
+            case "@1":
+                return "OBDII to RS232 Interpreter";
+            case "E0":
+            case "E1":
+                echo = command.charAt(1) == '1';
+                return "OK";
+            case "L0":
+            case "L1":
+                linefeeds = command.charAt(1) == '1';
+                return "OK";
+            case "S0":
+            case "S1":
+                spaces = command.charAt(1) == '1';
+                return "OK";
+            case "H0":
+            case "H1":
+                headers = command.charAt(1) == '1';
+                return "OK";
+            case "AT0":
+            case "AT1":
+            case "AT2":
+                adaptiveTiming = command.charAt(2) - '0';
+                return "OK";
+            case "PC":
+                connected = false;
+                return "OK";
+            case "DP":
+                return (automatic && connected ? "AUTO, " : "") + PROTOCOL_NAMES[activeProtocol()];
+            case "DPN":
+                return (automatic ? "A" : "") + HEX[activeProtocol()];
+            case "RV":
+                return "12.6V";
+            case "IGN":
+                return "ON";
+            default:
+                break;
+        }
+        if (command.startsWith("SP") || command.startsWith("TP")) {
+            return selectProtocol(command.substring(2));
+        }
+        if (command.startsWith("SH")) {
+            return setHeader(command.substring(2));
+        }
+        if (command.startsWith("ST") && command.length() == 4) { // exactly two hex digits
+            int value = parseHex(command, 2, command.length());
+            if (value >= 0) {
+                timeout = value == 0 ? DEFAULT_TIMEOUT : value;
+                return "OK";
+            }
+        }
+        return "?";
+    }
+
+    /**
+     * Reads the physical address of an ECU from a request header, i.e.
+     * 7E1, 18 DA 18 F1 or 68 18 F1; any other header is functional.
+     */
+    private String setHeader(String argument) {
+        int length = argument.length();
+        if ((length != 3 && length != 6 && length != 8) || parseHex(argument, 0, length) < 0) {
+            return "?";
+        }
+        int address;
+        if (length == 3) {
+            address = parseHex(argument, 0, 3) - 0x7E0;
+        } else if (length == 8) {
+            address = argument.startsWith("18DA") ? (parseHex(argument, 4, 6) - 0x10) / 8 : -1;
+        } else {
+            address = (parseHex(argument, 2, 4) & ~1) - 0x10;
+            address = address % 8 == 0 ? address / 8 : -1;
+        }
+        target = address >= 0 && address < ecus.size() ? address : -1;
+        return "OK";
+    }
+
+    private String selectProtocol(String argument) {
+        boolean auto = argument.length() == 2 && argument.charAt(0) == 'A';
+        int value = parseHex(argument, auto ? 1 : 0, argument.length());
+        if (argument.length() != (auto ? 2 : 1) || value < 0 || value >= PROTOCOL_NAMES.length) {
+            return "?";
+        }
+        protocol = value;
+        automatic = auto || value == 0;
+        connected = false;
+        return "OK";
+    }
+
+    private int activeProtocol() {
+        return connected ? vehicleProtocol() : protocol;
+    }
+
+    private int vehicleProtocol() {
+        return profile.getProtocol().getValue() - '0';
+    }
+
+    private boolean isCan() {
+        return vehicleProtocol() >= 6;
+    }
+
+    private void obd(String command) throws InterruptedException {
+        int count = 0;
+        int end = command.length();
+        if (end % 2 == 1) {
+            count = parseHex(command, end - 1, end);
+            end--;
+        }
+        int[] request = new int[end / 2];
+        boolean valid = request.length > 0 && count >= 0;
+        for (int i = 0; i < request.length; i++) {
+            request[i] = parseHex(command, 2 * i, 2 * i + 2);
+            valid &= request[i] >= 0;
+        }
+        if (!valid) {
+            line("?");
+            return;
+        }
+        if (!connected) {
+            if (automatic) {
+                line("SEARCHING...");
+            } else if (protocol != vehicleProtocol()) {
+                sleep(timeoutMillis());
+                line("UNABLE TO CONNECT");
+                return;
+            }
+            connected = true;
+        }
+        long delay = latency + (jitter > 0 ? random.nextInt(jitter + 1) : 0);
+        if (delay > timeoutMillis() || !answerRequest(request, count)) {
+            sleep(timeoutMillis());
+            line("NO DATA");
+            return;
+        }
+        sleep(delay + (count > 0 ? 0 : listeningAfter(delay)));
+    }
+
+    private long timeoutMillis() {
+        return timeout * MILLIS_PER_TIMEOUT_UNIT;
+    }
+
+    private long listeningAfter(long delay) {
+        switch (adaptiveTiming) {
+            case 0:
+                return timeoutMillis();
+            case 1:
+                return Math.min(timeoutMillis(), 2 * delay);
+            default:
+                return Math.min(timeoutMillis(), delay);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    /**
+     * Formats the answers of the addressed ECUs to an OBD request, up to the
+     * response count if there is one.
+     *
+     * @return false if none answers it.
+     */
+    private boolean answerRequest(int[] request, int count) {
+        int responses = 0;
+        for (int i = 0; i < ecus.size() && (count == 0 || responses < count); i++) {
+            if (target < 0 || target == i) {
+                responder = i;
+                if (answerRequest(request, ecus.get(i))) {
+                    responses++;
+                }
+            }
+        }
+        return responses > 0;
+    }
+
+    /**
+     * Formats one ECU's answer to an OBD request.
+     *
+     * @return false if the ECU doesn't answer it.
+     */
+    private boolean answerRequest(int[] request, VehicleProfile profile) {
+        int mode = request[0];
+        switch (mode) {
+            case 0x01:
+                return answerCurrentData(request, profile);
+            case 0x03:
+            case 0x07:
+            case 0x0A:
+                if (request.length != 1) {
+                    return false;
+                }
+                answerTroubleCodes(mode, profile.getTroubleCodes(mode));
+                return true;
+            case 0x04:
+                if (request.length != 1) {
+                    return false;
+                }
+                profile.clearTroubleCodes();
+                message[0] = 0x44;
+                frame(message, 0, 1);
+                return true;
+            case 0x09:
+                return request.length == 2 && answerVehicleInformation(request[1], profile);
+            default:
+                return false;
+        }
+    }
+
+    private boolean answerCurrentData(int[] request, VehicleProfile profile) {
+        if (request.length < 2 || (request.length > 2 && !isCan())) {
+            return false;
+        }
+        int length = 1;
+        message[0] = 0x41;
+        for (int i = 1; i < request.length; i++) {
+            int end = profile.appendPid(request[i], message, length + 1);
+            if (end > 0) {
+                message[length] = (byte) request[i];
+                length = end;
+            }
+        }
+        if (length == 1) {
+            return false;
+        }
+        frame(message, 0, length);
+        return true;
+    }
+
+    private void answerTroubleCodes(int mode, int[] codes) {
+        byte service = (byte) (0x40 + mode);
+        if (isCan()) {
+            int length = 0;
+            message[length++] = service;
+            message[length++] = (byte) codes.length;
+            for (int code : codes) {
+                message[length++] = (byte) (code >> 8);
+                message[length++] = (byte) code;
+            }
+            frame(message, 0, length);
+            return;
+        }
+        // three codes per message, padded with zeros
+        int i = 0;
+        do {
+            message[0] = service;
+            for (int j = 0; j < 3; j++, i++) {
+                int code = i < codes.length ? codes[i] : 0;
+                message[1 + 2 * j] = (byte) (code >> 8);
+                message[2 + 2 * j] = (byte) code;
+            }
+            frame(message, 0, 7);
+        } while (i < codes.length);
+    }
+
+    private boolean answerVehicleInformation(int pid, VehicleProfile profile) {
+        String vin = profile.getVin();
+        if (vin == null || (pid != 0x00 && pid != 0x02)) {
+            return false;
+        }
+        message[0] = 0x49;
+        message[1] = (byte) pid;
+        if (pid == 0x00) {
+            message[2] = 0x40;
+            message[3] = 0;
+            message[4] = 0;
+            message[5] = 0;
+            frame(message, 0, 6);
+        } else if (isCan()) {
+            message[2] = 1;
+            for (int i = 0; i < vin.length(); i++) {
+                message[3 + i] = (byte) vin.charAt(i);
+            }
+            frame(message, 0, 3 + vin.length());
+        } else {
+            // five numbered messages of four bytes, the VIN padded to 20
+            for (int n = 1; n <= 5; n++) {
+                message[2] = (byte) n;
+                for (int i = 0; i < 4; i++) {
+                    int index = 4 * (n - 1) + i - 3;
+                    message[3 + i] = index < 0 ? 0 : (byte) vin.charAt(index);
+                }
+                frame(message, 0, 7);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prints one message the way the adapter shows the vehicle's protocol.
+     */
+    private void frame(byte[] data, int offset, int length) {
+        if (!isCan()) {
+            beginLine();
+            if (headers) {
+                int[] header = legacyHeader(length);
+                for (int b : header) {
+                    hexByte(b);
+                }
+                hexBytes(data, offset, length);
+                hexByte(checksum(header, data, offset, length));
+            } else {
+                hexBytes(data, offset, length);
+            }
+            endLine();
+        } else if (length <= 7) {
+            beginLine();
+            if (headers) {
+                canHeader();
+                hexByte(length);
+            }
+            hexBytes(data, offset, length);
+            endLine();
+        } else {
+            if (!headers) {
+                beginLine();
+                reply.append(HEX[(length >> 8) & 0xF]).append(HEX[(length >> 4) & 0xF]).append(HEX[length & 0xF]);
+                endLine();
+            }
+            int sent = 0;
+            for (int index = 0; sent < length; index++) {
+                beginLine();
+                int size = index == 0 ? 6 : 7;
+                if (headers) {
+                    canHeader();
+                    if (index == 0) {
+                        hexByte(0x10 | (length >> 8));
+                        hexByte(length & 0xFF);
+                    } else {
+                        hexByte(0x20 | (index & 0xF));
+                    }
+                } else {
+                    token(HEX[index & 0xF] + ":");
+                }
+                int chunk = Math.min(size, length - sent);
+                hexBytes(data, offset + sent, chunk);
+                for (int i = chunk; i < size; i++) {
+                    hexByte(0);
+                }
+                sent += chunk;
+                endLine();
+            }
+        }
+    }
+
+    private void canHeader() {
+        int protocol = vehicleProtocol();
+        if (protocol == 7 || protocol == 9) {
+            hexByte(0x18);
+            hexByte(0xDA);
+            hexByte(0xF1);
+            hexByte(0x10 + 8 * responder);
+        } else {
+            token(Integer.toHexString(0x7E8 + responder).toUpperCase());
+        }
+    }
+
+    private int[] legacyHeader(int length) {
+        switch (vehicleProtocol()) {
+            case 1:
+                return new int[]{0x41, 0x6B, 0x10 + 8 * responder};
+            case 2:
+                return new int[]{0x48, 0x6B, 0x10 + 8 * responder};
+            case 3:
+                return new int[]{0x48, 0x6B, 0x11 + 8 * responder};
+            default:
+                return new int[]{0x80 | length, 0xF1, 0x11 + 8 * responder};
+        }
+    }
+
+    /**
+     * CRC-8 (SAE J1850) on J1850 buses, the sum of the bytes on ISO 9141-2
+     * and KWP.
+     */
+    private int checksum(int[] header, byte[] data, int offset, int length) {
+        boolean crc = vehicleProtocol() <= 2;
+        int check = crc ? 0xFF : 0;
+        for (int i = 0; i < header.length + length; i++) {
+            int b = i < header.length ? header[i] : data[offset + i - header.length] & 0xFF;
+            if (!crc) {
+                check += b;
+                continue;
+            }
+            check ^= b;
+            for (int bit = 0; bit < 8; bit++) {
+                check = (check & 0x80) != 0 ? (check << 1) ^ 0x1D : check << 1;
+            }
+            check &= 0xFF;
+        }
+        return crc ? check ^ 0xFF : check & 0xFF;
+    }
+
+    private void line(String text) {
+        beginLine();
+        reply.append(text);
+        endLine();
+    }
+
+    private void beginLine() {
+        lineStart = reply.length();
+    }
+
+    private void endLine() {
+        reply.append(linefeeds ? "\r\n" : "\r");
+    }
+
+    private void token(String text) {
+        if (spaces && reply.length() > lineStart) {
+            reply.append(' ');
+        }
+        reply.append(text);
+    }
+
+    private void hexByte(int b) {
+        if (spaces && reply.length() > lineStart) {
+            reply.append(' ');
+        }
+        reply.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    private void hexBytes(byte[] data, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            hexByte(data[offset + i]);
+        }
+    }
+
+    private static int parseHex(String text, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,33 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.telemetry;
+
+/**
+ * What a {@link Subscription} does with a sample when its subscriber is
+ * behind. The polling thread never waits for a subscriber either way.
+ *
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Every sample is queued; once the queue is full the oldest one is
+     * dropped. For loggers that want every sample as long as they keep up.
+     */
+    DROP_OLDEST,
+    /**
+     * A new sample replaces the one of the same command still queued, so the
+     * subscriber only sees the latest value of each. For displays.
+     */
+    CONFLATE
+
+}
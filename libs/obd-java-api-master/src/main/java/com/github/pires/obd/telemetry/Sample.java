@@ -0,0 +1,68 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.telemetry;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.enums.ResultUnit;
+
+/**
+ * One value of a command, as delivered by a {@link Subscription}.
+ * <p>
+ * Samples are holders filled by {@link Subscription#poll(Sample)}, so a
+ * subscriber can reuse one and receive without allocating.
+ */
+public class Sample {
+
+    ObdCommand command;
+    long timestamp;
+    double value;
+    ResultUnit unit;
+
+    /**
+     * <p>Getter for the field <code>command</code>.</p>
+     *
+     * @return the command the value is from. It keeps being polled, so its
+     * own result may already be newer.
+     */
+    public ObdCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * <p>Getter for the field <code>timestamp</code>.</p>
+     *
+     * @return when the response was read, in ms since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * <p>Getter for the field <code>value</code>.</p>
+     *
+     * @return the value, see {@link ObdCommand#value()}.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * <p>Getter for the field <code>unit</code>.</p>
+     *
+     * @return the unit of the value.
+     */
+    public ResultUnit getUnit() {
+        return unit;
+    }
+
+}
@@ -0,0 +1,29 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.telemetry;
+
+/**
+ * Receives the samples drained from a {@link Subscription}, on the thread
+ * calling {@link Subscription#drain(SampleListener)}.
+ *
+ */
+public interface SampleListener {
+
+    /**
+     * Called for every sample, oldest first.
+     *
+     * @param sample the sample, only valid during the call.
+     */
+    void onSample(Sample sample);
+
+}
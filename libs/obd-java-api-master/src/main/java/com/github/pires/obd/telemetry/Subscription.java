@@ -0,0 +1,351 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.telemetry;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.enums.ResultUnit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The commands one subscriber of a {@link TelemetryBus} wants, and the queue
+ * of their samples.
+ * <p>
+ * Each command has the subscriber's own rate: samples polled faster for
+ * another subscriber are skipped, so a 1Hz logger doesn't get the 10Hz of a
+ * gauge. The queue holds a fixed number of samples in preallocated arrays and
+ * is filled without ever waiting for the subscriber; what happens when it is
+ * full is up to the {@link OverflowPolicy}.
+ * <p>
+ * Samples are received with {@link #poll(Sample)},
+ * {@link #take(Sample, long)} or {@link #drain(SampleListener)}, from any
+ * thread.
+ */
+public class Subscription {
+
+    private final TelemetryBus bus;
+    private final OverflowPolicy policy;
+    private final ArrayList<ObdCommand> commands = new ArrayList<>();
+    private double[] rates = new double[4];
+    private long[] intervals = new long[4];
+    private long[] due = new long[4];
+    /**
+     * Where each command's sample is queued, -1 if none is (CONFLATE only).
+     */
+    private int[] queuedAt = new int[4];
+    /**
+     * How many queued samples are of each channel. A channel unsubscribed
+     * from is only reused once none is left.
+     */
+    private int[] pending = new int[4];
+    /**
+     * The holder {@link #drain(SampleListener)} fills, also its lock.
+     */
+    private final Sample drained = new Sample();
+
+    private final int[] slotChannels;
+    private final long[] slotTimestamps;
+    private final double[] slotValues;
+    private final ResultUnit[] slotUnits;
+    private int head = 0;
+    private int size = 0;
+    private long dropped = 0;
+    private boolean closed = false;
+
+    /**
+     * <p>Constructor for Subscription.</p>
+     *
+     * @param bus      the bus delivering the samples.
+     * @param capacity the number of samples the queue holds.
+     * @param policy   what to do when it is full.
+     */
+    Subscription(TelemetryBus bus, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.bus = bus;
+        this.policy = policy;
+        this.slotChannels = new int[capacity];
+        this.slotTimestamps = new long[capacity];
+        this.slotValues = new double[capacity];
+        this.slotUnits = new ResultUnit[capacity];
+    }
+
+    /**
+     * Subscribes to a command, polled by the bus at the highest rate any
+     * subscriber asked for. Subscribing again changes the rate.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     * @param rate    samples per second wanted, i.e. 0.2 for every 5s.
+     * @return false if the vehicle doesn't support the command, which is
+     * then not subscribed.
+     */
+    public boolean add(ObdCommand command, double rate) {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("Rate must be positive: " + rate);
+        }
+        synchronized (this) {
+            int channel = channelOf(command);
+            if (channel < 0) {
+                channel = freeChannel();
+                if (channel < 0) {
+                    channel = commands.size();
+                    commands.add(null);
+                    grow(channel + 1);
+                }
+                commands.set(channel, command);
+                queuedAt[channel] = -1;
+                due[channel] = 0;
+            }
+            rates[channel] = rate;
+            intervals[channel] = (long) (1000 / rate);
+        }
+        if (!bus.schedule(command)) {
+            remove(command);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unsubscribes from a command. Its samples still queued are discarded.
+     *
+     * @param command a {@link com.github.pires.obd.commands.ObdCommand} object.
+     */
+    public void remove(ObdCommand command) {
+        synchronized (this) {
+            int channel = channelOf(command);
+            if (channel < 0) {
+                return;
+            }
+            // keep the channel numbers of the queued samples valid
+            commands.set(channel, null);
+            rates[channel] = 0;
+        }
+        bus.schedule(command);
+    }
+
+    /**
+     * Unsubscribes from everything and discards the queued samples. A
+     * {@link #take(Sample, long)} waiting returns right away.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (; size > 0; size--) {
+                release(head);
+                head = (head + 1) % slotChannels.length;
+            }
+            notifyAll();
+        }
+        bus.unsubscribe(this);
+    }
+
+    private int freeChannel() {
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i) == null && pending[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void grow(int channels) {
+        if (channels <= rates.length) {
+            return;
+        }
+        int length = Math.max(channels, rates.length * 2);
+        rates = Arrays.copyOf(rates, length);
+        intervals = Arrays.copyOf(intervals, length);
+        due = Arrays.copyOf(due, length);
+        queuedAt = Arrays.copyOf(queuedAt, length);
+        pending = Arrays.copyOf(pending, length);
+    }
+
+    /**
+     * @return the commands subscribed to.
+     */
+    synchronized ArrayList<ObdCommand> getCommands() {
+        ArrayList<ObdCommand> subscribed = new ArrayList<>();
+        for (ObdCommand command : commands) {
+            if (command != null) {
+                subscribed.add(command);
+            }
+        }
+        return subscribed;
+    }
+
+    /**
+     * @return the number of channels, including those unsubscribed from.
+     */
+    synchronized int getChannelCount() {
+        return commands.size();
+    }
+
+    /**
+     * @return the rate this subscriber wants the command at, 0 if none.
+     */
+    synchronized double rateOf(ObdCommand command) {
+        int channel = channelOf(command);
+        return channel < 0 || closed ? 0 : rates[channel];
+    }
+
+    /**
+     * Queues a sample if this subscriber wants it, on the polling thread.
+     */
+    synchronized void offer(ObdCommand command, long timestamp, double value, ResultUnit unit) {
+        int channel = channelOf(command);
+        if (channel < 0 || closed || timestamp < due[channel]) {
+            return;
+        }
+        long interval = intervals[channel];
+        // keep the cadence through jitter, but don't catch up after a gap
+        due[channel] = timestamp - due[channel] >= interval ? timestamp + interval : due[channel] + interval;
+
+        int slot = queuedAt[channel];
+        if (slot < 0) {
+            if (size == slotChannels.length) {
+                release(head);
+                head = (head + 1) % slotChannels.length;
+                size--;
+                dropped++;
+            }
+            slot = (head + size) % slotChannels.length;
+            size++;
+            slotChannels[slot] = channel;
+            pending[channel]++;
+            if (policy == OverflowPolicy.CONFLATE) {
+                queuedAt[channel] = slot;
+            }
+        } else {
+            dropped++; // replaced
+        }
+        slotTimestamps[slot] = timestamp;
+        slotValues[slot] = value;
+        slotUnits[slot] = unit;
+        notifyAll();
+    }
+
+    private int channelOf(ObdCommand command) {
+        for (int i = 0; i < commands.size(); i++) {
+            if (commands.get(i) == command) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void release(int slot) {
+        int channel = slotChannels[slot];
+        if (queuedAt[channel] == slot) {
+            queuedAt[channel] = -1;
+        }
+        pending[channel]--;
+        slotUnits[slot] = null;
+    }
+
+    /**
+     * Takes the oldest sample, if any.
+     *
+     * @param sample filled with the sample.
+     * @return false if the queue was empty.
+     */
+    public synchronized boolean poll(Sample sample) {
+        while (size > 0) {
+            int slot = head;
+            head = (head + 1) % slotChannels.length;
+            size--;
+            ObdCommand command = commands.get(slotChannels[slot]);
+            if (command == null) { // unsubscribed since
+                release(slot);
+                continue;
+            }
+            sample.command = command;
+            sample.timestamp = slotTimestamps[slot];
+            sample.value = slotValues[slot];
+            sample.unit = slotUnits[slot];
+            release(slot);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes the oldest sample, waiting for one if the queue is empty.
+     *
+     * @param sample  filled with the sample.
+     * @param timeout the longest to wait, in ms.
+     * @return false if none came in time.
+     * @throws java.lang.InterruptedException if interrupted while waiting.
+     */
+    public synchronized boolean take(Sample sample, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (!poll(sample)) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0 || closed) {
+                return false;
+            }
+            wait(left);
+        }
+        return true;
+    }
+
+    /**
+     * Hands every queued sample to a listener, i.e. on each frame of a UI.
+     * The queue isn't locked during the callbacks. The sample passed is
+     * reused for the next one, and by the next call.
+     *
+     * @param listener a {@link com.github.pires.obd.telemetry.SampleListener} object.
+     * @return the number of samples delivered.
+     */
+    public int drain(SampleListener listener) {
+        synchronized (drained) {
+            int count = 0;
+            while (poll(drained)) {
+                listener.onSample(drained);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * <p>size.</p>
+     *
+     * @return the number of samples queued.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * <p>Getter for the field <code>dropped</code>.</p>
+     *
+     * @return the number of samples dropped or replaced because the
+     * subscriber was behind.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * <p>Getter for the field <code>policy</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.telemetry.OverflowPolicy} object.
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+}
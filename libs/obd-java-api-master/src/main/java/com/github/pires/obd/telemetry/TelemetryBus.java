@@ -0,0 +1,135 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.telemetry;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.polling.PidScheduler;
+import com.github.pires.obd.polling.PollingListener;
+
+import java.util.Arrays;
+
+/**
+ * Publishes the results of an {@link com.github.pires.obd.polling.ObdPoller}
+ * to any number of subscribers.
+ * <p>
+ * Set the bus as (or compose it into) the poller's listener. Each subscriber
+ * gets a {@link Subscription} with its own bounded queue, and the bus keeps
+ * every wanted command scheduled at the highest rate asked for. Publishing
+ * copies the value into the queues without waiting for anyone, so a slow UI
+ * or logger never stalls the adapter, and loses samples instead of memory.
+ * <pre>
+ * TelemetryBus bus = new TelemetryBus(scheduler);
+ * Subscription gauges = bus.subscribe(16, OverflowPolicy.CONFLATE);
+ * gauges.add(new RPMCommand(), 10);
+ * new ObdPoller(session, scheduler, bus).start();
+ * ...
+ * gauges.drain(listener); // on each UI frame
+ * </pre>
+ */
+public class TelemetryBus implements PollingListener {
+
+    private final PidScheduler scheduler;
+    /**
+     * Replaced on every change, so publishing doesn't lock the bus.
+     */
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    /**
+     * <p>Constructor for TelemetryBus.</p>
+     *
+     * @param scheduler the scheduler of the poller the bus listens to.
+     */
+    public TelemetryBus(PidScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Adds a subscriber.
+     *
+     * @param capacity the number of samples its queue holds.
+     * @param policy   what to do when the queue is full.
+     * @return a {@link com.github.pires.obd.telemetry.Subscription} object.
+     */
+    public synchronized Subscription subscribe(int capacity, OverflowPolicy policy) {
+        Subscription subscription = new Subscription(this, capacity, policy);
+        Subscription[] current = subscriptions;
+        Subscription[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = subscription;
+        subscriptions = next;
+        return subscription;
+    }
+
+    synchronized void unsubscribe(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] next = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+                subscriptions = next;
+                break;
+            }
+        }
+        // reschedule what it was subscribed to
+        for (ObdCommand command : subscription.getCommands()) {
+            schedule(command);
+        }
+    }
+
+    /**
+     * Schedules a command at the highest rate its subscribers want, or stops
+     * polling it if there's none left.
+     *
+     * @return false if the vehicle doesn't support the command.
+     */
+    synchronized boolean schedule(ObdCommand command) {
+        double rate = 0;
+        for (Subscription subscription : subscriptions) {
+            rate = Math.max(rate, subscription.rateOf(command));
+        }
+        if (rate > 0) {
+            return scheduler.add(command, rate);
+        }
+        scheduler.remove(command);
+        return true;
+    }
+
+    /**
+     * <p>getSubscriberCount.</p>
+     *
+     * @return the number of subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onResult(ObdCommand command) {
+        long timestamp = command.getEnd();
+        double value = command.value();
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(command, timestamp, value, command.unit());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Errors aren't published, compose another listener to report them.
+     */
+    @Override
+    public void onError(ObdCommand command, Exception e) {
+    }
+
+}
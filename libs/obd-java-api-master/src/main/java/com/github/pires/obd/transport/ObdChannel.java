@@ -0,0 +1,384 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.transport;
+
+import com.github.pires.obd.exceptions.AdapterTimeoutException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A connection to an adapter that never blocks longer than a deadline.
+ * <p>
+ * Reading a response from a plain stream waits forever if the adapter goes
+ * away mid-response, and takes a system call per byte. This channel reads
+ * whatever has arrived in one go into a direct buffer and serves the
+ * command's byte by byte parsing from there. Every request written starts a
+ * deadline for its response: if the '>' prompt hasn't arrived when it
+ * passes, reading throws {@link AdapterTimeoutException} instead of
+ * blocking, and input arriving late is dropped before the next request.
+ * Interrupting the reading thread ends the wait too.
+ * <p>
+ * Commands and sessions use {@link #getInputStream()} and
+ * {@link #getOutputStream()} as they would the socket streams. Adapters on
+ * Wi-Fi are opened with {@link #open(SocketAddress)}; streams that can't be
+ * selected on, such as a BluetoothSocket's, go through
+ * {@link #forStreams(InputStream, OutputStream)}.
+ */
+public class ObdChannel implements Closeable {
+
+    /** Constant <code>DEFAULT_TIMEOUT=10000</code>, in milliseconds. */
+    public static final long DEFAULT_TIMEOUT = 10000;
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private final ReadableByteChannel source;
+    private final WritableByteChannel sink;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final Closeable resource;
+    private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private volatile long timeout = DEFAULT_TIMEOUT;
+    private long deadline = 0;
+    private boolean stale = false;
+
+    private final InputStream in = new InputStream() {
+        @Override
+        public int read() throws IOException {
+            if (!input.hasRemaining() && !fill()) {
+                return -1;
+            }
+            return input.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!input.hasRemaining() && !fill()) {
+                return -1;
+            }
+            int count = Math.min(len, input.remaining());
+            input.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return input.remaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            ObdChannel.this.close();
+        }
+    };
+
+    private final OutputStream out = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            send(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public void close() throws IOException {
+            ObdChannel.this.close();
+        }
+    };
+
+    private ObdChannel(SelectableChannel source, WritableByteChannel sink, Closeable resource) throws IOException {
+        this.source = (ReadableByteChannel) source;
+        this.sink = sink;
+        this.resource = resource;
+        this.selector = Selector.open();
+        source.configureBlocking(false);
+        this.key = source.register(selector, SelectionKey.OP_READ);
+        input.flip();
+    }
+
+    /**
+     * Takes over a selectable channel, i.e. a {@link SocketChannel}, and
+     * switches it to non-blocking mode.
+     *
+     * @param channel the adapter connection, closed with this channel.
+     * @param <C>     a channel that can be both selected on and read.
+     * @return a {@link com.github.pires.obd.transport.ObdChannel} object.
+     * @throws java.io.IOException if any.
+     */
+    public static <C extends SelectableChannel & ByteChannel> ObdChannel open(C channel) throws IOException {
+        return new ObdChannel(channel, channel, channel);
+    }
+
+    /**
+     * Connects to an adapter on the network, i.e. 192.168.0.10:35000 for
+     * most Wi-Fi ELM327 clones.
+     *
+     * @param address a {@link java.net.SocketAddress} object.
+     * @return a {@link com.github.pires.obd.transport.ObdChannel} object.
+     * @throws java.io.IOException if any.
+     */
+    public static ObdChannel open(SocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        return open(channel);
+    }
+
+    /**
+     * Wraps blocking streams, i.e. of a BluetoothSocket. A daemon thread
+     * moves whatever the input stream returns into a pipe this channel
+     * selects on, so reads still time out when the stream blocks.
+     *
+     * @param in  the adapter {@link java.io.InputStream}, closed with this channel.
+     * @param out the adapter {@link java.io.OutputStream}, closed with this channel.
+     * @return a {@link com.github.pires.obd.transport.ObdChannel} object.
+     * @throws java.io.IOException if any.
+     */
+    public static ObdChannel forStreams(final InputStream in, final OutputStream out) throws IOException {
+        final Pipe pipe = Pipe.open();
+        Thread pump = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] bytes = new byte[BUFFER_SIZE];
+                try {
+                    int count;
+                    while ((count = in.read(bytes)) >= 0) {
+                        ByteBuffer chunk = ByteBuffer.wrap(bytes, 0, count);
+                        while (chunk.hasRemaining()) {
+                            pipe.sink().write(chunk);
+                        }
+                    }
+                } catch (IOException e) {
+                    // the stream or the channel was closed
+                } finally {
+                    try {
+                        pipe.sink().close();
+                    } catch (IOException e) {
+                        // nothing left to do
+                    }
+                }
+            }
+        }, "ObdChannel pump");
+        pump.setDaemon(true);
+        pump.start();
+        return new ObdChannel(pipe.source(), new StreamChannel(out), new Closeable() {
+            @Override
+            public void close() throws IOException {
+                try {
+                    in.close();
+                } finally {
+                    try {
+                        out.close();
+                    } finally {
+                        pipe.source().close();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads what has arrived, waiting until the deadline if nothing has.
+     *
+     * @return false at the end of the stream.
+     */
+    private boolean fill() throws IOException {
+        if (deadline == 0) {
+            deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        }
+        input.clear();
+        try {
+            while (true) {
+                int count = source.read(input);
+                if (count < 0) {
+                    return false;
+                }
+                if (count > 0) {
+                    if (indexOfPrompt(input, input.position() - count, input.position()) >= 0) {
+                        deadline = 0;
+                    }
+                    return true;
+                }
+                await(SelectionKey.OP_READ);
+            }
+        } finally {
+            input.flip();
+        }
+    }
+
+    private void send(ByteBuffer request) throws IOException {
+        if (stale) {
+            discard();
+        }
+        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (request.hasRemaining()) {
+            if (sink.write(request) == 0) {
+                await(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Waits until the channel is ready for the operation, or throws when the
+     * deadline passed.
+     */
+    private void await(int operation) throws IOException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            stale = true;
+            deadline = 0;
+            throw new AdapterTimeoutException(timeout);
+        }
+        key.interestOps(operation);
+        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+        selector.selectedKeys().clear();
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted waiting for the adapter");
+        }
+    }
+
+    /**
+     * Drops what is left of responses that timed out.
+     */
+    private void discard() throws IOException {
+        input.clear();
+        while (source.read(input) > 0) {
+            input.clear();
+        }
+        input.flip();
+        stale = false;
+    }
+
+    /**
+     * Finds the '>' prompt in the bytes just read.
+     *
+     * @return its index, -1 if not found.
+     */
+    static int indexOfPrompt(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '>') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * <p>Getter for the field <code>in</code>.</p>
+     *
+     * @return a {@link java.io.InputStream} object.
+     */
+    public InputStream getInputStream() {
+        return in;
+    }
+
+    /**
+     * <p>Getter for the field <code>out</code>.</p>
+     *
+     * @return a {@link java.io.OutputStream} object.
+     */
+    public OutputStream getOutputStream() {
+        return out;
+    }
+
+    /**
+     * <p>Getter for the field <code>timeout</code>.</p>
+     *
+     * @return the time a response may take, in milliseconds.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Time a response may take, counted from its request. It should be well
+     * above the adapter's own timeout (AT ST) and cover protocol searches,
+     * which take seconds. By default this value is set to 10 seconds.
+     *
+     * @param timeout in milliseconds.
+     */
+    public void setTimeout(long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        this.timeout = timeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        try {
+            selector.close();
+        } finally {
+            resource.close();
+        }
+    }
+
+    /**
+     * Writes to a blocking stream.
+     */
+    private static final class StreamChannel implements WritableByteChannel {
+
+        private final OutputStream out;
+        private boolean open = true;
+
+        StreamChannel(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int count = src.remaining();
+            if (src.hasArray()) {
+                out.write(src.array(), src.arrayOffset() + src.position(), count);
+                src.position(src.limit());
+            } else {
+                byte[] bytes = new byte[count];
+                src.get(bytes);
+                out.write(bytes);
+            }
+            out.flush();
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.trip;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.MassAirFlowCommand;
+import com.github.pires.obd.commands.fuel.AirFuelRatioCommand;
+import com.github.pires.obd.commands.fuel.ConsumptionRateCommand;
+import com.github.pires.obd.commands.fuel.FindFuelTypeCommand;
+import com.github.pires.obd.commands.fuel.WidebandAirFuelRatioCommand;
+import com.github.pires.obd.enums.FuelType;
+import com.github.pires.obd.enums.ResultUnit;
+import com.github.pires.obd.polling.PollingListener;
+import com.github.pires.obd.telemetry.Sample;
+import com.github.pires.obd.telemetry.SampleListener;
+
+/**
+ * Distance, fuel used and fuel economy of a trip, updated on every sample.
+ * <p>
+ * Poll {@link SpeedCommand} and either {@link ConsumptionRateCommand} (PID
+ * 5E) or {@link MassAirFlowCommand}. The fuel rate is read from PID 5E as
+ * soon as the vehicle answers it; otherwise it's derived from the air flow:
+ * the fuel burnt is the air mass over the air-fuel ratio, the
+ * stoichiometric ratio of the {@link FuelType} times the equivalence ratio
+ * given by {@link AirFuelRatioCommand} or {@link WidebandAirFuelRatioCommand}
+ * if polled, 1 otherwise. The fuel type is gasoline until set or read with
+ * {@link FindFuelTypeCommand}.
+ * <p>
+ * Speed and fuel rate are integrated over time, trapezoid by trapezoid, so
+ * each sample costs the same whatever the length of the trip. Gaps longer
+ * than {@link #MAX_GAP} ms, i.e. while the adapter was disconnected, aren't
+ * integrated.
+ * <p>
+ * The computer can be the {@link com.github.pires.obd.polling.ObdPoller}'s
+ * listener, or drain a {@link com.github.pires.obd.telemetry.Subscription}.
+ */
+public class TripComputer implements PollingListener, SampleListener {
+
+    /** Constant <code>MAX_GAP=5000</code>, in ms. */
+    public static final long MAX_GAP = 5000;
+
+    private static final double MILLIS_PER_HOUR = 3600000;
+    private static final double KILOMETERS_PER_MILE = 1.609344;
+    private static final double STOICHIOMETRIC_GASOLINE = 14.7;
+    /**
+     * Below this speed, in km/h, the instant consumption isn't defined.
+     */
+    private static final double MIN_SPEED = 1;
+
+    private FuelType fuelType = FuelType.GASOLINE;
+    private double lambda = 1;
+    private boolean rateSupported = false;
+
+    private double speed = Double.NaN;
+    private long speedAt;
+    private double fuelRate = Double.NaN;
+    private long fuelRateAt;
+
+    private double distance = 0;
+    private double fuel = 0;
+    private long duration = 0;
+
+    /**
+     * Takes one value into account.
+     *
+     * @param command   the command it's from; others than those above are
+     *                  ignored.
+     * @param timestamp when it was read, in ms since the epoch.
+     * @param value     the value, in the unit given.
+     * @param unit      a {@link com.github.pires.obd.enums.ResultUnit} object.
+     */
+    public synchronized void update(ObdCommand command, long timestamp, double value, ResultUnit unit) {
+        if (command instanceof FindFuelTypeCommand) {
+            FuelType type = ((FindFuelTypeCommand) command).getFuelType();
+            if (type != null) {
+                fuelType = type;
+            }
+        } else if (Double.isNaN(value)) {
+            return;
+        } else if (command instanceof SpeedCommand) {
+            double kilometersPerHour = unit == ResultUnit.MILES_PER_HOUR ? value * KILOMETERS_PER_MILE : value;
+            long elapsed = timestamp - speedAt;
+            if (!Double.isNaN(speed) && elapsed > 0 && elapsed <= MAX_GAP) {
+                distance += (speed + kilometersPerHour) / 2 * elapsed / MILLIS_PER_HOUR;
+                duration += elapsed;
+            }
+            speed = kilometersPerHour;
+            speedAt = timestamp;
+        } else if (command instanceof ConsumptionRateCommand) {
+            rateSupported = true;
+            integrateFuel(timestamp, value);
+        } else if (command instanceof MassAirFlowCommand) {
+            if (!rateSupported) {
+                // g/s of air to L/h of fuel
+                double ratio = fuelType.getStoichiometricRatio() * lambda;
+                integrateFuel(timestamp, value * 3600 / ratio / fuelType.getDensity());
+            }
+        } else if (command instanceof AirFuelRatioCommand || command instanceof WidebandAirFuelRatioCommand) {
+            // decoded for gasoline
+            if (value > 0) {
+                lambda = value / STOICHIOMETRIC_GASOLINE;
+            }
+        }
+    }
+
+    private void integrateFuel(long timestamp, double litersPerHour) {
+        if (Double.isNaN(litersPerHour)) {
+            return;
+        }
+        long elapsed = timestamp - fuelRateAt;
+        if (!Double.isNaN(fuelRate) && elapsed > 0 && elapsed <= MAX_GAP) {
+            fuel += (fuelRate + litersPerHour) / 2 * elapsed / MILLIS_PER_HOUR;
+        }
+        fuelRate = litersPerHour;
+        fuelRateAt = timestamp;
+    }
+
+    /**
+     * Starts a new trip. The fuel type and equivalence ratio are kept.
+     */
+    public synchronized void reset() {
+        speed = Double.NaN;
+        fuelRate = Double.NaN;
+        distance = 0;
+        fuel = 0;
+        duration = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onSample(Sample sample) {
+        update(sample.getCommand(), sample.getTimestamp(), sample.getValue(), sample.getUnit());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onResult(ObdCommand command) {
+        update(command, command.getEnd(), command.value(), command.unit());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onError(ObdCommand command, Exception e) {
+    }
+
+    /**
+     * <p>Setter for the field <code>fuelType</code>.</p>
+     *
+     * @param fuelType the fuel burnt, when the vehicle doesn't support PID 51.
+     */
+    public synchronized void setFuelType(FuelType fuelType) {
+        this.fuelType = fuelType;
+    }
+
+    /**
+     * <p>Getter for the field <code>fuelType</code>.</p>
+     *
+     * @return a {@link com.github.pires.obd.enums.FuelType} object.
+     */
+    public synchronized FuelType getFuelType() {
+        return fuelType;
+    }
+
+    /**
+     * <p>getDistance.</p>
+     *
+     * @return the distance driven, in km.
+     */
+    public synchronized double getDistance() {
+        return distance;
+    }
+
+    /**
+     * <p>getFuelUsed.</p>
+     *
+     * @return the fuel burnt, in L.
+     */
+    public synchronized double getFuelUsed() {
+        return fuel;
+    }
+
+    /**
+     * <p>Getter for the field <code>duration</code>.</p>
+     *
+     * @return the time driven, in ms.
+     */
+    public synchronized long getDuration() {
+        return duration;
+    }
+
+    /**
+     * <p>getFuelRate.</p>
+     *
+     * @return the current fuel rate, in L/h; NaN if not known yet.
+     */
+    public synchronized double getFuelRate() {
+        return fuelRate;
+    }
+
+    /**
+     * <p>getInstantConsumption.</p>
+     *
+     * @return the current fuel economy, in L/100km; NaN if not known or
+     * standing still, see {@link #getFuelRate()} then.
+     */
+    public synchronized double getInstantConsumption() {
+        return speed >= MIN_SPEED ? fuelRate / speed * 100 : Double.NaN;
+    }
+
+    /**
+     * <p>getAverageConsumption.</p>
+     *
+     * @return the fuel economy of the trip, in L/100km; NaN before driving.
+     */
+    public synchronized double getAverageConsumption() {
+        return distance > 0 ? fuel / distance * 100 : Double.NaN;
+    }
+
+    /**
+     * <p>getAverageSpeed.</p>
+     *
+     * @return the average speed of the trip, in km/h; NaN before driving.
+     */
+    public synchronized double getAverageSpeed() {
+        return duration > 0 ? distance / duration * MILLIS_PER_HOUR : Double.NaN;
+    }
+
+}
@@ -50,58 +50,11 @@ public abstract class CommandAvailabilityHelper {
     }
 
     private static int parseHexChar(char hexChar) {
-        switch (hexChar) {
-            case '0':
-                return 0;
-
-            case '1':
-                return 1;
-
-            case '2':
-                return 2;
-
-            case '3':
-                return 3;
-
-            case '4':
-                return 4;
-
-            case '5':
-                return 5;
-
-            case '6':
-                return 6;
-
-            case '7':
-                return 7;
-
-            case '8':
-                return 8;
-
-            case '9':
-                return 9;
-
-            case 'A':
-                return 10;
-
-            case 'B':
-                return 11;
-
-            case 'C':
-                return 12;
-
-            case 'D':
-                return 13;
-
-            case 'E':
-                return 14;
-
-            case 'F':
-                return 15;
-
-            default:
-                throw new IllegalArgumentException("Invalid character [" + hexChar + "] supplied");
+        int value = Character.digit(hexChar, 16);
+        if (value < 0 || Character.isLowerCase(hexChar)) {
+            throw new IllegalArgumentException("Invalid character [" + hexChar + "] supplied");
         }
+        return value;
     }
 
     /**
@@ -171,41 +124,8 @@ public abstract class CommandAvailabilityHelper {
         if (arrayIndex > availabilityArray.length - 1)
             throw new IllegalArgumentException("availabilityArray does not contain enough entries to check for command " + commandPid);
 
-        //Subtract 8 from cmdNumber until we have it in the 1-8 range
-        while (cmdNumber > 8) {
-            cmdNumber -= 8;
-        }
-
-        int requestedAvailability;
-
-        switch (cmdNumber) {
-            case 1:
-                requestedAvailability = 128;
-                break;
-            case 2:
-                requestedAvailability = 64;
-                break;
-            case 3:
-                requestedAvailability = 32;
-                break;
-            case 4:
-                requestedAvailability = 16;
-                break;
-            case 5:
-                requestedAvailability = 8;
-                break;
-            case 6:
-                requestedAvailability = 4;
-                break;
-            case 7:
-                requestedAvailability = 2;
-                break;
-            case 8:
-                requestedAvailability = 1;
-                break;
-            default:
-                throw new RuntimeException("This is not supposed to happen.");
-        }
+        //Highest bit first: PID 01 is 128, 08 is 1, 09 is 128 of the next byte
+        int requestedAvailability = 0x80 >> ((cmdNumber - 1) % 8);
 
         return requestedAvailability == (requestedAvailability & availabilityArray[arrayIndex]);
     }
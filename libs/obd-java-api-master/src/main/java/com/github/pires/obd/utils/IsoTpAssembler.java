@@ -0,0 +1,245 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits a response into messages, joining the frames of ISO 15765-2 (CAN)
+ * multi-frame messages into one payload per ECU.
+ * <p>
+ * The response is read once, line by line, whatever the adapter settings:
+ * <ul>
+ * <li>headers off, a multi-frame message is a length line followed by
+ * numbered frames: "014", "0: 49 02 01 57 50 30", "1: 5A ..."; the frame
+ * numbers also separate the frames of a response whose line breaks were
+ * dropped;</li>
+ * <li>headers on, CAN lines start with an 11 bit ("7E8") or 29 bit
+ * ("18 DA F1 10") header and a protocol control byte, so single, first and
+ * consecutive frames are told apart and frames of several ECUs may be
+ * interleaved;</li>
+ * <li>headers on, lines of older protocols start with a three byte header
+ * ("48 6B 10") and end with a checksum, both removed; as a headers off
+ * response may start with the same bytes, i.e. "43 6B 01" for a C2B01
+ * trouble code, only lines whose checksum matches are taken for these;</li>
+ * <li>any other line of hex digits is a message by itself; lines that
+ * aren't, like "SEARCHING...", are skipped.</li>
+ * </ul>
+ * Decoders then read payloads, i.e. "49 02 01 57 50 30 5A ..." for a VIN,
+ * and don't need to know how it was framed.
+ * <p>
+ * Instances may be reused but aren't thread safe.
+ */
+public class IsoTpAssembler {
+
+    private final ArrayList<IsoTpMessage> messages = new ArrayList<>();
+    private final List<IsoTpMessage> view = Collections.unmodifiableList(messages);
+    private char[] line = new char[64];
+    private int lineLength = 0;
+    private int[] bytes = new int[32];
+    /**
+     * The message numbered frames are appended to when headers are off.
+     */
+    private IsoTpMessage numbered;
+
+    /**
+     * Reassembles a response.
+     *
+     * @param response the raw response, ideally with its line breaks, as in
+     *                 {@link com.github.pires.obd.commands.ObdCommand#getResult()}.
+     * @return the messages in the order they started, valid until the next
+     * call.
+     */
+    public List<IsoTpMessage> assemble(CharSequence response) {
+        messages.clear();
+        numbered = null;
+        lineLength = 0;
+        if (response == null) {
+            return view;
+        }
+        for (int i = 0; i < response.length(); i++) {
+            char c = response.charAt(i);
+            if (c == '\r' || c == '\n') {
+                endLine();
+            } else if (c == ':') {
+                // the frame number before ':' starts a new frame
+                if (lineLength > 0) {
+                    char index = line[--lineLength];
+                    endLine();
+                    append(index);
+                }
+                append(c);
+            } else if (!Character.isWhitespace(c)) {
+                append(Character.toUpperCase(c));
+            }
+        }
+        endLine();
+        return view;
+    }
+
+    private void append(char c) {
+        if (lineLength == line.length) {
+            char[] grown = new char[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        line[lineLength++] = c;
+    }
+
+    private void endLine() {
+        int length = lineLength;
+        lineLength = 0;
+        if (length == 0) {
+            return;
+        }
+        if (length >= 2 && line[1] == ':') {
+            numberedFrame(hexValue(line[0]), parse(2, length));
+        } else if (length == 3 && hexValue(line[0]) >= 0 && parse(1, length) == 1) {
+            // headers off: "014" announces a message of 0x14 bytes
+            numbered = add("", hexValue(line[0]) << 8 | bytes[0]);
+        } else if ((length & 1) == 1 && length > 3) {
+            canFrame(new String(line, 0, 3), parse(3, length));
+        } else if (length > 8 && line[0] == '1' && line[1] == '8' && line[2] == 'D' && line[3] == 'A') {
+            canFrame(new String(line, 0, 8), parse(8, length));
+        } else {
+            int count = parse(0, length);
+            if (count >= 5 && isLegacyFrame(count)) {
+                String ecu = new String(line, 4, 2);
+                add(ecu, count - 4).append(bytes, 3, count - 4);
+            } else if (count > 0) {
+                add("", count).append(bytes, 0, count);
+            }
+        }
+    }
+
+    /**
+     * Whether bytes[0, count) is a line of J1850, ISO 9141-2 or KWP with its
+     * header and checksum: the CRC-8 of SAE J1850 or the sum of the bytes.
+     */
+    private boolean isLegacyFrame(int count) {
+        int checksum = bytes[count - 1];
+        if (bytes[1] == 0x6B) {
+            return checksum == crc(count - 1) || checksum == sum(count - 1);
+        }
+        return (bytes[0] & 0xC0) == 0x80 && bytes[1] == 0xF1 && checksum == sum(count - 1);
+    }
+
+    private int sum(int count) {
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += bytes[i];
+        }
+        return sum & 0xFF;
+    }
+
+    private int crc(int count) {
+        int crc = 0xFF;
+        for (int i = 0; i < count; i++) {
+            crc ^= bytes[i];
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1) ^ 0x1D : crc << 1;
+            }
+            crc &= 0xFF;
+        }
+        return crc ^ 0xFF;
+    }
+
+    private void numberedFrame(int index, int count) {
+        if (index < 0 || count < 0) {
+            return;
+        }
+        if (index == 0) {
+            if (numbered == null || numbered.getLength() > 0) {
+                numbered = add("", -1);
+            }
+            numbered.append(bytes, 0, count);
+        } else if (numbered != null && numbered.isPending()) {
+            numbered.appendFrame(index, bytes, 0, count);
+        }
+    }
+
+    private void canFrame(String ecu, int count) {
+        if (count < 1) {
+            return;
+        }
+        int pci = bytes[0];
+        switch (pci >> 4) {
+            case 0: // single frame
+                int length = Math.min(pci & 0x0F, count - 1);
+                add(ecu, length).append(bytes, 1, length);
+                break;
+            case 1: // first frame
+                if (count >= 2) {
+                    add(ecu, (pci & 0x0F) << 8 | bytes[1]).append(bytes, 2, count - 2);
+                }
+                break;
+            case 2: // consecutive frame
+                for (int i = messages.size() - 1; i >= 0; i--) {
+                    IsoTpMessage message = messages.get(i);
+                    if (message.getEcu().equals(ecu)) {
+                        if (message.isPending()) {
+                            message.appendFrame(pci & 0x0F, bytes, 1, count - 1);
+                        }
+                        break;
+                    }
+                }
+                break;
+            default: // flow control, sent by the adapter
+                break;
+        }
+    }
+
+    private IsoTpMessage add(String ecu, int expected) {
+        IsoTpMessage message = new IsoTpMessage(ecu, expected);
+        messages.add(message);
+        return message;
+    }
+
+    /**
+     * Decodes line[from, to) into {@link #bytes}.
+     *
+     * @return the number of bytes, or -1 if it isn't an even number of hex
+     * digits.
+     */
+    private int parse(int from, int to) {
+        if (((to - from) & 1) == 1) {
+            return -1;
+        }
+        int count = (to - from) / 2;
+        if (bytes.length < count) {
+            bytes = new int[Math.max(bytes.length * 2, count)];
+        }
+        for (int i = 0; i < count; i++) {
+            int high = hexValue(line[from + 2 * i]);
+            int low = hexValue(line[from + 2 * i + 1]);
+            if (high < 0 || low < 0) {
+                return -1;
+            }
+            bytes[i] = high << 4 | low;
+        }
+        return count;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+}
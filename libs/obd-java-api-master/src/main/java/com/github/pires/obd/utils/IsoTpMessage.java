@@ -0,0 +1,136 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+/**
+ * One message of a response, reassembled from its frames by an
+ * {@link IsoTpAssembler}.
+ *
+ */
+public class IsoTpMessage {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String ecu;
+    private final int expected;
+    private int[] data;
+    private int length;
+    private int nextIndex = 1;
+
+    /**
+     * <p>Constructor for IsoTpMessage.</p>
+     *
+     * @param ecu      the header of the sender, or "" if headers are off.
+     * @param expected the length of the message, or -1 if numbered frames
+     *                 came without a length line.
+     */
+    IsoTpMessage(String ecu, int expected) {
+        this.ecu = ecu;
+        this.expected = expected;
+        this.data = new int[expected > 0 ? expected : 8];
+    }
+
+    /**
+     * Appends bytes, up to the announced length; padding past it is dropped.
+     */
+    void append(int[] bytes, int offset, int count) {
+        if (expected >= 0) {
+            count = Math.min(count, expected - length);
+        }
+        if (length + count > data.length) {
+            int[] grown = new int[Math.max(data.length * 2, length + count)];
+            System.arraycopy(data, 0, grown, 0, length);
+            data = grown;
+        }
+        System.arraycopy(bytes, offset, data, length, count);
+        length += count;
+    }
+
+    /**
+     * Appends a consecutive frame if it is the next in sequence, otherwise
+     * the message is left incomplete and takes no more frames.
+     *
+     * @return false if the frame was out of sequence.
+     */
+    boolean appendFrame(int index, int[] bytes, int offset, int count) {
+        if (index != nextIndex) {
+            nextIndex = -1;
+            return false;
+        }
+        nextIndex = (nextIndex + 1) & 0x0F;
+        append(bytes, offset, count);
+        return true;
+    }
+
+    /**
+     * @return true if consecutive frames may still be appended.
+     */
+    boolean isPending() {
+        return nextIndex >= 0 && (expected < 0 || length < expected);
+    }
+
+    /**
+     * <p>Getter for the field <code>ecu</code>.</p>
+     *
+     * @return the header of the ECU that sent the message, i.e. "7E8",
+     * "18DAF110" or the source address "10" on older protocols; "" if
+     * headers are off.
+     */
+    public String getEcu() {
+        return ecu;
+    }
+
+    /**
+     * <p>Getter for the field <code>length</code>.</p>
+     *
+     * @return the number of payload bytes received.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns one payload byte, without boxing.
+     *
+     * @param index position in the payload, the service byte is at 0.
+     * @return the unsigned byte value.
+     * @throws java.lang.IndexOutOfBoundsException if the payload is shorter.
+     */
+    public int getByte(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+        }
+        return data[index];
+    }
+
+    /**
+     * <p>isComplete.</p>
+     *
+     * @return false if frames were missing or out of sequence.
+     */
+    public boolean isComplete() {
+        return expected < 0 || length == expected;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(ecu.length() + 1 + length * 2);
+        text.append(ecu).append(':');
+        for (int i = 0; i < length; i++) {
+            text.append(HEX[data[i] >> 4]).append(HEX[data[i] & 0x0F]);
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,262 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.cache;
+
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_01_20;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
+import com.github.pires.obd.commands.protocol.SelectProtocolCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for VehicleCache class.
+ */
+public class VehicleCacheTest {
+
+    private static final String ADAPTER = "00:1D:A5:68:98:8B";
+
+    private File directory;
+    private VehicleCache cache;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+        directory = Files.createTempDirectory("vehicles").toFile();
+        cache = new VehicleCache(directory);
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        PersistentCommand.reset();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Connects to a fresh simulator, as after the app was restarted.
+     */
+    private Elm327Simulator connect(VehicleProfile profile, VehicleEntry[] entry) throws Exception {
+        PersistentCommand.reset();
+        Elm327Simulator simulator = new Elm327Simulator(profile);
+        simulator.start();
+        ObdSession session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+        session.run(new EchoOffCommand());
+        session.run(new LineFeedOffCommand());
+        entry[0] = new VehicleCache(directory).connect(session, ADAPTER);
+        return simulator;
+    }
+
+    /**
+     * Test a known vehicle is reconnected without the probes
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testReconnect() throws Exception {
+        VehicleProfile profile = VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN);
+        VehicleEntry[] entry = new VehicleEntry[1];
+        Elm327Simulator simulator = connect(profile, entry);
+        long probed = simulator.getRequestCount();
+        simulator.stop();
+        assertEquals(entry[0].getKey(), "VIN-WP0ZZZ99ZTS392124");
+        assertEquals(entry[0].getProtocol(), ObdProtocols.ISO_15765_4_CAN);
+        assertEquals(entry[0].getEcus(), Collections.singletonList("7E8"));
+        assertEquals(cache.lastKey(ADAPTER), entry[0].getKey());
+
+        simulator = connect(profile, entry);
+        long restored = simulator.getRequestCount();
+        simulator.stop();
+        assertEquals(entry[0].getVin(), "WP0ZZZ99ZTS392124");
+        assertTrue(restored < probed, restored + " requests, probing took " + probed);
+        assertEquals(restored, 5); // ATE0, ATL0, ATSP6, 0100, 0902
+
+        ObdSession offline = new ObdSession(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+        entry[0].apply(offline.getKnownResults());
+        VinCommand vin = new VinCommand();
+        offline.run(vin);
+        assertEquals(vin.getFormattedResult(), "WP0ZZZ99ZTS392124");
+        AvailablePidsCommand_01_20 pids = new AvailablePidsCommand_01_20();
+        offline.run(pids);
+        assertEquals(pids.getResult(), entry[0].getResult(AvailablePidsCommand_01_20.class));
+    }
+
+    /**
+     * Test another vehicle on the same adapter invalidates the entry
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testOtherVehicle() throws Exception {
+        VehicleEntry[] entry = new VehicleEntry[1];
+        connect(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN), entry).stop();
+        String first = entry[0].getKey();
+
+        VehicleProfile other = VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN);
+        other.removePid(0x0D);
+        other.setVin("1HGCM82633A004352");
+        connect(other, entry).stop();
+        assertEquals(entry[0].getKey(), "VIN-1HGCM82633A004352");
+        assertNull(cache.load(first));
+        assertEquals(cache.keys(), Collections.singletonList(entry[0].getKey()));
+    }
+
+    /**
+     * Test another vehicle of the same model, with the same PIDs, is told
+     * apart by its VIN and doesn't drop the first one's entry
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testSameModel() throws Exception {
+        VehicleEntry[] entry = new VehicleEntry[1];
+        connect(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN), entry).stop();
+        String first = entry[0].getKey();
+
+        VehicleProfile other = VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN);
+        other.setVin("1HGCM82633A004352");
+        connect(other, entry).stop();
+        assertEquals(entry[0].getVin(), "1HGCM82633A004352");
+        assertEquals(cache.lastKey(ADAPTER), entry[0].getKey());
+        assertEquals(cache.load(first).getVin(), "WP0ZZZ99ZTS392124");
+    }
+
+    /**
+     * Test the first connection searches the protocol, whatever the adapter
+     * was set to
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testFirstConnection() throws Exception {
+        Elm327Simulator simulator = new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN));
+        simulator.start();
+        try {
+            ObdSession session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+            session.run(new EchoOffCommand());
+            session.run(new LineFeedOffCommand());
+            session.run(new SelectProtocolCommand(ObdProtocols.ISO_9141_2));
+            VehicleEntry entry = cache.connect(session, ADAPTER);
+            assertEquals(entry.getProtocol(), ObdProtocols.ISO_15765_4_CAN);
+            assertEquals(entry.getVin(), "WP0ZZZ99ZTS392124");
+        } finally {
+            simulator.stop();
+        }
+    }
+
+    /**
+     * Test vehicles on two adapters keep their own results
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testTwoAdapters() throws Exception {
+        VehicleProfile other = VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN);
+        other.setVin("1HGCM82633A004352");
+        Elm327Simulator[] simulators = {
+                new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN)),
+                new Elm327Simulator(other)};
+        ObdSession[] sessions = new ObdSession[2];
+        for (int i = 0; i < 2; i++) {
+            simulators[i].start();
+            sessions[i] = new ObdSession(simulators[i].getInputStream(), simulators[i].getOutputStream());
+            sessions[i].run(new EchoOffCommand());
+            sessions[i].run(new LineFeedOffCommand());
+            cache.connect(sessions[i], ADAPTER + i);
+            simulators[i].stop();
+        }
+
+        // known on each connection, so not asked again
+        VinCommand vin = new VinCommand();
+        sessions[0].run(vin);
+        assertEquals(vin.getFormattedResult(), "WP0ZZZ99ZTS392124");
+        sessions[1].run(vin);
+        assertEquals(vin.getFormattedResult(), "1HGCM82633A004352");
+    }
+
+    /**
+     * Test vehicles without VIN are keyed by adapter
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testNoVin() throws Exception {
+        VehicleProfile profile = VehicleProfile.sample(ObdProtocols.ISO_9141_2);
+        profile.setVin(null);
+        VehicleEntry[] entry = new VehicleEntry[1];
+        connect(profile, entry).stop();
+        assertNull(entry[0].getVin());
+        assertEquals(entry[0].getKey(), VehicleCache.key(ADAPTER, ""));
+        assertEquals(entry[0].getProtocol(), ObdProtocols.ISO_9141_2);
+
+        Elm327Simulator simulator = connect(profile, entry);
+        // ATE0, ATL0, ATSP3, 0100 and the two other cached ranges
+        assertEquals(simulator.getRequestCount(), 6);
+        simulator.stop();
+    }
+
+    /**
+     * Test entries stored by another version are dropped
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testVersion() throws Exception {
+        VehicleEntry entry = new VehicleEntry(VehicleCache.key("WP0ZZZ99ZTS392124"), "WP0ZZZ99ZTS392124",
+                ObdProtocols.ISO_15765_4_CAN, Collections.singletonList("7E8"),
+                Collections.singletonMap("AvailablePidsCommand_01_20", "4100BE1FA813"));
+        cache.save(entry, ADAPTER);
+        VehicleEntry loaded = cache.load(entry.getKey());
+        assertEquals(loaded.getEcus(), entry.getEcus());
+        assertEquals(loaded.getResults(), entry.getResults());
+
+        File[] files = directory.listFiles();
+        for (File file : files) {
+            if (file.getName().startsWith("vehicle-")) {
+                try (Writer writer = new FileWriter(file, true)) {
+                    writer.write("version=" + (VehicleCache.VERSION + 1) + "\n");
+                }
+            }
+        }
+        assertNull(cache.load(entry.getKey()));
+        assertNull(cache.lastKey(ADAPTER));
+        assertTrue(cache.keys().isEmpty());
+    }
+}
@@ -111,4 +111,60 @@ public class ExtraMessagesTest {
         verifyAll();
     }
 
+    /**
+     * Test for valid InputStream read with the command echoed back
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testValidSpeedMetricWithEcho() throws IOException {
+        byte[] v = new byte[]{
+                '0', '1', ' ', '0', 'D', '\r',
+                '4', '1', ' ', '0', 'D', ' ', '4', '0', '\r', '\r', '>'
+        };
+        // mock InputStream read
+        mockIn = createMock(InputStream.class);
+        mockIn.read();
+        for (byte b : v) {
+            expectLastCall().andReturn(b);
+        }
+
+        replayAll();
+
+        // call the method to test
+        command.readResult(mockIn);
+        assertEquals(command.getResult(), "410D40");
+        assertEquals(command.getMetricSpeed(), 64);
+
+        verifyAll();
+    }
+
+    /**
+     * Test for valid InputStream read while the ELM is searching for a protocol
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testValidSpeedMetricWhileSearching() throws IOException {
+        byte[] v = new byte[]{
+                'S', 'E', 'A', 'R', 'C', 'H', 'I', 'N', 'G', '.', '.', '.', '\r',
+                '4', '1', ' ', '0', 'D', ' ', '4', '0', '\r', '\r', '>'
+        };
+        // mock InputStream read
+        mockIn = createMock(InputStream.class);
+        mockIn.read();
+        for (byte b : v) {
+            expectLastCall().andReturn(b);
+        }
+
+        replayAll();
+
+        // call the method to test
+        command.readResult(mockIn);
+        assertEquals(command.getResult(), "...410D40");
+        assertEquals(command.getMetricSpeed(), 64);
+
+        verifyAll();
+    }
+
 }
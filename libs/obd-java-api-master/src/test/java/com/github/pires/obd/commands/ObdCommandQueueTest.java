@@ -0,0 +1,103 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for ObdCommandQueue class.
+ */
+public class ObdCommandQueueTest {
+
+    private ByteArrayOutputStream out;
+    private RPMCommand rpm;
+    private SpeedCommand speed;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        out = new ByteArrayOutputStream();
+        rpm = new RPMCommand();
+        speed = new SpeedCommand();
+    }
+
+    private ObdCommandQueue queueFor(String responses) {
+        return new ObdCommandQueue(new ObdSession(new ByteArrayInputStream(responses.getBytes()), out));
+    }
+
+    /**
+     * Test that a repeated command is sent as a bare carriage return
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRepeatLastCommand() throws Exception {
+        ObdCommandQueue queue = queueFor("41 0C 1A F8\r\r>41 0C 0A 00\r\r>41 0D 40\r\r>");
+        queue.add(rpm);
+        queue.add(rpm);
+        queue.add(speed);
+
+        assertEquals(queue.runNext(), rpm);
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(queue.runAll(), 2);
+
+        assertEquals(out.toString(), "01 0C\r\r01 0D\r");
+        assertEquals(rpm.getRPM(), 640);
+        assertEquals(speed.getMetricSpeed(), 64);
+        assertEquals(queue.size(), 0);
+    }
+
+    /**
+     * Test the response count suffix, which is not added to AT commands
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResponseCount() throws Exception {
+        ObdCommandQueue queue = queueFor("OK\r\r>41 0D 40\r\r>41 0D 41\r\r>");
+        queue.getSession().setResponseCount(1);
+        queue.add(new EchoOffCommand());
+        queue.add(speed);
+        queue.add(speed);
+        queue.runAll();
+
+        assertEquals(out.toString(), "AT E0\r01 0D 1\r\r");
+        assertEquals(speed.getMetricSpeed(), 65);
+    }
+
+    /**
+     * Test that polling ignores the response delay of the command
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 2000)
+    public void testNoResponseDelay() throws Exception {
+        ObdCommandQueue queue = queueFor("41 0D 40\r\r>");
+        speed.setResponseTimeDelay(60000L);
+        queue.add(speed);
+        queue.runAll();
+
+        assertEquals(speed.getMetricSpeed(), 64);
+    }
+
+}
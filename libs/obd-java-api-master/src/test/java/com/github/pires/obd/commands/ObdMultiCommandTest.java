@@ -0,0 +1,169 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.commands;
+
+import com.github.pires.obd.commands.engine.LoadCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.DescribeProtocolCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.temperature.EngineCoolantTemperatureCommand;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests for ObdMultiCommand class.
+ */
+public class ObdMultiCommandTest {
+
+    private ObdMultiCommand multiCommand;
+    private RPMCommand rpm;
+    private SpeedCommand speed;
+    private ByteArrayOutputStream out;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        multiCommand = new ObdMultiCommand();
+        multiCommand.setBatchMode(true);
+        rpm = new RPMCommand();
+        speed = new SpeedCommand();
+        multiCommand.add(rpm);
+        multiCommand.add(speed);
+        out = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Test a batched request answered in a single CAN frame
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSingleFrame() throws Exception {
+        multiCommand.sendCommands(new ByteArrayInputStream("41 0C 1A F8 0D 40 \r\r>".getBytes()), out);
+
+        assertEquals(out.toString(), "01 0C 0D\r");
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(speed.getMetricSpeed(), 64);
+        assertEquals(speed.getResult(), "410D40");
+    }
+
+    /**
+     * Test a batched request answered with a multi frame CAN message
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMultiFrame() throws Exception {
+        EngineCoolantTemperatureCommand coolant = new EngineCoolantTemperatureCommand();
+        LoadCommand load = new LoadCommand();
+        multiCommand.add(coolant);
+        multiCommand.add(load);
+
+        multiCommand.sendCommands(new ByteArrayInputStream(
+                "00A\r0: 41 0C 1A F8 0D 40\r1: 05 7B 04 80 00 00 00\r\r>".getBytes()), out);
+
+        assertEquals(out.toString(), "01 0C 0D 05 04\r");
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(speed.getMetricSpeed(), 64);
+        assertEquals(coolant.getTemperature(), 83f);
+        assertEquals(load.getPercentage(), 128 * 100f / 255f);
+    }
+
+    /**
+     * Test the fallback to single requests when the ECU rejects the batch
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRejectedBatch() throws Exception {
+        multiCommand.sendCommands(new ByteArrayInputStream(
+                "?\r\r>41 0C 1A F8\r\r>41 0D 40\r\r>".getBytes()), out);
+
+        assertEquals(out.toString(), "01 0C 0D\r01 0C\r01 0D\r");
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(speed.getMetricSpeed(), 64);
+
+        out.reset();
+        multiCommand.sendCommands(new ByteArrayInputStream("41 0C 00 00\r\r>41 0D 00\r\r>".getBytes()), out);
+        assertEquals(out.toString(), "01 0C\r01 0D\r");
+    }
+
+    /**
+     * Test that PIDs missing from the batched response are requested again
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPartialAnswer() throws Exception {
+        multiCommand.sendCommands(new ByteArrayInputStream("41 0C 1A F8\r\r>41 0D 40\r\r>".getBytes()), out);
+
+        assertEquals(out.toString(), "01 0C 0D\r01 0D\r");
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(speed.getMetricSpeed(), 64);
+    }
+
+    /**
+     * Test a batch failing once, as with the engine off, is tried again, and
+     * given up after failing three times in a row
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testTransientFailure() throws Exception {
+        String failed = "NO DATA\r\r>41 0C 1A F8\r\r>41 0D 40\r\r>";
+        multiCommand.sendCommands(new ByteArrayInputStream(failed.getBytes()), out);
+        assertEquals(out.toString(), "01 0C 0D\r01 0C\r01 0D\r");
+        assertEquals(speed.getMetricSpeed(), 64);
+
+        out.reset();
+        multiCommand.sendCommands(new ByteArrayInputStream("41 0C 1A F8 0D 41\r\r>".getBytes()), out);
+        assertEquals(out.toString(), "01 0C 0D\r");
+        assertEquals(speed.getMetricSpeed(), 65);
+
+        for (int i = 0; i < 3; i++) {
+            multiCommand.sendCommands(new ByteArrayInputStream(failed.getBytes()), out);
+        }
+        out.reset();
+        multiCommand.sendCommands(new ByteArrayInputStream("41 0C 00 00\r\r>41 0D 00\r\r>".getBytes()), out);
+        assertEquals(out.toString(), "01 0C\r01 0D\r");
+    }
+
+    /**
+     * Test commands are sent in the order they were added, batches where
+     * their first command was
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOrder() throws Exception {
+        multiCommand = new ObdMultiCommand();
+        multiCommand.setBatchMode(true);
+        multiCommand.add(new ObdRawCommand("AT RV"));
+        multiCommand.add(rpm);
+        multiCommand.add(new DescribeProtocolCommand());
+        multiCommand.add(speed);
+
+        multiCommand.sendCommands(new ByteArrayInputStream(
+                "12.6V\r\r>41 0C 1A F8 0D 40\r\r>AUTO, ISO 15765-4 (CAN 11/500)\r\r>".getBytes()), out);
+        assertEquals(out.toString(), "AT RV\r01 0C 0D\rAT DP\r");
+        assertEquals(speed.getMetricSpeed(), 64);
+    }
+
+}
@@ -0,0 +1,206 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.derived;
+
+import com.github.pires.obd.commands.pressure.BarometricPressureCommand;
+import com.github.pires.obd.commands.pressure.IntakeManifoldPressureCommand;
+import com.github.pires.obd.enums.ResultUnit;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+
+import static com.github.pires.obd.polling.PollerFixture.feed;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for DerivedChannels class.
+ */
+public class DerivedChannelsTest {
+
+    private static final long START = 1500000000000L;
+
+    private DerivedChannels channels;
+    private ArrayList<String> updated;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        channels = new DerivedChannels();
+        updated = new ArrayList<>();
+        channels.setListener(new DerivedChannelListener() {
+            @Override
+            public void onUpdate(DerivedChannel channel) {
+                updated.add(channel.getName());
+            }
+        });
+    }
+
+    /**
+     * Test boost from the manifold and barometric pressures
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBoost() throws Exception {
+        IntakeManifoldPressureCommand map = new IntakeManifoldPressureCommand();
+        BarometricPressureCommand baro = new BarometricPressureCommand();
+        channels.bind("map", map);
+        channels.bind("baro", baro);
+        DerivedChannel boost = channels.define("boost", "map - baro", ResultUnit.KILOPASCAL);
+
+        feed(channels, map, START, 150);
+        assertTrue(Double.isNaN(boost.getValue()));
+        feed(channels, baro, START + 100, 100);
+        assertEquals(boost.getValue(), 50.0);
+        assertEquals(boost.getTimestamp(), START + 100);
+        feed(channels, map, START + 200, 80);
+        assertEquals(channels.getValue("boost"), -20.0);
+        assertEquals(boost.getUnit(), ResultUnit.KILOPASCAL);
+    }
+
+    /**
+     * Test channels computed from other channels
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testChained() throws Exception {
+        channels.set("map", START, 150);
+        channels.set("baro", START, 100);
+        channels.define("boost", "map - baro", ResultUnit.KILOPASCAL);
+        DerivedChannel ratio = channels.define("ratio", "boost / baro", ResultUnit.NONE);
+        assertEquals(ratio.getValue(), 0.5);
+
+        channels.set("map", START + 100, 200);
+        assertEquals(ratio.getValue(), 1.0);
+        channels.set("baro", START + 200, 50);
+        assertEquals(ratio.getValue(), 3.0);
+    }
+
+    /**
+     * Test a new value only recomputes the channels depending on it, once
+     * each, in order
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOnlyAffected() throws Exception {
+        channels.define("a2", "a * 2", ResultUnit.NONE);
+        channels.define("b2", "b * 2", ResultUnit.NONE);
+        channels.define("sum", "a2 + b2 + a", ResultUnit.NONE);
+        channels.define("c2", "c * 2", ResultUnit.NONE);
+        updated.clear();
+
+        channels.set("a", START, 1);
+        assertEquals(updated.toString(), "[a2, sum]");
+        updated.clear();
+        channels.set("b", START, 2);
+        assertEquals(updated.toString(), "[b2, sum]");
+        assertEquals(channels.getValue("sum"), 7.0);
+        updated.clear();
+        channels.set("c", START, 3);
+        assertEquals(updated.toString(), "[c2]");
+        updated.clear();
+        channels.set("unused", START, 3);
+        assertTrue(updated.isEmpty());
+    }
+
+    /**
+     * Test results of commands not bound are ignored
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testUnbound() throws Exception {
+        channels.define("boost", "map - baro", ResultUnit.KILOPASCAL);
+        feed(channels, new IntakeManifoldPressureCommand(), START, 150);
+        assertTrue(updated.isEmpty());
+        assertTrue(Double.isNaN(channels.getValue("map")));
+        assertNull(channels.getChannel("map"));
+    }
+
+    /**
+     * Test operator precedence, functions and constants
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExpressions() throws Exception {
+        channels.set("x", START, 3);
+        assertEquals(channels.define("e1", "1 + 2 * x ^ 2", ResultUnit.NONE).getValue(), 19.0);
+        assertEquals(channels.define("e2", "(1 + 2) * -x", ResultUnit.NONE).getValue(), -9.0);
+        assertEquals(channels.define("e3", "2 ^ 3 ^ 2", ResultUnit.NONE).getValue(), 512.0);
+        assertEquals(channels.define("e4", "x - 2 - 1", ResultUnit.NONE).getValue(), 0.0);
+        assertEquals(channels.define("e5", "max(x, 4) + min(x, 4) - abs(-x)", ResultUnit.NONE).getValue(), 4.0);
+        assertEquals(channels.define("e6", "sqrt(x * 12) / 1.5e1", ResultUnit.NONE).getValue(), 0.4);
+        // horsepower from 100 g/s of air
+        channels.set("maf", START, 100);
+        assertEquals(channels.define("hp", "maf * 60 / 453.6 * 10", ResultUnit.NONE).getValue(), 132.27, 0.01);
+    }
+
+    /**
+     * Test invalid expressions are refused, without leaving their names
+     * behind as inputs
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testInvalid() throws Exception {
+        String[] invalid = {"", "1 +", "(x", "x y", "foo(x)", "min(x)", "sqrt(x, 1)", "2 * * 3", "1.2.3", "self + 1",
+                "y + foo(z)"};
+        for (String expression : invalid) {
+            try {
+                channels.define("self", expression, ResultUnit.NONE);
+                throw new AssertionError("Accepted " + expression);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertNull(channels.getChannel("self"));
+        assertEquals(channels.define("x", "2", ResultUnit.NONE).getValue(), 2.0);
+        assertTrue(Double.isNaN(channels.define("z", "x * y + 3", ResultUnit.NONE).getValue()));
+        channels.set("y", START, 4);
+        assertEquals(channels.getValue("z"), 11.0);
+    }
+
+    /**
+     * Test a name can't be defined twice, nor be an input
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNameTaken() throws Exception {
+        channels.define("boost", "map - baro", ResultUnit.KILOPASCAL);
+        String[] taken = {"boost", "map"};
+        for (String name : taken) {
+            try {
+                channels.define(name, "1", ResultUnit.NONE);
+                throw new AssertionError("Redefined " + name);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        try {
+            channels.set("boost", START, 1);
+            throw new AssertionError("Set boost");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.exceptions;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Tests for ResponseErrorClassifier class.
+ */
+public class ResponseErrorClassifierTest {
+
+    private ResponseErrorClassifier classifier;
+
+    /**
+     * Error raised by some clones when their receive buffer overflows.
+     */
+    public static class BufferFullException extends ResponseException {
+        public BufferFullException() {
+            super("BUFFER FULL");
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        classifier = new ResponseErrorClassifier();
+    }
+
+    private ResponseException classify(String normalized) {
+        return classifier.classify(normalized.getBytes(), normalized.length());
+    }
+
+    /**
+     * Test the built-in errors
+     */
+    @Test
+    public void testBuiltInErrors() {
+        assertEquals(classify("UNABLETOCONNECT").getClass(), UnableToConnectException.class);
+        assertEquals(classify("SEARCHING...NODATA").getClass(), NoDataException.class);
+        assertEquals(classify("?").getClass(), MisunderstoodCommandException.class);
+        assertEquals(classify("STOPPED").getClass(), StoppedException.class);
+        assertEquals(classify("CANERROR").getClass(), UnknownErrorException.class);
+        assertEquals(classify("7F0112").getClass(), UnsupportedCommandException.class);
+    }
+
+    /**
+     * The longest matching message wins over a shorter one it contains
+     */
+    @Test
+    public void testLongestMatch() {
+        assertEquals(classify("BUSINIT...ERROR").getClass(), BusInitException.class);
+    }
+
+    /**
+     * Valid responses are not errors
+     */
+    @Test
+    public void testNoError() {
+        assertNull(classify("410D40"));
+        assertNull(classify("7F011200"));
+        assertNull(classify(""));
+    }
+
+    /**
+     * Test a response kept with whitespace and the exception message
+     */
+    @Test
+    public void testRawResponse() {
+        ResponseException error = classifier.classify("41 0C\r\nno data\r\n");
+        assertEquals(error.getClass(), NoDataException.class);
+        error.setCommand("01 0C");
+        assertEquals(error.getMessage(), "Error running 01 0C, response: 41 0C\r\nno data\r\n");
+    }
+
+    /**
+     * Test an error registered on top of the built-in ones
+     */
+    @Test
+    public void testRegister() {
+        assertNull(classify("BUFFERFULL"));
+        classifier.register(BufferFullException.class);
+        assertEquals(classify("BUFFERFULL").getClass(), BufferFullException.class);
+    }
+
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.export;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.recording.TripRecorder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for TripExporter class and its row writers.
+ */
+public class TripExporterTest {
+
+    private static final long T0 = 1000000;
+
+    private File directory;
+    private TripExporter exporter;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("trip").toFile();
+        try (TripRecorder recorder = new TripRecorder(directory)) {
+            recorder.record(T0 + 10, 0x01, 0x0C, new int[]{0x1A, 0xF8}, 0, 2);
+            recorder.record(T0 + 20, 0x01, 0x05, new int[]{0x7B}, 0, 1);
+            recorder.record(T0 + 50, 0x01, 0x0D, new int[]{0x40}, 0, 1);
+            recorder.record(T0 + 150, 0x01, 0x0C, new int[]{0x0F, 0xA0}, 0, 2);
+            recorder.record(T0 + 260, 0x01, 0x0D, new int[]{0x50}, 0, 1);
+            recorder.record(T0 + 60000, 0x01, 0x0C, new int[]{0x1A, 0xF8}, 0, 2);
+        }
+        exporter = new TripExporter();
+        exporter.addColumn(new RPMCommand());
+        exporter.addColumn(new SpeedCommand());
+        exporter.setMaxHold(1000);
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private String[] csv() throws Exception {
+        StringWriter out = new StringWriter();
+        try (CsvRowWriter writer = new CsvRowWriter(out)) {
+            exporter.export(directory, writer);
+        }
+        return out.toString().split("\n");
+    }
+
+    /**
+     * Test rows are aligned to the interval and values held until stale
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCsv() throws Exception {
+        String[] lines = csv();
+        assertEquals(lines[0], "timestamp,Engine RPM [RPM],Vehicle Speed [km/h]");
+        assertEquals(lines[1], "1000000,1726,64");
+        assertEquals(lines[2], "1000100,1000,64");
+        assertEquals(lines[3], "1000200,1000,80");
+        assertEquals(lines[12], "1001100,1000,80");
+        assertEquals(lines[13], "1001200,,80");
+        assertEquals(lines[14], "1060000,1726,");
+        assertEquals(lines.length, 15);
+    }
+
+    /**
+     * Test values and units follow the imperial setting
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testImperialUnits() throws Exception {
+        exporter.setImperialUnits(true);
+        String[] lines = csv();
+        assertEquals(lines[0], "timestamp,Engine RPM [RPM],Vehicle Speed [mph]");
+        assertEquals(Double.parseDouble(lines[1].split(",")[2]), 39.77, 0.01);
+    }
+
+    /**
+     * Test the columnar format reads back the same rows, across blocks
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testColumnar() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows;
+        try (ColumnarRowWriter writer = new ColumnarRowWriter(out, 5)) {
+            rows = exporter.export(directory, writer);
+        }
+        String[] lines = csv();
+        assertEquals(rows, lines.length - 1);
+        int csvSize = 0;
+        for (String line : lines) {
+            csvSize += line.length() + 1;
+        }
+        assertTrue(out.size() < csvSize, out.size() + " bytes, CSV " + csvSize);
+
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(reader.getColumnCount(), 2);
+            assertEquals(reader.getName(1), "Vehicle Speed");
+            assertEquals(reader.getUnit(1), "km/h");
+            for (int i = 1; i < lines.length; i++) {
+                assertTrue(reader.next());
+                String[] cells = (lines[i] + ",end").split(",");
+                assertEquals(String.valueOf(reader.getTimestamp()), cells[0]);
+                for (int column = 0; column < 2; column++) {
+                    String value = reader.getValue(column);
+                    assertEquals(value == null ? "" : value, cells[column + 1]);
+                }
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Test decimals and text values
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testColumnarValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarRowWriter writer = new ColumnarRowWriter(out)) {
+            writer.begin(new String[]{"Temperature", "Status"}, new String[]{"C", ""});
+            writer.row(100, new String[]{"-12.5", "OK"});
+            writer.row(200, new String[]{"3", null});
+            writer.row(150, new String[]{"0.25", "NO, DATA"});
+        }
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertTrue(reader.next());
+            assertEquals(reader.getDouble(0), -12.5, 0.0);
+            assertEquals(reader.getValue(1), "OK");
+            assertTrue(reader.next());
+            assertEquals(reader.getTimestamp(), 200);
+            assertEquals(reader.getDouble(0), 3.0, 0.0);
+            assertNull(reader.getValue(1));
+            assertTrue(reader.next());
+            assertEquals(reader.getTimestamp(), 150);
+            assertEquals(reader.getValue(0), "0.25");
+            assertEquals(reader.getValue(1), "NO, DATA");
+            assertTrue(Double.isNaN(reader.getDouble(1)));
+            assertFalse(reader.next());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.metrics;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.enums.CommandPhase;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.exceptions.NoDataException;
+import com.github.pires.obd.exceptions.UnableToConnectException;
+import com.github.pires.obd.polling.PollingListener;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for LatencyMonitor class.
+ */
+public class LatencyMonitorTest {
+
+    private Elm327Simulator simulator;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        if (simulator != null) {
+            simulator.stop();
+        }
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Test the bucket of every duration contains it, within 12.5%
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBuckets() throws Exception {
+        int last = -1;
+        for (long micros = 0; micros < 100000; micros++) {
+            int index = LatencyHistogram.indexOf(micros);
+            assertTrue(index == last || index == last + 1);
+            assertTrue(LatencyHistogram.highestOf(index) >= micros);
+            assertTrue(LatencyHistogram.highestOf(index) <= micros + micros / 8);
+            last = index;
+        }
+        long max = LatencyHistogram.MAX_MICROS;
+        assertEquals(LatencyHistogram.highestOf(LatencyHistogram.indexOf(max)), max);
+    }
+
+    /**
+     * Test percentiles
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPercentiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getValueAtPercentile(50), 0);
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+        histogram.record(-1);
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getMax(), 1000);
+        assertTrue(histogram.getValueAtPercentile(50) >= 500);
+        assertTrue(histogram.getValueAtPercentile(50) <= 500 + 500 / 8);
+        assertTrue(histogram.getValueAtPercentile(99) >= 990);
+        assertEquals(histogram.getValueAtPercentile(100), 1000);
+
+        histogram.reset();
+        assertEquals(histogram.getCount(), 0);
+        assertEquals(histogram.getMax(), 0);
+    }
+
+    /**
+     * Test concurrent recording loses no durations
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record((i + offset) * 1000L);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(histogram.getCount(), 40000);
+        assertEquals(histogram.getMax(), 10002);
+        assertEquals(histogram.getValueAtPercentile(100), 10002);
+    }
+
+    /**
+     * Test the phases of commands run on a slow vehicle
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testPhases() throws Exception {
+        simulator = new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN));
+        simulator.setLatency(20);
+        simulator.start();
+        ObdSession session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+        session.run(new EchoOffCommand());
+        LatencyMonitor monitor = new LatencyMonitor();
+
+        RPMCommand rpm = new RPMCommand();
+        for (int i = 0; i < 3; i++) {
+            session.run(rpm);
+            monitor.record(rpm);
+        }
+        session.poll(rpm);
+        monitor.record(rpm);
+        assertTrue(rpm.getNanos(CommandPhase.ECU_WAIT) >= 20000000L);
+        assertTrue(rpm.getNanos(CommandPhase.WRITE) >= 0);
+        assertTrue(rpm.getNanos(CommandPhase.READ) >= 0);
+        assertTrue(rpm.getNanos(CommandPhase.DECODE) >= 0);
+        assertEquals(rpm.getNanos(CommandPhase.TOTAL), rpm.getNanos(CommandPhase.WRITE)
+                + rpm.getNanos(CommandPhase.ECU_WAIT) + rpm.getNanos(CommandPhase.READ)
+                + rpm.getNanos(CommandPhase.DECODE));
+
+        // replayed responses are only decoded
+        SpeedCommand speed = new SpeedCommand();
+        speed.readResult(new int[]{0x41, 0x0D, 0x40}, 3);
+        monitor.record(speed);
+        assertEquals(speed.getNanos(CommandPhase.ECU_WAIT), -1);
+        assertTrue(speed.getNanos(CommandPhase.DECODE) >= 0);
+
+        assertEquals(monitor.getHistogram(new RPMCommand(), CommandPhase.TOTAL).getCount(), 4);
+        assertTrue(monitor.getHistogram(rpm, CommandPhase.ECU_WAIT).getValueAtPercentile(50) >= 20000);
+        assertEquals(monitor.getHistogram(speed, CommandPhase.TOTAL).getCount(), 0);
+        assertEquals(monitor.getHistogram(speed, CommandPhase.DECODE).getCount(), 1);
+        assertNull(monitor.getHistogram(new EchoOffCommand(), CommandPhase.TOTAL));
+
+        List<LatencyStats> snapshot = monitor.snapshot();
+        assertEquals(snapshot.size(), 2 * CommandPhase.values().length);
+        assertEquals(snapshot.get(0).getCommand(), rpm.getName());
+        assertEquals(snapshot.get(0).getPhase(), CommandPhase.WRITE);
+        LatencyStats total = snapshot.get(CommandPhase.TOTAL.ordinal());
+        assertEquals(total.getCount(), 4);
+        assertTrue(total.getP50() <= total.getP99());
+        assertTrue(total.getP99() <= total.getMax());
+    }
+
+    /**
+     * Test errors are counted by type
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testErrors() throws Exception {
+        LatencyMonitor monitor = new LatencyMonitor();
+        final int[] forwarded = {0};
+        PollingListener listener = monitor.monitor(new PollingListener() {
+            @Override
+            public void onResult(ObdCommand command) {
+                forwarded[0]++;
+            }
+
+            @Override
+            public void onError(ObdCommand command, Exception e) {
+                forwarded[0]++;
+            }
+        });
+        SpeedCommand speed = new SpeedCommand();
+        listener.onError(speed, new NoDataException());
+        listener.onError(speed, new NoDataException());
+        listener.onError(speed, new UnableToConnectException());
+        assertEquals(forwarded[0], 3);
+        assertEquals(monitor.getErrorCount(NoDataException.class), 2);
+        assertEquals(monitor.getErrorCount(UnableToConnectException.class), 1);
+        assertEquals(monitor.getErrorCounts().toString(), "{NoDataException=2, UnableToConnectException=1}");
+
+        monitor.reset();
+        assertEquals(monitor.getErrorCounts().size(), 0);
+    }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.exceptions.AdapterTimeoutException;
+import com.github.pires.obd.exceptions.NoDataException;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for ObdPoller class.
+ */
+public class ObdPollerTest {
+
+    /**
+     * Test results and errors reported to the listener
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testPolling() throws Exception {
+        final SpeedCommand speed = new SpeedCommand();
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        final CountDownLatch done = new CountDownLatch(3);
+        PidScheduler scheduler = new PidScheduler();
+        scheduler.add(speed, 100);
+        ObdSession session = new ObdSession(new ByteArrayInputStream(
+                "41 0D 40\r\r>NO DATA\r\r>41 0D 41\r\r>".getBytes()), new ByteArrayOutputStream());
+
+        ObdPoller poller = new ObdPoller(session, scheduler, new PollingListener() {
+            @Override
+            public void onResult(ObdCommand command) {
+                results.add(command.getCalculatedResult());
+                done.countDown();
+            }
+
+            @Override
+            public void onError(ObdCommand command, Exception e) {
+                errors.add(e);
+                done.countDown();
+            }
+        });
+        poller.start();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        poller.stop();
+
+        assertEquals(results.get(0), "64");
+        assertEquals(results.get(1), "65");
+        assertEquals(errors.get(0).getClass(), NoDataException.class);
+    }
+
+    /**
+     * Test a response timing out is reported and polling goes on
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testTimeout() throws Exception {
+        final List<String> results = Collections.synchronizedList(new ArrayList<String>());
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        final CountDownLatch done = new CountDownLatch(1);
+        PidScheduler scheduler = new PidScheduler();
+        scheduler.add(new SpeedCommand(), 100);
+        InputStream adapter = new InputStream() {
+            private final InputStream responses = new ByteArrayInputStream("41 0D 40\r\r>".getBytes());
+            private boolean timedOut = false;
+
+            @Override
+            public int read() throws IOException {
+                if (!timedOut) {
+                    timedOut = true;
+                    throw new AdapterTimeoutException(100);
+                }
+                return responses.read();
+            }
+        };
+
+        ObdPoller poller = new ObdPoller(new ObdSession(adapter, new ByteArrayOutputStream()), scheduler,
+                new PollingListener() {
+                    @Override
+                    public void onResult(ObdCommand command) {
+                        results.add(command.getCalculatedResult());
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onError(ObdCommand command, Exception e) {
+                        errors.add(e);
+                    }
+                });
+        poller.start();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        poller.stop();
+
+        assertEquals(errors.get(0).getClass(), AdapterTimeoutException.class);
+        assertEquals(results.get(0), "64");
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.polling;
+
+import com.github.pires.obd.commands.ObdCommand;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.control.TroubleCodesCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.fuel.FuelLevelCommand;
+import com.github.pires.obd.commands.temperature.EngineCoolantTemperatureCommand;
+import com.github.pires.obd.utils.PidSupportMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for PidScheduler class.
+ */
+public class PidSchedulerTest {
+
+    private static final long SECOND = 1000000000L;
+
+    private PidScheduler scheduler;
+    private RPMCommand rpm;
+    private SpeedCommand speed;
+    private EngineCoolantTemperatureCommand coolant;
+    private FuelLevelCommand fuel;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        scheduler = new PidScheduler();
+        rpm = new RPMCommand();
+        speed = new SpeedCommand();
+        coolant = new EngineCoolantTemperatureCommand();
+        fuel = new FuelLevelCommand();
+        scheduler.add(rpm, 10);
+        scheduler.add(speed, 10);
+        scheduler.add(coolant, 0.2);
+        scheduler.add(fuel, 0.05);
+    }
+
+    /**
+     * Every command runs once right away, then nothing is due until the
+     * fastest period elapsed
+     */
+    @Test
+    public void testIdle() {
+        long now = System.nanoTime() + 1;
+        for (int i = 0; i < 4; i++) {
+            assertTrue(scheduler.next(now) != null);
+        }
+        assertNull(scheduler.next(now));
+        assertTrue(scheduler.next(now + SECOND / 10) != null);
+    }
+
+    /**
+     * An overloaded channel shares samples in proportion to the frequencies
+     */
+    @Test
+    public void testOverloaded() {
+        long now = System.nanoTime() + 1;
+        int rpmSamples = 0;
+        int coolantSamples = 0;
+        int fuelSamples = 0;
+        // 60s of a channel doing 10 requests per second, half the 20.25Hz asked for
+        for (int i = 0; i < 600; i++) {
+            now += SECOND / 10;
+            ObdCommand command = scheduler.next(now);
+            if (command == rpm) {
+                rpmSamples++;
+            } else if (command == coolant) {
+                coolantSamples++;
+            } else if (command == fuel) {
+                fuelSamples++;
+            }
+        }
+        assertTrue(rpmSamples >= 280 && rpmSamples <= 310, "rpm " + rpmSamples);
+        assertTrue(coolantSamples >= 6 && coolantSamples <= 13, "coolant " + coolantSamples);
+        assertTrue(fuelSamples >= 2 && fuelSamples <= 4, "fuel " + fuelSamples);
+    }
+
+    /**
+     * Test removing a command
+     */
+    @Test
+    public void testRemove() {
+        scheduler.remove(speed);
+        assertEquals(scheduler.size(), 3);
+    }
+
+    /**
+     * Commands the vehicle doesn't support are dropped, unknown ones kept
+     */
+    @Test
+    public void testSupportMap() {
+        PidSupportMap supportMap = new PidSupportMap();
+        // 0C, 0D and 05 but not 2F, the fuel level
+        supportMap.add(0x01, 0x00, 0x08180001);
+        supportMap.add(0x01, 0x20, 0x00000000);
+        scheduler.setSupportMap(supportMap);
+        assertEquals(scheduler.size(), 3);
+        assertFalse(scheduler.add(fuel, 0.05));
+        assertTrue(scheduler.add(new TroubleCodesCommand(), 0.01));
+        assertEquals(scheduler.size(), 4);
+    }
+}
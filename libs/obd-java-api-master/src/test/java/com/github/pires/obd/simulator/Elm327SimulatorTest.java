@@ -0,0 +1,263 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.simulator;
+
+import com.github.pires.obd.commands.ObdMultiCommand;
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.control.TroubleCodesCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.engine.LoadCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
+import com.github.pires.obd.commands.protocol.SelectProtocolCommand;
+import com.github.pires.obd.commands.temperature.EngineCoolantTemperatureCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.InetAddress;
+import java.net.Socket;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for Elm327Simulator class.
+ */
+public class Elm327SimulatorTest {
+
+    private Elm327Simulator simulator;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+        simulator = new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN));
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        simulator.stop();
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Test commands run through a session over the in-memory streams
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testSession() throws Exception {
+        simulator.start();
+        ObdSession session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+        session.run(new EchoOffCommand());
+        session.run(new LineFeedOffCommand());
+        session.run(new SelectProtocolCommand(ObdProtocols.AUTO));
+
+        RPMCommand rpm = new RPMCommand();
+        session.poll(rpm);
+        SpeedCommand speed = new SpeedCommand();
+        session.poll(speed);
+        session.poll(speed);
+        VinCommand vin = new VinCommand();
+        session.run(vin);
+
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(speed.getMetricSpeed(), 64);
+        assertEquals(vin.getFormattedResult(), "WP0ZZZ99ZTS392124");
+        assertEquals(simulator.getRequestCount(), 7);
+    }
+
+    /**
+     * Test a batched request served in a multi frame CAN message
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testBatchedRequest() throws Exception {
+        simulator.start();
+        ObdSession session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+        session.run(new EchoOffCommand());
+        ObdMultiCommand commands = new ObdMultiCommand();
+        commands.setBatchMode(true);
+        RPMCommand rpm = new RPMCommand();
+        SpeedCommand speed = new SpeedCommand();
+        EngineCoolantTemperatureCommand coolant = new EngineCoolantTemperatureCommand();
+        LoadCommand load = new LoadCommand();
+        commands.add(rpm);
+        commands.add(speed);
+        commands.add(coolant);
+        commands.add(load);
+
+        session.run(commands);
+
+        assertEquals(rpm.getRPM(), 1726);
+        assertEquals(speed.getMetricSpeed(), 64);
+        assertEquals(coolant.getTemperature(), 83f);
+        assertEquals(load.getPercentage(), 20f);
+        assertEquals(simulator.getRequestCount(), 2);
+    }
+
+    /**
+     * Test trouble codes on CAN and KWP
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testTroubleCodes() throws Exception {
+        for (ObdProtocols protocol : new ObdProtocols[]{ObdProtocols.ISO_15765_4_CAN, ObdProtocols.ISO_14230_4_KWP}) {
+            VehicleProfile profile = new VehicleProfile(protocol);
+            profile.addTroubleCode("P0133");
+            profile.addTroubleCode("C1104");
+            profile.addTroubleCode("B21AB");
+            profile.addTroubleCode("U3106");
+            Elm327Simulator adapter = new Elm327Simulator(profile);
+            adapter.start();
+            ObdSession session = new ObdSession(adapter.getInputStream(), adapter.getOutputStream());
+            session.run(new EchoOffCommand());
+            session.run(new LineFeedOffCommand());
+            session.run(new SelectProtocolCommand(protocol));
+            TroubleCodesCommand codes = new TroubleCodesCommand();
+
+            session.run(codes);
+            adapter.stop();
+
+            assertEquals(codes.getFormattedResult(), "P0133\nC1104\nB21AB\nU3106\n");
+        }
+    }
+
+    /**
+     * Test CAN responses with and without headers and spaces
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCanFormat() throws Exception {
+        simulator.respond("AT L0");
+        simulator.respond("AT SP 6");
+
+        assertEquals(simulator.respond("01 0C"), "41 0C 1A F8\r");
+        assertEquals(simulator.respond("09 02"),
+                "014\r0: 49 02 01 57 50 30\r1: 5A 5A 5A 39 39 5A 54\r2: 53 33 39 32 31 32 34\r");
+        simulator.respond("AT H1");
+        assertEquals(simulator.respond("01 0C"), "7E8 04 41 0C 1A F8\r");
+        assertEquals(simulator.respond("09 02"),
+                "7E8 10 14 49 02 01 57 50 30\r7E8 21 5A 5A 5A 39 39 5A 54\r7E8 22 53 33 39 32 31 32 34\r");
+        simulator.respond("AT H0");
+        simulator.respond("AT S0");
+        assertEquals(simulator.respond("010D"), "410D40\r");
+        assertEquals(simulator.respond(""), "410D40\r");
+        assertEquals(simulator.respond("AT DPN"), "6\r");
+    }
+
+    /**
+     * Test KWP responses with headers and checksum
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testKwpFormat() throws Exception {
+        Elm327Simulator kwp = new Elm327Simulator(VehicleProfile.sample(ObdProtocols.ISO_14230_4_KWP_FAST));
+        kwp.respond("AT L0");
+
+        assertEquals(kwp.respond("01 0C"), "SEARCHING...\r41 0C 1A F8\r");
+        assertEquals(kwp.respond("01 0C 0D"), "NO DATA\r");
+        assertEquals(kwp.respond("AT DP"), "AUTO, ISO 14230-4 (KWP FAST)\r");
+        kwp.respond("AT H1");
+        assertEquals(kwp.respond("01 0C"), "84 F1 11 41 0C 1A F8 E5\r");
+    }
+
+    /**
+     * Test the supported PIDs bitmaps derived from the profile
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAvailablePids() throws Exception {
+        VehicleProfile profile = new VehicleProfile(ObdProtocols.ISO_15765_4_CAN);
+        profile.setPid(0x0C, 0x1A, 0xF8);
+        profile.setPid(0x21, 0x00, 0x00);
+        Elm327Simulator can = new Elm327Simulator(profile);
+        can.respond("AT L0");
+        can.respond("AT SP 6");
+        can.respond("AT ST 01");
+
+        assertEquals(can.respond("01 00"), "41 00 00 10 00 01\r");
+        assertEquals(can.respond("01 20"), "41 20 80 00 00 00\r");
+        assertEquals(can.respond("01 40"), "NO DATA\r");
+        assertEquals(can.respond("01 0D"), "NO DATA\r");
+    }
+
+    /**
+     * Test a fixed protocol the vehicle doesn't talk
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWrongProtocol() throws Exception {
+        simulator.respond("AT L0");
+        simulator.respond("AT ST 01");
+        simulator.respond("AT SP 3");
+
+        assertEquals(simulator.respond("01 0C"), "UNABLE TO CONNECT\r");
+        assertEquals(simulator.respond("AT XYZ"), "?\r");
+    }
+
+    /**
+     * Test latency, and responses slower than the timeout
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLatency() throws Exception {
+        simulator.respond("AT L0");
+        simulator.respond("AT SP 6");
+        simulator.setLatency(30);
+
+        long start = System.nanoTime();
+        assertEquals(simulator.respond("01 0D 1"), "41 0D 40\r");
+        assertTrue(System.nanoTime() - start >= 30000000L);
+
+        simulator.respond("AT ST 05");
+        assertEquals(simulator.respond("01 0D 1"), "NO DATA\r");
+    }
+
+    /**
+     * Test a session over loopback TCP
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testTcp() throws Exception {
+        int port = simulator.listen(0);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            ObdSession session = new ObdSession(socket.getInputStream(), socket.getOutputStream());
+            session.run(new EchoOffCommand());
+            SpeedCommand speed = new SpeedCommand();
+
+            session.poll(speed);
+
+            assertEquals(speed.getMetricSpeed(), 64);
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.telemetry;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.enums.ResultUnit;
+import com.github.pires.obd.polling.PidScheduler;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static com.github.pires.obd.polling.PollerFixture.feed;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for TelemetryBus class.
+ */
+public class TelemetryBusTest {
+
+    private PidScheduler scheduler;
+    private TelemetryBus bus;
+    private RPMCommand rpm;
+    private SpeedCommand speed;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        scheduler = new PidScheduler();
+        bus = new TelemetryBus(scheduler);
+        rpm = new RPMCommand();
+        speed = new SpeedCommand();
+    }
+
+    /**
+     * Test a subscriber behind gets the latest value of each command
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConflate() throws Exception {
+        Subscription gauges = bus.subscribe(4, OverflowPolicy.CONFLATE);
+        assertTrue(gauges.add(rpm, 10));
+        assertTrue(gauges.add(speed, 10));
+        assertEquals(scheduler.size(), 2);
+
+        feed(bus, rpm, 1000, 0x0B, 0xB8);
+        feed(bus, speed, 1000, 0x40);
+        feed(bus, rpm, 1100, 0x1A, 0xF8);
+        assertEquals(gauges.size(), 2);
+        assertEquals(gauges.getDropped(), 1);
+
+        Sample sample = new Sample();
+        assertTrue(gauges.poll(sample));
+        assertSame(sample.getCommand(), rpm);
+        assertEquals(sample.getValue(), 1726.0);
+        assertEquals(sample.getUnit(), ResultUnit.RPM);
+        assertEquals(sample.getTimestamp(), 1100);
+        assertTrue(gauges.poll(sample));
+        assertSame(sample.getCommand(), speed);
+        assertEquals(sample.getValue(), 64.0);
+        assertFalse(gauges.poll(sample));
+
+        // a value queued again after being taken
+        feed(bus, rpm, 1200, 0x0B, 0xB8);
+        assertTrue(gauges.poll(sample));
+        assertEquals(sample.getValue(), 750.0);
+    }
+
+    /**
+     * Test a full queue drops its oldest samples
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDropOldest() throws Exception {
+        Subscription logger = bus.subscribe(2, OverflowPolicy.DROP_OLDEST);
+        logger.add(rpm, 10);
+        feed(bus, rpm, 1000, 0x00, 0x04);
+        feed(bus, rpm, 1100, 0x00, 0x08);
+        feed(bus, rpm, 1200, 0x00, 0x0C);
+        assertEquals(logger.getDropped(), 1);
+
+        final StringBuilder values = new StringBuilder();
+        int count = logger.drain(new SampleListener() {
+            @Override
+            public void onSample(Sample sample) {
+                values.append(sample.getValue()).append(' ');
+            }
+        });
+        assertEquals(count, 2);
+        assertEquals(values.toString(), "2.0 3.0 ");
+    }
+
+    /**
+     * Test each subscriber gets its own rate, and the scheduler the highest
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRate() throws Exception {
+        Subscription gauges = bus.subscribe(64, OverflowPolicy.DROP_OLDEST);
+        Subscription logger = bus.subscribe(64, OverflowPolicy.DROP_OLDEST);
+        gauges.add(rpm, 10);
+        logger.add(rpm, 1);
+        assertEquals(bus.getSubscriberCount(), 2);
+        // 10Hz with some jitter
+        for (int i = 0; i < 20; i++) {
+            feed(bus, rpm, 1000 + i * 100 + (i % 3) * 7, 0x0B, 0xB8);
+        }
+        assertEquals(gauges.size(), 20);
+        assertEquals(logger.size(), 2);
+
+        // dropped queued samples of a command no longer subscribed to
+        logger.remove(rpm);
+        assertFalse(logger.poll(new Sample()));
+        assertEquals(scheduler.size(), 1);
+
+        gauges.close();
+        assertEquals(bus.getSubscriberCount(), 1);
+        assertEquals(scheduler.size(), 0);
+        feed(bus, rpm, 5000, 0x0B, 0xB8);
+        assertEquals(logger.size(), 0);
+    }
+
+    /**
+     * Test subscribing again reuses the channels unsubscribed from, once no
+     * queued sample refers to them, and draining reuses its sample
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testResubscribe() throws Exception {
+        Subscription logger = bus.subscribe(4, OverflowPolicy.DROP_OLDEST);
+        logger.add(rpm, 1000);
+        feed(bus, rpm, 1000, 0x0B, 0xB8);
+        logger.remove(rpm);
+        // the rpm sample queued isn't delivered as a speed sample
+        logger.add(speed, 1000);
+        assertEquals(logger.getChannelCount(), 2);
+        assertFalse(logger.poll(new Sample()));
+
+        for (int i = 0; i < 100; i++) {
+            logger.remove(speed);
+            logger.add(rpm, 1000);
+            logger.remove(rpm);
+            logger.add(speed, 1000);
+        }
+        assertEquals(logger.getChannelCount(), 2);
+
+        final Sample[] received = new Sample[2];
+        SampleListener listener = new SampleListener() {
+            @Override
+            public void onSample(Sample sample) {
+                received[received[0] == null ? 0 : 1] = sample;
+            }
+        };
+        feed(bus, speed, 2000, 0x40);
+        assertEquals(logger.drain(listener), 1);
+        feed(bus, speed, 3000, 0x41);
+        assertEquals(logger.drain(listener), 1);
+        assertSame(received[1], received[0]);
+        assertEquals(received[1].getValue(), 65.0);
+    }
+
+    /**
+     * Test publishing never waits for a subscriber that doesn't keep up
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testSlowSubscriber() throws Exception {
+        final Subscription slow = bus.subscribe(8, OverflowPolicy.DROP_OLDEST);
+        slow.add(rpm, 1000);
+        final Sample received = new Sample();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (slow.take(received, 1000)) {
+                        Thread.sleep(50);
+                    }
+                } catch (InterruptedException e) {
+                    // stop
+                }
+            }
+        };
+        consumer.start();
+
+        for (int i = 0; i < 100000; i++) {
+            feed(bus, rpm, i, 0x0B, 0xB8);
+        }
+        assertTrue(slow.size() <= 8);
+        assertTrue(slow.getDropped() > 99000);
+        consumer.interrupt();
+        consumer.join();
+
+        Sample sample = new Sample();
+        slow.close();
+        assertFalse(slow.take(sample, 1000));
+    }
+
+}
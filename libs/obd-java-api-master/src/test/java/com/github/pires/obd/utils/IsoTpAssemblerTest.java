@@ -0,0 +1,173 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.control.TroubleCodesCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.protocol.SelectProtocolCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for IsoTpAssembler class.
+ */
+public class IsoTpAssemblerTest {
+
+    private IsoTpAssembler assembler;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+        assembler = new IsoTpAssembler();
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Test numbered frames with headers off, with and without line breaks
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHeadersOff() throws Exception {
+        String payload = ":490201575030";
+        List<IsoTpMessage> messages = assembler.assemble("SEARCHING...\r00A\r0: 43 04 01 08 01 18\r1: 01 19 01 20 00 00\r\r");
+        assertEquals(messages.size(), 1);
+        assertEquals(messages.get(0).toString(), ":43040108011801190120");
+
+        messages = assembler.assemble("0140:4902015750301:5A5A5A39395A542:53333932313234");
+        assertEquals(messages.size(), 1);
+        assertTrue(messages.get(0).isComplete());
+        assertEquals(messages.get(0).toString(), payload + "5A5A5A39395A5453333932313234");
+
+        messages = assembler.assemble("41 0D 40\r\n41 0D 3F\r\n");
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(1).toString(), ":410D3F");
+    }
+
+    /**
+     * Test CAN frames of two ECUs, interleaved, with 11 and 29 bit headers
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCanHeaders() throws Exception {
+        List<IsoTpMessage> messages = assembler.assemble("7E8 10 0A 43 04 01 08 01 18\r"
+                + "7E9 04 43 01 C1 04\r"
+                + "7E8 21 01 19 01 20 00 00 00\r");
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(0).toString(), "7E8:43040108011801190120");
+        assertEquals(messages.get(1).toString(), "7E9:4301C104");
+
+        messages = assembler.assemble("18 DA F1 10 03 41 0D 40\r18 DA F1 18 03 41 0D 41\r");
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(0).getEcu(), "18DAF110");
+        assertEquals(messages.get(1).getByte(2), 0x41);
+    }
+
+    /**
+     * Test a missing consecutive frame leaves the message incomplete
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testOutOfSequence() throws Exception {
+        List<IsoTpMessage> messages = assembler.assemble("7E8 10 14 49 02 01 57 50 30\r"
+                + "7E8 22 53 33 39 32 31 32 34\r");
+        assertEquals(messages.size(), 1);
+        assertFalse(messages.get(0).isComplete());
+        assertEquals(messages.get(0).getLength(), 6);
+    }
+
+    /**
+     * Test the header and checksum of older protocols are removed
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLegacyHeaders() throws Exception {
+        List<IsoTpMessage> messages = assembler.assemble("48 6B 10 41 0D 40 D9\r86 F1 11 41 0D 40 00 00 00 16\r"
+                + "48 6B 10 41 0D 40 51\r");
+        assertEquals(messages.size(), 3);
+        assertEquals(messages.get(0).toString(), "10:410D40");
+        assertEquals(messages.get(1).toString(), "11:410D40000000");
+        assertEquals(messages.get(2).toString(), "10:410D40");
+
+        // headers off, starting like a header: a C2B01 code, PID 6B
+        messages = assembler.assemble("43 6B 01 01 33 00 00\r41 6B 10 00 00 00 00\r");
+        assertEquals(messages.size(), 2);
+        assertEquals(messages.get(0).toString(), ":436B0101330000");
+        assertEquals(messages.get(1).toString(), ":416B1000000000");
+    }
+
+    /**
+     * Test VIN and trouble codes decode the same with headers on, on every
+     * kind of bus
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 10000)
+    public void testDecoders() throws Exception {
+        for (ObdProtocols protocol : new ObdProtocols[]{ObdProtocols.ISO_15765_4_CAN,
+                ObdProtocols.ISO_15765_4_CAN_B, ObdProtocols.ISO_14230_4_KWP, ObdProtocols.SAE_J1850_VPW}) {
+            for (String headers : new String[]{"AT H0", "AT H1"}) {
+                PersistentCommand.reset();
+                VehicleProfile profile = VehicleProfile.sample(protocol);
+                profile.addTroubleCode("P0133");
+                profile.addTroubleCode("C1104");
+                profile.addTroubleCode("B21AB");
+                profile.addTroubleCode("U3106");
+                Elm327Simulator adapter = new Elm327Simulator(profile);
+                adapter.start();
+                ObdSession session = new ObdSession(adapter.getInputStream(), adapter.getOutputStream());
+                session.run(new EchoOffCommand());
+                session.run(new ObdRawCommand(headers));
+                session.run(new SelectProtocolCommand(protocol));
+                VinCommand vin = new VinCommand();
+                TroubleCodesCommand codes = new TroubleCodesCommand();
+
+                session.run(vin);
+                session.run(codes);
+                adapter.stop();
+
+                String context = protocol + " " + headers;
+                assertEquals(vin.getFormattedResult(), "WP0ZZZ99ZTS392124", context);
+                assertEquals(codes.getFormattedResult(), "P0133\nC1104\nB21AB\nU3106\n", context);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import com.github.pires.obd.commands.ObdSession;
+import com.github.pires.obd.commands.PersistentCommand;
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.control.TroubleCodesCommand;
+import com.github.pires.obd.commands.control.VinCommand;
+import com.github.pires.obd.commands.fuel.FuelLevelCommand;
+import com.github.pires.obd.commands.protocol.AvailablePidsCommand_01_20;
+import com.github.pires.obd.commands.protocol.EchoOffCommand;
+import com.github.pires.obd.commands.protocol.LineFeedOffCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.protocol.SupportedPidsCommand;
+import com.github.pires.obd.enums.ObdProtocols;
+import com.github.pires.obd.simulator.Elm327Simulator;
+import com.github.pires.obd.simulator.VehicleProfile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for PidSupportMap class.
+ */
+public class PidSupportMapTest {
+
+    private PidSupportMap map;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        PersistentCommand.reset();
+        map = new PidSupportMap();
+    }
+
+    /**
+     * Clear resources.
+     */
+    @AfterMethod
+    public void tearDown() {
+        PersistentCommand.reset();
+    }
+
+    /**
+     * Test a bitmap gives the same answers as CommandAvailabilityHelper
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBitmap() throws Exception {
+        map.add(0x01, 0x00, 0xBE1FA813);
+        for (int pid = 1; pid <= 0x20; pid++) {
+            assertEquals(map.isSupported(0x01, pid),
+                    CommandAvailabilityHelper.isAvailable(String.format("%02X", pid), "BE1FA813"), "PID " + pid);
+            assertTrue(map.isKnown(0x01, pid));
+        }
+        assertTrue(map.isSupported(0x01, 0x00));
+        assertFalse(map.isKnown(0x01, 0x21));
+        assertFalse(map.isSupported(0x09, 0x02));
+        assertFalse(map.isSupported(0x01, 0x100));
+    }
+
+    /**
+     * Test responses of several ECUs are merged
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAddResponse() throws Exception {
+        AvailablePidsCommand_01_20 pids = new AvailablePidsCommand_01_20();
+        pids.run(new ByteArrayInputStream("41 00 80 00 00 01\r41 00 00 08 00 00>".getBytes()),
+                new ByteArrayOutputStream());
+        assertTrue(map.add(pids));
+        assertTrue(map.isSupported(0x01, 0x01));
+        assertTrue(map.isSupported(0x01, 0x0D));
+        assertTrue(map.isSupported(0x01, 0x20));
+        assertFalse(map.isSupported(0x01, 0x0C));
+
+        assertFalse(map.isUnsupported(new SpeedCommand()));
+        assertFalse(map.isUnsupported(new VinCommand()));
+        assertFalse(map.isUnsupported(new TroubleCodesCommand()));
+        map.add(0x09, 0x00, 0);
+        assertTrue(map.isUnsupported(new VinCommand()));
+    }
+
+    /**
+     * Test the ranges are probed as far as the vehicle supports them, and
+     * only once
+     *
+     * @throws Exception
+     */
+    @Test(timeOut = 5000)
+    public void testProbe() throws Exception {
+        VehicleProfile profile = VehicleProfile.sample(ObdProtocols.ISO_15765_4_CAN);
+        profile.setPid(0xA6, 0x00, 0x01, 0xE2, 0x40);
+        Elm327Simulator simulator = new Elm327Simulator(profile);
+        simulator.start();
+        try {
+            ObdSession session = new ObdSession(simulator.getInputStream(), simulator.getOutputStream());
+            session.run(new EchoOffCommand());
+            session.run(new LineFeedOffCommand());
+            map = PidSupportMap.probe(session);
+            assertTrue(map.isSupported(0x01, 0x0C));
+            assertTrue(map.isSupported(0x01, 0xA6));
+            assertFalse(map.isSupported(0x01, 0xA5));
+            assertTrue(map.isKnown(0x01, 0xA5));
+            assertTrue(map.isKnown(0x01, 0xC1));
+            assertFalse(map.isSupported(0x01, 0xC1));
+            assertTrue(map.isUnsupported(new ObdRawCommand("01 C1")));
+            assertTrue(map.isKnown(0x09, 0xFF));
+            assertTrue(map.isSupported(0x09, 0x02));
+            assertTrue(map.isKnown(0x06, 0x01));
+            assertFalse(map.isSupported(0x06, 0x01));
+            assertTrue(new SupportedPidsCommand(0x01, 0xA0).isKnown(session));
+
+            // 2 + 0100 to 01A0 + 0600 + 0900
+            assertEquals(simulator.getRequestCount(), 2 + 6 + 1 + 1);
+            PidSupportMap.probe(session);
+            // mode 06 got NO DATA, which isn't kept
+            assertEquals(simulator.getRequestCount(), 2 + 6 + 1 + 1 + 1);
+        } finally {
+            simulator.stop();
+        }
+    }
+    /**
+     * Test the ranges after the end of the chain are known unsupported, so
+     * their commands are filtered
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testEndOfChain() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObdSession session = new ObdSession(new ByteArrayInputStream("41 00 BE 1F A8 12\r\r>".getBytes()), out);
+        map.probe(session, 0x01);
+
+        assertEquals(out.toString(), "01 00\r");
+        assertTrue(map.isKnown(0x01, 0x2F));
+        assertTrue(map.isUnsupported(new FuelLevelCommand()));
+        assertFalse(map.isUnsupported(new SpeedCommand()));
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.github.pires.obd.utils;
+
+import com.github.pires.obd.commands.SpeedCommand;
+import com.github.pires.obd.commands.engine.RPMCommand;
+import com.github.pires.obd.commands.protocol.ObdRawCommand;
+import com.github.pires.obd.commands.temperature.EngineCoolantTemperatureCommand;
+import com.github.pires.obd.enums.ResultUnit;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests for ResultFormatter class.
+ */
+public class ResultFormatterTest {
+
+    private ResultFormatter formatter;
+
+    /**
+     * @throws Exception
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        formatter = new ResultFormatter();
+    }
+
+    /**
+     * Test typed values and units, following the system of units.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testValue() throws Exception {
+        SpeedCommand speed = new SpeedCommand();
+        speed.readResult(new int[]{0x41, 0x0D, 0x40}, 3);
+        assertEquals(speed.value(), 64.0);
+        assertEquals(speed.unit(), ResultUnit.KILOMETERS_PER_HOUR);
+        assertEquals(speed.rawA(), 0x40);
+        assertEquals(speed.rawB(), -1);
+        speed.useImperialUnits(true);
+        assertEquals(speed.value(), 39.77, 0.01);
+        assertEquals(speed.unit(), ResultUnit.MILES_PER_HOUR);
+        assertEquals(speed.getResultUnit(), "mph");
+
+        RPMCommand rpm = new RPMCommand();
+        rpm.readResult(new int[]{0x41, 0x0C, 0x1A, 0xF8}, 4);
+        assertEquals(rpm.value(), 1726.0);
+        assertEquals(rpm.rawB(), 0xF8);
+
+        ObdRawCommand raw = new ObdRawCommand("01 0D");
+        assertTrue(Double.isNaN(raw.value()));
+        assertEquals(raw.unit(), ResultUnit.NONE);
+        assertEquals(raw.rawA(), -1);
+    }
+
+    /**
+     * Test the text is built once per distinct value.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFormat() throws Exception {
+        EngineCoolantTemperatureCommand temperature = new EngineCoolantTemperatureCommand();
+        temperature.readResult(new int[]{0x41, 0x05, 0x7B}, 3);
+        String first = formatter.format(temperature);
+        assertEquals(first, "83C");
+        temperature.readResult(new int[]{0x41, 0x05, 0x7B}, 3);
+        assertSame(formatter.format(temperature), first);
+
+        temperature.useImperialUnits(true);
+        assertEquals(formatter.format(temperature), "181.4F");
+        temperature.readResult(new int[]{0x41, 0x05, 0x28}, 3);
+        assertNotSame(formatter.format(temperature), first);
+        assertEquals(formatter.format(temperature), "32.0F");
+
+        ObdRawCommand raw = new ObdRawCommand("01 0D");
+        raw.readResult(new int[]{0x41, 0x0D, 0x40}, 3);
+        assertEquals(formatter.format(raw), raw.getFormattedResult());
+    }
+
+    /**
+     * Test rounding and padding of the decimals.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAppend() throws Exception {
+        StringBuilder text = new StringBuilder();
+        ResultFormatter.append(text, 1.005, 3);
+        text.append(' ');
+        ResultFormatter.append(text, -0.04, 1);
+        text.append(' ');
+        ResultFormatter.append(text, -12.345, 2);
+        text.append(' ');
+        ResultFormatter.append(text, 7.96, 1);
+        text.append(' ');
+        ResultFormatter.append(text, 42.5, 0);
+        assertEquals(text.toString(), "1.005 0.0 -12.35 8.0 43");
+    }
+
+}